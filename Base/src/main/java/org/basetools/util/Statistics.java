@@ -3,6 +3,7 @@ package org.basetools.util;
 import net.minidev.json.JSONArray;
 import net.minidev.json.JSONObject;
 import org.basetools.util.array.ArrayUtil;
+import org.basetools.util.collection.ConcurrentLimitedQueue;
 import org.basetools.util.collection.LimitedQueue;
 
 import java.time.Instant;
@@ -17,7 +18,7 @@ public class Statistics<I> extends DoubleSummaryStatistics {
     private I minInfo;
     private long minCreated;
     private long maxCreated;
-    private LimitedQueue<Object[]> history;
+    private volatile LimitedQueue<Object[]> history;
     private int historyLimit = 5;
 
     public Statistics() {
@@ -63,11 +64,23 @@ public class Statistics<I> extends DoubleSummaryStatistics {
         }
     }
 
+    /**
+     * Returns the history of the previous maximum values, safe to be filled from several threads.
+     *
+     * @return the history
+     */
     public LimitedQueue<Object[]> getHistory() {
-        if (history == null) {
-            history = new LimitedQueue<>(historyLimit);
+        LimitedQueue<Object[]> current = history;
+        if (current == null) {
+            synchronized (this) {
+                current = history;
+                if (current == null) {
+                    current = new ConcurrentLimitedQueue<>(historyLimit);
+                    history = current;
+                }
+            }
         }
-        return history;
+        return current;
     }
 
     /**
@@ -189,12 +202,15 @@ public class Statistics<I> extends DoubleSummaryStatistics {
         return Instant.ofEpochMilli(date.getTime()).atZone(ZoneId.systemDefault()).toLocalDateTime();
     }
 
+    /**
+     * Resets the infos and the history. The summary values can't be reset, create a new instance for that.
+     */
     public void clear() {
         maxInfo = null;
         minInfo = null;
         minCreated = 0;
         maxCreated = 0;
-        clear();
+        getHistory().clear();
     }
 
     public void setHistoryLimit(int limit) {
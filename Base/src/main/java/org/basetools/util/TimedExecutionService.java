@@ -1,20 +1,64 @@
 package org.basetools.util;
 
+import org.basetools.util.concurrent.HashedWheelTimer;
+
+import java.util.Timer;
 import java.util.TimerTask;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * Runs delayed and periodic tasks on one shared {@link HashedWheelTimer}, so scheduling doesn't cost a thread per call.
+ * {@link TimerTask}s run on one shared {@link Timer} instead, so {@link TimerTask#cancel()} keeps working. Unlike the
+ * former {@link Timer} per call, that timer runs all TimerTasks one after the other on its single thread: a slow or
+ * blocking TimerTask delays all others, so long running work should be scheduled as {@link Runnable} or handed to an
+ * executor by the task.
+ * <p>
+ * All timer threads are daemon threads: unlike the former {@link Timer} per call, pending tasks don't keep the JVM
+ * alive. An application which has to wait for its scheduled tasks must keep a non-daemon thread running.
+ */
 public class TimedExecutionService {
+    private static volatile HashedWheelTimer timer;
+    private static volatile Timer taskTimer;
+
     private TimedExecutionService() {
         super();
     }
 
-    private static TimerTask wrap(final Runnable r) {
-        return new TimerTask() {
-
-            @Override
-            public void run() {
-                r.run();
+    /**
+     * Returns the shared timer, created on first use with the default tick of
+     * {@value HashedWheelTimer#DEFAULT_TICK_MILLIS}ms.
+     *
+     * @return the shared timer
+     */
+    public static HashedWheelTimer getTimer() {
+        HashedWheelTimer current = timer;
+        if (current == null) {
+            synchronized (TimedExecutionService.class) {
+                current = timer;
+                if (current == null) {
+                    current = new HashedWheelTimer();
+                    timer = current;
+                }
             }
-        };
+        }
+        return current;
+    }
+
+    /**
+     * Replaces the shared timer, e.g. by one with another tick resolution or callback executor. The previous timer is
+     * stopped, its pending tasks don't run anymore.
+     *
+     * @param newTimer the new shared timer
+     */
+    public static void setTimer(HashedWheelTimer newTimer) {
+        final HashedWheelTimer previous;
+        synchronized (TimedExecutionService.class) {
+            previous = timer;
+            timer = newTimer;
+        }
+        if (previous != null && previous != newTimer) {
+            previous.stop();
+        }
     }
 
     /**
@@ -22,34 +66,56 @@ public class TimedExecutionService {
      *
      * @param task  task to be scheduled.
      * @param delay delay in milliseconds before task is to be executed.
-     * @throws IllegalArgumentException if <tt>delay</tt> is negative, or
-     *                                  <tt>delay + System.currentTimeMillis()</tt> is negative.
-     * @throws IllegalStateException    if task was already scheduled or
-     *                                  cancelled, timer was cancelled, or timer thread terminated.
+     * @return the handle to cancel the task
+     * @throws IllegalArgumentException if <tt>delay</tt> is negative
      * @throws NullPointerException     if {@code task} is null
      */
-    public static void schedule(Runnable task, int delay) {
-        schedule(
-                wrap(task),
-                delay
-        );
+    public static HashedWheelTimer.Timeout schedule(Runnable task, int delay) {
+        if (delay < 0) {
+            throw new IllegalArgumentException("Negative delay.");
+        }
+        return getTimer().schedule(task, delay, TimeUnit.MILLISECONDS);
     }
 
     /**
-     * Schedules the specified task for execution after the specified delay.
+     * Schedules the specified task for execution after the specified delay. The task is run by a shared daemon
+     * {@link Timer}, which only knows whether a {@link TimerTask} was cancelled; cancel it by
+     * {@link TimerTask#cancel()}. All TimerTasks share the thread of that timer, a blocking task delays the others.
      *
      * @param task  task to be scheduled.
      * @param delay delay in milliseconds before task is to be executed.
-     * @throws IllegalArgumentException if <tt>delay</tt> is negative, or
-     *                                  <tt>delay + System.currentTimeMillis()</tt> is negative.
-     * @throws IllegalStateException    if task was already scheduled or
-     *                                  cancelled, timer was cancelled, or timer thread terminated.
+     * @throws IllegalArgumentException if <tt>delay</tt> is negative
+     * @throws IllegalStateException    if task was already scheduled or cancelled
      * @throws NullPointerException     if {@code task} is null
      */
     public static void schedule(TimerTask task, int delay) {
-        new java.util.Timer().schedule(
-                task,
-                delay
-        );
+        Timer current = taskTimer;
+        if (current == null) {
+            synchronized (TimedExecutionService.class) {
+                current = taskTimer;
+                if (current == null) {
+                    current = new Timer("TimedExecutionService", true);
+                    taskTimer = current;
+                }
+            }
+        }
+        current.schedule(task, delay);
+    }
+
+    /**
+     * Schedules the specified task for repeated execution, starting after the specified delay.
+     *
+     * @param task   task to be scheduled.
+     * @param delay  delay in milliseconds before task is executed the first time.
+     * @param period time in milliseconds between two executions.
+     * @return the handle to cancel the task
+     * @throws IllegalArgumentException if <tt>delay</tt> is negative or <tt>period</tt> is not positive
+     * @throws NullPointerException     if {@code task} is null
+     */
+    public static HashedWheelTimer.Timeout scheduleAtFixedRate(Runnable task, int delay, int period) {
+        if (delay < 0) {
+            throw new IllegalArgumentException("Negative delay.");
+        }
+        return getTimer().scheduleAtFixedRate(task, delay, period, TimeUnit.MILLISECONDS);
     }
 }
@@ -0,0 +1,63 @@
+package org.basetools.util.array;
+
+import java.util.function.DoubleConsumer;
+
+/**
+ * {@link RingBuffer} for primitive doubles, stored as their raw bits in a {@link LongRingBuffer}, so neither pushing
+ * nor draining allocates per value.
+ */
+public class DoubleRingBuffer {
+    private final LongRingBuffer bits;
+
+    /**
+     * Creates a buffer.
+     *
+     * @param capacity the capacity, rounded up to a power of two
+     * @param mode     the threads using the two ends
+     */
+    public DoubleRingBuffer(int capacity, RingBufferMode mode) {
+        bits = new LongRingBuffer(capacity, mode);
+    }
+
+    public boolean offer(double value) {
+        return bits.offer(Double.doubleToRawLongBits(value));
+    }
+
+    public void push(double value) {
+        bits.push(Double.doubleToRawLongBits(value));
+    }
+
+    /**
+     * Appends all values, waiting while the buffer is full.
+     *
+     * @param source the values
+     */
+    public void push(double[] source) {
+        for (double value : source) {
+            push(value);
+        }
+    }
+
+    /**
+     * Hands up to limit values to the consumer, claimed as one batch.
+     *
+     * @param consumer receives the values in buffer order
+     * @param limit    the maximum number of values
+     * @return the number of drained values
+     */
+    public int drain(DoubleConsumer consumer, int limit) {
+        return bits.drain(value -> consumer.accept(Double.longBitsToDouble(value)), limit);
+    }
+
+    public int size() {
+        return bits.size();
+    }
+
+    public boolean isEmpty() {
+        return bits.isEmpty();
+    }
+
+    public int capacity() {
+        return bits.capacity();
+    }
+}
@@ -0,0 +1,109 @@
+package org.basetools.util.array;
+
+import java.util.function.LongConsumer;
+
+/**
+ * {@link RingBuffer} for primitive longs, e.g. timestamps or latency samples. The values are stored in a long array,
+ * so neither pushing nor draining allocates per value.
+ */
+public class LongRingBuffer {
+    private final RingSequencer sequencer;
+    private final long[] values;
+
+    /**
+     * Creates a buffer.
+     *
+     * @param capacity the capacity, rounded up to a power of two
+     * @param mode     the threads using the two ends
+     */
+    public LongRingBuffer(int capacity, RingBufferMode mode) {
+        sequencer = new RingSequencer(capacity, mode);
+        values = new long[sequencer.capacity];
+    }
+
+    /**
+     * Appends the value if there is room.
+     *
+     * @param value the value
+     * @return false if the buffer is full
+     */
+    public boolean offer(long value) {
+        final long position = sequencer.claim();
+        if (position < 0) {
+            return false;
+        }
+        values[sequencer.index(position)] = value;
+        sequencer.publish(position);
+        return true;
+    }
+
+    /**
+     * Appends as many of the values as there is room for, in their order.
+     *
+     * @return the number of appended values
+     */
+    public int offer(long[] source, int from, int length) {
+        return sequencer.write(length, (slot, offset) -> values[slot] = source[from + offset]);
+    }
+
+    /**
+     * Appends the value, waiting while the buffer is full.
+     *
+     * @param value the value
+     */
+    public void push(long value) {
+        for (int attempt = 0; !offer(value); attempt++) {
+            RingSequencer.backoff(attempt);
+        }
+    }
+
+    /**
+     * Appends all values, waiting while the buffer is full.
+     *
+     * @param source the values
+     */
+    public void push(long[] source) {
+        int pushed = 0;
+        for (int attempt = 0; pushed < source.length; attempt++) {
+            final int count = offer(source, pushed, source.length - pushed);
+            if (count > 0) {
+                pushed += count;
+                attempt = 0;
+            } else {
+                RingSequencer.backoff(attempt);
+            }
+        }
+    }
+
+    /**
+     * Hands up to limit values to the consumer, claimed as one batch.
+     *
+     * @param consumer receives the values in buffer order
+     * @param limit    the maximum number of values
+     * @return the number of drained values
+     */
+    public int drain(LongConsumer consumer, int limit) {
+        return sequencer.read(limit, (slot, offset) -> consumer.accept(values[slot]));
+    }
+
+    /**
+     * Copies up to length values into the target.
+     *
+     * @return the number of copied values
+     */
+    public int drainTo(long[] target, int from, int length) {
+        return sequencer.read(length, (slot, offset) -> target[from + offset] = values[slot]);
+    }
+
+    public int size() {
+        return sequencer.size();
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    public int capacity() {
+        return sequencer.capacity;
+    }
+}
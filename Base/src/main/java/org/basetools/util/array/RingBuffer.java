@@ -0,0 +1,150 @@
+package org.basetools.util.array;
+
+import java.util.function.Consumer;
+
+/**
+ * Bounded lock-free ring buffer in the style of the Disruptor, an alternative to {@link RollingArray} for hot paths.
+ * Unlike RollingArray it doesn't overwrite the oldest element when full: {@link #offer(Object)} fails and
+ * {@link #push(Object)} waits for a consumer. The {@link RingBufferMode} tells which ends are shared by several
+ * threads; batches are claimed and published with a single counter update.
+ *
+ * @param <T> the element type
+ */
+public class RingBuffer<T> {
+    private final RingSequencer sequencer;
+    private final Object[] elements;
+
+    /**
+     * Creates a buffer.
+     *
+     * @param capacity the capacity, rounded up to a power of two
+     * @param mode     the threads using the two ends
+     */
+    public RingBuffer(int capacity, RingBufferMode mode) {
+        sequencer = new RingSequencer(capacity, mode);
+        elements = new Object[sequencer.capacity];
+    }
+
+    /**
+     * Appends the element if there is room.
+     *
+     * @param element the element, not null
+     * @return false if the buffer is full
+     */
+    public boolean offer(T element) {
+        if (element == null) {
+            throw new NullPointerException();
+        }
+        final long position = sequencer.claim();
+        if (position < 0) {
+            return false;
+        }
+        elements[sequencer.index(position)] = element;
+        sequencer.publish(position);
+        return true;
+    }
+
+    /**
+     * Appends as many of the elements as there is room for, in their order.
+     *
+     * @param values the elements, not null
+     * @return the number of appended elements
+     */
+    public int offer(T[] values) {
+        return offer(values, 0, values.length);
+    }
+
+    public int offer(T[] values, int from, int length) {
+        for (int i = from; i < from + length; i++) {
+            if (values[i] == null) {
+                throw new NullPointerException();
+            }
+        }
+        return sequencer.write(length, (slot, offset) -> elements[slot] = values[from + offset]);
+    }
+
+    /**
+     * Appends the element, waiting while the buffer is full.
+     *
+     * @param element the element, not null
+     */
+    public void push(T element) {
+        for (int attempt = 0; !offer(element); attempt++) {
+            RingSequencer.backoff(attempt);
+        }
+    }
+
+    /**
+     * Appends all elements, waiting while the buffer is full. With several producers the elements may interleave with
+     * theirs when they don't fit at once.
+     *
+     * @param values the elements, not null
+     */
+    public void push(T[] values) {
+        int pushed = 0;
+        for (int attempt = 0; pushed < values.length; attempt++) {
+            final int count = offer(values, pushed, values.length - pushed);
+            if (count > 0) {
+                pushed += count;
+                attempt = 0;
+            } else {
+                RingSequencer.backoff(attempt);
+            }
+        }
+    }
+
+    /**
+     * Takes the oldest element.
+     *
+     * @return the element or null if the buffer is empty
+     */
+    @SuppressWarnings("unchecked")
+    public T poll() {
+        final long position = sequencer.acquire();
+        if (position < 0) {
+            return null;
+        }
+        final int slot = sequencer.index(position);
+        final T element = (T) elements[slot];
+        elements[slot] = null;
+        sequencer.release(position);
+        return element;
+    }
+
+    /**
+     * Hands up to limit elements to the consumer, claimed as one batch.
+     *
+     * @param consumer receives the elements in buffer order
+     * @param limit    the maximum number of elements
+     * @return the number of drained elements
+     */
+    @SuppressWarnings("unchecked")
+    public int drain(Consumer<? super T> consumer, int limit) {
+        return sequencer.read(limit, (slot, offset) -> {
+            final T element = (T) elements[slot];
+            elements[slot] = null;
+            consumer.accept(element);
+        });
+    }
+
+    public int drain(Consumer<? super T> consumer) {
+        return drain(consumer, sequencer.capacity);
+    }
+
+    /**
+     * Returns the number of elements, exact only while no other thread uses the buffer.
+     *
+     * @return the size
+     */
+    public int size() {
+        return sequencer.size();
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    public int capacity() {
+        return sequencer.capacity;
+    }
+}
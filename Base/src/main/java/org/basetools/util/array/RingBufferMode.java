@@ -0,0 +1,36 @@
+package org.basetools.util.array;
+
+/**
+ * The threads allowed to use the two ends of a ring buffer. A single end runs without atomic read-modify-write
+ * operations, a multi end claims its slots by compare and set.
+ */
+public enum RingBufferMode {
+    /**
+     * One producer thread, one consumer thread
+     */
+    SPSC(false, false),
+    /**
+     * Any number of producer threads, one consumer thread
+     */
+    MPSC(true, false),
+    /**
+     * One producer thread, any number of consumer threads
+     */
+    SPMC(false, true);
+
+    private final boolean multiProducer;
+    private final boolean multiConsumer;
+
+    RingBufferMode(boolean multiProducer, boolean multiConsumer) {
+        this.multiProducer = multiProducer;
+        this.multiConsumer = multiConsumer;
+    }
+
+    public boolean isMultiProducer() {
+        return multiProducer;
+    }
+
+    public boolean isMultiConsumer() {
+        return multiConsumer;
+    }
+}
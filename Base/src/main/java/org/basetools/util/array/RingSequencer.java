@@ -0,0 +1,239 @@
+package org.basetools.util.array;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Coordinates the slots of the ring buffers, the elements are stored by the buffers themselves. Every slot carries a
+ * sequence telling whether it may be written (sequence == position) or read (sequence == position + 1) in the current
+ * round, so producers and consumers never read each other's counters on the single-threaded ends. The head and tail
+ * counters are padded to their own cache lines.
+ */
+final class RingSequencer {
+    private static final int SPINS = 100;
+    private static final int YIELDS = 100;
+    final int capacity;
+    private final int mask;
+    private final AtomicLongArray slots;
+    private final Sequence head = new Sequence();
+    private final Sequence tail = new Sequence();
+    private final boolean multiProducer;
+    private final boolean multiConsumer;
+
+    RingSequencer(int capacity, RingBufferMode mode) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be > 0");
+        }
+        this.capacity = capacity == 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+        mask = this.capacity - 1;
+        slots = new AtomicLongArray(this.capacity);
+        for (int i = 0; i < this.capacity; i++) {
+            slots.set(i, i);
+        }
+        multiProducer = mode.isMultiProducer();
+        multiConsumer = mode.isMultiConsumer();
+    }
+
+    int index(long position) {
+        return (int) position & mask;
+    }
+
+    /**
+     * Claims one slot for writing.
+     *
+     * @return the position or -1 if the buffer is full
+     */
+    long claim() {
+        if (multiProducer) {
+            while (true) {
+                final long position = tail.get();
+                if (position - head.get() >= capacity) {
+                    return -1;
+                }
+                if (tail.compareAndSet(position, position + 1)) {
+                    return position;
+                }
+            }
+        }
+        final long position = tail.getPlain();
+        return slots.get(index(position)) == position ? position : -1;
+    }
+
+    void publish(long position) {
+        slots.lazySet(index(position), position + 1);
+        if (!multiProducer) {
+            tail.setRelease(position + 1);
+        }
+    }
+
+    /**
+     * Claims up to max slots, writes them by the writer and publishes them.
+     *
+     * @return the number of written slots
+     */
+    int write(int max, SlotAccess writer) {
+        long position;
+        int count;
+        if (multiProducer) {
+            do {
+                position = tail.get();
+                count = (int) Math.min(max, capacity - (position - head.get()));
+                if (count <= 0) {
+                    return 0;
+                }
+            } while (!tail.compareAndSet(position, position + count));
+        } else {
+            position = tail.getPlain();
+            count = 0;
+            while (count < max && slots.get(index(position + count)) == position + count) {
+                count++;
+            }
+        }
+        for (int i = 0; i < count; i++) {
+            writer.access(index(position + i), i);
+        }
+        for (int i = 0; i < count; i++) {
+            slots.lazySet(index(position + i), position + i + 1);
+        }
+        if (!multiProducer && count > 0) {
+            tail.setRelease(position + count);
+        }
+        return count;
+    }
+
+    /**
+     * Claims one slot for reading.
+     *
+     * @return the position or -1 if the buffer is empty
+     */
+    long acquire() {
+        if (multiConsumer) {
+            while (true) {
+                final long position = head.get();
+                if (slots.get(index(position)) != position + 1) {
+                    return -1;
+                }
+                if (head.compareAndSet(position, position + 1)) {
+                    return position;
+                }
+            }
+        }
+        final long position = head.getPlain();
+        return slots.get(index(position)) == position + 1 ? position : -1;
+    }
+
+    void release(long position) {
+        slots.lazySet(index(position), position + capacity);
+        if (!multiConsumer) {
+            head.setRelease(position + 1);
+        }
+    }
+
+    /**
+     * Claims up to max published slots, reads them by the reader and frees them.
+     *
+     * @return the number of read slots
+     */
+    int read(int max, SlotAccess reader) {
+        long position;
+        int count;
+        do {
+            position = multiConsumer ? head.get() : head.getPlain();
+            count = 0;
+            while (count < max && slots.get(index(position + count)) == position + count + 1) {
+                count++;
+            }
+            if (count == 0) {
+                return 0;
+            }
+        } while (multiConsumer && !head.compareAndSet(position, position + count));
+        int i = 0;
+        try {
+            for (; i < count; i++) {
+                reader.access(index(position + i), i);
+                slots.lazySet(index(position + i), position + i + capacity);
+            }
+        } finally {
+            // a failing reader drops the rest of the batch, but must not block the slots
+            for (; i < count; i++) {
+                slots.lazySet(index(position + i), position + i + capacity);
+            }
+            if (!multiConsumer) {
+                head.setRelease(position + count);
+            }
+        }
+        return count;
+    }
+
+    int size() {
+        final long size = tail.get() - head.get();
+        return (int) Math.max(0, Math.min(capacity, size));
+    }
+
+    /**
+     * Waits a little longer on every attempt: spinning first, then yielding, then parking.
+     */
+    static void backoff(int attempt) {
+        if (attempt < SPINS) {
+            Thread.onSpinWait();
+        } else if (attempt < SPINS + YIELDS) {
+            Thread.yield();
+        } else {
+            LockSupport.parkNanos(1_000L);
+        }
+    }
+
+    /**
+     * Reads or writes the element of a slot.
+     */
+    interface SlotAccess {
+        /**
+         * @param slot   the index in the buffer
+         * @param offset the offset within the batch
+         */
+        void access(int slot, int offset);
+    }
+
+    abstract static class LeftPadding {
+        long p01, p02, p03, p04, p05, p06, p07;
+    }
+
+    abstract static class Value extends LeftPadding {
+        volatile long value;
+    }
+
+    /**
+     * Counter with cache line padding on both sides, so the producer and consumer counters don't share a line.
+     */
+    static final class Sequence extends Value {
+        private static final VarHandle VALUE;
+
+        static {
+            try {
+                VALUE = MethodHandles.lookup().findVarHandle(Value.class, "value", long.class);
+            } catch (ReflectiveOperationException e) {
+                throw new ExceptionInInitializerError(e);
+            }
+        }
+
+        long p11, p12, p13, p14, p15, p16, p17;
+
+        long get() {
+            return value;
+        }
+
+        long getPlain() {
+            return (long) VALUE.get(this);
+        }
+
+        void setRelease(long newValue) {
+            VALUE.setRelease(this, newValue);
+        }
+
+        boolean compareAndSet(long expected, long newValue) {
+            return VALUE.compareAndSet(this, expected, newValue);
+        }
+    }
+}
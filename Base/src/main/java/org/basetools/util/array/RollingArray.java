@@ -7,6 +7,12 @@ import java.util.List;
 import java.util.concurrent.CompletableFuture;
 import java.util.function.Consumer;
 
+/**
+ * Sliding window of the last pushed elements, overwriting the oldest one when full. All methods synchronize on the
+ * array; for hot paths with dedicated producer and consumer threads see {@link RingBuffer}.
+ *
+ * @param <T> the element type
+ */
 public class RollingArray<T> {
     private static final int DEFAULT_CAPACITY = 10;
     private T[] _array;
@@ -35,7 +41,7 @@ public class RollingArray<T> {
         makeEmpty();
     }
 
-    public boolean isEmpty() {
+    public synchronized boolean isEmpty() {
         return _actSize == 0;
     }
 
@@ -56,7 +62,7 @@ public class RollingArray<T> {
     }
 
 
-    public String toString() {
+    public synchronized String toString() {
         if (_actSize <= 0) {
             return "";
         }
@@ -91,7 +97,7 @@ public class RollingArray<T> {
         return _array[_startPos];
     }
 
-    public int size() {
+    public synchronized int size() {
         return _actSize;
     }
 
@@ -136,7 +142,7 @@ public class RollingArray<T> {
         return result;
     }
 
-    public T[] toArray() {
+    public synchronized T[] toArray() {
         T[] array = Arrays.copyOf(_array, _actSize);
         if (_actSize <= 0) {
             return array;
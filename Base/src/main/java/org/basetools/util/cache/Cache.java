@@ -2,6 +2,9 @@ package org.basetools.util.cache;
 
 import net.minidev.json.JSONArray;
 import net.minidev.json.JSONObject;
+import org.basetools.util.cache.eviction.EvictionPolicy;
+import org.basetools.util.cache.metrics.CacheMetrics;
+import org.basetools.util.cache.metrics.RemovalCause;
 
 import java.util.Map;
 import java.util.concurrent.locks.Lock;
@@ -13,14 +16,19 @@ import java.util.function.Supplier;
 
 /**
  * Simple cache implementation backed by a map. This implementation use ReadWritLock to ensure it's threadsave.
+ * Without an {@link EvictionPolicy} a full cache evicts the first key of the map's iteration order.
  *
  * @param <K> the type parameter
  * @param <V> the type parameter
  */
 public class Cache<K, V> {
     private final int cacheSize;
+    private final SingleFlightLoader<K, V> loader = new SingleFlightLoader<>();
+    private final CacheMetrics metrics = new CacheMetrics();
     protected ReadWriteLock readWriteLock = null;
     private Map<K, V> cache = null;
+    private EvictionPolicy<K> evictionPolicy;
+    private OffHeapStore<K, V> overflowStore;
 
 
     /**
@@ -35,6 +43,18 @@ public class Cache<K, V> {
         readWriteLock = new ReentrantReadWriteLock();
     }
 
+    /**
+     * Instantiates a new Cache evicting by the given policy.
+     *
+     * @param psCacheMap     the ps cache map
+     * @param size           the size
+     * @param evictionPolicy the policy selecting the keys to evict
+     */
+    public Cache(Map<K, V> psCacheMap, int size, EvictionPolicy<K> evictionPolicy) {
+        this(psCacheMap, size);
+        this.evictionPolicy = evictionPolicy;
+    }
+
     /**
      * Put v.
      *
@@ -43,11 +63,37 @@ public class Cache<K, V> {
      * @return the old Key
      */
     public V put(K key, V value) {
-        if (cache.size() >= cacheSize && cacheSize > 0) {
-            K oldKey = cache.keySet().iterator().next();
-            remove(oldKey);
+        Lock writeLock = readWriteLock.writeLock();
+        try {
+            writeLock.lock();
+            final boolean isNew = !cache.containsKey(key);
+            if (isNew && overflowStore != null) {
+                overflowStore.discard(key);
+            }
+            if (evictionPolicy == null) {
+                if (isNew && cache.size() >= cacheSize && cacheSize > 0) {
+                    K oldKey = cache.keySet().iterator().next();
+                    evict(oldKey);
+                }
+                return cache.put(key, value);
+            }
+            while (isNew && cacheSize > 0 && cache.size() >= cacheSize) {
+                final K victim = evictionPolicy.selectVictim();
+                if (victim == null) {
+                    break;
+                }
+                evict(victim);
+            }
+            final V old = cache.put(key, value);
+            if (isNew) {
+                evictionPolicy.recordInsert(key);
+            } else {
+                evictionPolicy.recordAccess(key);
+            }
+            return old;
+        } finally {
+            writeLock.unlock();
         }
-        return cache.put(key, value);
     }
 
 
@@ -58,44 +104,110 @@ public class Cache<K, V> {
      * @return the v
      */
     public V get(K key) {
+        final V value;
         Lock readLock = readWriteLock.readLock();
         try {
             readLock.lock();
-            return cache.get(key);
+            value = cache.get(key);
+            if (evictionPolicy != null) {
+                if (value != null) {
+                    evictionPolicy.recordAccess(key);
+                } else {
+                    evictionPolicy.recordMiss(key);
+                }
+            }
         } finally {
             readLock.unlock();
         }
+        if (value == null && overflowStore != null) {
+            final V promoted = promote(key);
+            if (promoted != null) {
+                metrics.recordHit();
+            } else {
+                metrics.recordMiss();
+            }
+            return promoted;
+        }
+        if (value != null) {
+            metrics.recordHit();
+        } else {
+            metrics.recordMiss();
+        }
+        return value;
     }
 
-    public V getOrCreate(K key, Supplier<V> creator) {
+    /**
+     * Moves the entry from the overflow store back into the cache. Runs under the write lock and re-checks the cache,
+     * so a value put since the miss is returned instead of being overwritten by the older overflow value.
+     */
+    private V promote(K key) {
         Lock writeLock = readWriteLock.writeLock();
         try {
             writeLock.lock();
-            V result = get(key);
-            if (result == null) {
-                result = creator.get();
-                put(key, result);
+            final V current = cache.get(key);
+            if (current != null) {
+                return current;
+            }
+            final V promoted = overflowStore.remove(key);
+            if (promoted != null) {
+                put(key, promoted);
             }
-            return result;
+            return promoted;
         } finally {
             writeLock.unlock();
         }
+    }
+
+    /**
+     * Sets an off-heap tier for evicted entries. Evicted values are serialized into the store and promoted back into
+     * this cache on the next get.
+     *
+     * @param overflowStore the store or null to drop evicted entries
+     */
+    public void setOverflowStore(OffHeapStore<K, V> overflowStore) {
+        this.overflowStore = overflowStore;
+    }
 
+    public OffHeapStore<K, V> getOverflowStore() {
+        return overflowStore;
     }
 
-    public V getOrCreate(K key, Function<K, V> creator) {
-        Lock writeLock = readWriteLock.writeLock();
+    private void evict(K victim) {
+        final V evicted = cache.remove(victim);
+        metrics.recordRemoval(RemovalCause.SIZE);
+        if (overflowStore != null && evicted != null) {
+            overflowStore.put(victim, evicted);
+        }
+    }
+
+    private V peek(K key) {
+        Lock readLock = readWriteLock.readLock();
         try {
-            writeLock.lock();
-            V result = get(key);
-            if (result == null) {
-                result = creator.apply(key);
-                put(key, result);
-            }
-            return result;
+            readLock.lock();
+            return cache.get(key);
         } finally {
-            writeLock.unlock();
+            readLock.unlock();
+        }
+    }
+
+    public V getOrCreate(K key, Supplier<V> creator) {
+        return getOrCreate(key, k -> creator.get());
+    }
+
+    /**
+     * Returns the cached value of the key or creates and caches it. The creator runs without holding the cache lock and
+     * concurrent misses of the same key share one call of it, see {@link SingleFlightLoader}.
+     *
+     * @param key     the key
+     * @param creator creates the value of a missing key
+     * @return the cached or created value
+     */
+    public V getOrCreate(K key, Function<K, V> creator) {
+        V result = get(key);
+        if (result == null) {
+            result = loader.load(key, this::peek, k -> metrics.load(k, creator), this::put);
         }
+        return result;
     }
 
     /**
@@ -122,9 +234,43 @@ public class Cache<K, V> {
         });
         return new JSONObject()
                 .appendField("size", getCache().size())
+                .appendField("policy", evictionPolicy != null ? evictionPolicy.getName() : "insertion order")
+                .appendField("requests", metrics.getRequestCount())
+                .appendField("hitRate", getHitRate())
+                .appendField("evictions", metrics.getRemovalCount(RemovalCause.SIZE))
+                .appendField("metrics", metrics.getInfo())
+                .appendField("overflow", overflowStore != null ? overflowStore.getInfo() : null)
                 .appendField("entries", entries);
     }
 
+    /**
+     * Returns the hit rate of this cache. This is the number of successful gets divided by the total number of
+     * gets so far.
+     *
+     * @return the hit rate of this cache as double value
+     */
+    public double getHitRate() {
+        return metrics.getHitRate();
+    }
+
+    /**
+     * Returns the metrics of this cache, which can be published via {@link CacheMetrics#publish(String)}.
+     *
+     * @return the metrics
+     */
+    public CacheMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Returns the policy selecting the keys to evict, null if the map's iteration order is used.
+     *
+     * @return the eviction policy
+     */
+    public EvictionPolicy<K> getEvictionPolicy() {
+        return evictionPolicy;
+    }
+
     public void traverse(BiFunction<K, V, Void> processor) {
         Lock readLock = readWriteLock.readLock();
         try {
@@ -145,7 +291,17 @@ public class Cache<K, V> {
         Lock writeLock = readWriteLock.writeLock();
         try {
             writeLock.lock();
-            return cache.remove(key);
+            if (evictionPolicy != null) {
+                evictionPolicy.recordRemoval(key);
+            }
+            if (overflowStore != null) {
+                overflowStore.discard(key);
+            }
+            final V removed = cache.remove(key);
+            if (removed != null) {
+                metrics.recordRemoval(RemovalCause.EXPLICIT);
+            }
+            return removed;
         } finally {
             writeLock.unlock();
         }
@@ -177,6 +333,12 @@ public class Cache<K, V> {
         try {
             writeLock.lock();
             getCache().clear();
+            if (evictionPolicy != null) {
+                evictionPolicy.clear();
+            }
+            if (overflowStore != null) {
+                overflowStore.clear();
+            }
         } finally {
             writeLock.unlock();
         }
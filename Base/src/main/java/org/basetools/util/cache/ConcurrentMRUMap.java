@@ -0,0 +1,777 @@
+package org.basetools.util.cache;
+
+import net.minidev.json.JSONObject;
+import org.basetools.format.DateFormatter;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Concurrent variant of {@link MRUMap} for heavily shared caches. The keys are spread over independently locked
+ * segments, each keeping its own recency list and its share of the capacity. Reads never lock: the entry is looked up
+ * in a {@link ConcurrentHashMap} and the access is recorded in a lossy per segment read buffer. The buffer is drained
+ * in batches by whichever thread holds the segment lock next, so the recency order is updated without readers
+ * waiting on writers. Hit and request counters are {@link LongAdder}s.
+ * <p>
+ * Eviction is least recently used within a segment, which approximates LRU over the whole map. Small caches use a
+ * single segment and behave exactly like {@link MRUMap}.
+ *
+ * @see MRUMap
+ */
+public class ConcurrentMRUMap<K, O, T, S> implements Runnable {
+    private static final int READ_BUFFER_SIZE = 32;
+    private static final int READ_BUFFER_MASK = READ_BUFFER_SIZE - 1;
+    private static final int DRAIN_MASK = (READ_BUFFER_SIZE / 2) - 1;
+    private static final int MIN_SEGMENT_CAPACITY = 16;
+    /**
+     * A hashtable for looking up a cached object by a given key
+     */
+    protected final Map<K, CacheEntry<K, O, T, S>> lookupIndex = new ConcurrentHashMap<>();
+    /**
+     * The number of requests to get an object from this cache
+     */
+    protected final LongAdder requests = new LongAdder();
+    /**
+     * The number of hits, where a requested object really was in the cache
+     */
+    protected final LongAdder hitCount = new LongAdder();
+    private final SingleFlightLoader<K, O> loader = new SingleFlightLoader<>();
+    private final Segment[] segments;
+    private final int segmentMask;
+    /**
+     * The maximum number of objects that the cache can hold
+     */
+    protected volatile int capacity;
+    protected volatile boolean updateTimeIfHit = false;
+    protected volatile boolean expireOnRead = false;
+    private volatile boolean _running = false;
+    /**
+     * The current clearing thread, a replaced thread ends after its sleep
+     */
+    private volatile Thread _clearThread;
+    private volatile int _clearingInterval = 30000;
+    private volatile int _surviveTime = 30000;
+
+    /**
+     * Creates a new cache with a given capacity, using one segment per available processor at most.
+     *
+     * @param capacity the maximum number of objects this cache will hold
+     */
+    public ConcurrentMRUMap(int capacity) {
+        this(capacity, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Creates a new cache with a given capacity.
+     *
+     * @param capacity         the maximum number of objects this cache will hold
+     * @param concurrencyLevel the estimated number of concurrently updating threads, used to size the segments
+     */
+    public ConcurrentMRUMap(int capacity, int concurrencyLevel) {
+        int segmentCount = 1;
+        while (segmentCount < concurrencyLevel && segmentCount * 2 * MIN_SEGMENT_CAPACITY <= capacity) {
+            segmentCount <<= 1;
+        }
+        segments = newSegmentArray(segmentCount);
+        for (int i = 0; i < segmentCount; i++) {
+            segments[i] = new Segment();
+        }
+        segmentMask = segmentCount - 1;
+        setCapacity(capacity);
+    }
+
+    /**
+     * Clears the cache by removing all entries from the cache
+     */
+    public void clear() {
+        for (Segment segment : segments) {
+            segment.lock.lock();
+        }
+        try {
+            lookupIndex.clear();
+            for (Segment segment : segments) {
+                segment.reset();
+            }
+        } finally {
+            for (Segment segment : segments) {
+                segment.lock.unlock();
+            }
+        }
+    }
+
+    public boolean contains(K key) {
+        return get(key) != null;
+    }
+
+    /**
+     * Returns an object from the cache for the given key, or null if there
+     * currently is no object in the cache with this key. This method doesn't lock.
+     *
+     * @param key the key for the object you want to get from this cache
+     * @return the cached object, or null
+     */
+    public O get(K key) {
+        requests.increment();
+        final CacheEntry<K, O, T, S> found = lookupIndex.get(key);
+        if (found == null) {
+            return null;
+        }
+        final Segment segment = segmentFor(key);
+        if (expireOnRead && isExpired(found, System.currentTimeMillis())) {
+            segment.remove(key, found);
+            return null;
+        }
+        hitCount.increment();
+        if (updateTimeIfHit) {
+            found.time = System.currentTimeMillis();
+        }
+        segment.recordRead(found);
+        return found.object;
+    }
+
+    /**
+     * Returns the cached object of the key or creates and caches it. Concurrent misses of the same key share
+     * one call of the creator, see {@link SingleFlightLoader}.
+     *
+     * @param key     the key
+     * @param creator creates the object of a missing key
+     * @return the cached or created object
+     */
+    public O getOrCreate(K key, Function<K, O> creator) {
+        O result = get(key);
+        if (result == null) {
+            result = loader.load(key, this::peek, creator, this::put);
+        }
+        return result;
+    }
+
+    public O getOrCreate(K key, Supplier<O> creator) {
+        return getOrCreate(key, k -> creator.get());
+    }
+
+    /**
+     * Returns the cached object of the key without counting a request or touching its recency.
+     *
+     * @param key the key
+     * @return the cached object, or null
+     */
+    public O peek(K key) {
+        final CacheEntry<K, O, T, S> found = lookupIndex.get(key);
+        return found != null ? found.object : null;
+    }
+
+    /**
+     * Returns the capacity of this cache. This is the maximum number of objects
+     * this cache will hold at a time.
+     *
+     * @return the capacity of this cache
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Changes the capacity of this cache. The capacity is split evenly over the segments. If the new capacity is
+     * smaller than the current number of objects in a segment, its least recently used objects will be removed.
+     *
+     * @param capacity the maximum number of objects this cache will hold
+     * @throws IllegalArgumentException if the capacity is negative
+     */
+    public void setCapacity(int capacity) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("cache capacity must be >= 0");
+        }
+        this.capacity = capacity;
+        int base = this.capacity / segments.length;
+        int remainder = this.capacity % segments.length;
+        for (int i = 0; i < segments.length; i++) {
+            Segment segment = segments[i];
+            segment.lock.lock();
+            try {
+                segment.capacity = base + (i < remainder ? 1 : 0);
+                segment.evict();
+            } finally {
+                segment.lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Returns the number of objects currently cached.
+     *
+     * @return the number of objects currently cached
+     */
+    public int getCurrentSize() {
+        return lookupIndex.size();
+    }
+
+    /**
+     * Returns the number of segments the keys are spread over.
+     *
+     * @return the number of segments
+     */
+    public int getSegmentCount() {
+        return segments.length;
+    }
+
+    public Map getDelegate() {
+        return lookupIndex;
+    }
+
+    /**
+     * Returns the fill rate of this cache. This is the current number of objects in
+     * the cache diveded by its capacity.
+     *
+     * @return the fill rate of this cache as double value
+     */
+    public double getFillRate() {
+        return ((capacity == 0) ? 1.0 : ((double) getCurrentSize() / (double) capacity));
+    }
+
+    /**
+     * Returns the hit rate of this cache. This is the number of successful hits
+     * divided by the total number of get requests so far.
+     *
+     * @return the hit rate of this cache as double value
+     */
+    public double getHitRate() {
+        long requestCount = requests.sum();
+        return ((requestCount == 0) ? 1.0 : ((double) hitCount.sum() / (double) requestCount));
+    }
+
+    public JSONObject getInfo() {
+        final JSONObject info = new JSONObject();
+        info.put("capacity", capacity);
+        info.put("size", getCurrentSize());
+        info.put("fillRate", getFillRate());
+        info.put("hitRate", getHitRate());
+        info.put("cleanupThread", isRunning());
+        info.put("clearingInterval", _clearingInterval);
+        info.put("surviveTime", getSurviveTime());
+        return info;
+    }
+
+    public Collection<CacheEntry<K, O, T, S>> getKeyEntriesCollection() {
+        return lookupIndex.values();
+    }
+
+    public int getSizeInByte() {
+        int size = 0;
+        for (CacheEntry<K, O, T, S> entry : lookupIndex.values()) {
+            final Object o = entry.object;
+            if (o instanceof byte[]) {
+                size += ((byte[]) o).length;
+            } else {
+                return -1;
+            }
+        }
+        return size;
+    }
+
+    public int getClearingInterval() {
+        return _clearingInterval;
+    }
+
+    public int getSurviveTime() {
+        return _surviveTime;
+    }
+
+    /**
+     * Returns true if this cache is empty.
+     *
+     * @return true if this cache is empty
+     */
+    public boolean isEmpty() {
+        return lookupIndex.isEmpty();
+    }
+
+    /**
+     * Returns true if this cache is full.
+     *
+     * @return true if this cache is full
+     */
+    public boolean isFull() {
+        return getCurrentSize() >= capacity;
+    }
+
+    public boolean isRunning() {
+        return _running;
+    }
+
+    public boolean isUpdateTimeIfHit() {
+        return updateTimeIfHit;
+    }
+
+    public void setUpdateTimeIfHit(boolean updateTimeIfHit) {
+        this.updateTimeIfHit = updateTimeIfHit;
+    }
+
+    public boolean isExpireOnRead() {
+        return expireOnRead;
+    }
+
+    /**
+     * If set, {@link #get(Object)} removes and ignores expired entries, so stale entries are never returned between
+     * two periodic clearings.
+     *
+     * @param expireOnRead true to check the expiration on every read
+     */
+    public void setExpireOnRead(boolean expireOnRead) {
+        this.expireOnRead = expireOnRead;
+    }
+
+    /**
+     * Returns the time the given entry expires at, see {@link MRUMap#getExpirationTime}.
+     *
+     * @param entry the entry
+     * @return the expiration time in milliseconds or Long.MAX_VALUE if the entry never expires
+     */
+    protected long getExpirationTime(CacheEntry<K, O, T, S> entry) {
+        long expiration = Long.MAX_VALUE;
+        final int sTime = entry.surviveTime != -1 ? entry.surviveTime : (_running ? _surviveTime : -1);
+        if (sTime >= 0) {
+            expiration = entry.getTime() + sTime + 1;
+        }
+        if (entry.ttl > 0) {
+            expiration = Math.min(expiration, entry.createdTime + entry.ttl);
+        }
+        return expiration;
+    }
+
+    protected boolean isExpired(CacheEntry<K, O, T, S> entry, long now) {
+        return now >= getExpirationTime(entry);
+    }
+
+    public Set<K> keySet() {
+        return lookupIndex.keySet();
+    }
+
+    /**
+     * Puts an object into the cache, storing it under the given key. If the segment of the key
+     * is already full, its least recently used object will be removed first. If the cache already
+     * contains an entry under the key provided, this entry is replaced.
+     *
+     * @param key the non-null key to store the object under
+     * @param obj the non-null object to be put into the cache
+     */
+    public void put(K key, O obj) {
+        put(key, obj, null, null, -1, -1);
+    }
+
+    public void put(K key, O obj, T context) {
+        put(key, obj, context, null, -1);
+    }
+
+    public void put(K key, O obj, T context, S subCtx) {
+        put(key, obj, context, subCtx, -1);
+    }
+
+    public void put(K key, O obj, T context, S subCtx, int surviveTimeMS) {
+        put(key, obj, context, subCtx, surviveTimeMS, -1);
+    }
+
+    public void put(K key, O obj, T context, S subCtx, int surviveTimeMS, int ttl) {
+        if (capacity == 0) {
+            return;
+        }
+        final CacheEntry<K, O, T, S> added = new CacheEntry<>(key, obj, context, subCtx, surviveTimeMS, ttl);
+        final Segment segment = segmentFor(key);
+        segment.lock.lock();
+        try {
+            segment.drainReadBuffer();
+            final CacheEntry<K, O, T, S> replaced = lookupIndex.put(key, added);
+            if (replaced != null) {
+                segment.unlink(replaced);
+            }
+            segment.linkMru(added);
+            segment.expirationWheel.schedule(added);
+            segment.evict();
+        } finally {
+            segment.lock.unlock();
+        }
+    }
+
+    public void traverse(BiFunction<K, O, Void> processor) {
+        lookupIndex.values().forEach(entry -> processor.apply(entry.key, entry.object));
+    }
+
+    /**
+     * Removes an object from the cache for the given key.
+     *
+     * @param key the key for the object you want to remove from this cache
+     */
+    public void remove(K key) {
+        segmentFor(key).remove(key, null);
+    }
+
+    /**
+     * Returns an object from the cache for the given key, but only if the cache
+     * entry is not older than the given timestamp. If the cache entry is older
+     * than the timestamp, the entry is removed from the cache and null is returned.
+     *
+     * @param key  the key for the object you want to get from this cache
+     * @param time the timestamp to check that the cache entry is up to date
+     * @return the cached object, or null
+     */
+    public Object returnIfUpToDat(K key, long time) {
+        final Object value = get(key);
+        if (value == null) {
+            return null;
+        }
+        final CacheEntry<K, O, T, S> found = lookupIndex.get(key);
+        if (found != null && found.time >= time) {
+            return value;
+        }
+        remove(key);
+        return null;
+    }
+
+    @Override
+    public void run() {
+        final Thread current = Thread.currentThread();
+        while (isRunning() && _clearThread == current) {
+            try {
+                TimeUnit.MILLISECONDS.sleep(_clearingInterval);
+                if (_clearThread == current) {
+                    removeExpired();
+                }
+            } catch (InterruptedException ie) {
+                current.interrupt();
+                if (_clearThread == current) {
+                    _running = false;
+                }
+                return;
+            }
+        }
+    }
+
+    /**
+     * Removes the entries whose survive time or time to live is exceeded. Only one segment is locked at a time and
+     * only the entries scheduled to expire since the last call are visited.
+     */
+    public void removeExpired() {
+        final long now = System.currentTimeMillis();
+        for (Segment segment : segments) {
+            segment.expire(now);
+        }
+    }
+
+    public void setPeriodicClear(boolean removePeriodic, int interval, int surviveTime) {
+        setPeriodicClear(removePeriodic, interval, surviveTime, null);
+    }
+
+    /**
+     * Starts or stops removing the expired entries periodically. Restarting right after a stop doesn't leave a second
+     * clearing thread: the previous thread is replaced and ends after its current sleep.
+     *
+     * @param removePeriodic true to start, false to stop the clearing
+     * @param interval       the time between two clearings in milliseconds
+     * @param surviveTime    the default survive time in milliseconds
+     * @param threadName     the name of the clearing thread, null for a default name
+     */
+    public synchronized void setPeriodicClear(boolean removePeriodic, int interval, int surviveTime, String threadName) {
+        if (surviveTime <= 0 || interval <= 0) {
+            return;
+        }
+        final boolean wasRunning = _running;
+        _running = removePeriodic;
+        _clearingInterval = interval;
+        _surviveTime = surviveTime;
+        // the default survive time changed or applies from now on
+        for (Segment segment : segments) {
+            segment.rescheduleAll();
+        }
+        if (!wasRunning && removePeriodic) {
+            final Thread t = new Thread(this);
+            t.setName(threadName != null ? threadName : "MRU Periodic clear");
+            t.setDaemon(true);
+            _clearThread = t;
+            t.start();
+        }
+    }
+
+    public synchronized void stopPeriodicClear() {
+        _running = false;
+        _clearThread = null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Segment[] newSegmentArray(int length) {
+        return (Segment[]) new ConcurrentMRUMap.Segment[length];
+    }
+
+    private Segment segmentFor(Object key) {
+        int h = key.hashCode();
+        h ^= (h >>> 16);
+        return segments[h & segmentMask];
+    }
+
+    /**
+     * Returns a String containing information about cache capacity, size, current
+     * fill rate and hit rate. Useful for testing and debugging.
+     */
+    @Override
+    public String toString() {
+        return "Total Capacity:" + capacity + "\n" +
+                " Segments:         " + segments.length + "\n" +
+                " Actual size:      " + getCurrentSize() + "\n" +
+                " Actual fill rate: " + getFillRate() + "\n" +
+                " Actual hit rate:  " + getHitRate() +
+                " Cache cleanup thread:" + isRunning() + "\n" +
+                " ClearingInterval:" + _clearingInterval + "ms.\n" +
+                " ObjectSurviveTime:" + getSurviveTime() + "ms. \n";
+    }
+
+    /**
+     * For each object in the cache, there is one CacheEntry encapsulating it. The entries of a segment
+     * form a double-linked list, guarded by the segment lock.
+     */
+    public static class CacheEntry<K, O, T, S> extends TimerWheel.Node {
+        final K key;
+        final O object;
+        final T context;
+        final S subContext;
+        final int surviveTime;
+        final int ttl;
+        final long createdTime = System.currentTimeMillis();
+        volatile long time = createdTime;
+        /**
+         * Hits are counted when the read buffer is drained, so under contention this is a lower bound
+         */
+        volatile int hits = 0;
+        CacheEntry<K, O, T, S> before;
+        CacheEntry<K, O, T, S> after;
+        boolean linked;
+
+        CacheEntry(K key, O object, T context, S subContext, int surviveTime, int ttl) {
+            this.key = key;
+            this.object = object;
+            this.context = context;
+            this.subContext = subContext;
+            this.surviveTime = surviveTime;
+            this.ttl = ttl;
+        }
+
+        public T getContext() {
+            return context;
+        }
+
+        public long getCreatedTime() {
+            return createdTime;
+        }
+
+        public int getHits() {
+            return hits;
+        }
+
+        public String getInfo() {
+            return " Ctx:" + (context != null ? context : "n.s.") + " subCtx:"
+                    + (subContext != null ? subContext : "n.s.") + " hits:" + getHits() + " ("
+                    + (getSurviveTime() >= 0 ? (getRipTime() > 0 ? (getRipTime() / 1000) + "'s" : "to be killed")
+                    : "&infin;")
+                    + ") created at:" + DateFormatter.toIsoTimestampString(createdTime) + " time to live:" + (ttl / 1000)
+                    + "'s ";
+        }
+
+        public K getKey() {
+            return key;
+        }
+
+        public long getLiveTime() {
+            return System.currentTimeMillis() - createdTime;
+        }
+
+        public long getRipTime() {
+            if (surviveTime > 0) {
+                return surviveTime - (System.currentTimeMillis() - getTime());
+            } else {
+                return surviveTime;
+            }
+        }
+
+        public S getSubContext() {
+            return subContext;
+        }
+
+        public int getSurviveTime() {
+            return surviveTime;
+        }
+
+        public long getTime() {
+            return time;
+        }
+
+        public int getTtl() {
+            return ttl;
+        }
+
+        public O getValue() {
+            return object;
+        }
+    }
+
+    /**
+     * A segment owns the recency list of the keys hashed to it. All list operations require the lock, reads only
+     * publish the accessed entry into the read buffer.
+     */
+    private final class Segment {
+        final ReentrantLock lock = new ReentrantLock();
+        final AtomicReferenceArray<CacheEntry<K, O, T, S>> readBuffer = new AtomicReferenceArray<>(READ_BUFFER_SIZE);
+        final AtomicLong readBufferWriteCount = new AtomicLong();
+        final TimerWheel<CacheEntry<K, O, T, S>> expirationWheel = new TimerWheel<>(ConcurrentMRUMap.this::getExpirationTime);
+        CacheEntry<K, O, T, S> mru;
+        CacheEntry<K, O, T, S> lru;
+        int size;
+        int capacity;
+
+        void recordRead(CacheEntry<K, O, T, S> entry) {
+            final long count = readBufferWriteCount.getAndIncrement();
+            readBuffer.lazySet((int) count & READ_BUFFER_MASK, entry);
+            if ((count & DRAIN_MASK) == DRAIN_MASK && lock.tryLock()) {
+                try {
+                    drainReadBuffer();
+                } finally {
+                    lock.unlock();
+                }
+            }
+        }
+
+        void drainReadBuffer() {
+            for (int i = 0; i < READ_BUFFER_SIZE; i++) {
+                final CacheEntry<K, O, T, S> read = readBuffer.get(i);
+                if (read != null && readBuffer.compareAndSet(i, read, null) && read.linked) {
+                    read.hits++;
+                    moveToMru(read);
+                }
+            }
+        }
+
+        void linkMru(CacheEntry<K, O, T, S> entry) {
+            entry.before = mru;
+            entry.after = null;
+            if (mru == null) {
+                lru = entry;
+            } else {
+                mru.after = entry;
+            }
+            mru = entry;
+            entry.linked = true;
+            size++;
+        }
+
+        void moveToMru(CacheEntry<K, O, T, S> entry) {
+            if (entry == mru) {
+                return;
+            }
+            if (entry == lru) {
+                lru = entry.after;
+            } else {
+                entry.before.after = entry.after;
+            }
+            entry.after.before = entry.before;
+            entry.before = mru;
+            entry.after = null;
+            mru.after = entry;
+            mru = entry;
+        }
+
+        void unlink(CacheEntry<K, O, T, S> entry) {
+            if (!entry.linked) {
+                return;
+            }
+            if (entry == lru) {
+                lru = entry.after;
+            } else {
+                entry.before.after = entry.after;
+            }
+            if (entry == mru) {
+                mru = entry.before;
+            } else {
+                entry.after.before = entry.before;
+            }
+            entry.before = null;
+            entry.after = null;
+            entry.linked = false;
+            expirationWheel.unlink(entry);
+            size--;
+        }
+
+        void evict() {
+            while (size > capacity && lru != null) {
+                final CacheEntry<K, O, T, S> victim = lru;
+                unlink(victim);
+                lookupIndex.remove(victim.key, victim);
+            }
+        }
+
+        /**
+         * Removes the entry of the key, if expected is given only if it is still the mapped entry.
+         */
+        void remove(K key, CacheEntry<K, O, T, S> expected) {
+            lock.lock();
+            try {
+                final CacheEntry<K, O, T, S> removed;
+                if (expected == null) {
+                    removed = lookupIndex.remove(key);
+                } else {
+                    removed = lookupIndex.remove(key, expected) ? expected : null;
+                }
+                if (removed != null) {
+                    unlink(removed);
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void expire(long now) {
+            lock.lock();
+            try {
+                expirationWheel.advance(now, entry -> {
+                    unlink(entry);
+                    lookupIndex.remove(entry.key, entry);
+                });
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void rescheduleAll() {
+            lock.lock();
+            try {
+                for (CacheEntry<K, O, T, S> entry = lru; entry != null; entry = entry.after) {
+                    expirationWheel.schedule(entry);
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void reset() {
+            for (int i = 0; i < READ_BUFFER_SIZE; i++) {
+                readBuffer.set(i, null);
+            }
+            CacheEntry<K, O, T, S> entry = lru;
+            while (entry != null) {
+                final CacheEntry<K, O, T, S> next = entry.after;
+                entry.before = null;
+                entry.after = null;
+                entry.linked = false;
+                entry = next;
+            }
+            mru = lru = null;
+            expirationWheel.clear();
+            size = 0;
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package org.basetools.util.cache;
+
+import net.minidev.json.JSONObject;
+
+import java.util.function.IntFunction;
+
+/**
+ * Least recently used cache with primitive int keys, see {@link LongKeyCache}. The keys are widened to long, which
+ * keeps them unique and needs neither boxing nor allocation.
+ *
+ * @param <V> the value type
+ */
+public class IntKeyCache<V> {
+    private final LongKeyCache<V> delegate;
+
+    /**
+     * Creates a new cache whose entries never expire.
+     *
+     * @param capacity the maximum number of entries
+     */
+    public IntKeyCache(int capacity) {
+        this(capacity, -1);
+    }
+
+    /**
+     * Creates a new cache.
+     *
+     * @param capacity   the maximum number of entries
+     * @param defaultTtl the time to live of the entries in milliseconds, -1 if they never expire
+     */
+    public IntKeyCache(int capacity, long defaultTtl) {
+        delegate = new LongKeyCache<>(capacity, defaultTtl);
+    }
+
+    public V get(int key) {
+        return delegate.get(key);
+    }
+
+    public V getOrCreate(int key, IntFunction<V> creator) {
+        return delegate.getOrCreate(key, k -> creator.apply((int) k));
+    }
+
+    public boolean containsKey(int key) {
+        return delegate.containsKey(key);
+    }
+
+    public V put(int key, V value) {
+        return delegate.put(key, value);
+    }
+
+    public V put(int key, V value, long ttl) {
+        return delegate.put(key, value, ttl);
+    }
+
+    public V remove(int key) {
+        return delegate.remove(key);
+    }
+
+    public int removeExpired() {
+        return delegate.removeExpired();
+    }
+
+    public void clear() {
+        delegate.clear();
+    }
+
+    public int getCapacity() {
+        return delegate.getCapacity();
+    }
+
+    public int size() {
+        return delegate.size();
+    }
+
+    public boolean isEmpty() {
+        return delegate.isEmpty();
+    }
+
+    public double getHitRate() {
+        return delegate.getHitRate();
+    }
+
+    public JSONObject getInfo() {
+        return delegate.getInfo();
+    }
+}
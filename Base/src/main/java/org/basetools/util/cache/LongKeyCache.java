@@ -0,0 +1,400 @@
+package org.basetools.util.cache;
+
+import net.minidev.json.JSONObject;
+
+import java.util.Arrays;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.LongFunction;
+
+/**
+ * Least recently used cache with primitive long keys. Lookups neither box the key nor allocate a map node: the entries
+ * live in parallel arrays sized by the capacity, an open addressing table with linear probing maps the keys to the
+ * entry slots and the recency list is linked through slot indexes. Entries may have a time to live, expired entries
+ * are dropped on read or by {@link #removeExpired()}.
+ *
+ * @param <V> the value type
+ */
+public class LongKeyCache<V> {
+    private static final int NONE = -1;
+    private final int capacity;
+    private final long defaultTtl;
+    private final SingleFlightLoader<Long, V> loader = new SingleFlightLoader<>();
+    protected ReadWriteLock readWriteLock = new ReentrantReadWriteLock();
+    /**
+     * The open addressing table, holding the entry slot + 1 or 0 for an empty bucket
+     */
+    private final int[] table;
+    private final int tableMask;
+    private final long[] keys;
+    private final Object[] values;
+    private final long[] expiresAt;
+    /**
+     * The recency list: before points to the more, after to the less recently used slot
+     */
+    private final int[] before;
+    private final int[] after;
+    private int mru = NONE;
+    private int lru = NONE;
+    /**
+     * The unused slots, linked through after
+     */
+    private int free;
+    private int size = 0;
+    private long requests = 0;
+    private long hitCount = 0;
+    private long evictions = 0;
+    private long expirations = 0;
+
+    /**
+     * Creates a new cache whose entries never expire.
+     *
+     * @param capacity the maximum number of entries
+     */
+    public LongKeyCache(int capacity) {
+        this(capacity, -1);
+    }
+
+    /**
+     * Creates a new cache.
+     *
+     * @param capacity   the maximum number of entries
+     * @param defaultTtl the time to live of the entries in milliseconds, -1 if they never expire
+     */
+    public LongKeyCache(int capacity, long defaultTtl) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("cache capacity must be > 0");
+        }
+        this.capacity = capacity;
+        this.defaultTtl = defaultTtl;
+        // keep the load factor at or below 0.5, so probe sequences stay short
+        final int tableSize = Integer.highestOneBit(Math.max(2, capacity) - 1) << 2;
+        table = new int[tableSize];
+        tableMask = tableSize - 1;
+        keys = new long[capacity];
+        values = new Object[capacity];
+        expiresAt = new long[capacity];
+        before = new int[capacity];
+        after = new int[capacity];
+        initFreeList();
+    }
+
+    private static int hash(long key) {
+        // murmur3 finalizer, sequential ids would otherwise fill neighbouring buckets
+        long h = key;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return (int) h;
+    }
+
+    /**
+     * Returns the value of the key and marks it most recently used.
+     *
+     * @param key the key
+     * @return the value or null if the key is not cached or expired
+     */
+    @SuppressWarnings("unchecked")
+    public V get(long key) {
+        // a hit relinks the recency list, so the write lock is required
+        Lock writeLock = readWriteLock.writeLock();
+        try {
+            writeLock.lock();
+            requests++;
+            final int bucket = findBucket(key);
+            if (bucket == NONE) {
+                return null;
+            }
+            final int slot = table[bucket] - 1;
+            if (expiresAt[slot] <= System.currentTimeMillis()) {
+                expirations++;
+                removeBucket(bucket);
+                return null;
+            }
+            hitCount++;
+            moveToMru(slot);
+            return (V) values[slot];
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Returns the cached value of the key or creates and caches it. Concurrent misses of the same key share one call
+     * of the creator, see {@link SingleFlightLoader}. Only a miss boxes the key.
+     *
+     * @param key     the key
+     * @param creator creates the value of a missing key
+     * @return the cached or created value
+     */
+    public V getOrCreate(long key, LongFunction<V> creator) {
+        V result = get(key);
+        if (result == null) {
+            result = loader.load(key, this::peek, k -> creator.apply(k), this::put);
+        }
+        return result;
+    }
+
+    @SuppressWarnings("unchecked")
+    private V peek(long key) {
+        Lock readLock = readWriteLock.readLock();
+        try {
+            readLock.lock();
+            final int bucket = findBucket(key);
+            if (bucket == NONE) {
+                return null;
+            }
+            final int slot = table[bucket] - 1;
+            return expiresAt[slot] > System.currentTimeMillis() ? (V) values[slot] : null;
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    public boolean containsKey(long key) {
+        return peek(key) != null;
+    }
+
+    /**
+     * Puts the value with the default time to live. A full cache evicts the least recently used entry first.
+     *
+     * @param key   the key
+     * @param value the non-null value
+     * @return the previous value or null
+     */
+    public V put(long key, V value) {
+        return put(key, value, defaultTtl);
+    }
+
+    /**
+     * Puts the value with the given time to live. A full cache evicts the least recently used entry first.
+     *
+     * @param key   the key
+     * @param value the non-null value
+     * @param ttl   the time to live in milliseconds, -1 if the entry never expires
+     * @return the previous value or null
+     */
+    @SuppressWarnings("unchecked")
+    public V put(long key, V value, long ttl) {
+        final long expiration = ttl >= 0 ? System.currentTimeMillis() + ttl : Long.MAX_VALUE;
+        Lock writeLock = readWriteLock.writeLock();
+        try {
+            writeLock.lock();
+            int bucket = findBucket(key);
+            if (bucket != NONE) {
+                final int slot = table[bucket] - 1;
+                final V old = (V) values[slot];
+                values[slot] = value;
+                expiresAt[slot] = expiration;
+                moveToMru(slot);
+                return old;
+            }
+            if (size == capacity) {
+                evictions++;
+                removeBucket(findBucket(keys[lru]));
+            }
+            final int slot = free;
+            free = after[slot];
+            keys[slot] = key;
+            values[slot] = value;
+            expiresAt[slot] = expiration;
+            linkMru(slot);
+            bucket = hash(key) & tableMask;
+            while (table[bucket] != 0) {
+                bucket = (bucket + 1) & tableMask;
+            }
+            table[bucket] = slot + 1;
+            size++;
+            return null;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Removes the key.
+     *
+     * @param key the key
+     * @return the removed value or null
+     */
+    @SuppressWarnings("unchecked")
+    public V remove(long key) {
+        Lock writeLock = readWriteLock.writeLock();
+        try {
+            writeLock.lock();
+            final int bucket = findBucket(key);
+            if (bucket == NONE) {
+                return null;
+            }
+            final V removed = (V) values[table[bucket] - 1];
+            removeBucket(bucket);
+            return removed;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Removes all entries whose time to live is exceeded, walking from the least recently used entry.
+     *
+     * @return the number of removed entries
+     */
+    public int removeExpired() {
+        Lock writeLock = readWriteLock.writeLock();
+        try {
+            writeLock.lock();
+            final long now = System.currentTimeMillis();
+            int removed = 0;
+            int slot = lru;
+            while (slot != NONE) {
+                final int next = before[slot];
+                if (expiresAt[slot] <= now) {
+                    removeBucket(findBucket(keys[slot]));
+                    removed++;
+                }
+                slot = next;
+            }
+            expirations += removed;
+            return removed;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Removes all entries.
+     */
+    public void clear() {
+        Lock writeLock = readWriteLock.writeLock();
+        try {
+            writeLock.lock();
+            Arrays.fill(table, 0);
+            Arrays.fill(values, null);
+            mru = lru = NONE;
+            size = 0;
+            initFreeList();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Returns the hit rate of this cache. This is the number of successful gets divided by the total number of
+     * gets so far.
+     *
+     * @return the hit rate of this cache as double value
+     */
+    public double getHitRate() {
+        return ((requests == 0) ? 1.0 : ((double) hitCount / (double) requests));
+    }
+
+    public JSONObject getInfo() {
+        Lock readLock = readWriteLock.readLock();
+        try {
+            readLock.lock();
+            return new JSONObject()
+                    .appendField("capacity", capacity)
+                    .appendField("size", size)
+                    .appendField("fillRate", (double) size / capacity)
+                    .appendField("ttl", defaultTtl)
+                    .appendField("requests", requests)
+                    .appendField("hitRate", getHitRate())
+                    .appendField("evictions", evictions)
+                    .appendField("expirations", expirations);
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    private void initFreeList() {
+        for (int i = 0; i < capacity; i++) {
+            after[i] = i + 1 < capacity ? i + 1 : NONE;
+        }
+        free = 0;
+    }
+
+    private int findBucket(long key) {
+        int bucket = hash(key) & tableMask;
+        int slot;
+        while ((slot = table[bucket]) != 0) {
+            if (keys[slot - 1] == key) {
+                return bucket;
+            }
+            bucket = (bucket + 1) & tableMask;
+        }
+        return NONE;
+    }
+
+    /**
+     * Frees the slot of the bucket and closes the gap in the probe sequence by shifting the following buckets back,
+     * so the table never needs tombstones.
+     */
+    private void removeBucket(int bucket) {
+        final int slot = table[bucket] - 1;
+        unlink(slot);
+        values[slot] = null;
+        after[slot] = free;
+        free = slot;
+        size--;
+        int gap = bucket;
+        int next = (gap + 1) & tableMask;
+        while (table[next] != 0) {
+            final int home = hash(keys[table[next] - 1]) & tableMask;
+            // move the entry into the gap unless its home bucket lies cyclically in (gap, next]
+            if (((next - home) & tableMask) >= ((next - gap) & tableMask)) {
+                table[gap] = table[next];
+                gap = next;
+            }
+            next = (next + 1) & tableMask;
+        }
+        table[gap] = 0;
+    }
+
+    private void moveToMru(int slot) {
+        if (slot != mru) {
+            unlink(slot);
+            linkMru(slot);
+        }
+    }
+
+    private void linkMru(int slot) {
+        before[slot] = NONE;
+        after[slot] = mru;
+        if (mru != NONE) {
+            before[mru] = slot;
+        } else {
+            lru = slot;
+        }
+        mru = slot;
+    }
+
+    private void unlink(int slot) {
+        final int previous = before[slot];
+        final int next = after[slot];
+        if (previous != NONE) {
+            after[previous] = next;
+        } else {
+            mru = next;
+        }
+        if (next != NONE) {
+            before[next] = previous;
+        } else {
+            lru = previous;
+        }
+    }
+}
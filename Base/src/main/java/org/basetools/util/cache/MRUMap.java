@@ -2,8 +2,17 @@ package org.basetools.util.cache;
 
 import net.minidev.json.JSONObject;
 import org.basetools.format.DateFormatter;
+import org.basetools.util.TimedExecutionService;
+import org.basetools.util.cache.metrics.CacheMetrics;
+import org.basetools.util.cache.metrics.RemovalCause;
+import org.basetools.util.concurrent.HashedWheelTimer;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReadWriteLock;
@@ -54,13 +63,9 @@ public class MRUMap<K, O, T, S> implements Runnable {
      */
     protected Map<K, CacheEntry<K, O>> lookupIndex = new HashMap<>();
     /**
-     * The number of requests to get an object from this cache
+     * The requests, hits, loads and removals of this cache
      */
-    protected long requests = 0;
-    /**
-     * The number of hits, where a requested object really was in the cache
-     */
-    protected long hitCount = 0;
+    protected final CacheMetrics metrics = new CacheMetrics();
     /**
      * The number of objects currently stored in the cache
      */
@@ -70,7 +75,43 @@ public class MRUMap<K, O, T, S> implements Runnable {
      */
     protected int capacity;
     protected boolean updateTimeIfHit = false;
-    private boolean _running = false;
+    /**
+     * Schedules the entries by expiration time, so the periodic clearing only touches the entries due
+     */
+    protected TimerWheel<CacheEntry<K, O>> expirationWheel = new TimerWheel<>(this::getExpirationTime);
+    protected boolean expireOnRead = false;
+    /**
+     * Calculates the entry weights if the cache is bounded by weight
+     */
+    protected Weigher<? super K, ? super O> weigher;
+    /**
+     * The maximum sum of the entry weights, -1 if the cache is bounded by capacity only
+     */
+    protected long maximumWeight = -1;
+    /**
+     * The sum of the weights of all cached entries
+     */
+    protected long totalWeight = 0;
+    /**
+     * Receives the least recently used entries evicted by capacity or weight, null if they are dropped
+     */
+    protected OffHeapStore<K, O> overflowStore;
+    /**
+     * Reloads entries older than refreshAfter in the background, null to disable refresh ahead
+     */
+    protected Function<? super K, ? extends O> reloader;
+    protected Executor refreshExecutor;
+    protected long refreshAfter = -1;
+    /**
+     * How long an entry whose time to live is exceeded is still served while it can't be reloaded
+     */
+    protected long maxStale = 0;
+    private final SingleFlightLoader<K, O> loader = new SingleFlightLoader<>();
+    private volatile boolean _running = false;
+    /**
+     * The periodic clearing task while it runs on a timer instead of an own thread
+     */
+    private volatile HashedWheelTimer.Timeout _clearTimeout;
     private int _clearingInterval = 30000;
     private int _surviveTime = 30000;
 
@@ -113,7 +154,12 @@ public class MRUMap<K, O, T, S> implements Runnable {
         try {
             readLock.lock();
             lookupIndex.clear();
+            expirationWheel.clear();
             size = 0;
+            totalWeight = 0;
+            if (overflowStore != null) {
+                overflowStore.clear();
+            }
             mru = lru = null;
         } finally {
             readLock.unlock();
@@ -132,17 +178,40 @@ public class MRUMap<K, O, T, S> implements Runnable {
      * @return the cached object, or null
      */
     public O get(K key) {
-
-        Lock readLock = readWriteLock.readLock();
+        // a hit relinks the recency list, so the write lock is required
+        Lock readLock = readWriteLock.writeLock();
         try {
             readLock.lock();
-            requests++;
+            if (expireOnRead) {
+                final CacheEntry<K, O> stale = lookupIndex.get(key);
+                final long now = System.currentTimeMillis();
+                if (stale != null && isExpired(stale, now)) {
+                    expire(stale, now);
+                    metrics.recordMiss();
+                    return null;
+                }
+            }
             final CacheEntry<K, O> found = getInternal(key);
             if (found != null) {
-                hitCount++;
+                metrics.recordHit();
                 found.addHit();
-                return found.object;
+                final O object = found.object;
+                if (reloader != null && refreshAfter >= 0) {
+                    refreshIfDue(found);
+                }
+                return object;
+            } else if (overflowStore != null) {
+                final long[] expiresAt = {Long.MAX_VALUE};
+                final O promoted = overflowStore.remove(key, expiration -> expiresAt[0] = expiration);
+                if (promoted != null) {
+                    metrics.recordHit();
+                    promote(key, promoted, expiresAt[0]);
+                } else {
+                    metrics.recordMiss();
+                }
+                return promoted;
             } else {
+                metrics.recordMiss();
                 return null;
             }
         } finally {
@@ -150,22 +219,35 @@ public class MRUMap<K, O, T, S> implements Runnable {
         }
     }
 
+    /**
+     * Returns the cached object of the key or creates and caches it. Concurrent misses of the same key share
+     * one call of the creator, see {@link SingleFlightLoader}.
+     *
+     * @param key     the key
+     * @param creator creates the object of a missing key
+     * @return the cached or created object
+     */
     public O getOrCreate(K key, Function<K, O> creator) {
         O result = get(key);
         if (result == null) {
-            result = creator.apply(key);
-            put(key, result);
+            result = loader.load(key, this::peek, k -> metrics.load(k, creator), this::put);
         }
         return result;
     }
 
     public O getOrCreate(K key, Supplier<O> creator) {
-        O result = get(key);
-        if (result == null) {
-            result = creator.get();
-            put(key, result);
+        return getOrCreate(key, k -> creator.get());
+    }
+
+    private O peek(K key) {
+        Lock readLock = readWriteLock.readLock();
+        try {
+            readLock.lock();
+            final CacheEntry<K, O> found = lookupIndex.get(key);
+            return found != null ? found.object : null;
+        } finally {
+            readLock.unlock();
         }
-        return result;
     }
 
     /**
@@ -197,11 +279,156 @@ public class MRUMap<K, O, T, S> implements Runnable {
         }
 
         while (size > capacity) {
-            remove(lru.key);
+            evict(lru);
         }
         this.capacity = capacity;
     }
 
+    /**
+     * Bounds the cache by the sum of the entry weights in addition to the capacity. When putting an entry would exceed
+     * the maximum weight, the least recently used entries are removed until it fits. Entries heavier than the maximum
+     * weight are not cached at all. Already cached entries keep a weight of 0.
+     *
+     * @param maximumWeight the maximum sum of the entry weights
+     * @param weigher       calculates the weight of an entry, e.g. {@link Weigher#sizeInBytes()}
+     */
+    public void setMaximumWeight(long maximumWeight, Weigher<? super K, ? super O> weigher) {
+        Lock readLock = readWriteLock.writeLock();
+        try {
+            readLock.lock();
+            this.maximumWeight = maximumWeight;
+            this.weigher = weigher;
+            while (lru != null && totalWeight > maximumWeight) {
+                evict(lru);
+            }
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    public long getMaximumWeight() {
+        return maximumWeight;
+    }
+
+    /**
+     * Returns the sum of the weights of all cached entries.
+     *
+     * @return the total weight
+     */
+    public long getTotalWeight() {
+        return totalWeight;
+    }
+
+    /**
+     * Sets an off-heap tier for the entries evicted by capacity or weight. Evicted objects are serialized into the
+     * store together with their expiration time and promoted back into this map on the next get. Context, sub context
+     * and hits of an entry are not kept in the store.
+     *
+     * @param overflowStore the store or null to drop evicted entries
+     */
+    public void setOverflowStore(OffHeapStore<K, O> overflowStore) {
+        this.overflowStore = overflowStore;
+    }
+
+    public OffHeapStore<K, O> getOverflowStore() {
+        return overflowStore;
+    }
+
+    /**
+     * Puts an object promoted from the overflow store back into the map. The store keeps the expiration time only,
+     * so the remaining time becomes the time to live of the entry; while refresh ahead is enabled the max stale time
+     * is taken off again, an entry already stale is promoted stale and reloaded.
+     */
+    private void promote(K key, O promoted, long expiresAt) {
+        if (expiresAt == Long.MAX_VALUE) {
+            put(key, promoted);
+            return;
+        }
+        final long remaining = expiresAt - System.currentTimeMillis() - (reloader != null ? maxStale : 0);
+        put(key, promoted, null, null, -1, (int) Math.max(1, Math.min(remaining, Integer.MAX_VALUE)));
+    }
+
+    private void evict(CacheEntry<K, O> entry) {
+        if (overflowStore != null && entry.object != null) {
+            overflowStore.put(entry.key, entry.object, getExpirationTime(entry));
+        }
+        metrics.recordRemoval(RemovalCause.SIZE);
+        removeEntry(entry.key);
+    }
+
+    private void expire(CacheEntry<K, O> entry, long now) {
+        final boolean ttlExceeded = entry.ttl > 0 && now >= entry.createdTime + entry.ttl;
+        metrics.recordRemoval(ttlExceeded ? RemovalCause.TTL : RemovalCause.SURVIVE_TIME);
+        removeEntry(entry.key);
+    }
+
+    /**
+     * Enables refresh ahead: a hit on an entry created more than refreshAfter milliseconds ago still returns the
+     * cached object, but triggers a reload of the key on the given executor, e.g. {@code workService::pushWorkUnit}.
+     * There is at most one reload per entry at a time and the reloaded object replaces the entry with the same
+     * context, survive time and time to live.
+     * <p>
+     * While refresh ahead is enabled, entries whose time to live is exceeded expire maxStale milliseconds later, so
+     * the stale object is served until a reload succeeds or that hard limit is reached.
+     *
+     * @param refreshAfter the age in milliseconds after which a hit triggers a reload
+     * @param maxStale     how long an entry past its time to live is still served
+     * @param reloader     loads the current object of a key, null disables refresh ahead
+     * @param executor     runs the reloads, should be bounded
+     */
+    public void setRefreshAhead(long refreshAfter, long maxStale, Function<? super K, ? extends O> reloader,
+                                Executor executor) {
+        this.refreshAfter = refreshAfter;
+        this.maxStale = maxStale;
+        this.refreshExecutor = executor;
+        this.reloader = reloader;
+        // the expiration time of the entries with a time to live changed
+        rescheduleAll();
+    }
+
+    public long getRefreshAfter() {
+        return refreshAfter;
+    }
+
+    public long getMaxStale() {
+        return maxStale;
+    }
+
+    private void refreshIfDue(CacheEntry<K, O> entry) {
+        if (entry.refreshing || System.currentTimeMillis() - entry.createdTime < refreshAfter) {
+            return;
+        }
+        entry.refreshing = true;
+        final K key = entry.key;
+        try {
+            refreshExecutor.execute(() -> refresh(entry, key));
+        } catch (RejectedExecutionException | IllegalStateException e) {
+            // the executor is saturated or shut down, the next hit tries again
+            entry.refreshing = false;
+        }
+    }
+
+    private void refresh(CacheEntry<K, O> entry, K key) {
+        O value = null;
+        try {
+            value = metrics.load(key, reloader::apply);
+        } catch (RuntimeException e) {
+            // keep serving the stale object up to maxStale
+        }
+        Lock readLock = readWriteLock.writeLock();
+        try {
+            readLock.lock();
+            if (lookupIndex.get(key) == entry) {
+                entry.refreshing = false;
+                if (value != null) {
+                    put(key, value, entry.context, entry.subContext, entry.surviveTime, entry.ttl);
+                }
+            }
+        } finally {
+            readLock.unlock();
+        }
+    }
+
     /**
      * Returns the number of objects currently cached.
      *
@@ -233,7 +460,16 @@ public class MRUMap<K, O, T, S> implements Runnable {
      * @return the hit rate of this cache as double value
      */
     public double getHitRate() {
-        return ((requests == 0) ? 1.0 : ((double) hitCount / (double) requests));
+        return metrics.getHitRate();
+    }
+
+    /**
+     * Returns the metrics of this cache, which can be published via {@link CacheMetrics#publish(String)}.
+     *
+     * @return the metrics
+     */
+    public CacheMetrics getMetrics() {
+        return metrics;
     }
 
     public JSONObject getInfo() {
@@ -245,6 +481,12 @@ public class MRUMap<K, O, T, S> implements Runnable {
         info.put("cleanupThread", isRunning());
         info.put("clearingInterval", _clearingInterval);
         info.put("surviveTime", getSurviveTime());
+        info.put("weight", totalWeight);
+        info.put("maximumWeight", maximumWeight);
+        if (overflowStore != null) {
+            info.put("overflow", overflowStore.getInfo());
+        }
+        info.put("metrics", metrics.getInfo());
         return info;
     }
 
@@ -269,6 +511,81 @@ public class MRUMap<K, O, T, S> implements Runnable {
     }
 
 
+    /**
+     * Returns the cached entries from the least to the most recently used one.
+     *
+     * @return a copy of the recency list
+     */
+    public List<CacheEntry<K, O>> getEntriesByRecency() {
+        Lock readLock = readWriteLock.readLock();
+        try {
+            readLock.lock();
+            final List<CacheEntry<K, O>> entries = new ArrayList<>(size);
+            for (CacheEntry<K, O> entry = lru; entry != null; entry = entry.after) {
+                entries.add(entry);
+            }
+            return entries;
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    /**
+     * Writes the cached entries into a snapshot file, see {@link MRUMapSnapshot}.
+     *
+     * @param file            the snapshot file
+     * @param keySerializer   converts the keys
+     * @param valueSerializer converts the objects
+     * @return the number of entries written
+     * @throws IOException if the file can't be written
+     */
+    public int writeSnapshot(File file, ValueSerializer<K> keySerializer, ValueSerializer<O> valueSerializer) throws IOException {
+        return MRUMapSnapshot.write(this, file, keySerializer, valueSerializer);
+    }
+
+    /**
+     * Restores the entries of a snapshot file on a background thread, the cache is usable meanwhile.
+     * See {@link MRUMapSnapshot}.
+     *
+     * @param file            the snapshot file
+     * @param keySerializer   converts the keys
+     * @param valueSerializer converts the objects
+     * @return the future of the number of restored entries
+     */
+    public CompletableFuture<Integer> restoreSnapshot(File file, ValueSerializer<K> keySerializer, ValueSerializer<O> valueSerializer) {
+        return MRUMapSnapshot.restore(this, file, keySerializer, valueSerializer, task -> {
+            final Thread t = new Thread(task, "MRU snapshot restore");
+            t.setDaemon(true);
+            t.start();
+        });
+    }
+
+    /**
+     * Puts a restored entry as most recently used one, unless the key was put since the restore started.
+     *
+     * @return true if the entry was put
+     */
+    boolean putRestored(K key, O obj, int surviveTimeMS, int ttl, long createdTime, int hits) {
+        Lock readLock = readWriteLock.writeLock();
+        try {
+            readLock.lock();
+            if (lookupIndex.containsKey(key) || (overflowStore != null && overflowStore.containsKey(key))) {
+                return false;
+            }
+            put(key, obj, null, null, surviveTimeMS, ttl);
+            final CacheEntry<K, O> restored = lookupIndex.get(key);
+            if (restored == null) {
+                return false;
+            }
+            restored.createdTime = createdTime;
+            restored.hits = hits;
+            expirationWheel.schedule(restored);
+            return true;
+        } finally {
+            readLock.unlock();
+        }
+    }
+
     public Collection<CacheEntry<K, O>> getKeyEntriesCollection() {
         return lookupIndex.values();
     }
@@ -336,6 +653,44 @@ public class MRUMap<K, O, T, S> implements Runnable {
         this.updateTimeIfHit = updateTimeIfHit;
     }
 
+    public boolean isExpireOnRead() {
+        return expireOnRead;
+    }
+
+    /**
+     * If set, {@link #get(Object)} checks the survive time and time to live of the entry found and removes it if it is
+     * expired, so stale entries are never returned between two periodic clearings.
+     *
+     * @param expireOnRead true to check the expiration on every read
+     */
+    public void setExpireOnRead(boolean expireOnRead) {
+        this.expireOnRead = expireOnRead;
+    }
+
+    /**
+     * Returns the time the given entry expires at. The survive time is counted from the last access time, the time to
+     * live from the creation time. The default survive time only applies while the periodic clearing is running, the
+     * max stale time extends the time to live while refresh ahead is enabled.
+     *
+     * @param entry the entry
+     * @return the expiration time in milliseconds or Long.MAX_VALUE if the entry never expires
+     */
+    protected long getExpirationTime(CacheEntry<K, O> entry) {
+        long expiration = Long.MAX_VALUE;
+        final int sTime = entry.surviveTime != -1 ? entry.surviveTime : (_running ? _surviveTime : -1);
+        if (sTime >= 0) {
+            expiration = entry.getTime() + sTime + 1;
+        }
+        if (entry.ttl > 0) {
+            expiration = Math.min(expiration, entry.createdTime + entry.ttl + (reloader != null ? maxStale : 0));
+        }
+        return expiration;
+    }
+
+    protected boolean isExpired(CacheEntry<K, O> entry, long now) {
+        return now >= getExpirationTime(entry);
+    }
+
     public Set<K> keySet() {
         return lookupIndex.keySet();
     }
@@ -350,34 +705,7 @@ public class MRUMap<K, O, T, S> implements Runnable {
      * @param obj the non-null object to be put into the cache
      */
     public void put(K key, O obj) {
-        Lock readLock = readWriteLock.writeLock();
-        try {
-            readLock.lock();
-            if (capacity == 0) {
-                return;
-            }
-            if (lookupIndex.containsKey(key)) {
-                remove(key);
-            }
-            if (isFull()) {
-                remove(lru.key);
-            }
-            final CacheEntry<K, O> added = new CacheEntry();
-            added.object = obj;
-            added.key = key;
-            added.time = System.currentTimeMillis();
-            lookupIndex.put(key, added);
-            if (isEmpty()) {
-                lru = mru = added;
-            } else {
-                added.before = mru;
-                mru.after = added;
-            }
-            size++;
-            mru = added;
-        } finally {
-            readLock.unlock();
-        }
+        put(key, obj, null, null, -1, -1);
     }
 
     public void put(K key, O obj, T context) {
@@ -405,6 +733,9 @@ public class MRUMap<K, O, T, S> implements Runnable {
     }
 
     public void put(K key, O obj, T context, S subCtx, int surviveTimeMS, int ttl) {
+        // weigh outside of the lock, the weigher may walk the whole value
+        final Weigher<? super K, ? super O> entryWeigher = weigher;
+        final int weight = entryWeigher != null ? entryWeigher.weigh(key, obj) : 0;
         Lock readLock = readWriteLock.writeLock();
         try {
             readLock.lock();
@@ -412,12 +743,19 @@ public class MRUMap<K, O, T, S> implements Runnable {
                 return;
             }
             if (lookupIndex.containsKey(key)) {
-                remove(key);
+                removeEntry(key);
+            } else if (overflowStore != null) {
+                overflowStore.discard(key);
+            }
+            if (maximumWeight >= 0 && weight > maximumWeight) {
+                return;
             }
-            if (isFull()) {
-                remove(lru.key);
+            while (lru != null && (isFull() || (maximumWeight >= 0 && totalWeight + weight > maximumWeight))) {
+                evict(lru);
             }
             final CacheEntry<K, O> added = new CacheEntry();
+            added.weight = weight;
+            totalWeight += weight;
             added.object = obj;
             added.key = key;
             added.context = context;
@@ -425,6 +763,7 @@ public class MRUMap<K, O, T, S> implements Runnable {
             added.surviveTime = surviveTimeMS;
             added.ttl = ttl;
             lookupIndex.put(key, added);
+            expirationWheel.schedule(added);
             if (isEmpty()) {
                 lru = mru = added;
             } else {
@@ -447,32 +786,48 @@ public class MRUMap<K, O, T, S> implements Runnable {
         Lock readLock = readWriteLock.writeLock();
         try {
             readLock.lock();
-            if (!lookupIndex.containsKey(key)) {
-                return;
-            }
-            final CacheEntry<K, O> removed = lookupIndex.get(key);
-            if (removed == lru) {
-                lru = removed.after;
-            } else {
-                removed.before.after = removed.after;
+            if (removeEntry(key)) {
+                metrics.recordRemoval(RemovalCause.EXPLICIT);
+            } else if (overflowStore != null) {
+                overflowStore.discard(key);
             }
-            if (removed == mru) {
-                mru = removed.before;
-            } else {
-                removed.after.before = removed.before;
-            }
-            removed.object = null;
-            removed.key = null;
-            removed.time = 0;
-            removed.before = null;
-            removed.after = null;
-            lookupIndex.remove(key);
-            size--;
         } finally {
             readLock.unlock();
         }
     }
 
+    /**
+     * Unlinks the entry of the key, the caller holds the write lock.
+     *
+     * @return true if the key was cached
+     */
+    private boolean removeEntry(K key) {
+        final CacheEntry<K, O> removed = lookupIndex.get(key);
+        if (removed == null) {
+            return false;
+        }
+        expirationWheel.unlink(removed);
+        totalWeight -= removed.weight;
+        if (removed == lru) {
+            lru = removed.after;
+        } else {
+            removed.before.after = removed.after;
+        }
+        if (removed == mru) {
+            mru = removed.before;
+        } else {
+            removed.after.before = removed.before;
+        }
+        removed.object = null;
+        removed.key = null;
+        removed.time = 0;
+        removed.before = null;
+        removed.after = null;
+        lookupIndex.remove(key);
+        size--;
+        return true;
+    }
+
     /**
      * Returns an object from the cache for the given key, but only if the cache
      * entry is not older than the given timestamp. If there currently is no object
@@ -498,43 +853,52 @@ public class MRUMap<K, O, T, S> implements Runnable {
 
     @Override
     public void run() {
-        while (isRunning()) {
+        while (isRunning() && _clearTimeout == null) {
             try {
-                wait(_clearingInterval);
-                if (isEmpty()) {
-                } else if (_surviveTime == 0) {
-                    clear();
-                } else {
-
-                    Lock readLock = readWriteLock.writeLock();
-                    try {
-                        readLock.lock();
-                        final long now = System.currentTimeMillis();
-                        final Iterator<Map.Entry<K, CacheEntry<K, O>>> entries = lookupIndex.entrySet().iterator();
-                        while (entries.hasNext()) {
-                            final CacheEntry<K, O> aEntry = entries.next().getValue();
-                            final long duration = now - aEntry.getTime();
-                            final long ttl = aEntry.getTtl();
-                            final long ttlNow = now - aEntry.createdTime;
-                            int sTime = _surviveTime;
-                            if (aEntry.surviveTime != -1) {
-                                sTime = aEntry.surviveTime;
-                            }
-                            if (duration > sTime) {
-                                remove((K) aEntry.getKey());
-                            } else if (ttl > 0 && ttlNow >= aEntry.getTtl()) {
-                                remove((K) aEntry.getKey());
-                            }
-                        }
-                    } finally {
-                        readLock.unlock();
-                    }
-                }
+                TimeUnit.MILLISECONDS.sleep(_clearingInterval);
+                clearPeriodic();
+            } catch (final InterruptedException ie) {
+                Thread.currentThread().interrupt();
+                _running = false;
             } catch (final Exception e) {
             }
         }
     }
 
+    private void clearPeriodic() {
+        if (isEmpty()) {
+        } else if (_surviveTime == 0) {
+            clear();
+        } else {
+            removeExpired();
+        }
+    }
+
+    /**
+     * Removes the entries whose survive time or time to live is exceeded. Only the entries scheduled
+     * to expire since the last call are visited.
+     */
+    public void removeExpired() {
+        Lock readLock = readWriteLock.writeLock();
+        try {
+            readLock.lock();
+            final long now = System.currentTimeMillis();
+            expirationWheel.advance(now, entry -> expire(entry, now));
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    private void rescheduleAll() {
+        Lock readLock = readWriteLock.writeLock();
+        try {
+            readLock.lock();
+            lookupIndex.values().forEach(expirationWheel::schedule);
+        } finally {
+            readLock.unlock();
+        }
+    }
+
     public void setPeriodicClear(boolean removePeriodic, int interval, int surviveTime) {
         setPeriodicClear(removePeriodic, interval, surviveTime, null);
     }
@@ -543,11 +907,13 @@ public class MRUMap<K, O, T, S> implements Runnable {
         if (surviveTime <= 0 || interval <= 0) {
             return;
         }
-        final boolean wasRunning = _running;
+        final boolean wasRunning = _running && cancelClearTimeout() == null;
         _running = removePeriodic;
         _clearingInterval = interval;
         _surviveTime = surviveTime;
-        if (!wasRunning) {
+        // the default survive time changed or applies from now on
+        rescheduleAll();
+        if (!wasRunning && removePeriodic) {
             final Thread t = new Thread(this);
             if (threadName != null) {
                 t.setName(threadName);
@@ -558,8 +924,40 @@ public class MRUMap<K, O, T, S> implements Runnable {
         }
     }
 
+    /**
+     * Like {@link #setPeriodicClear(boolean, int, int)}, but runs the clearing as a periodic task of the timer
+     * instead of an own thread, so many caches share one timer thread.
+     *
+     * @param interval    the clearing interval in milliseconds
+     * @param surviveTime the default survive time in milliseconds
+     * @param timer       the timer, null for the one of {@link TimedExecutionService}
+     */
+    public void setPeriodicClearOnTimer(int interval, int surviveTime, HashedWheelTimer timer) {
+        if (surviveTime <= 0 || interval <= 0) {
+            return;
+        }
+        cancelClearTimeout();
+        _clearingInterval = interval;
+        _surviveTime = surviveTime;
+        final HashedWheelTimer clearTimer = timer != null ? timer : TimedExecutionService.getTimer();
+        // a running clearing thread sees the timeout and ends
+        _clearTimeout = clearTimer.scheduleAtFixedRate(this::clearPeriodic, interval, interval, TimeUnit.MILLISECONDS);
+        _running = true;
+        rescheduleAll();
+    }
+
+    private HashedWheelTimer.Timeout cancelClearTimeout() {
+        final HashedWheelTimer.Timeout timeout = _clearTimeout;
+        if (timeout != null) {
+            timeout.cancel();
+            _clearTimeout = null;
+        }
+        return timeout;
+    }
+
     public void stopPeriodicClear() {
         _running = false;
+        cancelClearTimeout();
     }
 
     /**
@@ -583,7 +981,7 @@ public class MRUMap<K, O, T, S> implements Runnable {
      * it. The cache uses a double-linked list of MCRCacheEntries and holds
      * references to the most and least recently used entry.
      */
-    public class CacheEntry<K, O> {
+    public class CacheEntry<K, O> extends TimerWheel.Node {
         /**
          * The entry before this one, more often used than this entry
          */
@@ -611,6 +1009,11 @@ public class MRUMap<K, O, T, S> implements Runnable {
         long time = createdTime;
         int ttl = -1;
         int hits = 0;
+        int weight = 0;
+        /**
+         * True while a refresh ahead reload of this entry is running
+         */
+        boolean refreshing = false;
 
         public void addHit() {
             if (updateTimeIfHit) {
@@ -676,5 +1079,9 @@ public class MRUMap<K, O, T, S> implements Runnable {
         public O getValue() {
             return object;
         }
+
+        public int getWeight() {
+            return weight;
+        }
     }
 }
@@ -0,0 +1,172 @@
+package org.basetools.util.cache;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * Writes the entries of a {@link MRUMap} into a memory mapped file and restores them, so a restarted application
+ * starts with a warm cache. The entries are written from the least to the most recently used one together with
+ * their creation time, survive time, time to live and hits. Keys and objects are converted by
+ * {@link ValueSerializer}s, context and sub context are not part of the snapshot.
+ * <p>
+ * The file is mapped in windows of up to {@value #WINDOW_SIZE} bytes, so snapshots may exceed 2GB. Restoring streams
+ * the records in the background: entries whose time to live expired meanwhile are skipped, keys already put by the
+ * running application are kept, and the survive time restarts at the time of restore.
+ */
+public final class MRUMapSnapshot {
+    private static final int MAGIC = 0x4d52554d;
+    private static final int VERSION = 1;
+    private static final int FILE_HEADER_SIZE = 8;
+    /**
+     * createdTime, time, surviveTime, ttl, hits, key length, object length
+     */
+    private static final int RECORD_HEADER_SIZE = 36;
+    private static final int END_OF_SNAPSHOT = -1;
+    private static final int WINDOW_SIZE = 64 * 1024 * 1024;
+
+    private MRUMapSnapshot() {
+    }
+
+    /**
+     * Writes all entries of the map into the file, replacing an existing file.
+     *
+     * @param map             the map
+     * @param file            the snapshot file
+     * @param keySerializer   converts the keys
+     * @param valueSerializer converts the objects
+     * @return the number of entries written
+     * @throws IOException if the file can't be written
+     */
+    public static <K, O, T, S> int write(MRUMap<K, O, T, S> map, File file, ValueSerializer<K> keySerializer,
+                                         ValueSerializer<O> valueSerializer) throws IOException {
+        final List<MRUMap<K, O, T, S>.CacheEntry<K, O>> entries = map.getEntriesByRecency();
+        Files.deleteIfExists(file.toPath());
+        int written = 0;
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_WRITE, 0, WINDOW_SIZE);
+            long windowStart = 0;
+            window.putInt(MAGIC);
+            window.putInt(VERSION);
+            for (MRUMap<K, O, T, S>.CacheEntry<K, O> entry : entries) {
+                final O object = entry.getValue();
+                if (object == null) {
+                    continue;
+                }
+                final byte[] key = keySerializer.serialize(entry.getKey());
+                final byte[] value = valueSerializer.serialize(object);
+                final int recordSize = RECORD_HEADER_SIZE + key.length + value.length;
+                // keep room for the end marker behind every record
+                if (window.remaining() < recordSize + RECORD_HEADER_SIZE) {
+                    windowStart += window.position();
+                    window = channel.map(FileChannel.MapMode.READ_WRITE, windowStart,
+                            Math.max(WINDOW_SIZE, recordSize + RECORD_HEADER_SIZE));
+                }
+                window.putLong(entry.getCreatedTime());
+                window.putLong(entry.getTime());
+                window.putInt(entry.getSurviveTime());
+                window.putInt(entry.getTtl());
+                window.putInt(entry.getHits());
+                window.putInt(key.length);
+                window.putInt(value.length);
+                window.put(key);
+                window.put(value);
+                written++;
+            }
+            window.putLong(0);
+            window.putLong(0);
+            window.putInt(0);
+            window.putInt(0);
+            window.putInt(0);
+            window.putInt(END_OF_SNAPSHOT);
+            window.putInt(0);
+            window.force();
+            // mapping a window grows the file to the window size, cut it behind the end marker
+            channel.truncate(windowStart + window.position());
+        }
+        return written;
+    }
+
+    /**
+     * Restores the entries of the file into the map in the background.
+     *
+     * @param map             the map
+     * @param file            the snapshot file
+     * @param keySerializer   converts the keys
+     * @param valueSerializer converts the objects
+     * @param executor        runs the restore
+     * @return the future of the number of restored entries
+     */
+    public static <K, O> CompletableFuture<Integer> restore(MRUMap<K, O, ?, ?> map, File file,
+                                                            ValueSerializer<K> keySerializer,
+                                                            ValueSerializer<O> valueSerializer, Executor executor) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return read(map, file, keySerializer, valueSerializer);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, executor);
+    }
+
+    private static <K, O> int read(MRUMap<K, O, ?, ?> map, File file, ValueSerializer<K> keySerializer,
+                                   ValueSerializer<O> valueSerializer) throws IOException {
+        int restored = 0;
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            final long fileSize = channel.size();
+            if (fileSize < FILE_HEADER_SIZE + RECORD_HEADER_SIZE) {
+                throw new IOException("no MRUMap snapshot: " + file);
+            }
+            long windowStart = 0;
+            MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(WINDOW_SIZE, fileSize));
+            if (window.getInt() != MAGIC || window.getInt() != VERSION) {
+                throw new IOException("no MRUMap snapshot or unsupported version: " + file);
+            }
+            while (true) {
+                if (window.remaining() < RECORD_HEADER_SIZE) {
+                    windowStart += window.position();
+                    window = channel.map(FileChannel.MapMode.READ_ONLY, windowStart, Math.min(WINDOW_SIZE, fileSize - windowStart));
+                }
+                final int recordStart = window.position();
+                final long createdTime = window.getLong();
+                window.getLong();
+                final int surviveTime = window.getInt();
+                final int ttl = window.getInt();
+                final int hits = window.getInt();
+                final int keyLength = window.getInt();
+                final int valueLength = window.getInt();
+                if (keyLength == END_OF_SNAPSHOT) {
+                    break;
+                }
+                if (window.remaining() < keyLength + valueLength) {
+                    // the record crosses the window, map the next window from the record on
+                    windowStart += recordStart;
+                    window = channel.map(FileChannel.MapMode.READ_ONLY, windowStart,
+                            Math.min(Math.max(WINDOW_SIZE, RECORD_HEADER_SIZE + keyLength + valueLength + RECORD_HEADER_SIZE),
+                                    fileSize - windowStart));
+                    window.position(RECORD_HEADER_SIZE);
+                }
+                final byte[] key = new byte[keyLength];
+                final byte[] value = new byte[valueLength];
+                window.get(key);
+                window.get(value);
+                if (ttl > 0 && createdTime + ttl <= System.currentTimeMillis()) {
+                    continue;
+                }
+                if (map.putRestored(keySerializer.deserialize(key), valueSerializer.deserialize(value), surviveTime, ttl,
+                        createdTime, hits)) {
+                    restored++;
+                }
+            }
+        }
+        return restored;
+    }
+}
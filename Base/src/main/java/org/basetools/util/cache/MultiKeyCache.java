@@ -4,6 +4,8 @@ import net.minidev.json.JSONArray;
 import net.minidev.json.JSONObject;
 import org.apache.commons.collections4.keyvalue.MultiKey;
 import org.apache.commons.collections4.map.MultiKeyMap;
+import org.basetools.util.cache.metrics.CacheMetrics;
+import org.basetools.util.cache.metrics.RemovalCause;
 
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReadWriteLock;
@@ -19,6 +21,8 @@ import java.util.function.Supplier;
  */
 public class MultiKeyCache<K, V> {
     private final int cacheSize;
+    private final SingleFlightLoader<MultiKey<? extends K>, V> loader = new SingleFlightLoader<>();
+    private final CacheMetrics metrics = new CacheMetrics();
     private MultiKeyMap<K, V> cache = null;
     private ReadWriteLock readWriteLock = null;
 
@@ -43,43 +47,58 @@ public class MultiKeyCache<K, V> {
      * @return the old Key
      */
     public V put(MultiKey<? extends K> key, V value) {
-        if (cache.size() >= cacheSize && cacheSize > 0) {
-            MultiKey<? extends K> oldKey = cache.keySet().iterator().next();
-            remove(oldKey);
+        Lock writeLock = readWriteLock.writeLock();
+        try {
+            writeLock.lock();
+            evictIfFull();
+            return cache.put(key, value);
+        } finally {
+            writeLock.unlock();
         }
-        return cache.put(key, value);
     }
 
     public V put(K key, K key2, V value) {
-        if (cache.size() >= cacheSize && cacheSize > 0) {
-            MultiKey<? extends K> oldKey = cache.keySet().iterator().next();
-            remove(oldKey);
+        Lock writeLock = readWriteLock.writeLock();
+        try {
+            writeLock.lock();
+            evictIfFull();
+            return cache.put(key, key2, value);
+        } finally {
+            writeLock.unlock();
         }
-        return cache.put(key, key2, value);
     }
 
     public V put(K key, K key2, K key3, V value) {
-        if (cache.size() >= cacheSize && cacheSize > 0) {
-            MultiKey<? extends K> oldKey = cache.keySet().iterator().next();
-            remove(oldKey);
+        Lock writeLock = readWriteLock.writeLock();
+        try {
+            writeLock.lock();
+            evictIfFull();
+            return cache.put(key, key2, key3, value);
+        } finally {
+            writeLock.unlock();
         }
-        return cache.put(key, key2, key3, value);
     }
 
     public V put(K key, K key2, K key3, K key4, V value) {
-        if (cache.size() >= cacheSize && cacheSize > 0) {
-            MultiKey<? extends K> oldKey = cache.keySet().iterator().next();
-            remove(oldKey);
+        Lock writeLock = readWriteLock.writeLock();
+        try {
+            writeLock.lock();
+            evictIfFull();
+            return cache.put(key, key2, key3, key4, value);
+        } finally {
+            writeLock.unlock();
         }
-        return cache.put(key, key2, key3, key4, value);
     }
 
     public V put(K key, K key2, K key3, K key4, K key5, V value) {
-        if (cache.size() >= cacheSize && cacheSize > 0) {
-            MultiKey<? extends K> oldKey = cache.keySet().iterator().next();
-            remove(oldKey);
+        Lock writeLock = readWriteLock.writeLock();
+        try {
+            writeLock.lock();
+            evictIfFull();
+            return cache.put(key, key2, key3, key4, key5, value);
+        } finally {
+            writeLock.unlock();
         }
-        return cache.put(key, key2, key3, key4, key5, value);
     }
 
     /**
@@ -92,7 +111,7 @@ public class MultiKeyCache<K, V> {
         Lock readLock = readWriteLock.readLock();
         try {
             readLock.lock();
-            return cache.get(key);
+            return record(cache.get(key));
         } finally {
             readLock.unlock();
         }
@@ -102,7 +121,7 @@ public class MultiKeyCache<K, V> {
         Lock readLock = readWriteLock.readLock();
         try {
             readLock.lock();
-            return cache.get(key, key2);
+            return record(cache.get(key, key2));
         } finally {
             readLock.unlock();
         }
@@ -112,7 +131,7 @@ public class MultiKeyCache<K, V> {
         Lock readLock = readWriteLock.readLock();
         try {
             readLock.lock();
-            return cache.get(key, key2, key3);
+            return record(cache.get(key, key2, key3));
         } finally {
             readLock.unlock();
         }
@@ -122,7 +141,7 @@ public class MultiKeyCache<K, V> {
         Lock readLock = readWriteLock.readLock();
         try {
             readLock.lock();
-            return cache.get(key, key2, key3, key4);
+            return record(cache.get(key, key2, key3, key4));
         } finally {
             readLock.unlock();
         }
@@ -132,26 +151,57 @@ public class MultiKeyCache<K, V> {
         Lock readLock = readWriteLock.readLock();
         try {
             readLock.lock();
-            return cache.get(key, key2, key3, key4, key5);
+            return record(cache.get(key, key2, key3, key4, key5));
         } finally {
             readLock.unlock();
         }
     }
 
-    public V getOrCreate(MultiKey<? extends K> key, Supplier<V> creator) {
-        Lock writeLock = readWriteLock.writeLock();
+    private V peek(MultiKey<? extends K> key) {
+        Lock readLock = readWriteLock.readLock();
         try {
-            writeLock.lock();
-            V result = get(key);
-            if (result == null) {
-                result = creator.get();
-                put(key, result);
-            }
-            return result;
+            readLock.lock();
+            return cache.get(key);
         } finally {
-            writeLock.unlock();
+            readLock.unlock();
         }
+    }
 
+    private V record(V value) {
+        if (value != null) {
+            metrics.recordHit();
+        } else {
+            metrics.recordMiss();
+        }
+        return value;
+    }
+
+    /**
+     * Makes room for one entry, the caller holds the write lock.
+     */
+    private void evictIfFull() {
+        if (cache.size() >= cacheSize && cacheSize > 0) {
+            MultiKey<? extends K> oldKey = cache.keySet().iterator().next();
+            if (cache.remove(oldKey) != null) {
+                metrics.recordRemoval(RemovalCause.SIZE);
+            }
+        }
+    }
+
+    /**
+     * Returns the cached value of the key or creates and caches it. The creator runs without holding the cache lock and
+     * concurrent misses of the same key share one call of it, see {@link SingleFlightLoader}.
+     *
+     * @param key     the key
+     * @param creator creates the value of a missing key
+     * @return the cached or created value
+     */
+    public V getOrCreate(MultiKey<? extends K> key, Supplier<V> creator) {
+        V result = get(key);
+        if (result == null) {
+            result = loader.load(key, this::peek, k -> metrics.load(k, x -> creator.get()), this::put);
+        }
+        return result;
     }
 
     /**
@@ -210,6 +260,22 @@ public class MultiKeyCache<K, V> {
         }
     }
 
+    private V recordRemoval(V removed) {
+        if (removed != null) {
+            metrics.recordRemoval(RemovalCause.EXPLICIT);
+        }
+        return removed;
+    }
+
+    /**
+     * Returns the metrics of this cache, which can be published via {@link CacheMetrics#publish(String)}.
+     *
+     * @return the metrics
+     */
+    public CacheMetrics getMetrics() {
+        return metrics;
+    }
+
     public JSONObject getInfo() {
         JSONArray entries = new JSONArray();
         traverse((key, value) -> {
@@ -218,6 +284,7 @@ public class MultiKeyCache<K, V> {
         });
         return new JSONObject()
                 .appendField("size", getCache().size())
+                .appendField("metrics", metrics.getInfo())
                 .appendField("entries", entries);
     }
 
@@ -241,7 +308,7 @@ public class MultiKeyCache<K, V> {
         Lock writeLock = readWriteLock.writeLock();
         try {
             writeLock.lock();
-            return cache.remove(key);
+            return recordRemoval(cache.remove(key));
         } finally {
             writeLock.unlock();
         }
@@ -251,7 +318,7 @@ public class MultiKeyCache<K, V> {
         Lock writeLock = readWriteLock.writeLock();
         try {
             writeLock.lock();
-            return cache.removeMultiKey(key, key2);
+            return recordRemoval(cache.removeMultiKey(key, key2));
         } finally {
             writeLock.unlock();
         }
@@ -261,7 +328,7 @@ public class MultiKeyCache<K, V> {
         Lock writeLock = readWriteLock.writeLock();
         try {
             writeLock.lock();
-            return cache.removeMultiKey(key, key2, key3);
+            return recordRemoval(cache.removeMultiKey(key, key2, key3));
         } finally {
             writeLock.unlock();
         }
@@ -271,7 +338,7 @@ public class MultiKeyCache<K, V> {
         Lock writeLock = readWriteLock.writeLock();
         try {
             writeLock.lock();
-            return cache.removeMultiKey(key, key2, key3, key4);
+            return recordRemoval(cache.removeMultiKey(key, key2, key3, key4));
         } finally {
             writeLock.unlock();
         }
@@ -281,7 +348,7 @@ public class MultiKeyCache<K, V> {
         Lock writeLock = readWriteLock.writeLock();
         try {
             writeLock.lock();
-            return cache.removeMultiKey(key, key2, key3, key4, key5);
+            return recordRemoval(cache.removeMultiKey(key, key2, key3, key4, key5));
         } finally {
             writeLock.unlock();
         }
@@ -0,0 +1,476 @@
+package org.basetools.util.cache;
+
+import net.minidev.json.JSONObject;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.*;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.IntFunction;
+import java.util.function.LongConsumer;
+
+/**
+ * Value store outside of the java heap, used as overflow tier of {@link MRUMap} and {@link Cache}. The values are
+ * serialized into fixed size slabs, either direct {@link ByteBuffer}s or memory mapped files. Only the key index stays
+ * on the heap: an open addressing table of keys and primitive addresses without a node per entry, so even a very large
+ * number of entries adds little GC load.
+ * <p>
+ * Records are appended to the current slab. Removed or replaced records leave garbage that is reclaimed when all
+ * records of a slab are dead. When the maximum number of slabs is in use, the oldest slab is dropped together with
+ * its entries; every slab lists the keys written into it, so dropping it only looks up these keys instead of scanning
+ * the index. This implementation use ReadWritLock to ensure it's threadsave.
+ *
+ * @param <K> the key type
+ * @param <V> the value type
+ */
+public class OffHeapStore<K, V> {
+    /**
+     * record header: value length (int) and expiration time (long)
+     */
+    private static final int HEADER_SIZE = 12;
+    private static final int NONE = -1;
+    private static final int INITIAL_INDEX_SIZE = 64;
+    private static final Object NULL_KEY = new Object();
+    private final ReadWriteLock readWriteLock = new ReentrantReadWriteLock();
+    /**
+     * The index: an open addressing table with linear probing, holding the key (null for an empty bucket) and the
+     * address of its record
+     */
+    private Object[] indexKeys = new Object[INITIAL_INDEX_SIZE];
+    private long[] indexAddresses = new long[INITIAL_INDEX_SIZE];
+    private int indexSize = 0;
+    private final NavigableMap<Integer, Slab> slabs = new TreeMap<>();
+    private final Deque<ByteBuffer> freeBuffers = new ArrayDeque<>();
+    private final ValueSerializer<V> serializer;
+    private final IntFunction<ByteBuffer> slabFactory;
+    private final int slabSize;
+    private final int maxSlabs;
+    private Slab current;
+    private int nextSlabId = 0;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder requests = new LongAdder();
+    private long droppedEntries = 0;
+
+    private OffHeapStore(int slabSize, int maxSlabs, ValueSerializer<V> serializer, IntFunction<ByteBuffer> slabFactory) {
+        if (slabSize <= HEADER_SIZE || maxSlabs <= 0) {
+            throw new IllegalArgumentException("slab size and number of slabs must be positive");
+        }
+        this.slabSize = slabSize;
+        this.maxSlabs = maxSlabs;
+        this.serializer = serializer;
+        this.slabFactory = slabFactory;
+    }
+
+    /**
+     * Creates a store using direct byte buffers.
+     *
+     * @param slabSize   the size of a slab in bytes, also the maximum record size
+     * @param maxSlabs   the maximum number of slabs
+     * @param serializer converts the values to bytes
+     * @return the store
+     */
+    public static <K, V> OffHeapStore<K, V> direct(int slabSize, int maxSlabs, ValueSerializer<V> serializer) {
+        return new OffHeapStore<>(slabSize, maxSlabs, serializer, ByteBuffer::allocateDirect);
+    }
+
+    /**
+     * Creates a store using memory mapped files in the given directory. The files are deleted on exit.
+     *
+     * @param directory  the directory for the slab files
+     * @param slabSize   the size of a slab in bytes, also the maximum record size
+     * @param maxSlabs   the maximum number of slabs
+     * @param serializer converts the values to bytes
+     * @return the store
+     */
+    public static <K, V> OffHeapStore<K, V> mapped(File directory, int slabSize, int maxSlabs, ValueSerializer<V> serializer) {
+        return new OffHeapStore<>(slabSize, maxSlabs, serializer, size -> mapFile(directory, size));
+    }
+
+    private static ByteBuffer mapFile(File directory, int size) {
+        try {
+            File file = File.createTempFile("offheap", ".slab", directory);
+            file.deleteOnExit();
+            try (RandomAccessFile raf = new RandomAccessFile(file, "rw"); FileChannel channel = raf.getChannel()) {
+                return channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Stores the value without expiration.
+     *
+     * @param key   the key
+     * @param value the non-null value
+     * @return true if stored, false if the serialized value is larger than a slab
+     */
+    public boolean put(K key, V value) {
+        return put(key, value, Long.MAX_VALUE);
+    }
+
+    /**
+     * Stores the value, replacing a previous value of the key.
+     *
+     * @param key       the key
+     * @param value     the non-null value
+     * @param expiresAt the time in milliseconds after which the value is not returned anymore
+     * @return true if stored, false if the serialized value is larger than a slab
+     */
+    public boolean put(K key, V value, long expiresAt) {
+        final byte[] bytes = serializer.serialize(value);
+        final int recordSize = HEADER_SIZE + bytes.length;
+        Lock writeLock = readWriteLock.writeLock();
+        try {
+            writeLock.lock();
+            removeInternal(key);
+            if (recordSize > slabSize) {
+                return false;
+            }
+            if (current == null || current.position + recordSize > slabSize) {
+                current = allocateSlab();
+            }
+            final int offset = current.position;
+            final ByteBuffer buffer = current.buffer;
+            buffer.putInt(offset, bytes.length);
+            buffer.putLong(offset + 4, expiresAt);
+            final ByteBuffer view = buffer.duplicate();
+            view.position(offset + HEADER_SIZE);
+            view.put(bytes);
+            current.position += recordSize;
+            current.liveBytes += recordSize;
+            current.liveEntries++;
+            current.addKey(maskNull(key));
+            putAddress(maskNull(key), address(current.id, offset));
+            return true;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Returns the value of the key or null if it isn't stored or expired.
+     *
+     * @param key the key
+     * @return the value or null
+     */
+    public V get(K key) {
+        final byte[] bytes;
+        Lock readLock = readWriteLock.readLock();
+        try {
+            readLock.lock();
+            requests.increment();
+            bytes = read(key);
+            if (bytes != null) {
+                hits.increment();
+            }
+        } finally {
+            readLock.unlock();
+        }
+        return bytes != null ? serializer.deserialize(bytes) : null;
+    }
+
+    /**
+     * Removes the key and returns its value, used to promote a value back to the heap.
+     *
+     * @param key the key
+     * @return the value or null if it isn't stored or expired
+     */
+    public V remove(K key) {
+        return remove(key, null);
+    }
+
+    /**
+     * Removes the key and returns its value together with its expiration time, so a promoted value keeps it.
+     *
+     * @param key       the key
+     * @param expiresAt receives the expiration time of a returned value, may be null
+     * @return the value or null if it isn't stored or expired
+     */
+    public V remove(K key, LongConsumer expiresAt) {
+        final byte[] bytes;
+        long expiration = Long.MAX_VALUE;
+        Lock writeLock = readWriteLock.writeLock();
+        try {
+            writeLock.lock();
+            requests.increment();
+            bytes = read(key);
+            if (bytes != null) {
+                expiration = getExpiresAt(key);
+            }
+            removeInternal(key);
+            if (bytes != null) {
+                hits.increment();
+            }
+        } finally {
+            writeLock.unlock();
+        }
+        if (bytes == null) {
+            return null;
+        }
+        if (expiresAt != null) {
+            expiresAt.accept(expiration);
+        }
+        return serializer.deserialize(bytes);
+    }
+
+    /**
+     * Removes the key without reading its value.
+     *
+     * @param key the key
+     */
+    public void discard(K key) {
+        Lock writeLock = readWriteLock.writeLock();
+        try {
+            writeLock.lock();
+            removeInternal(key);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    public boolean containsKey(K key) {
+        Lock readLock = readWriteLock.readLock();
+        try {
+            readLock.lock();
+            return findBucket(maskNull(key)) != NONE;
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    /**
+     * Returns the number of stored entries.
+     *
+     * @return the number of entries
+     */
+    public int size() {
+        Lock readLock = readWriteLock.readLock();
+        try {
+            readLock.lock();
+            return indexSize;
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    /**
+     * Removes all entries, the slabs are kept for reuse.
+     */
+    public void clear() {
+        Lock writeLock = readWriteLock.writeLock();
+        try {
+            writeLock.lock();
+            Arrays.fill(indexKeys, null);
+            indexSize = 0;
+            slabs.values().forEach(slab -> freeBuffers.push(slab.buffer));
+            slabs.clear();
+            current = null;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    public JSONObject getInfo() {
+        Lock readLock = readWriteLock.readLock();
+        try {
+            readLock.lock();
+            long liveBytes = 0;
+            for (Slab slab : slabs.values()) {
+                liveBytes += slab.liveBytes;
+            }
+            return new JSONObject()
+                    .appendField("size", indexSize)
+                    .appendField("slabs", slabs.size())
+                    .appendField("maxSlabs", maxSlabs)
+                    .appendField("slabSize", slabSize)
+                    .appendField("liveBytes", liveBytes)
+                    .appendField("droppedEntries", droppedEntries)
+                    .appendField("hitRate", requests.sum() == 0 ? 1.0 : (double) hits.sum() / (double) requests.sum());
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    private byte[] read(K key) {
+        final int bucket = findBucket(maskNull(key));
+        if (bucket == NONE) {
+            return null;
+        }
+        final long address = indexAddresses[bucket];
+        final ByteBuffer buffer = slabs.get(slabId(address)).buffer;
+        final int offset = offset(address);
+        if (buffer.getLong(offset + 4) <= System.currentTimeMillis()) {
+            return null;
+        }
+        final byte[] bytes = new byte[buffer.getInt(offset)];
+        final ByteBuffer view = buffer.duplicate();
+        view.position(offset + HEADER_SIZE);
+        view.get(bytes);
+        return bytes;
+    }
+
+    private long getExpiresAt(K key) {
+        final long address = indexAddresses[findBucket(maskNull(key))];
+        return slabs.get(slabId(address)).buffer.getLong(offset(address) + 4);
+    }
+
+    private void removeInternal(K key) {
+        final int bucket = findBucket(maskNull(key));
+        if (bucket == NONE) {
+            return;
+        }
+        final long address = indexAddresses[bucket];
+        removeBucket(bucket);
+        final Slab slab = slabs.get(slabId(address));
+        slab.liveBytes -= HEADER_SIZE + slab.buffer.getInt(offset(address));
+        slab.liveEntries--;
+        if (slab.liveEntries == 0 && slab != current) {
+            releaseSlab(slab);
+        }
+    }
+
+    private Slab allocateSlab() {
+        if (current != null && current.liveEntries == 0) {
+            releaseSlab(current);
+        }
+        if (slabs.size() >= maxSlabs) {
+            final Slab oldest = slabs.firstEntry().getValue();
+            // keys removed or written again since are gone from the index or point to a newer slab
+            for (int i = 0; i < oldest.keyCount; i++) {
+                final int bucket = findBucket(oldest.keys[i]);
+                if (bucket != NONE && slabId(indexAddresses[bucket]) == oldest.id) {
+                    removeBucket(bucket);
+                    droppedEntries++;
+                }
+            }
+            releaseSlab(oldest);
+        }
+        final ByteBuffer buffer = freeBuffers.isEmpty() ? slabFactory.apply(slabSize) : freeBuffers.pop();
+        final Slab slab = new Slab(nextSlabId++, buffer);
+        slabs.put(slab.id, slab);
+        return slab;
+    }
+
+    private void releaseSlab(Slab slab) {
+        slabs.remove(slab.id);
+        freeBuffers.push(slab.buffer);
+    }
+
+    private static Object maskNull(Object key) {
+        return key != null ? key : NULL_KEY;
+    }
+
+    private static int hash(Object key) {
+        final int h = key.hashCode();
+        return h ^ (h >>> 16);
+    }
+
+    private int findBucket(Object key) {
+        final int mask = indexKeys.length - 1;
+        int bucket = hash(key) & mask;
+        Object candidate;
+        while ((candidate = indexKeys[bucket]) != null) {
+            if (candidate.equals(key)) {
+                return bucket;
+            }
+            bucket = (bucket + 1) & mask;
+        }
+        return NONE;
+    }
+
+    /**
+     * Adds the key, which must not be in the index, and grows the table above a load factor of 2/3.
+     */
+    private void putAddress(Object key, long address) {
+        if ((indexSize + 1) * 3 > indexKeys.length * 2) {
+            final Object[] oldKeys = indexKeys;
+            final long[] oldAddresses = indexAddresses;
+            indexKeys = new Object[oldKeys.length * 2];
+            indexAddresses = new long[oldKeys.length * 2];
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != null) {
+                    insert(oldKeys[i], oldAddresses[i]);
+                }
+            }
+        }
+        insert(key, address);
+        indexSize++;
+    }
+
+    private void insert(Object key, long address) {
+        final int mask = indexKeys.length - 1;
+        int bucket = hash(key) & mask;
+        while (indexKeys[bucket] != null) {
+            bucket = (bucket + 1) & mask;
+        }
+        indexKeys[bucket] = key;
+        indexAddresses[bucket] = address;
+    }
+
+    /**
+     * Empties the bucket and closes the gap in the probe sequence by shifting the following buckets back, so the
+     * table never needs tombstones.
+     */
+    private void removeBucket(int bucket) {
+        final int mask = indexKeys.length - 1;
+        indexSize--;
+        int gap = bucket;
+        int next = (gap + 1) & mask;
+        while (indexKeys[next] != null) {
+            final int home = hash(indexKeys[next]) & mask;
+            // move the entry into the gap unless its home bucket lies cyclically in (gap, next]
+            if (((next - home) & mask) >= ((next - gap) & mask)) {
+                indexKeys[gap] = indexKeys[next];
+                indexAddresses[gap] = indexAddresses[next];
+                gap = next;
+            }
+            next = (next + 1) & mask;
+        }
+        indexKeys[gap] = null;
+    }
+
+    private static long address(int slabId, int offset) {
+        return ((long) slabId << 32) | (offset & 0xffffffffL);
+    }
+
+    private static int slabId(long address) {
+        return (int) (address >>> 32);
+    }
+
+    private static int offset(long address) {
+        return (int) address;
+    }
+
+    private static final class Slab {
+        final int id;
+        final ByteBuffer buffer;
+        int position;
+        long liveBytes;
+        int liveEntries;
+        /**
+         * The keys of the records written into this slab, in write order
+         */
+        Object[] keys = new Object[16];
+        int keyCount;
+
+        Slab(int id, ByteBuffer buffer) {
+            this.id = id;
+            this.buffer = buffer;
+        }
+
+        void addKey(Object key) {
+            if (keyCount == keys.length) {
+                keys = Arrays.copyOf(keys, keyCount * 2);
+            }
+            keys[keyCount++] = key;
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package org.basetools.util.cache;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * Coordinates concurrent cache misses, so an expensive creator runs only once per key. The first thread missing a key
+ * runs the creator and stores the result, all other threads missing the same key meanwhile wait for that in-flight
+ * computation. Different keys are loaded in parallel and no cache lock is held while the creator runs.
+ * <p>
+ * Failures are not cached: the threads waiting on a failed computation get its exception, the next miss starts a new
+ * one.
+ *
+ * @param <K> the key type
+ * @param <V> the value type
+ */
+public class SingleFlightLoader<K, V> {
+    private final ConcurrentMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+    /**
+     * Loads the value of the key, joining an in-flight computation of the same key if there is one.
+     *
+     * @param key     the key to load
+     * @param lookup  reads the key from the cache, used to recheck after winning the flight
+     * @param creator creates the value of a missing key
+     * @param store   puts a created, non-null value into the cache
+     * @return the cached or created value
+     */
+    public V load(K key, Function<K, V> lookup, Function<K, V> creator, BiConsumer<K, V> store) {
+        final CompletableFuture<V> flight = new CompletableFuture<>();
+        final CompletableFuture<V> running = inFlight.putIfAbsent(key, flight);
+        if (running != null) {
+            return await(running);
+        }
+        try {
+            // a flight may have completed and stored the value between the caller's miss and now
+            V value = lookup.apply(key);
+            if (value == null) {
+                value = creator.apply(key);
+                if (value != null) {
+                    store.accept(key, value);
+                }
+            }
+            flight.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            flight.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, flight);
+        }
+    }
+
+    /**
+     * Returns the number of keys currently being loaded.
+     *
+     * @return the number of in-flight computations
+     */
+    public int getInFlightCount() {
+        return inFlight.size();
+    }
+
+    private V await(CompletableFuture<V> running) {
+        try {
+            return running.join();
+        } catch (CompletionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package org.basetools.util.cache;
+
+import org.basetools.util.tree.TreeNode;
+
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.Map;
+
+/**
+ * Cheap estimation of the heap size of common cache values, assuming a 64 bit VM with compressed references. Strings,
+ * primitive arrays, boxed primitives and {@link TreeNode} trees are sized by their content, object arrays, collections
+ * and maps by their elements up to a nesting depth of {@value #MAX_DEPTH}. Other objects count as a plain object
+ * header, so a custom {@link Weigher} should be used for them.
+ */
+public final class SizeEstimator {
+    private static final int MAX_DEPTH = 3;
+    private static final long OBJECT_HEADER = 16;
+    private static final long ARRAY_HEADER = 16;
+    private static final long REFERENCE = 4;
+    private static final long STRING_SHALLOW = 24;
+    private static final long COLLECTION_ENTRY = 32;
+    private static final long TREE_NODE_SHALLOW = 72;
+
+    private SizeEstimator() {
+    }
+
+    /**
+     * Returns the estimated size in bytes of the object and the objects it holds.
+     *
+     * @param o the object, may be null
+     * @return the estimated size in bytes
+     */
+    public static long estimate(Object o) {
+        return estimate(o, 0);
+    }
+
+    private static long estimate(Object o, int depth) {
+        if (o == null) {
+            return 0;
+        }
+        if (o instanceof String) {
+            return STRING_SHALLOW + align(ARRAY_HEADER + 2L * ((String) o).length());
+        }
+        if (o instanceof byte[]) {
+            return align(ARRAY_HEADER + ((byte[]) o).length);
+        }
+        if (o instanceof Long || o instanceof Double) {
+            return 24;
+        }
+        if (o instanceof Number || o instanceof Boolean || o instanceof Character) {
+            return OBJECT_HEADER;
+        }
+        if (o instanceof TreeNode) {
+            return estimateTree((TreeNode<?, ?>) o, depth);
+        }
+        final Class<?> clazz = o.getClass();
+        if (clazz.isArray()) {
+            return estimateArray(o, clazz.getComponentType(), depth);
+        }
+        if (o instanceof Collection) {
+            long size = OBJECT_HEADER + ARRAY_HEADER;
+            for (Object element : (Collection<?>) o) {
+                size += COLLECTION_ENTRY + (depth < MAX_DEPTH ? estimate(element, depth + 1) : 0);
+            }
+            return size;
+        }
+        if (o instanceof Map) {
+            long size = OBJECT_HEADER + ARRAY_HEADER;
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) o).entrySet()) {
+                size += COLLECTION_ENTRY;
+                if (depth < MAX_DEPTH) {
+                    size += estimate(entry.getKey(), depth + 1) + estimate(entry.getValue(), depth + 1);
+                }
+            }
+            return size;
+        }
+        return OBJECT_HEADER;
+    }
+
+    private static long estimateArray(Object array, Class<?> componentType, int depth) {
+        if (componentType == char.class) {
+            return align(ARRAY_HEADER + 2L * ((char[]) array).length);
+        } else if (componentType == short.class) {
+            return align(ARRAY_HEADER + 2L * ((short[]) array).length);
+        } else if (componentType == int.class) {
+            return align(ARRAY_HEADER + 4L * ((int[]) array).length);
+        } else if (componentType == float.class) {
+            return align(ARRAY_HEADER + 4L * ((float[]) array).length);
+        } else if (componentType == long.class) {
+            return align(ARRAY_HEADER + 8L * ((long[]) array).length);
+        } else if (componentType == double.class) {
+            return align(ARRAY_HEADER + 8L * ((double[]) array).length);
+        } else if (componentType == boolean.class) {
+            return align(ARRAY_HEADER + ((boolean[]) array).length);
+        }
+        final Object[] elements = (Object[]) array;
+        long size = align(ARRAY_HEADER + REFERENCE * elements.length);
+        if (depth < MAX_DEPTH) {
+            for (Object element : elements) {
+                size += estimate(element, depth + 1);
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Sums up all nodes of the tree iteratively, the data of a node is estimated as nested object.
+     */
+    private static long estimateTree(TreeNode<?, ?> root, int depth) {
+        long size = 0;
+        final Deque<TreeNode<?, ?>> pending = new ArrayDeque<>();
+        pending.push(root);
+        while (!pending.isEmpty()) {
+            final TreeNode<?, ?> node = pending.pop();
+            size += TREE_NODE_SHALLOW;
+            size += estimate(node.getDescription(), MAX_DEPTH);
+            if (node.getName() != null) {
+                size += estimate(node.getName(), MAX_DEPTH);
+            }
+            if (depth < MAX_DEPTH) {
+                size += estimate(node.getData(), depth + 1);
+            }
+            if (node.hasChildren()) {
+                size += OBJECT_HEADER + align(ARRAY_HEADER + REFERENCE * node.getChildren().size());
+                for (TreeNode<?, ?> child : node.getChildren()) {
+                    pending.push(child);
+                }
+            }
+        }
+        return size;
+    }
+
+    private static long align(long size) {
+        return (size + 7) & ~7L;
+    }
+}
@@ -0,0 +1,173 @@
+package org.basetools.util.cache;
+
+import java.util.function.Consumer;
+import java.util.function.ToLongFunction;
+
+/**
+ * Hierarchical timing wheel used to expire cache entries. Every entry is linked into the bucket covering its
+ * expiration time, so scheduling is O(1) and {@link #advance(long, Consumer)} only visits the buckets that became due
+ * since the last call instead of scanning the whole cache.
+ * <p>
+ * The expiration time of a node is read through the function given at construction time whenever the node is
+ * scheduled or its bucket is due. A node whose expiration time moved into the future (e.g. because the access time was
+ * updated on a hit) is simply rescheduled. This class is not thread safe, callers guard it with their own lock.
+ *
+ * @param <N> the node type
+ */
+public class TimerWheel<N extends TimerWheel.Node> {
+    /**
+     * The number of buckets per level
+     */
+    private static final int BUCKETS = 64;
+    private static final int BUCKET_MASK = BUCKETS - 1;
+    /**
+     * The bucket durations per level as shift of milliseconds: ~1s, ~1min, ~1.2h, ~3d, ~6mo
+     */
+    private static final int[] SHIFTS = {10, 16, 22, 28, 34};
+    private final Node[][] wheel = new Node[SHIFTS.length][BUCKETS];
+    private final ToLongFunction<? super N> expirationTime;
+    private long currentTime;
+
+    /**
+     * Creates a new wheel.
+     *
+     * @param expirationTime returns the absolute expiration time in milliseconds of a node, or {@link Long#MAX_VALUE}
+     *                       if it never expires
+     */
+    public TimerWheel(ToLongFunction<? super N> expirationTime) {
+        this.expirationTime = expirationTime;
+        this.currentTime = System.currentTimeMillis();
+        for (Node[] level : wheel) {
+            for (int i = 0; i < BUCKETS; i++) {
+                final Node sentinel = new Node();
+                sentinel.prev = sentinel;
+                sentinel.next = sentinel;
+                level[i] = sentinel;
+            }
+        }
+    }
+
+    /**
+     * Links the node into the bucket of its expiration time, replacing a previous schedule of the node.
+     * Nodes which never expire are not linked at all.
+     *
+     * @param node the node to schedule
+     */
+    public void schedule(N node) {
+        unlink(node);
+        final long time = expirationTime.applyAsLong(node);
+        if (time == Long.MAX_VALUE) {
+            return;
+        }
+        final long dueTime = Math.max(time, currentTime);
+        final long delay = dueTime - currentTime;
+        int level = 0;
+        while (level < SHIFTS.length - 1 && delay >= (1L << SHIFTS[level + 1])) {
+            level++;
+        }
+        link(wheel[level][(int) ((dueTime >>> SHIFTS[level]) & BUCKET_MASK)], node);
+    }
+
+    /**
+     * Removes the node from the wheel if it is scheduled.
+     *
+     * @param node the node to remove
+     */
+    public void unlink(Node node) {
+        if (node.next != null) {
+            node.prev.next = node.next;
+            node.next.prev = node.prev;
+            node.prev = null;
+            node.next = null;
+        }
+    }
+
+    /**
+     * Advances the wheel to the given time. All nodes of the buckets passed are either handed to the given consumer,
+     * if they are expired, or rescheduled.
+     *
+     * @param now     the current time in milliseconds
+     * @param expired receives the expired nodes, which are already unlinked from the wheel
+     */
+    public void advance(long now, Consumer<? super N> expired) {
+        final long previous = currentTime;
+        if (now <= previous) {
+            return;
+        }
+        currentTime = now;
+        for (int level = 0; level < SHIFTS.length; level++) {
+            final long previousTicks = previous >>> SHIFTS[level];
+            final long currentTicks = now >>> SHIFTS[level];
+            if (currentTicks == previousTicks && level > 0) {
+                break;
+            }
+            expire(level, previousTicks, currentTicks, now, expired);
+        }
+    }
+
+    /**
+     * Unlinks all nodes.
+     */
+    public void clear() {
+        for (Node[] level : wheel) {
+            for (Node sentinel : level) {
+                Node node = sentinel.next;
+                while (node != sentinel) {
+                    final Node next = node.next;
+                    node.prev = null;
+                    node.next = null;
+                    node = next;
+                }
+                sentinel.prev = sentinel;
+                sentinel.next = sentinel;
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void expire(int level, long previousTicks, long currentTicks, long now, Consumer<? super N> expired) {
+        final long ticks = currentTicks - previousTicks;
+        final int count = ticks >= BUCKETS ? BUCKETS : (int) ticks + 1;
+        for (int i = 0; i < count; i++) {
+            final Node sentinel = wheel[level][(int) ((previousTicks + i) & BUCKET_MASK)];
+            Node node = sentinel.next;
+            sentinel.prev = sentinel;
+            sentinel.next = sentinel;
+            while (node != sentinel) {
+                final Node next = node.next;
+                node.prev = null;
+                node.next = null;
+                if (expirationTime.applyAsLong((N) node) <= now) {
+                    expired.accept((N) node);
+                } else {
+                    schedule((N) node);
+                }
+                node = next;
+            }
+        }
+    }
+
+    private void link(Node sentinel, Node node) {
+        node.prev = sentinel.prev;
+        node.next = sentinel;
+        sentinel.prev.next = node;
+        sentinel.prev = node;
+    }
+
+    /**
+     * Base class of the entries which can be scheduled in a wheel. A node is linked into at most one bucket.
+     */
+    public static class Node {
+        Node prev;
+        Node next;
+
+        /**
+         * Returns true if the node is currently linked into a wheel.
+         *
+         * @return true if scheduled
+         */
+        public boolean isScheduled() {
+            return next != null;
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package org.basetools.util.cache;
+
+import org.basetools.convert.ConversionException;
+
+import java.io.*;
+
+/**
+ * Converts cache values to bytes and back, used to hold values outside of the java heap.
+ *
+ * @param <V> the value type
+ */
+public interface ValueSerializer<V> {
+
+    /**
+     * Returns a serializer using java serialization, the values have to implement {@link Serializable}.
+     *
+     * @return the java serialization based serializer
+     */
+    static <V> ValueSerializer<V> javaSerialization() {
+        return new ValueSerializer<V>() {
+            @Override
+            public byte[] serialize(V value) {
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+                    out.writeObject(value);
+                } catch (IOException e) {
+                    throw new ConversionException("unable to serialize " + value.getClass().getName(), e);
+                }
+                return bytes.toByteArray();
+            }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public V deserialize(byte[] bytes) {
+                try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+                    return (V) in.readObject();
+                } catch (IOException | ClassNotFoundException e) {
+                    throw new ConversionException("unable to deserialize cache value", e);
+                }
+            }
+        };
+    }
+
+    /**
+     * Converts the value to bytes.
+     *
+     * @param value the non-null value
+     * @return the serialized value
+     * @throws ConversionException if the value can't be serialized
+     */
+    byte[] serialize(V value);
+
+    /**
+     * Restores a value from its bytes.
+     *
+     * @param bytes the serialized value
+     * @return the value
+     * @throws ConversionException if the bytes can't be deserialized
+     */
+    V deserialize(byte[] bytes);
+}
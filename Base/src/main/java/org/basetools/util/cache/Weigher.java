@@ -0,0 +1,30 @@
+package org.basetools.util.cache;
+
+/**
+ * Calculates the weight of a cache entry, used to bound a cache by the sum of its entry weights instead of the
+ * number of entries.
+ *
+ * @param <K> the key type
+ * @param <V> the value type
+ */
+@FunctionalInterface
+public interface Weigher<K, V> {
+
+    /**
+     * Returns a weigher estimating the heap size in bytes of key and value, see {@link SizeEstimator}.
+     *
+     * @return the size estimating weigher
+     */
+    static <K, V> Weigher<K, V> sizeInBytes() {
+        return (key, value) -> (int) Math.min(Integer.MAX_VALUE, SizeEstimator.estimate(key) + SizeEstimator.estimate(value));
+    }
+
+    /**
+     * Returns the weight of the entry. The weight is calculated once when the entry is put into the cache.
+     *
+     * @param key   the key
+     * @param value the value
+     * @return the non-negative weight
+     */
+    int weigh(K key, V value);
+}
@@ -0,0 +1,112 @@
+package org.basetools.util.cache.eviction;
+
+import org.basetools.util.hash.MurmurHash;
+
+import java.util.Arrays;
+
+/**
+ * Count-min sketch estimating how often a key was seen, used as TinyLFU frequency filter. Each of the {@link #DEPTH}
+ * rows holds 4 bit counters packed sixteen to a long, the row indexes are derived from one
+ * {@link MurmurHash#hash64(byte[], int)} of the key's hash code. Once the number of recorded events reaches the sample
+ * size, all counters are halved, so the sketch follows changes of the access pattern.
+ * <p>
+ * This class is not thread safe.
+ */
+public class CountMinSketch {
+    private static final int DEPTH = 4;
+    private static final int MAX_COUNT = 15;
+    /**
+     * Clears the bit shifted into the next counter when halving all counters of a word
+     */
+    private static final long RESET_MASK = 0x7777777777777777L;
+    private final long[][] table;
+    private final int mask;
+    private final int sampleSize;
+    private final byte[] keyBytes = new byte[4];
+    private int additions;
+
+    /**
+     * Creates a sketch for a cache of the given size.
+     *
+     * @param maximumSize the number of entries of the cache
+     */
+    public CountMinSketch(int maximumSize) {
+        int width = 16;
+        while (width < maximumSize && width < (1 << 30)) {
+            width <<= 1;
+        }
+        table = new long[DEPTH][width >>> 4];
+        mask = width - 1;
+        sampleSize = Math.max(10 * maximumSize, 160);
+    }
+
+    /**
+     * Records an occurrence of the key.
+     *
+     * @param key the key
+     */
+    public void increment(Object key) {
+        final long hash = hash(key);
+        final int h1 = (int) hash;
+        final int h2 = (int) (hash >>> 32);
+        boolean added = false;
+        for (int row = 0; row < DEPTH; row++) {
+            final int index = (h1 + row * h2) & mask;
+            final int shift = (index & 15) << 2;
+            final long word = table[row][index >>> 4];
+            if (((word >>> shift) & MAX_COUNT) < MAX_COUNT) {
+                table[row][index >>> 4] = word + (1L << shift);
+                added = true;
+            }
+        }
+        if (added && ++additions >= sampleSize) {
+            reset();
+        }
+    }
+
+    /**
+     * Returns the estimated number of occurrences of the key.
+     *
+     * @param key the key
+     * @return the estimated frequency, at most 15
+     */
+    public int frequency(Object key) {
+        final long hash = hash(key);
+        final int h1 = (int) hash;
+        final int h2 = (int) (hash >>> 32);
+        int frequency = MAX_COUNT;
+        for (int row = 0; row < DEPTH; row++) {
+            final int index = (h1 + row * h2) & mask;
+            frequency = Math.min(frequency, (int) ((table[row][index >>> 4] >>> ((index & 15) << 2)) & MAX_COUNT));
+        }
+        return frequency;
+    }
+
+    /**
+     * Clears all counters.
+     */
+    public void clear() {
+        for (long[] row : table) {
+            Arrays.fill(row, 0L);
+        }
+        additions = 0;
+    }
+
+    private void reset() {
+        for (long[] row : table) {
+            for (int i = 0; i < row.length; i++) {
+                row[i] = (row[i] >>> 1) & RESET_MASK;
+            }
+        }
+        additions /= 2;
+    }
+
+    private long hash(Object key) {
+        final int h = key.hashCode();
+        keyBytes[0] = (byte) h;
+        keyBytes[1] = (byte) (h >>> 8);
+        keyBytes[2] = (byte) (h >>> 16);
+        keyBytes[3] = (byte) (h >>> 24);
+        return MurmurHash.hash64(keyBytes, 4);
+    }
+}
@@ -0,0 +1,59 @@
+package org.basetools.util.cache.eviction;
+
+/**
+ * Decides which key a bounded {@link org.basetools.util.cache.Cache} evicts when it is full. The cache reports every
+ * access, insertion and removal, and asks for a victim before it inserts a new key into a full cache.
+ * <p>
+ * Implementations have to be thread safe, reads of the cache report their accesses while holding only the read lock.
+ *
+ * @param <K> the key type
+ */
+public interface EvictionPolicy<K> {
+
+    /**
+     * Returns the name of the policy, reported by the cache info.
+     *
+     * @return the policy name
+     */
+    String getName();
+
+    /**
+     * Records a read of a cached key or the update of its value.
+     *
+     * @param key the key
+     */
+    void recordAccess(K key);
+
+    /**
+     * Records a read of a key which is not cached.
+     *
+     * @param key the key
+     */
+    void recordMiss(K key);
+
+    /**
+     * Records the insertion of a new key.
+     *
+     * @param key the key
+     */
+    void recordInsert(K key);
+
+    /**
+     * Records the removal of a key which was not selected by this policy.
+     *
+     * @param key the key
+     */
+    void recordRemoval(K key);
+
+    /**
+     * Selects the key to evict next. The returned key is forgotten by the policy.
+     *
+     * @return the victim or null if the policy tracks no key
+     */
+    K selectVictim();
+
+    /**
+     * Forgets all keys.
+     */
+    void clear();
+}
@@ -0,0 +1,95 @@
+package org.basetools.util.cache.eviction;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Map;
+
+/**
+ * Evicts the least frequently used key, the least recently used one among keys of the same frequency. All operations
+ * are O(1) by keeping the keys grouped by their access count.
+ *
+ * @param <K> the key type
+ */
+public class LFUEvictionPolicy<K> implements EvictionPolicy<K> {
+    private final Map<K, Integer> frequencies = new HashMap<>();
+    private final Map<Integer, LinkedHashSet<K>> keysByFrequency = new HashMap<>();
+    private int minFrequency = 1;
+
+    @Override
+    public String getName() {
+        return "LFU";
+    }
+
+    @Override
+    public synchronized void recordAccess(K key) {
+        final Integer frequency = frequencies.get(key);
+        if (frequency == null) {
+            return;
+        }
+        final LinkedHashSet<K> keys = keysByFrequency.get(frequency);
+        keys.remove(key);
+        if (keys.isEmpty()) {
+            keysByFrequency.remove(frequency);
+            if (minFrequency == frequency) {
+                minFrequency++;
+            }
+        }
+        frequencies.put(key, frequency + 1);
+        keysByFrequency.computeIfAbsent(frequency + 1, f -> new LinkedHashSet<>()).add(key);
+    }
+
+    @Override
+    public void recordMiss(K key) {
+    }
+
+    @Override
+    public synchronized void recordInsert(K key) {
+        if (frequencies.containsKey(key)) {
+            recordAccess(key);
+            return;
+        }
+        frequencies.put(key, 1);
+        keysByFrequency.computeIfAbsent(1, f -> new LinkedHashSet<>()).add(key);
+        minFrequency = 1;
+    }
+
+    @Override
+    public synchronized void recordRemoval(K key) {
+        final Integer frequency = frequencies.remove(key);
+        if (frequency != null) {
+            final LinkedHashSet<K> keys = keysByFrequency.get(frequency);
+            keys.remove(key);
+            if (keys.isEmpty()) {
+                keysByFrequency.remove(frequency);
+            }
+        }
+    }
+
+    @Override
+    public synchronized K selectVictim() {
+        if (frequencies.isEmpty()) {
+            return null;
+        }
+        // explicit removals may have emptied the lowest frequency
+        while (!keysByFrequency.containsKey(minFrequency)) {
+            minFrequency++;
+        }
+        final LinkedHashSet<K> keys = keysByFrequency.get(minFrequency);
+        final Iterator<K> eldest = keys.iterator();
+        final K victim = eldest.next();
+        eldest.remove();
+        if (keys.isEmpty()) {
+            keysByFrequency.remove(minFrequency);
+        }
+        frequencies.remove(victim);
+        return victim;
+    }
+
+    @Override
+    public synchronized void clear() {
+        frequencies.clear();
+        keysByFrequency.clear();
+        minFrequency = 1;
+    }
+}
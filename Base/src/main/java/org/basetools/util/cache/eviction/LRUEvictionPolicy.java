@@ -0,0 +1,56 @@
+package org.basetools.util.cache.eviction;
+
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+
+/**
+ * Evicts the least recently used key.
+ *
+ * @param <K> the key type
+ */
+public class LRUEvictionPolicy<K> implements EvictionPolicy<K> {
+    private final LinkedHashSet<K> order = new LinkedHashSet<>();
+
+    @Override
+    public String getName() {
+        return "LRU";
+    }
+
+    @Override
+    public synchronized void recordAccess(K key) {
+        if (order.remove(key)) {
+            order.add(key);
+        }
+    }
+
+    @Override
+    public void recordMiss(K key) {
+    }
+
+    @Override
+    public synchronized void recordInsert(K key) {
+        order.remove(key);
+        order.add(key);
+    }
+
+    @Override
+    public synchronized void recordRemoval(K key) {
+        order.remove(key);
+    }
+
+    @Override
+    public synchronized K selectVictim() {
+        final Iterator<K> eldest = order.iterator();
+        if (!eldest.hasNext()) {
+            return null;
+        }
+        final K victim = eldest.next();
+        eldest.remove();
+        return victim;
+    }
+
+    @Override
+    public synchronized void clear() {
+        order.clear();
+    }
+}
@@ -0,0 +1,125 @@
+package org.basetools.util.cache.eviction;
+
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+
+/**
+ * Window TinyLFU policy. New keys enter a small LRU window (1% of the size). When the window has to make room, its
+ * eldest key competes with the eldest key of the main space for admission: the one with the higher frequency estimate of the
+ * {@link CountMinSketch} stays. The main space is a segmented LRU, keys accessed again on probation are promoted to the
+ * protected segment (80% of the main space).
+ * <p>
+ * The frequency filter counts hits and misses, so keys of a one-time scan rarely displace frequently used ones.
+ *
+ * @param <K> the key type
+ */
+public class WTinyLFUEvictionPolicy<K> implements EvictionPolicy<K> {
+    private final LinkedHashSet<K> window = new LinkedHashSet<>();
+    private final LinkedHashSet<K> probation = new LinkedHashSet<>();
+    private final LinkedHashSet<K> protectedSegment = new LinkedHashSet<>();
+    private final CountMinSketch sketch;
+    private final int windowMaximum;
+    private final int mainMaximum;
+    private final int protectedMaximum;
+
+    /**
+     * Creates the policy for a cache of the given size.
+     *
+     * @param maximumSize the maximum number of entries of the cache
+     */
+    public WTinyLFUEvictionPolicy(int maximumSize) {
+        windowMaximum = Math.max(1, maximumSize / 100);
+        mainMaximum = Math.max(0, maximumSize - windowMaximum);
+        protectedMaximum = mainMaximum * 80 / 100;
+        sketch = new CountMinSketch(maximumSize);
+    }
+
+    @Override
+    public String getName() {
+        return "W-TinyLFU";
+    }
+
+    @Override
+    public synchronized void recordAccess(K key) {
+        sketch.increment(key);
+        if (window.remove(key)) {
+            window.add(key);
+        } else if (probation.remove(key)) {
+            protectedSegment.add(key);
+            if (protectedSegment.size() > protectedMaximum) {
+                probation.add(pollEldest(protectedSegment));
+            }
+        } else if (protectedSegment.remove(key)) {
+            protectedSegment.add(key);
+        }
+    }
+
+    @Override
+    public synchronized void recordMiss(K key) {
+        sketch.increment(key);
+    }
+
+    @Override
+    public synchronized void recordInsert(K key) {
+        if (window.contains(key) || probation.contains(key) || protectedSegment.contains(key)) {
+            recordAccess(key);
+            return;
+        }
+        sketch.increment(key);
+        window.add(key);
+    }
+
+    @Override
+    public synchronized void recordRemoval(K key) {
+        if (!window.remove(key) && !probation.remove(key)) {
+            protectedSegment.remove(key);
+        }
+    }
+
+    @Override
+    public synchronized K selectVictim() {
+        while (window.size() >= windowMaximum && !window.isEmpty()) {
+            final K candidate = pollEldest(window);
+            if (probation.size() + protectedSegment.size() < mainMaximum) {
+                probation.add(candidate);
+                continue;
+            }
+            final LinkedHashSet<K> victimSegment = probation.isEmpty() ? protectedSegment : probation;
+            if (victimSegment.isEmpty()) {
+                return candidate;
+            }
+            final K victim = victimSegment.iterator().next();
+            if (sketch.frequency(candidate) > sketch.frequency(victim)) {
+                victimSegment.remove(victim);
+                probation.add(candidate);
+                return victim;
+            }
+            return candidate;
+        }
+        if (!probation.isEmpty()) {
+            return pollEldest(probation);
+        }
+        if (!protectedSegment.isEmpty()) {
+            return pollEldest(protectedSegment);
+        }
+        return pollEldest(window);
+    }
+
+    @Override
+    public synchronized void clear() {
+        window.clear();
+        probation.clear();
+        protectedSegment.clear();
+        sketch.clear();
+    }
+
+    private K pollEldest(LinkedHashSet<K> segment) {
+        final Iterator<K> eldest = segment.iterator();
+        if (!eldest.hasNext()) {
+            return null;
+        }
+        final K key = eldest.next();
+        eldest.remove();
+        return key;
+    }
+}
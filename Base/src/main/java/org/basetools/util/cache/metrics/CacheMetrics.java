@@ -0,0 +1,176 @@
+package org.basetools.util.cache.metrics;
+
+import net.minidev.json.JSONObject;
+import org.basetools.util.info.SystemInfoManager;
+import org.basetools.util.info.SystemInfoProvider;
+
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * The metrics shared by the caches: hits and misses over the lifetime and the last minute, the latency of loads and
+ * the removals split by {@link RemovalCause}. All recording methods are thread safe and allocation free, so they can
+ * be called on the hot path without holding a cache lock.
+ * <p>
+ * Published metrics are part of {@link SystemInfoManager#getInfos()} and with it of the
+ * {@link org.basetools.util.info.jmx.SystemInfoManagementMBean}.
+ */
+public class CacheMetrics implements SystemInfoProvider {
+    private static final RemovalCause[] CAUSES = RemovalCause.values();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder loadFailures = new LongAdder();
+    private final LongAdder[] removals = new LongAdder[CAUSES.length];
+    private final LatencyHistogram loadLatency = new LatencyHistogram();
+    private final HitRateWindow window = new HitRateWindow(1000, 60);
+    private volatile String name;
+
+    public CacheMetrics() {
+        for (int i = 0; i < removals.length; i++) {
+            removals[i] = new LongAdder();
+        }
+    }
+
+    public void recordHit() {
+        hits.increment();
+        window.record(true);
+    }
+
+    public void recordMiss() {
+        misses.increment();
+        window.record(false);
+    }
+
+    /**
+     * Records the duration of a load, successful or not.
+     *
+     * @param nanos   the duration in nanoseconds
+     * @param success false if the load failed or returned null
+     */
+    public void recordLoad(long nanos, boolean success) {
+        loadLatency.record(nanos);
+        if (!success) {
+            loadFailures.increment();
+        }
+    }
+
+    /**
+     * Runs the creator of a cache miss and records its latency.
+     *
+     * @param key     the missing key
+     * @param creator creates the value
+     * @return the created value
+     */
+    public <K, V> V load(K key, Function<K, V> creator) {
+        final long start = System.nanoTime();
+        boolean success = false;
+        try {
+            final V value = creator.apply(key);
+            success = value != null;
+            return value;
+        } finally {
+            recordLoad(System.nanoTime() - start, success);
+        }
+    }
+
+    public void recordRemoval(RemovalCause cause) {
+        removals[cause.ordinal()].increment();
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    public long getRequestCount() {
+        return hits.sum() + misses.sum();
+    }
+
+    /**
+     * Returns the hit rate since creation or the last reset.
+     *
+     * @return the hit rate or 1.0 if there was no request
+     */
+    public double getHitRate() {
+        final long hitCount = hits.sum();
+        final long requestCount = hitCount + misses.sum();
+        return requestCount == 0 ? 1.0 : (double) hitCount / requestCount;
+    }
+
+    /**
+     * Returns the hit rate of the recent past.
+     *
+     * @param periodMillis the period up to now, at most one minute
+     * @return the hit rate or 1.0 if there was no request
+     */
+    public double getHitRate(long periodMillis) {
+        return window.getHitRate(periodMillis);
+    }
+
+    public long getRemovalCount(RemovalCause cause) {
+        return removals[cause.ordinal()].sum();
+    }
+
+    public LatencyHistogram getLoadLatency() {
+        return loadLatency;
+    }
+
+    public void reset() {
+        hits.reset();
+        misses.reset();
+        loadFailures.reset();
+        for (LongAdder removal : removals) {
+            removal.reset();
+        }
+        loadLatency.reset();
+        window.reset();
+    }
+
+    /**
+     * Publishes these metrics under the given name in the {@link SystemInfoManager}.
+     *
+     * @param name the unique name of the cache
+     * @return this metrics
+     */
+    public CacheMetrics publish(String name) {
+        unpublish();
+        this.name = name;
+        SystemInfoManager.getInstance().addProvider(this);
+        return this;
+    }
+
+    /**
+     * Removes these metrics from the {@link SystemInfoManager}.
+     */
+    public void unpublish() {
+        if (name != null && SystemInfoManager.getInstance().getProvider(name) == this) {
+            SystemInfoManager.getInstance().removeProvider(this);
+        }
+    }
+
+    @Override
+    public String getInfoProviderName() {
+        return name;
+    }
+
+    @Override
+    public JSONObject getInfo() {
+        final JSONObject removalInfo = new JSONObject();
+        for (RemovalCause cause : CAUSES) {
+            removalInfo.put(cause.name().toLowerCase(), getRemovalCount(cause));
+        }
+        return new JSONObject()
+                .appendField("requests", getRequestCount())
+                .appendField("hits", getHitCount())
+                .appendField("misses", getMissCount())
+                .appendField("hitRate", getHitRate())
+                .appendField("hitRate10s", getHitRate(10_000))
+                .appendField("hitRate1m", getHitRate(60_000))
+                .appendField("loadFailures", loadFailures.sum())
+                .appendField("loadLatency", loadLatency.toJSON())
+                .appendField("removals", removalInfo);
+    }
+}
@@ -0,0 +1,77 @@
+package org.basetools.util.cache.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counts requests and hits in a ring of time slots, so the hit rate of the recent past can be reported next to the
+ * lifetime one. A slot is reset lazily by the first recording after its time passed. Recording does not allocate.
+ */
+public class HitRateWindow {
+    private final long slotMillis;
+    private final int slotCount;
+    private final AtomicLongArray slotEpochs;
+    private final AtomicLongArray requests;
+    private final AtomicLongArray hits;
+
+    /**
+     * Creates a new window.
+     *
+     * @param slotMillis the duration of a slot
+     * @param slotCount  the number of slots, the window covers slotMillis * slotCount
+     */
+    public HitRateWindow(long slotMillis, int slotCount) {
+        this.slotMillis = slotMillis;
+        this.slotCount = slotCount;
+        slotEpochs = new AtomicLongArray(slotCount);
+        requests = new AtomicLongArray(slotCount);
+        hits = new AtomicLongArray(slotCount);
+    }
+
+    /**
+     * Records a request.
+     *
+     * @param hit true if the request was a hit
+     */
+    public void record(boolean hit) {
+        final long epoch = System.currentTimeMillis() / slotMillis;
+        final int slot = (int) (epoch % slotCount);
+        final long slotEpoch = slotEpochs.get(slot);
+        if (slotEpoch != epoch && slotEpochs.compareAndSet(slot, slotEpoch, epoch)) {
+            // a request of the losing thread may get lost during the reset, which the rate tolerates
+            requests.set(slot, 0);
+            hits.set(slot, 0);
+        }
+        requests.incrementAndGet(slot);
+        if (hit) {
+            hits.incrementAndGet(slot);
+        }
+    }
+
+    /**
+     * Returns the hit rate of the given period.
+     *
+     * @param periodMillis the period up to now, at most the covered duration of the window
+     * @return the hit rate or 1.0 if there was no request
+     */
+    public double getHitRate(long periodMillis) {
+        final long epoch = System.currentTimeMillis() / slotMillis;
+        final long oldest = epoch - Math.min(slotCount, Math.max(1, periodMillis / slotMillis)) + 1;
+        long requestCount = 0;
+        long hitCount = 0;
+        for (int slot = 0; slot < slotCount; slot++) {
+            if (slotEpochs.get(slot) >= oldest) {
+                requestCount += requests.get(slot);
+                hitCount += hits.get(slot);
+            }
+        }
+        return requestCount == 0 ? 1.0 : (double) hitCount / requestCount;
+    }
+
+    public void reset() {
+        for (int slot = 0; slot < slotCount; slot++) {
+            slotEpochs.set(slot, 0);
+            requests.set(slot, 0);
+            hits.set(slot, 0);
+        }
+    }
+}
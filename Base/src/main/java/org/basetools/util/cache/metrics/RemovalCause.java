@@ -0,0 +1,23 @@
+package org.basetools.util.cache.metrics;
+
+/**
+ * The reasons an entry leaves a cache.
+ */
+public enum RemovalCause {
+    /**
+     * Evicted to keep the capacity or maximum weight
+     */
+    SIZE,
+    /**
+     * The time to live since creation was exceeded
+     */
+    TTL,
+    /**
+     * The survive time since the last access was exceeded
+     */
+    SURVIVE_TIME,
+    /**
+     * Removed by the application
+     */
+    EXPLICIT
+}
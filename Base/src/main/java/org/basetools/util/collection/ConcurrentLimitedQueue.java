@@ -0,0 +1,100 @@
+package org.basetools.util.collection;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.function.Predicate;
+
+/**
+ * Thread safe {@link LimitedQueue}. Every method locks the queue for its constant time work; iterators traverse a
+ * copy taken when they were created and don't support removal.
+ *
+ * @param <T> the element type
+ */
+public class ConcurrentLimitedQueue<T> extends LimitedQueue<T> {
+
+    public ConcurrentLimitedQueue(int limit) {
+        super(limit);
+    }
+
+    @Override
+    public synchronized boolean offer(T e) {
+        return super.offer(e);
+    }
+
+    @Override
+    public synchronized boolean addAll(Collection<? extends T> c) {
+        return super.addAll(c);
+    }
+
+    @Override
+    public synchronized T poll() {
+        return super.poll();
+    }
+
+    @Override
+    public synchronized T peek() {
+        return super.peek();
+    }
+
+    @Override
+    public synchronized T peekLast() {
+        return super.peekLast();
+    }
+
+    @Override
+    public synchronized int size() {
+        return super.size();
+    }
+
+    @Override
+    public synchronized boolean contains(Object o) {
+        return super.contains(o);
+    }
+
+    @Override
+    public synchronized Object[] toArray() {
+        return super.toArray();
+    }
+
+    @Override
+    public synchronized <A> A[] toArray(A[] a) {
+        return super.toArray(a);
+    }
+
+    @Override
+    public synchronized boolean remove(Object o) {
+        return super.remove(o);
+    }
+
+    @Override
+    public synchronized boolean removeAll(Collection<?> c) {
+        return super.removeAll(c);
+    }
+
+    @Override
+    public synchronized boolean retainAll(Collection<?> c) {
+        return super.retainAll(c);
+    }
+
+    @Override
+    public synchronized boolean removeIf(Predicate<? super T> filter) {
+        return super.removeIf(filter);
+    }
+
+    @Override
+    public synchronized void clear() {
+        super.clear();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Iterator<T> iterator() {
+        return (Iterator<T>) Arrays.asList(toArray()).iterator();
+    }
+
+    @Override
+    public synchronized String toString() {
+        return super.toString();
+    }
+}
@@ -4,6 +4,12 @@ import java.util.*;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
+/**
+ * List guarding every method of the wrapped list by a read write lock. For rarely changed, often iterated lists
+ * {@link SnapshotList} is faster, for append-heavy logs {@link StripedAppendList}.
+ *
+ * @param <T> the element type
+ */
 public class ConcurrentList<T> implements List<T> {
     private final ReadWriteLock readWriteLock = new ReentrantReadWriteLock();
     private final List<T> list;
@@ -102,41 +108,41 @@ public class ConcurrentList<T> implements List<T> {
 
     @Override
     public boolean addAll(Collection<? extends T> c) {
-        readWriteLock.readLock().lock();
+        readWriteLock.writeLock().lock();
         try {
             return list.addAll(c);
         } finally {
-            readWriteLock.readLock().unlock();
+            readWriteLock.writeLock().unlock();
         }
     }
 
     @Override
     public boolean addAll(int index, Collection<? extends T> c) {
-        readWriteLock.readLock().lock();
+        readWriteLock.writeLock().lock();
         try {
             return list.addAll(index, c);
         } finally {
-            readWriteLock.readLock().unlock();
+            readWriteLock.writeLock().unlock();
         }
     }
 
     @Override
     public boolean removeAll(Collection<?> c) {
-        readWriteLock.readLock().lock();
+        readWriteLock.writeLock().lock();
         try {
             return list.removeAll(c);
         } finally {
-            readWriteLock.readLock().unlock();
+            readWriteLock.writeLock().unlock();
         }
     }
 
     @Override
     public boolean retainAll(Collection<?> c) {
-        readWriteLock.readLock().lock();
+        readWriteLock.writeLock().lock();
         try {
             return list.retainAll(c);
         } finally {
-            readWriteLock.readLock().unlock();
+            readWriteLock.writeLock().unlock();
         }
     }
 
@@ -160,32 +166,32 @@ public class ConcurrentList<T> implements List<T> {
 
     @Override
     public T set(int index, T element) {
-        readWriteLock.readLock().lock();
+        readWriteLock.writeLock().lock();
         try {
             return list.set(index, element);
         } finally {
-            readWriteLock.readLock().unlock();
+            readWriteLock.writeLock().unlock();
         }
     }
 
     @Override
     public void add(int index, T element) {
-        readWriteLock.readLock().lock();
+        readWriteLock.writeLock().lock();
         try {
             list.add(index, element);
         } finally {
-            readWriteLock.readLock().unlock();
+            readWriteLock.writeLock().unlock();
         }
 
     }
 
     @Override
     public T remove(int index) {
-        readWriteLock.readLock().lock();
+        readWriteLock.writeLock().lock();
         try {
             return list.remove(index);
         } finally {
-            readWriteLock.readLock().unlock();
+            readWriteLock.writeLock().unlock();
         }
     }
 
@@ -202,7 +208,7 @@ public class ConcurrentList<T> implements List<T> {
     public int lastIndexOf(Object o) {
         readWriteLock.readLock().lock();
         try {
-            return list.lastIndexOf(0);
+            return list.lastIndexOf(o);
         } finally {
             readWriteLock.readLock().unlock();
         }
@@ -1,120 +1,259 @@
 package org.basetools.util.collection;
 
+import java.util.AbstractQueue;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.ConcurrentModificationException;
 import java.util.Iterator;
-import java.util.LinkedList;
-import java.util.Queue;
-
-public class LimitedQueue<T> implements Queue<T>, Iterable<T> {
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.function.Predicate;
 
+/**
+ * Queue keeping the last limit elements: adding to a full queue evicts the oldest element. The elements are kept in a
+ * circular array, so adding and evicting take constant time and don't allocate per element. The array grows up to the
+ * limit as elements are added.
+ *
+ * @param <T> the element type
+ */
+public class LimitedQueue<T> extends AbstractQueue<T> {
+    private static final int INITIAL_CAPACITY = 16;
     private final int limit;
-    private final LinkedList<T> list = new LinkedList<>();
+    private Object[] elements;
+    private int head;
+    private int size;
+    private int modCount;
 
     public LimitedQueue(int limit) {
-        this.limit = limit;
+        this.limit = Math.max(0, limit);
+        elements = new Object[Math.min(this.limit, INITIAL_CAPACITY)];
     }
 
-    private boolean trim() {
-        boolean changed = list.size() > limit;
-        while (list.size() > limit) {
-            list.remove();
-        }
-        return changed;
+    public int getLimit() {
+        return limit;
     }
 
     @Override
     public boolean add(T o) {
-        boolean changed = list.add(o);
-        boolean trimmed = trim();
-        return changed || trimmed;
+        return offer(o);
     }
 
+    /**
+     * Appends the element, evicting the oldest one if the queue is full.
+     *
+     * @param e the element
+     * @return true
+     */
     @Override
-    public int size() {
-        return list.size();
+    public boolean offer(T e) {
+        if (limit == 0) {
+            return true;
+        }
+        modCount++;
+        if (size == limit) {
+            // overwrite the oldest
+            elements[head] = e;
+            head = next(head);
+            return true;
+        }
+        if (size == elements.length) {
+            grow();
+        }
+        elements[index(size)] = e;
+        size++;
+        return true;
     }
 
-    @Override
-    public boolean isEmpty() {
-        return list.isEmpty();
+    private void grow() {
+        final Object[] grown = new Object[(int) Math.min(limit, Math.max(1L, elements.length * 2L))];
+        for (int i = 0; i < size; i++) {
+            grown[i] = elements[index(i)];
+        }
+        elements = grown;
+        head = 0;
     }
 
-    @Override
-    public boolean contains(Object o) {
-        return list.contains(o);
+    private int index(int offset) {
+        final int index = head + offset;
+        return index < elements.length ? index : index - elements.length;
     }
 
-    @Override
-    public Iterator<T> iterator() {
-        return list.iterator();
+    private int next(int index) {
+        return index + 1 < elements.length ? index + 1 : 0;
     }
 
     @Override
-    public Object[] toArray() {
-        return list.toArray();
+    @SuppressWarnings("unchecked")
+    public T poll() {
+        if (size == 0) {
+            return null;
+        }
+        modCount++;
+        final T element = (T) elements[head];
+        elements[head] = null;
+        head = next(head);
+        size--;
+        return element;
     }
 
     @Override
-    public <T> T[] toArray(T[] a) {
-        return list.toArray(a);
+    @SuppressWarnings("unchecked")
+    public T peek() {
+        return size == 0 ? null : (T) elements[head];
     }
 
-    @Override
-    public boolean remove(Object o) {
-        return list.remove(o);
+    /**
+     * Returns the newest element.
+     *
+     * @return the element or null if empty
+     */
+    @SuppressWarnings("unchecked")
+    public T peekLast() {
+        return size == 0 ? null : (T) elements[index(size - 1)];
     }
 
     @Override
-    public boolean containsAll(Collection<?> c) {
-        return list.containsAll(c);
+    public int size() {
+        return size;
     }
 
     @Override
-    public boolean addAll(Collection<? extends T> c) {
-        boolean changed = list.addAll(c);
-        boolean trimmed = trim();
-        return changed || trimmed;
+    public boolean contains(Object o) {
+        for (int i = 0; i < size; i++) {
+            if (Objects.equals(o, elements[index(i)])) {
+                return true;
+            }
+        }
+        return false;
     }
 
     @Override
-    public boolean removeAll(Collection<?> c) {
-        return list.removeAll(c);
+    public Object[] toArray() {
+        final Object[] result = new Object[size];
+        for (int i = 0; i < size; i++) {
+            result[i] = elements[index(i)];
+        }
+        return result;
     }
 
     @Override
-    public boolean retainAll(Collection<?> c) {
-        return list.retainAll(c);
+    @SuppressWarnings("unchecked")
+    public <A> A[] toArray(A[] a) {
+        final A[] result = a.length >= size ? a : Arrays.copyOf(a, size);
+        for (int i = 0; i < size; i++) {
+            result[i] = (A) elements[index(i)];
+        }
+        if (result.length > size) {
+            result[size] = null;
+        }
+        return result;
     }
 
     @Override
     public void clear() {
-        list.clear();
+        modCount++;
+        Arrays.fill(elements, null);
+        head = 0;
+        size = 0;
     }
 
     @Override
-    public boolean offer(T e) {
-        boolean changed = list.offer(e);
-        boolean trimmed = trim();
-        return changed || trimmed;
+    public boolean remove(Object o) {
+        for (int i = 0; i < size; i++) {
+            if (Objects.equals(o, elements[index(i)])) {
+                removeAt(i);
+                return true;
+            }
+        }
+        return false;
     }
 
     @Override
-    public T remove() {
-        return list.remove();
+    @SuppressWarnings("unchecked")
+    public boolean removeIf(Predicate<? super T> filter) {
+        int kept = 0;
+        for (int i = 0; i < size; i++) {
+            final Object element = elements[index(i)];
+            if (!filter.test((T) element)) {
+                elements[index(kept++)] = element;
+            }
+        }
+        if (kept == size) {
+            return false;
+        }
+        for (int i = kept; i < size; i++) {
+            elements[index(i)] = null;
+        }
+        size = kept;
+        modCount++;
+        return true;
     }
 
     @Override
-    public T poll() {
-        return list.poll();
+    public boolean removeAll(Collection<?> c) {
+        Objects.requireNonNull(c);
+        return removeIf(c::contains);
     }
 
     @Override
-    public T element() {
-        return list.element();
+    public boolean retainAll(Collection<?> c) {
+        Objects.requireNonNull(c);
+        return removeIf(element -> !c.contains(element));
+    }
+
+    /**
+     * Removes the element at the offset from the oldest one, shifting the newer elements.
+     */
+    private void removeAt(int offset) {
+        modCount++;
+        for (int i = offset; i < size - 1; i++) {
+            elements[index(i)] = elements[index(i + 1)];
+        }
+        elements[index(size - 1)] = null;
+        size--;
     }
 
+    /**
+     * Iterates from the oldest to the newest element.
+     */
     @Override
-    public T peek() {
-        return list.peek();
+    public Iterator<T> iterator() {
+        return new Iterator<T>() {
+            private int offset = 0;
+            private int last = -1;
+            private int expectedModCount = modCount;
+
+            @Override
+            public boolean hasNext() {
+                return offset < size;
+            }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public T next() {
+                if (expectedModCount != modCount) {
+                    throw new ConcurrentModificationException();
+                }
+                if (offset >= size) {
+                    throw new NoSuchElementException();
+                }
+                last = offset;
+                return (T) elements[index(offset++)];
+            }
+
+            @Override
+            public void remove() {
+                if (last < 0) {
+                    throw new IllegalStateException();
+                }
+                if (expectedModCount != modCount) {
+                    throw new ConcurrentModificationException();
+                }
+                removeAt(last);
+                offset = last;
+                last = -1;
+                expectedModCount = modCount;
+            }
+        };
     }
 }
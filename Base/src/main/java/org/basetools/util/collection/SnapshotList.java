@@ -0,0 +1,311 @@
+package org.basetools.util.collection;
+
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
+
+/**
+ * Concurrent list for rarely changed, often read data like listeners and registries. The elements are kept in an
+ * immutable array which is replaced on every change, so reading and iterating never lock and always see a consistent
+ * snapshot. Writers are serialized and copy the array; use {@link #update(Function)} to apply many changes with a
+ * single copy.
+ * <p>
+ * Iterators and sub lists are read-only views of the snapshot taken when they were created.
+ *
+ * @param <T> the element type
+ */
+public class SnapshotList<T> extends AbstractList<T> implements RandomAccess {
+    private static final Object[] EMPTY = new Object[0];
+    private final Object writeLock = new Object();
+    private volatile Object[] array = EMPTY;
+
+    public SnapshotList() {
+        super();
+    }
+
+    public SnapshotList(Collection<? extends T> elements) {
+        array = Arrays.copyOf(elements.toArray(), elements.size(), Object[].class);
+    }
+
+    /**
+     * Returns the current elements as an unmodifiable list, not affected by later changes.
+     *
+     * @return the snapshot
+     */
+    @SuppressWarnings("unchecked")
+    public List<T> snapshot() {
+        return Collections.unmodifiableList(Arrays.asList((T[]) array));
+    }
+
+    /**
+     * Applies all changes of the function to a copy of the elements and publishes them at once. Readers see either
+     * none or all of the changes.
+     *
+     * @param changes changes the given list, which is only valid during the call
+     * @param <R>     the result type
+     * @return the result of the function
+     */
+    public <R> R update(Function<? super List<T>, R> changes) {
+        synchronized (writeLock) {
+            final List<T> copy = new ArrayList<>(snapshot());
+            final R result = changes.apply(copy);
+            array = copy.toArray();
+            return result;
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public T get(int index) {
+        return (T) array[index];
+    }
+
+    @Override
+    public int size() {
+        return array.length;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return array.length == 0;
+    }
+
+    @Override
+    public int indexOf(Object o) {
+        final Object[] elements = array;
+        for (int i = 0; i < elements.length; i++) {
+            if (Objects.equals(o, elements[i])) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public int lastIndexOf(Object o) {
+        final Object[] elements = array;
+        for (int i = elements.length - 1; i >= 0; i--) {
+            if (Objects.equals(o, elements[i])) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return indexOf(o) >= 0;
+    }
+
+    @Override
+    public Object[] toArray() {
+        final Object[] elements = array;
+        return Arrays.copyOf(elements, elements.length);
+    }
+
+    @Override
+    public <A> A[] toArray(A[] a) {
+        return snapshot().toArray(a);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void forEach(Consumer<? super T> action) {
+        for (Object element : array) {
+            action.accept((T) element);
+        }
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        return new SnapshotIterator<>(array, 0);
+    }
+
+    @Override
+    public ListIterator<T> listIterator() {
+        return new SnapshotIterator<>(array, 0);
+    }
+
+    @Override
+    public ListIterator<T> listIterator(int index) {
+        final Object[] elements = array;
+        if (index < 0 || index > elements.length) {
+            throw new IndexOutOfBoundsException("Index: " + index);
+        }
+        return new SnapshotIterator<>(elements, index);
+    }
+
+    @Override
+    public List<T> subList(int fromIndex, int toIndex) {
+        return snapshot().subList(fromIndex, toIndex);
+    }
+
+    @Override
+    public Spliterator<T> spliterator() {
+        return snapshot().spliterator();
+    }
+
+    @Override
+    public boolean add(T t) {
+        synchronized (writeLock) {
+            final Object[] elements = array;
+            final Object[] copy = Arrays.copyOf(elements, elements.length + 1);
+            copy[elements.length] = t;
+            array = copy;
+            return true;
+        }
+    }
+
+    @Override
+    public void add(int index, T element) {
+        update(list -> {
+            list.add(index, element);
+            return null;
+        });
+    }
+
+    @Override
+    public T set(int index, T element) {
+        synchronized (writeLock) {
+            final Object[] copy = array.clone();
+            @SuppressWarnings("unchecked") final T previous = (T) copy[index];
+            copy[index] = element;
+            array = copy;
+            return previous;
+        }
+    }
+
+    @Override
+    public T remove(int index) {
+        return update(list -> list.remove(index));
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        synchronized (writeLock) {
+            final int index = indexOf(o);
+            if (index < 0) {
+                return false;
+            }
+            final Object[] elements = array;
+            final Object[] copy = new Object[elements.length - 1];
+            System.arraycopy(elements, 0, copy, 0, index);
+            System.arraycopy(elements, index + 1, copy, index, elements.length - index - 1);
+            array = copy;
+            return true;
+        }
+    }
+
+    @Override
+    public boolean addAll(Collection<? extends T> c) {
+        return !c.isEmpty() && update(list -> list.addAll(c));
+    }
+
+    @Override
+    public boolean addAll(int index, Collection<? extends T> c) {
+        return update(list -> list.addAll(index, c));
+    }
+
+    @Override
+    public boolean removeAll(Collection<?> c) {
+        return update(list -> list.removeAll(c));
+    }
+
+    @Override
+    public boolean retainAll(Collection<?> c) {
+        return update(list -> list.retainAll(c));
+    }
+
+    @Override
+    public boolean removeIf(Predicate<? super T> filter) {
+        return update(list -> list.removeIf(filter));
+    }
+
+    @Override
+    public void replaceAll(UnaryOperator<T> operator) {
+        update(list -> {
+            list.replaceAll(operator);
+            return null;
+        });
+    }
+
+    @Override
+    public void sort(Comparator<? super T> c) {
+        update(list -> {
+            list.sort(c);
+            return null;
+        });
+    }
+
+    @Override
+    public void clear() {
+        synchronized (writeLock) {
+            array = EMPTY;
+        }
+    }
+
+    private static final class SnapshotIterator<T> implements ListIterator<T> {
+        private final Object[] elements;
+        private int cursor;
+
+        SnapshotIterator(Object[] elements, int cursor) {
+            this.elements = elements;
+            this.cursor = cursor;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return cursor < elements.length;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public T next() {
+            if (cursor >= elements.length) {
+                throw new NoSuchElementException();
+            }
+            return (T) elements[cursor++];
+        }
+
+        @Override
+        public boolean hasPrevious() {
+            return cursor > 0;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public T previous() {
+            if (cursor <= 0) {
+                throw new NoSuchElementException();
+            }
+            return (T) elements[--cursor];
+        }
+
+        @Override
+        public int nextIndex() {
+            return cursor;
+        }
+
+        @Override
+        public int previousIndex() {
+            return cursor - 1;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void set(T t) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void add(T t) {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
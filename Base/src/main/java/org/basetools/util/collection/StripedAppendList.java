@@ -0,0 +1,224 @@
+package org.basetools.util.collection;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Append-only concurrent collection for logs and traces written by many threads. Every thread appends to one of
+ * several stripes chosen by its id, a stripe is a chain of fixed size chunks, so appending is a single atomic increment
+ * in the common case and threads rarely contend.
+ * <p>
+ * The elements of one thread keep their order, the elements of different threads are not ordered. Iteration is weakly
+ * consistent and lock-free: it sees all elements appended before it started and maybe some appended meanwhile.
+ *
+ * @param <T> the element type, elements must not be null
+ */
+public class StripedAppendList<T> implements Iterable<T> {
+    public static final int DEFAULT_CHUNK_SIZE = 1024;
+    private final Stripe<T>[] stripes;
+    private final int mask;
+    private final int chunkSize;
+    private final LongAdder size = new LongAdder();
+
+    /**
+     * Creates a list with two stripes per processor.
+     */
+    public StripedAppendList() {
+        this(2 * Runtime.getRuntime().availableProcessors(), DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * Creates a list.
+     *
+     * @param stripeCount the number of stripes, rounded up to a power of two
+     * @param chunkSize   the number of elements per chunk
+     */
+    @SuppressWarnings("unchecked")
+    public StripedAppendList(int stripeCount, int chunkSize) {
+        if (stripeCount <= 0 || chunkSize <= 0) {
+            throw new IllegalArgumentException("stripe count and chunk size must be > 0");
+        }
+        final int count = stripeCount == 1 ? 1 : Integer.highestOneBit(stripeCount - 1) << 1;
+        this.chunkSize = chunkSize;
+        stripes = new Stripe[count];
+        for (int i = 0; i < count; i++) {
+            stripes[i] = new Stripe<>(chunkSize);
+        }
+        mask = count - 1;
+    }
+
+    /**
+     * Appends the element to the stripe of the current thread.
+     *
+     * @param element the element
+     * @return true
+     */
+    public boolean add(T element) {
+        if (element == null) {
+            throw new NullPointerException();
+        }
+        stripes[(int) Thread.currentThread().getId() & mask].append(element, chunkSize);
+        size.increment();
+        return true;
+    }
+
+    public boolean addAll(Collection<? extends T> elements) {
+        final Stripe<T> stripe = stripes[(int) Thread.currentThread().getId() & mask];
+        for (T element : elements) {
+            if (element == null) {
+                throw new NullPointerException();
+            }
+            stripe.append(element, chunkSize);
+        }
+        size.add(elements.size());
+        return !elements.isEmpty();
+    }
+
+    /**
+     * Returns the number of appended elements, exact while no thread appends.
+     *
+     * @return the size
+     */
+    public int size() {
+        return (int) Math.min(Integer.MAX_VALUE, size.sum());
+    }
+
+    public boolean isEmpty() {
+        return size.sum() == 0;
+    }
+
+    /**
+     * Removes all elements. Must not run concurrently with appends, their elements may be lost.
+     */
+    public void clear() {
+        for (Stripe<T> stripe : stripes) {
+            stripe.reset(chunkSize);
+        }
+        size.reset();
+    }
+
+    @Override
+    public void forEach(Consumer<? super T> action) {
+        for (Stripe<T> stripe : stripes) {
+            for (Chunk<T> chunk = stripe.head; chunk != null; chunk = chunk.next.get()) {
+                final int filled = Math.min(chunk.claimed.get(), chunk.items.length());
+                for (int i = 0; i < filled; i++) {
+                    final T element = chunk.items.get(i);
+                    // claimed, but not yet written
+                    if (element != null) {
+                        action.accept(element);
+                    }
+                }
+            }
+        }
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        return new Iterator<T>() {
+            private int stripe = 0;
+            private Chunk<T> chunk = stripes[0].head;
+            private int index = 0;
+            private T next = advance();
+
+            private T advance() {
+                while (true) {
+                    if (chunk != null) {
+                        final int filled = Math.min(chunk.claimed.get(), chunk.items.length());
+                        while (index < filled) {
+                            final T element = chunk.items.get(index++);
+                            if (element != null) {
+                                return element;
+                            }
+                        }
+                        chunk = chunk.next.get();
+                        index = 0;
+                    } else if (++stripe < stripes.length) {
+                        chunk = stripes[stripe].head;
+                    } else {
+                        return null;
+                    }
+                }
+            }
+
+            @Override
+            public boolean hasNext() {
+                return next != null;
+            }
+
+            @Override
+            public T next() {
+                if (next == null) {
+                    throw new NoSuchElementException();
+                }
+                final T element = next;
+                next = advance();
+                return element;
+            }
+        };
+    }
+
+    public Stream<T> stream() {
+        return StreamSupport.stream(spliterator(), false);
+    }
+
+    /**
+     * Copies the elements into a list.
+     *
+     * @return the elements
+     */
+    public List<T> toList() {
+        final List<T> result = new ArrayList<>(size());
+        forEach(result::add);
+        return result;
+    }
+
+    private static final class Stripe<T> {
+        private final AtomicReference<Chunk<T>> tail = new AtomicReference<>();
+        private volatile Chunk<T> head;
+
+        Stripe(int chunkSize) {
+            reset(chunkSize);
+        }
+
+        void reset(int chunkSize) {
+            final Chunk<T> chunk = new Chunk<>(chunkSize);
+            head = chunk;
+            tail.set(chunk);
+        }
+
+        void append(T element, int chunkSize) {
+            while (true) {
+                final Chunk<T> chunk = tail.get();
+                final int index = chunk.claimed.getAndIncrement();
+                if (index < chunk.items.length()) {
+                    chunk.items.set(index, element);
+                    return;
+                }
+                // the chunk is full, link a new one unless another thread did
+                Chunk<T> next = chunk.next.get();
+                if (next == null) {
+                    final Chunk<T> created = new Chunk<>(chunkSize);
+                    next = chunk.next.compareAndSet(null, created) ? created : chunk.next.get();
+                }
+                tail.compareAndSet(chunk, next);
+            }
+        }
+    }
+
+    private static final class Chunk<T> {
+        final AtomicReferenceArray<T> items;
+        final AtomicInteger claimed = new AtomicInteger();
+        final AtomicReference<Chunk<T>> next = new AtomicReference<>();
+
+        Chunk(int size) {
+            items = new AtomicReferenceArray<>(size);
+        }
+    }
+}
@@ -0,0 +1,363 @@
+package org.basetools.util.concurrent;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Timer for large numbers of delayed and periodic tasks, based on a hashed timing wheel. A single daemon thread
+ * advances the wheel every tick and hands the due tasks to a bounded executor, so scheduling and cancelling are O(1)
+ * and no thread is created per task. Tasks fire at the first tick after their delay, the tick duration is the timer's
+ * resolution.
+ * <p>
+ * Scheduling and cancelling from any thread only append to lock-free queues, the wheel itself is touched by the timer
+ * thread only.
+ */
+public class HashedWheelTimer {
+    public static final long DEFAULT_TICK_MILLIS = 10;
+    public static final int DEFAULT_WHEEL_SIZE = 512;
+    private static final int STATE_INIT = 0;
+    private static final int STATE_STARTED = 1;
+    private static final int STATE_STOPPED = 2;
+    /**
+     * The maximum number of new timeouts moved into the wheel per tick, so a burst can't delay the tick too long
+     */
+    private static final int MAX_TRANSFER_PER_TICK = 100_000;
+    private final long tickNanos;
+    private final Timeout[] wheel;
+    private final int mask;
+    private final Executor executor;
+    /**
+     * Whether the executor was created by this timer, only then it is shut down by {@link #stop()}
+     */
+    private final boolean ownsExecutor;
+    private final MpscQueue<Timeout> scheduled = new MpscQueue<>();
+    private final MpscQueue<Timeout> cancelled = new MpscQueue<>();
+    /**
+     * Periodic timeouts fired in the current tick, linked again after it
+     */
+    private final ArrayDeque<Timeout> rearmed = new ArrayDeque<>();
+    private final AtomicInteger state = new AtomicInteger(STATE_INIT);
+    private final CountDownLatch started = new CountDownLatch(1);
+    private final Thread worker;
+    private volatile long startTime;
+    private long tick;
+
+    /**
+     * Creates a timer with a tick of {@value #DEFAULT_TICK_MILLIS}ms running the tasks on a small daemon pool.
+     */
+    public HashedWheelTimer() {
+        this(DEFAULT_TICK_MILLIS, TimeUnit.MILLISECONDS, DEFAULT_WHEEL_SIZE, null);
+    }
+
+    /**
+     * Creates a timer.
+     *
+     * @param tickDuration the resolution of the timer
+     * @param unit         the unit of the tick duration
+     * @param wheelSize    the number of buckets, rounded up to a power of two
+     * @param executor     runs the due tasks, should be bounded; null for a daemon pool with a bounded queue which
+     *                     runs tasks on the timer thread when full. A given executor stays owned by the caller and
+     *                     isn't shut down by {@link #stop()}
+     */
+    public HashedWheelTimer(long tickDuration, TimeUnit unit, int wheelSize, Executor executor) {
+        if (tickDuration <= 0 || wheelSize <= 0) {
+            throw new IllegalArgumentException("tick duration and wheel size must be > 0");
+        }
+        tickNanos = Math.max(unit.toNanos(tickDuration), TimeUnit.MILLISECONDS.toNanos(1));
+        final int size = Integer.highestOneBit(wheelSize - 1) << 1;
+        wheel = new Timeout[Math.max(1, size)];
+        for (int i = 0; i < wheel.length; i++) {
+            wheel[i] = new Timeout(this, null, 0, 0);
+            wheel[i].prev = wheel[i];
+            wheel[i].next = wheel[i];
+        }
+        mask = wheel.length - 1;
+        this.executor = executor != null ? executor : newCallbackExecutor();
+        ownsExecutor = executor == null;
+        final ThreadFactory threadFactory = new ThreadFactoryWithNamePrefix("HashedWheelTimer");
+        worker = threadFactory.newThread(this::runWorker);
+        worker.setDaemon(true);
+    }
+
+    private static Executor newCallbackExecutor() {
+        final int threads = Math.max(2, Runtime.getRuntime().availableProcessors());
+        final ThreadFactory threadFactory = new ThreadFactoryWithNamePrefix("TimerCallback");
+        final ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(10_000), task -> {
+            final Thread thread = threadFactory.newThread(task);
+            thread.setDaemon(true);
+            return thread;
+        }, new ThreadPoolExecutor.CallerRunsPolicy());
+        pool.allowCoreThreadTimeOut(true);
+        return pool;
+    }
+
+    /**
+     * Runs the task once after the delay.
+     *
+     * @param task  the task
+     * @param delay the delay
+     * @param unit  the unit of the delay
+     * @return the handle to cancel the task
+     */
+    public Timeout schedule(Runnable task, long delay, TimeUnit unit) {
+        return add(task, unit.toNanos(Math.max(0, delay)), 0);
+    }
+
+    /**
+     * Runs the task periodically after the initial delay until it is cancelled. Runs are not skipped when the task
+     * is slower than the period, the next one is handed to the executor anyway. A period shorter than the tick is
+     * clamped to one tick, the task runs once per tick then.
+     *
+     * @param task         the task
+     * @param initialDelay the delay of the first run
+     * @param period       the time between two runs
+     * @param unit         the unit of delay and period
+     * @return the handle to cancel the task
+     */
+    public Timeout scheduleAtFixedRate(Runnable task, long initialDelay, long period, TimeUnit unit) {
+        if (period <= 0) {
+            throw new IllegalArgumentException("period must be > 0");
+        }
+        return add(task, unit.toNanos(Math.max(0, initialDelay)), unit.toNanos(period));
+    }
+
+    private Timeout add(Runnable task, long delayNanos, long periodNanos) {
+        if (task == null) {
+            throw new NullPointerException("task");
+        }
+        start();
+        final Timeout timeout = new Timeout(this, task, System.nanoTime() + delayNanos - startTime, periodNanos);
+        scheduled.offer(timeout);
+        return timeout;
+    }
+
+    private void start() {
+        switch (state.get()) {
+            case STATE_INIT:
+                if (state.compareAndSet(STATE_INIT, STATE_STARTED)) {
+                    startTime = System.nanoTime();
+                    worker.start();
+                    started.countDown();
+                }
+                break;
+            case STATE_STARTED:
+                break;
+            default:
+                throw new IllegalStateException("timer is stopped");
+        }
+        try {
+            started.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Stops the timer thread, the scheduled tasks won't run anymore. The executor is shut down if the timer created
+     * it.
+     */
+    public void stop() {
+        if (state.getAndSet(STATE_STOPPED) == STATE_STARTED) {
+            worker.interrupt();
+        }
+        if (ownsExecutor && executor instanceof ExecutorService) {
+            ((ExecutorService) executor).shutdown();
+        }
+    }
+
+    public long getTickMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(tickNanos);
+    }
+
+    /**
+     * Returns the number of tasks scheduled and not yet due or cancelled, counted by walking the wheel.
+     * Meant for monitoring only, the result is a racy snapshot.
+     *
+     * @return the number of pending tasks
+     */
+    public int getPendingCount() {
+        int count = scheduled.size();
+        for (Timeout sentinel : wheel) {
+            for (Timeout timeout = sentinel.next; timeout != null && timeout != sentinel; timeout = timeout.next) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private void runWorker() {
+        while (state.get() == STATE_STARTED) {
+            final long deadline = waitForNextTick();
+            if (deadline < 0) {
+                break;
+            }
+            removeCancelled();
+            transferScheduled();
+            expire(wheel[(int) (tick & mask)], deadline);
+            tick++;
+            // linked behind the expired bucket, even if the next deadline lies within the tick that just expired
+            Timeout timeout;
+            while ((timeout = rearmed.poll()) != null) {
+                if (!timeout.isCancelled()) {
+                    link(timeout);
+                }
+            }
+        }
+    }
+
+    /**
+     * Sleeps until the end of the current tick.
+     *
+     * @return the time since start in nanoseconds or -1 if the timer stopped
+     */
+    private long waitForNextTick() {
+        final long deadline = tickNanos * (tick + 1);
+        while (true) {
+            final long now = System.nanoTime() - startTime;
+            final long sleepMillis = (deadline - now + 999_999) / 1_000_000;
+            if (sleepMillis <= 0) {
+                return now;
+            }
+            try {
+                Thread.sleep(sleepMillis);
+            } catch (InterruptedException e) {
+                if (state.get() == STATE_STOPPED) {
+                    return -1;
+                }
+            }
+        }
+    }
+
+    private void removeCancelled() {
+        Timeout timeout;
+        while ((timeout = cancelled.poll()) != null) {
+            timeout.unlink();
+        }
+    }
+
+    private void transferScheduled() {
+        for (int i = 0; i < MAX_TRANSFER_PER_TICK; i++) {
+            final Timeout timeout = scheduled.poll();
+            if (timeout == null) {
+                break;
+            }
+            if (!timeout.isCancelled()) {
+                link(timeout);
+            }
+        }
+    }
+
+    private void link(Timeout timeout) {
+        final long ticks = timeout.deadline / tickNanos;
+        timeout.remainingRounds = (ticks - tick) / wheel.length;
+        // a deadline in the past goes into the current bucket
+        final Timeout sentinel = wheel[(int) (Math.max(ticks, tick) & mask)];
+        timeout.prev = sentinel.prev;
+        timeout.next = sentinel;
+        sentinel.prev.next = timeout;
+        sentinel.prev = timeout;
+    }
+
+    private void expire(Timeout sentinel, long now) {
+        Timeout timeout = sentinel.next;
+        while (timeout != sentinel) {
+            final Timeout next = timeout.next;
+            if (timeout.isCancelled()) {
+                timeout.unlink();
+            } else if (timeout.remainingRounds <= 0 && timeout.deadline <= now) {
+                timeout.unlink();
+                fire(timeout);
+            } else {
+                timeout.remainingRounds--;
+            }
+            timeout = next;
+        }
+    }
+
+    private void fire(Timeout timeout) {
+        if (timeout.period > 0) {
+            executor.execute(timeout::run);
+            timeout.deadline += timeout.period;
+            rearmed.add(timeout);
+        } else if (timeout.state.compareAndSet(Timeout.STATE_WAITING, Timeout.STATE_EXPIRED)) {
+            executor.execute(timeout::run);
+        }
+    }
+
+    /**
+     * Handle of a scheduled task.
+     */
+    public static final class Timeout {
+        private static final int STATE_WAITING = 0;
+        private static final int STATE_CANCELLED = 1;
+        private static final int STATE_EXPIRED = 2;
+        private final HashedWheelTimer timer;
+        private final Runnable task;
+        private final long period;
+        private final AtomicInteger state = new AtomicInteger(STATE_WAITING);
+        private long deadline;
+        private long remainingRounds;
+        private Timeout prev;
+        private Timeout next;
+
+        private Timeout(HashedWheelTimer timer, Runnable task, long deadline, long period) {
+            this.timer = timer;
+            this.task = task;
+            this.deadline = deadline;
+            this.period = period;
+        }
+
+        /**
+         * Cancels the task. A periodic task doesn't run anymore, a run in progress completes.
+         *
+         * @return true if the task was cancelled, false if it already ran or was cancelled
+         */
+        public boolean cancel() {
+            if (!state.compareAndSet(STATE_WAITING, STATE_CANCELLED)) {
+                return false;
+            }
+            timer.cancelled.offer(this);
+            return true;
+        }
+
+        public boolean isCancelled() {
+            return state.get() == STATE_CANCELLED;
+        }
+
+        /**
+         * Returns true if a one time task was handed to the executor.
+         *
+         * @return true if expired
+         */
+        public boolean isExpired() {
+            return state.get() == STATE_EXPIRED;
+        }
+
+        public boolean isPeriodic() {
+            return period > 0;
+        }
+
+        private void run() {
+            if (period > 0 && isCancelled()) {
+                return;
+            }
+            try {
+                task.run();
+            } catch (RuntimeException | Error e) {
+                final Thread current = Thread.currentThread();
+                current.getUncaughtExceptionHandler().uncaughtException(current, e);
+            }
+        }
+
+        private void unlink() {
+            if (next != null) {
+                prev.next = next;
+                next.prev = prev;
+                prev = null;
+                next = null;
+            }
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package org.basetools.util.concurrent;
+
+import java.util.AbstractQueue;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * Unbounded lock-free queue for many producers and a single consumer, based on the intrusive linked queue of Dmitry
+ * Vyukov. Offering is a single atomic exchange of the tail, even for a whole batch of elements with
+ * {@link #offerAll(Collection)}, and the consumer polls without any atomic operation.
+ * <p>
+ * Only one thread at a time may call {@link #poll()}, {@link #drain(Consumer, int)} or {@link #clear()}; size and
+ * iteration are weakly consistent snapshots.
+ *
+ * @param <E> the element type
+ */
+public class MpscQueue<E> extends AbstractQueue<E> {
+    private final AtomicReference<Node<E>> tail;
+    private Node<E> head;
+
+    public MpscQueue() {
+        head = new Node<>(null);
+        tail = new AtomicReference<>(head);
+    }
+
+    @Override
+    public boolean offer(E element) {
+        if (element == null) {
+            throw new NullPointerException();
+        }
+        final Node<E> node = new Node<>(element);
+        tail.getAndSet(node).next = node;
+        return true;
+    }
+
+    /**
+     * Appends all elements in their order with a single atomic operation, so the elements of one producer are not
+     * interleaved with others.
+     *
+     * @param elements the non-null elements
+     * @return true if elements were added
+     */
+    public boolean offerAll(Collection<? extends E> elements) {
+        Node<E> first = null;
+        Node<E> last = null;
+        for (E element : elements) {
+            if (element == null) {
+                throw new NullPointerException();
+            }
+            final Node<E> node = new Node<>(element);
+            if (first == null) {
+                first = node;
+            } else {
+                last.next = node;
+            }
+            last = node;
+        }
+        if (first == null) {
+            return false;
+        }
+        tail.getAndSet(last).next = first;
+        return true;
+    }
+
+    @Override
+    public E poll() {
+        final Node<E> next = head.next;
+        if (next == null) {
+            return null;
+        }
+        final E element = next.element;
+        next.element = null;
+        head = next;
+        return element;
+    }
+
+    /**
+     * Hands up to limit elements to the consumer.
+     *
+     * @param consumer receives the elements in queue order
+     * @param limit    the maximum number of elements
+     * @return the number of drained elements
+     */
+    public int drain(Consumer<? super E> consumer, int limit) {
+        int drained = 0;
+        E element;
+        while (drained < limit && (element = poll()) != null) {
+            consumer.accept(element);
+            drained++;
+        }
+        return drained;
+    }
+
+    @Override
+    public E peek() {
+        final Node<E> next = head.next;
+        return next != null ? next.element : null;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return head.next == null;
+    }
+
+    @Override
+    public int size() {
+        int size = 0;
+        for (Node<E> node = head.next; node != null && size < Integer.MAX_VALUE; node = node.next) {
+            size++;
+        }
+        return size;
+    }
+
+    @Override
+    public void clear() {
+        while (poll() != null) {
+            // drop all elements
+        }
+    }
+
+    @Override
+    public Iterator<E> iterator() {
+        return new Iterator<E>() {
+            private Node<E> node = head;
+            private E nextElement = advance();
+
+            private E advance() {
+                // skip the elements polled meanwhile, they are nulled
+                while ((node = node.next) != null) {
+                    final E element = node.element;
+                    if (element != null) {
+                        return element;
+                    }
+                }
+                return null;
+            }
+
+            @Override
+            public boolean hasNext() {
+                return nextElement != null;
+            }
+
+            @Override
+            public E next() {
+                if (nextElement == null) {
+                    throw new NoSuchElementException();
+                }
+                final E element = nextElement;
+                nextElement = node != null ? advance() : null;
+                return element;
+            }
+        };
+    }
+
+    private static final class Node<E> {
+        volatile Node<E> next;
+        E element;
+
+        Node(E element) {
+            this.element = element;
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package org.basetools.util.concurrent;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Token bucket rate limiter. Tokens are added continuously at the configured rate up to the burst size, every
+ * permit takes one token. An idle limiter therefore allows a burst, after that the permits are spread evenly.
+ */
+public class RateLimiter {
+    private final double tokensPerNano;
+    private final double burst;
+    private double tokens;
+    private long refilledAt;
+
+    /**
+     * Creates a limiter with a full bucket.
+     *
+     * @param permitsPerSecond the sustained rate
+     * @param burst            the maximum number of permits available at once
+     */
+    public RateLimiter(double permitsPerSecond, int burst) {
+        if (permitsPerSecond <= 0 || burst <= 0) {
+            throw new IllegalArgumentException("rate and burst must be > 0");
+        }
+        this.tokensPerNano = permitsPerSecond / TimeUnit.SECONDS.toNanos(1);
+        this.burst = burst;
+        this.tokens = burst;
+        this.refilledAt = System.nanoTime();
+    }
+
+    /**
+     * Takes a permit if one is available.
+     *
+     * @return true if the permit was taken
+     */
+    public boolean tryAcquire() {
+        return reserve() == 0;
+    }
+
+    /**
+     * Takes a permit, waiting until one is available. Interrupts are not reported, the interrupt status is kept.
+     *
+     * @return the time waited in nanoseconds
+     */
+    public long acquire() {
+        final long start = System.nanoTime();
+        long wait;
+        while ((wait = reserve()) > 0) {
+            LockSupport.parkNanos(this, wait);
+        }
+        return System.nanoTime() - start;
+    }
+
+    /**
+     * Takes a token if available, else returns the time until the next one.
+     */
+    private synchronized long reserve() {
+        final long now = System.nanoTime();
+        tokens = Math.min(burst, tokens + (now - refilledAt) * tokensPerNano);
+        refilledAt = now;
+        if (tokens >= 1) {
+            tokens -= 1;
+            return 0;
+        }
+        return Math.max(1, (long) Math.ceil((1 - tokens) / tokensPerNano));
+    }
+
+    /**
+     * Returns the number of permits available now.
+     *
+     * @return the available permits
+     */
+    public synchronized double getAvailablePermits() {
+        final long now = System.nanoTime();
+        return Math.min(burst, tokens + (now - refilledAt) * tokensPerNano);
+    }
+
+    public double getRate() {
+        return tokensPerNano * TimeUnit.SECONDS.toNanos(1);
+    }
+}
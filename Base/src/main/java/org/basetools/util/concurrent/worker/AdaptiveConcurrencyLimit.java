@@ -0,0 +1,128 @@
+package org.basetools.util.concurrent.worker;
+
+import net.minidev.json.JSONObject;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Concurrency limit adapting to the completion latency (AIMD). The lowest latency seen is the baseline; while
+ * completions stay within tolerance times the baseline and the limit is used up, it grows by one, a slower or failed
+ * completion shrinks it by the backoff factor, at most once per baseline latency. The baseline is measured again
+ * every {@value #BASELINE_SAMPLES} completions, so a lasting change of the work is followed.
+ */
+public class AdaptiveConcurrencyLimit {
+    private static final int BASELINE_SAMPLES = 1000;
+    private final int minLimit;
+    private final int maxLimit;
+    private final double tolerance;
+    private final double backoff;
+    private double limit;
+    private int inFlight;
+    private long baseline = Long.MAX_VALUE;
+    private long lastDecrease;
+    private long samples;
+    private long decreases;
+
+    /**
+     * Creates a limit with a tolerance of 2 and a backoff of 0.9.
+     *
+     * @param initialLimit the limit to start with
+     * @param minLimit     the lower bound
+     * @param maxLimit     the upper bound
+     */
+    public AdaptiveConcurrencyLimit(int initialLimit, int minLimit, int maxLimit) {
+        this(initialLimit, minLimit, maxLimit, 2.0, 0.9);
+    }
+
+    /**
+     * Creates a limit.
+     *
+     * @param initialLimit the limit to start with
+     * @param minLimit     the lower bound
+     * @param maxLimit     the upper bound
+     * @param tolerance    the factor of the baseline latency still regarded as not congested
+     * @param backoff      the factor applied to the limit on congestion
+     */
+    public AdaptiveConcurrencyLimit(int initialLimit, int minLimit, int maxLimit, double tolerance, double backoff) {
+        if (minLimit <= 0 || maxLimit < minLimit || tolerance < 1 || backoff <= 0 || backoff >= 1) {
+            throw new IllegalArgumentException("invalid limits");
+        }
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.tolerance = tolerance;
+        this.backoff = backoff;
+        this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+        this.lastDecrease = System.nanoTime();
+    }
+
+    /**
+     * Waits until a unit may start. Interrupts are not reported, the interrupt status is kept.
+     */
+    public synchronized void acquire() {
+        boolean interrupted = false;
+        while (inFlight >= (int) limit) {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        inFlight++;
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Reports a completed unit and adapts the limit.
+     *
+     * @param latencyNanos the time from start to completion
+     * @param success      false if the unit failed
+     */
+    public synchronized void release(long latencyNanos, boolean success) {
+        final boolean saturated = inFlight >= (int) limit;
+        inFlight--;
+        if (++samples % BASELINE_SAMPLES == 0) {
+            baseline = latencyNanos;
+        } else if (latencyNanos < baseline) {
+            baseline = latencyNanos;
+        }
+        if (!success || latencyNanos > baseline * tolerance) {
+            final long now = System.nanoTime();
+            if (now - lastDecrease > baseline) {
+                limit = Math.max(minLimit, limit * backoff);
+                lastDecrease = now;
+                decreases++;
+            }
+        } else if (saturated) {
+            limit = Math.min(maxLimit, limit + 1);
+        }
+        notifyAll();
+    }
+
+    /**
+     * Frees the slot of a unit which didn't run, without adapting the limit.
+     */
+    public synchronized void cancel() {
+        inFlight--;
+        notifyAll();
+    }
+
+    public synchronized int getLimit() {
+        return (int) limit;
+    }
+
+    public synchronized int getInFlight() {
+        return inFlight;
+    }
+
+    public synchronized JSONObject toJSON() {
+        return new JSONObject()
+                .appendField("Limit", (int) limit)
+                .appendField("InFlight", inFlight)
+                .appendField("MinLimit", minLimit)
+                .appendField("MaxLimit", maxLimit)
+                .appendField("BaselineMicros", baseline == Long.MAX_VALUE ? 0 : TimeUnit.NANOSECONDS.toMicros(baseline))
+                .appendField("Decreases", decreases);
+    }
+}
@@ -0,0 +1,19 @@
+package org.basetools.util.concurrent.worker;
+
+/**
+ * How {@link WorkService} treats a producer while its work list is full.
+ */
+public enum AdmissionMode {
+    /**
+     * Waits until there is room
+     */
+    BLOCK,
+    /**
+     * Waits up to the admission timeout, then rejects
+     */
+    TIMED,
+    /**
+     * Rejects at once
+     */
+    REJECT
+}
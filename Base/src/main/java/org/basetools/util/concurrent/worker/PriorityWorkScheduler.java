@@ -0,0 +1,322 @@
+package org.basetools.util.concurrent.worker;
+
+import net.minidev.json.JSONObject;
+import org.basetools.util.cache.metrics.LatencyHistogram;
+import org.basetools.util.concurrent.ThreadFactoryWithNamePrefix;
+import org.basetools.util.sort.Priorized;
+
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.ToIntFunction;
+
+/**
+ * Executor running tasks by priority on a fixed set of workers. Every worker owns one deque per priority class; a
+ * task submitted by a worker stays on its deques, other tasks are spread round robin, and idle workers steal from the
+ * others. Priorities follow the {@link org.basetools.util.sort.PrioritySorter} order: class 0 runs first, priorities
+ * outside of [0, classes) are clamped.
+ * <p>
+ * Waiting tasks age: every agingMillis spent in a queue promote a task by one class, so bulk work can't starve. The
+ * time from submission to start is recorded per priority class.
+ */
+public class PriorityWorkScheduler extends AbstractExecutorService {
+    public static final int DEFAULT_PRIORITY_CLASSES = 8;
+    public static final long DEFAULT_AGING_MILLIS = 100;
+    private final Worker[] workers;
+    private final int priorityClasses;
+    private final long agingNanos;
+    private final ToIntFunction<Runnable> priorityOf;
+    private final LatencyHistogram[] waitTimes;
+    private final Queue<Worker> idleWorkers = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger nextWorker = new AtomicInteger();
+    private final CountDownLatch terminated;
+    private volatile boolean shutdown = false;
+
+    /**
+     * Creates a scheduler reading the priority of {@link Priorized} tasks, others get the middle class.
+     *
+     * @param workerCount the number of worker threads
+     */
+    public PriorityWorkScheduler(int workerCount) {
+        this(workerCount, DEFAULT_PRIORITY_CLASSES, DEFAULT_AGING_MILLIS, null);
+    }
+
+    /**
+     * Creates a scheduler.
+     *
+     * @param workerCount     the number of worker threads
+     * @param priorityClasses the number of priority classes
+     * @param agingMillis     the waiting time promoting a task by one class
+     * @param priorityOf      returns the priority of a task, null to use {@link Priorized} tasks only
+     */
+    public PriorityWorkScheduler(int workerCount, int priorityClasses, long agingMillis,
+                                 ToIntFunction<Runnable> priorityOf) {
+        this.priorityClasses = priorityClasses;
+        this.agingNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, agingMillis));
+        this.priorityOf = priorityOf != null ? priorityOf : task ->
+                task instanceof Priorized ? ((Priorized) task).getPriority() : priorityClasses / 2;
+        waitTimes = new LatencyHistogram[priorityClasses];
+        for (int i = 0; i < priorityClasses; i++) {
+            waitTimes[i] = new LatencyHistogram();
+        }
+        terminated = new CountDownLatch(workerCount);
+        workers = new Worker[workerCount];
+        final ThreadFactory threadFactory = new ThreadFactoryWithNamePrefix("PriorityWorkScheduler");
+        for (int i = 0; i < workerCount; i++) {
+            workers[i] = new Worker(threadFactory);
+        }
+        for (Worker worker : workers) {
+            worker.thread.start();
+        }
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        if (shutdown) {
+            throw new RejectedExecutionException("scheduler is shut down");
+        }
+        final int priority = Math.max(0, Math.min(priorityClasses - 1, priorityOf.applyAsInt(command)));
+        final Task task = new Task(command, priority);
+        final Thread current = Thread.currentThread();
+        Worker target = null;
+        for (Worker worker : workers) {
+            if (worker.thread == current) {
+                target = worker;
+                break;
+            }
+        }
+        if (target == null) {
+            target = workers[Math.floorMod(nextWorker.getAndIncrement(), workers.length)];
+        }
+        target.deques[priority].offerLast(task);
+        wakeIdleWorker();
+    }
+
+    @Override
+    protected <T> RunnableFuture<T> newTaskFor(Runnable runnable, T value) {
+        // keep the priority of the submitted runnable visible on the future task
+        return new PriorizedFutureTask<>(runnable, value, priorityOf.applyAsInt(runnable));
+    }
+
+    private void wakeIdleWorker() {
+        Worker idle;
+        while ((idle = idleWorkers.poll()) != null) {
+            if (idle.idle.compareAndSet(true, false)) {
+                LockSupport.unpark(idle.thread);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Takes the most urgent task of the given worker's deques, considering the aging.
+     */
+    private Task take(Worker worker, long now) {
+        Deque<Task> best = null;
+        long bestScore = Long.MAX_VALUE;
+        for (int priority = 0; priority < priorityClasses; priority++) {
+            final Task head = worker.deques[priority].peekFirst();
+            if (head != null) {
+                final long score = priority - (now - head.enqueuedAt) / agingNanos;
+                if (score < bestScore) {
+                    bestScore = score;
+                    best = worker.deques[priority];
+                }
+            }
+        }
+        return best != null ? best.pollFirst() : null;
+    }
+
+    private Task find(Worker self) {
+        final long now = System.nanoTime();
+        Task task = take(self, now);
+        if (task != null) {
+            return task;
+        }
+        final int start = ThreadLocalRandom.current().nextInt(workers.length);
+        for (int i = 0; i < workers.length; i++) {
+            final Worker victim = workers[(start + i) % workers.length];
+            if (victim != self && (task = take(victim, now)) != null) {
+                return task;
+            }
+        }
+        return null;
+    }
+
+    private boolean hasQueuedTasks() {
+        for (Worker worker : workers) {
+            for (Deque<Task> deque : worker.deques) {
+                if (!deque.isEmpty()) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the number of queued tasks per priority class.
+     *
+     * @return the queue depths
+     */
+    public int[] getQueuedTaskCounts() {
+        final int[] counts = new int[priorityClasses];
+        for (Worker worker : workers) {
+            for (int priority = 0; priority < priorityClasses; priority++) {
+                counts[priority] += worker.deques[priority].size();
+            }
+        }
+        return counts;
+    }
+
+    /**
+     * Returns the histogram of the times from submission to start of the tasks of a priority class.
+     *
+     * @param priorityClass the priority class
+     * @return the wait times in nanoseconds
+     */
+    public LatencyHistogram getWaitTime(int priorityClass) {
+        return waitTimes[priorityClass];
+    }
+
+    public JSONObject getInfo() {
+        final JSONObject waits = new JSONObject();
+        final int[] queued = getQueuedTaskCounts();
+        for (int priority = 0; priority < priorityClasses; priority++) {
+            waits.put(String.valueOf(priority), waitTimes[priority].toJSON().appendField("queued", queued[priority]));
+        }
+        return new JSONObject()
+                .appendField("workers", workers.length)
+                .appendField("priorityClasses", priorityClasses)
+                .appendField("agingMillis", TimeUnit.NANOSECONDS.toMillis(agingNanos))
+                .appendField("waitTimes", waits);
+    }
+
+    @Override
+    public void shutdown() {
+        shutdown = true;
+        for (Worker worker : workers) {
+            LockSupport.unpark(worker.thread);
+        }
+    }
+
+    @Override
+    public List<Runnable> shutdownNow() {
+        shutdown();
+        final List<Runnable> notRun = new ArrayList<>();
+        for (Worker worker : workers) {
+            for (Deque<Task> deque : worker.deques) {
+                Task task;
+                while ((task = deque.pollFirst()) != null) {
+                    notRun.add(task.command);
+                }
+            }
+            worker.thread.interrupt();
+        }
+        return notRun;
+    }
+
+    @Override
+    public boolean isShutdown() {
+        return shutdown;
+    }
+
+    @Override
+    public boolean isTerminated() {
+        return terminated.getCount() == 0;
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return terminated.await(timeout, unit);
+    }
+
+    private static final class Task {
+        final Runnable command;
+        final int priority;
+        final long enqueuedAt = System.nanoTime();
+
+        Task(Runnable command, int priority) {
+            this.command = command;
+            this.priority = priority;
+        }
+    }
+
+    private static final class PriorizedFutureTask<T> extends FutureTask<T> implements Priorized {
+        private static final AtomicInteger CREATION_IDS = new AtomicInteger();
+        private final int priority;
+        private final long creationId = CREATION_IDS.incrementAndGet();
+
+        PriorizedFutureTask(Runnable runnable, T value, int priority) {
+            super(runnable, value);
+            this.priority = priority;
+        }
+
+        @Override
+        public int getPriority() {
+            return priority;
+        }
+
+        @Override
+        public long getCreationId() {
+            return creationId;
+        }
+    }
+
+    private final class Worker implements Runnable {
+        final Deque<Task>[] deques;
+        final AtomicBoolean idle = new AtomicBoolean();
+        final Thread thread;
+
+        @SuppressWarnings("unchecked")
+        Worker(ThreadFactory threadFactory) {
+            deques = new Deque[priorityClasses];
+            for (int i = 0; i < priorityClasses; i++) {
+                deques[i] = new ConcurrentLinkedDeque<>();
+            }
+            thread = threadFactory.newThread(this);
+            thread.setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (true) {
+                    final Task task = find(this);
+                    if (task != null) {
+                        waitTimes[task.priority].record(System.nanoTime() - task.enqueuedAt);
+                        try {
+                            task.command.run();
+                        } catch (Throwable e) {
+                            // a failing task must not stop the worker, submitted tasks report it via their future,
+                            // executed ones to the handler of the worker thread
+                            thread.getUncaughtExceptionHandler().uncaughtException(thread, e);
+                        }
+                    } else if (shutdown) {
+                        return;
+                    } else {
+                        // publish the idle state before checking the queues again, a submitter either sees it or
+                        // its task is found
+                        if (idle.compareAndSet(false, true)) {
+                            idleWorkers.offer(this);
+                        }
+                        if (!hasQueuedTasks() && !shutdown) {
+                            LockSupport.park(PriorityWorkScheduler.this);
+                        }
+                        idle.set(false);
+                        if (Thread.interrupted() && shutdown) {
+                            return;
+                        }
+                    }
+                }
+            } finally {
+                terminated.countDown();
+            }
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package org.basetools.util.concurrent.worker;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Consumer;
+
+/**
+ * Handle of work units submitted together by {@link WorkService#submitWorkUnits(List, Object, int)}. Every unit has
+ * its own future, completed when the unit ran or exceptionally with the exception it threw, and the batch completes
+ * when all units are done. At most maxInFlight units of a batch are pushed to the service at a time, the next one is
+ * pushed when a unit finishes, so the producer never blocks.
+ */
+public class WorkBatch {
+    private final List<CompletableFuture<Void>> units;
+    private final CompletableFuture<Void> completion;
+    private final Queue<Runnable> pending = new ConcurrentLinkedQueue<>();
+    private Consumer<List<Runnable>> push;
+
+    WorkBatch(int size) {
+        final List<CompletableFuture<Void>> futures = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            futures.add(new CompletableFuture<>());
+        }
+        units = Collections.unmodifiableList(futures);
+        completion = CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]));
+    }
+
+    /**
+     * Pushes the first tasks and keeps the others until running tasks finish.
+     *
+     * @param push    pushes the first tasks
+     * @param release pushes a kept task when a running one finished
+     */
+    void start(List<Runnable> tasks, int maxInFlight, Consumer<List<Runnable>> push, Consumer<List<Runnable>> release) {
+        this.push = release;
+        final int window = maxInFlight > 0 ? Math.min(maxInFlight, tasks.size()) : tasks.size();
+        pending.addAll(tasks.subList(window, tasks.size()));
+        push.accept(tasks.subList(0, window));
+    }
+
+    /**
+     * Runs the unit unless it was cancelled, completes its future and releases the next pending task.
+     */
+    void run(CompletableFuture<Void> unit, Runnable work) {
+        try {
+            if (!unit.isDone()) {
+                try {
+                    work.run();
+                    unit.complete(null);
+                } catch (RuntimeException | Error e) {
+                    unit.completeExceptionally(e);
+                }
+            }
+        } finally {
+            releaseNext();
+        }
+    }
+
+    private void releaseNext() {
+        final Runnable next = pending.poll();
+        if (next != null) {
+            try {
+                push.accept(Collections.singletonList(next));
+            } catch (IllegalStateException e) {
+                // the service shuts down
+                cancel();
+            }
+        }
+    }
+
+    /**
+     * Returns the futures of the units in submission order.
+     *
+     * @return the unit futures
+     */
+    public List<CompletableFuture<Void>> getUnits() {
+        return units;
+    }
+
+    /**
+     * Returns the future completing when all units are done, exceptionally if a unit failed or was cancelled.
+     *
+     * @return the aggregate future
+     */
+    public CompletableFuture<Void> getCompletion() {
+        return completion;
+    }
+
+    /**
+     * Returns the number of units which are not done yet.
+     *
+     * @return the number of outstanding units
+     */
+    public int getOutstanding() {
+        int outstanding = 0;
+        for (CompletableFuture<Void> unit : units) {
+            if (!unit.isDone()) {
+                outstanding++;
+            }
+        }
+        return outstanding;
+    }
+
+    /**
+     * Cancels all units which are not done. Units not started yet are skipped, running units finish, but their
+     * futures already report the cancellation.
+     *
+     * @return true if a unit was cancelled
+     */
+    public boolean cancel() {
+        pending.clear();
+        boolean cancelled = false;
+        for (CompletableFuture<Void> unit : units) {
+            cancelled |= unit.cancel(false);
+        }
+        return cancelled;
+    }
+
+    public boolean isDone() {
+        return completion.isDone();
+    }
+}
@@ -1,21 +1,33 @@
 package org.basetools.util.concurrent.worker;
 
-import org.basetools.util.Statistics;
 import org.basetools.util.StreamUtils;
-import org.basetools.util.collection.ConcurrentList;
+import org.basetools.util.collection.SnapshotList;
+import org.basetools.util.concurrent.MpscQueue;
+import org.basetools.util.concurrent.RateLimiter;
 import org.basetools.util.concurrent.ThreadFactoryWithNamePrefix;
+import org.basetools.util.sort.Priorized;
 
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Queue;
+import java.util.Set;
 import java.util.concurrent.*;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
 import java.util.stream.Stream;
 
 import static java.lang.Thread.sleep;
 
 /**
  * Generic Class to execute a multi queued, pooled unit of works. Thread locals has to be instances of InheritableThreadLocal.
+ * <p>
+ * Producers append to a lock-free multi producer, single consumer queue. A single dispatcher thread drains it in
+ * batches into the executor and parks while there is no work or the service is paused; producers only unpark it if
+ * it is waiting.
+ * <p>
+ * Backpressure is opt-in: an admission limit bounds the work list and blocks, times out or rejects producers, a
+ * rate limiter spreads the dispatches, and an adaptive concurrency limit follows the completion latency. A full job
+ * queue blocks the dispatcher instead of running the unit on it.
  *
  * @param <I>
  */
@@ -31,26 +43,83 @@ public class WorkService<I> {
     private int maximumPoolSize = 100;
     private long keepAliveTime = 0L;
     private ExecutorService executorService;
-    private BlockingQueue<Runnable> jobQueue = new ArrayBlockingQueue<>(jobQueueSize);
-    private boolean isPaused = false;
-    private boolean isRunning = false;
-    private short initState = INIT_STATE_NOT_INITIALIZED;
-    private boolean goesDown = false;
-    private boolean isShutdowned = false;
-    private Queue<Runnable> worklist = new ConcurrentLinkedQueue();
+    private BlockingQueue<Runnable> jobQueue;
+    /**
+     * The maximum number of work units the dispatcher hands to the executor before checking the state again
+     */
+    private static final int DISPATCH_BATCH_SIZE = 256;
+    /**
+     * The default number of work units running at a time in virtual thread mode
+     */
+    public static final int DEFAULT_VIRTUAL_CONCURRENCY = 10_000;
+    private boolean useVirtualThreads = false;
+    private int maxConcurrency = DEFAULT_VIRTUAL_CONCURRENCY;
+    private Semaphore concurrencyLimit;
+    private boolean virtualThreadsAvailable = false;
+    private boolean usePriorityScheduling = false;
+    private long agingMillis = PriorityWorkScheduler.DEFAULT_AGING_MILLIS;
+    private AdmissionSemaphore admissionPermits;
+    private AdmissionMode admissionMode = AdmissionMode.BLOCK;
+    private long admissionTimeoutMillis;
+    private RateLimiter rateLimiter;
+    private AdaptiveConcurrencyLimit adaptiveLimit;
+    private final LongAdder enqueued = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    /**
+     * Written by the dispatcher only
+     */
+    private volatile long dispatched;
+    private volatile boolean isPaused = false;
+    private volatile boolean isRunning = false;
+    private volatile short initState = INIT_STATE_NOT_INITIALIZED;
+    private volatile boolean goesDown = false;
+    private volatile boolean isShutdowned = false;
+    private MpscQueue<Runnable> worklist = new MpscQueue<>();
     private ExecutorService consumerService = Executors.newSingleThreadExecutor();
-    private Statistics statistics;
+    private volatile Thread dispatcher;
+    /**
+     * Set by the dispatcher before it parks, so producers only unpark it when needed
+     */
+    private volatile boolean dispatcherWaiting = false;
+    private WorkServiceStatistics statistics;
     private boolean useStatistics;
-    private boolean isIddle;
-    private List<WorkListener> listeners = new ConcurrentList<>(new ArrayList<>());
+    private volatile boolean isIddle;
+    /**
+     * Iterated on every completion, changed rarely
+     */
+    private List<WorkListener> listeners = new SnapshotList<>();
+    private Set<WorkBatch> activeBatches = ConcurrentHashMap.newKeySet();
 
     public WorkService() {
         super();
     }
 
     public WorkService<I> initialize() {
-
-        RejectedExecutionHandler rejectedExecutionHandler = new ThreadPoolExecutor.CallerRunsPolicy();
+        if (usePriorityScheduling) {
+            executorService = new PriorityWorkScheduler(corePoolSize, PriorityWorkScheduler.DEFAULT_PRIORITY_CLASSES,
+                    agingMillis, this::getPriority);
+            initState = INIT_STATE_INITIALIZED;
+            return this;
+        }
+        if (useVirtualThreads) {
+            executorService = newVirtualThreadExecutor();
+            concurrencyLimit = new Semaphore(maxConcurrency);
+            initState = INIT_STATE_INITIALIZED;
+            return this;
+        }
+        jobQueue = new ArrayBlockingQueue<>(jobQueueSize);
+        // wait for room instead of running the unit on the dispatcher, which would stall the dispatching
+        RejectedExecutionHandler rejectedExecutionHandler = (task, executor) -> {
+            if (executor.isShutdown()) {
+                throw new RejectedExecutionException("WorkService executor is shut down");
+            }
+            try {
+                executor.getQueue().put(task);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RejectedExecutionException(e);
+            }
+        };
         executorService = new ThreadPoolExecutor(
                 corePoolSize,
                 maximumPoolSize,
@@ -100,6 +169,171 @@ public class WorkService<I> {
         return this;
     }
 
+    /**
+     * Runs every work unit on its own virtual thread instead of the thread pool, which suits blocking work like
+     * remote calls. The number of units running at a time is limited by a semaphore, the pool sizes and the job queue
+     * size are ignored. Virtual threads require Java 21, on older runtimes a cached pool of platform threads with the
+     * same limit is used.
+     */
+    public WorkService<I> withVirtualThreads() {
+        useVirtualThreads = true;
+        return this;
+    }
+
+    /**
+     * Runs the work units by priority on corePoolSize workers with work stealing, see {@link PriorityWorkScheduler}.
+     * The priority is taken from work units or infos implementing {@link Priorized}, lower values run first.
+     *
+     * @param agingMillis the waiting time after which a work unit is promoted by one priority class
+     */
+    public WorkService<I> withPriorityScheduling(long agingMillis) {
+        usePriorityScheduling = true;
+        this.agingMillis = agingMillis;
+        return this;
+    }
+
+    public WorkService<I> withPriorityScheduling() {
+        return withPriorityScheduling(PriorityWorkScheduler.DEFAULT_AGING_MILLIS);
+    }
+
+    /**
+     * Returns the scheduler in priority scheduling mode, e.g. to read the wait times per priority class.
+     *
+     * @return the scheduler or null
+     */
+    public PriorityWorkScheduler getPriorityScheduler() {
+        return executorService instanceof PriorityWorkScheduler ? (PriorityWorkScheduler) executorService : null;
+    }
+
+    private int getPriority(Runnable work) {
+        if (work instanceof Priorized) {
+            return ((Priorized) work).getPriority();
+        }
+        if (work instanceof LimitedRun) {
+            return getPriority(((LimitedRun) work).unit);
+        }
+        if (work instanceof RunnableWrapper) {
+            final RunnableWrapper wrapper = (RunnableWrapper) work;
+            if (wrapper.getUnit() instanceof Priorized) {
+                return ((Priorized) wrapper.getUnit()).getPriority();
+            }
+            if (wrapper.getInfo() instanceof Priorized) {
+                return ((Priorized) wrapper.getInfo()).getPriority();
+            }
+        }
+        return PriorityWorkScheduler.DEFAULT_PRIORITY_CLASSES / 2;
+    }
+
+    /**
+     * @param max the maximum number of work units running at a time in virtual thread mode
+     */
+    public WorkService<I> withMaxConcurrency(int max) {
+        maxConcurrency = max;
+        return this;
+    }
+
+    /**
+     * Returns true if the work units run on virtual threads, false if in pool mode or the runtime lacks virtual threads.
+     *
+     * @return true if virtual threads are used
+     */
+    public boolean isUsingVirtualThreads() {
+        return useVirtualThreads && virtualThreadsAvailable;
+    }
+
+    private ExecutorService newVirtualThreadExecutor() {
+        try {
+            // looked up reflectively, this module is compiled for Java 11
+            ExecutorService executor = (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor")
+                    .invoke(null);
+            virtualThreadsAvailable = true;
+            return executor;
+        } catch (ReflectiveOperationException e) {
+            virtualThreadsAvailable = false;
+            return Executors.newCachedThreadPool(new ThreadFactoryWithNamePrefix("WorkService"));
+        }
+    }
+
+    /**
+     * Bounds the number of work units waiting for dispatch. Configure it before pushing work.
+     *
+     * @param capacity the maximum number of waiting work units
+     * @param mode     what producers do while the work list is full
+     * @param timeout  the maximum wait in milliseconds in {@link AdmissionMode#TIMED} mode
+     */
+    public WorkService<I> withAdmissionLimit(int capacity, AdmissionMode mode, long timeout) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be > 0");
+        }
+        admissionPermits = new AdmissionSemaphore(capacity);
+        admissionMode = mode;
+        admissionTimeoutMillis = timeout;
+        return this;
+    }
+
+    public WorkService<I> withAdmissionLimit(int capacity, AdmissionMode mode) {
+        return withAdmissionLimit(capacity, mode, 0);
+    }
+
+    /**
+     * Limits the rate of dispatched work units by a token bucket.
+     *
+     * @param unitsPerSecond the sustained rate
+     * @param burst          the number of units dispatched at once after an idle time
+     */
+    public WorkService<I> withRateLimit(double unitsPerSecond, int burst) {
+        rateLimiter = new RateLimiter(unitsPerSecond, burst);
+        return this;
+    }
+
+    /**
+     * Limits the number of running work units by a limit adapting to their completion latency, see
+     * {@link AdaptiveConcurrencyLimit}. The latency is measured from dispatch to completion, so it includes the time
+     * in the job queue.
+     *
+     * @param minLimit the lower bound of the limit
+     * @param maxLimit the upper bound of the limit
+     */
+    public WorkService<I> withAdaptiveConcurrency(int minLimit, int maxLimit) {
+        adaptiveLimit = new AdaptiveConcurrencyLimit(minLimit, minLimit, maxLimit);
+        return this;
+    }
+
+    public AdaptiveConcurrencyLimit getConcurrencyLimit() {
+        return adaptiveLimit;
+    }
+
+    public RateLimiter getRateLimiter() {
+        return rateLimiter;
+    }
+
+    /**
+     * Returns the maximum number of waiting work units or 0 if unbounded.
+     *
+     * @return the admission capacity
+     */
+    public int getAdmissionCapacity() {
+        return admissionPermits != null ? admissionPermits.capacity : 0;
+    }
+
+    /**
+     * Returns the number of work units pushed and not yet dispatched.
+     *
+     * @return the queue depth
+     */
+    public long getQueueDepth() {
+        return Math.max(0, enqueued.sum() - dispatched);
+    }
+
+    /**
+     * Returns the number of work units rejected by the admission limit.
+     *
+     * @return the number of rejections
+     */
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+
     /**
      * @param size max size of the internal job queue
      */
@@ -117,62 +351,117 @@ public class WorkService<I> {
     }
 
     public WorkService<I> doWork() {
+        dispatcher = Thread.currentThread();
+        initState = INIT_STATE_RUNNING;
         while (isRunning) {
-            initState = INIT_STATE_RUNNING;
-            synchronized (worklist) {
-
-                while (worklist.peek() != null) {
-                    Object info = null;
-                    if (isPaused) {
-                        try {
-                            isIddle = true;
-                            worklist.wait(1000);
-                        } catch (InterruptedException ie) {
-                            Thread.currentThread().interrupt();
-                        }
-                    } else {
-                        long start = System.currentTimeMillis();
-                        isIddle = false;
-                        try {
-
-                            Runnable toDo = worklist.poll();
-                            if (toDo instanceof RunnableWrapper) {
-                                info = ((RunnableWrapper) toDo).getInfo();
-                            }
-                            Future submitted = executorService.submit(toDo);
-                        } catch (Exception e) {
-                            throw new RuntimeException(e);
-                        }
-                        addToStatistic(System.currentTimeMillis() - start, info);
-                    }
-                }
-                try {
-                    isIddle = true;
-                    worklist.wait(1000);
-                    if (goesDown && worklist.size() == 0) {
-                        isRunning = false;
-                    }
-                } catch (InterruptedException ie) {
-                    Thread.currentThread().interrupt();
+            if (isPaused) {
+                isIddle = true;
+                awaitSignal();
+            } else if (worklist.drain(this::dispatch, DISPATCH_BATCH_SIZE) == 0) {
+                isIddle = true;
+                if (goesDown) {
+                    isRunning = false;
+                } else {
+                    awaitSignal();
                 }
             }
         }
+        dispatcher = null;
         initState = INIT_STATE_THREAD_EXIT;
         return this;
     }
 
+    private void dispatch(Runnable toDo) {
+        Object info = null;
+        long start = System.currentTimeMillis();
+        isIddle = false;
+        dispatched++;
+        if (admissionPermits != null) {
+            admissionPermits.release();
+        }
+        if (toDo instanceof RunnableWrapper) {
+            info = ((RunnableWrapper) toDo).getInfo();
+        }
+        if (rateLimiter != null) {
+            rateLimiter.acquire();
+        }
+        if (adaptiveLimit != null) {
+            adaptiveLimit.acquire();
+            final long dispatchedAt = System.nanoTime();
+            try {
+                executorService.submit(new LimitedRun(toDo, () -> {
+                    boolean success = false;
+                    try {
+                        toDo.run();
+                        success = true;
+                    } finally {
+                        adaptiveLimit.release(System.nanoTime() - dispatchedAt, success);
+                    }
+                }));
+            } catch (RejectedExecutionException e) {
+                adaptiveLimit.cancel();
+                throw e;
+            }
+        } else if (concurrencyLimit != null) {
+            // blocks the dispatcher while the limit is reached, so the backlog stays in the worklist
+            concurrencyLimit.acquireUninterruptibly();
+            try {
+                executorService.execute(new LimitedRun(toDo, () -> {
+                    try {
+                        toDo.run();
+                    } finally {
+                        concurrencyLimit.release();
+                    }
+                }));
+            } catch (RejectedExecutionException e) {
+                concurrencyLimit.release();
+                throw e;
+            }
+        } else {
+            executorService.submit(toDo);
+        }
+        addToStatistic(System.currentTimeMillis() - start, info);
+    }
+
+    /**
+     * Parks the dispatcher until work is pushed or the state changes. The waiting flag is published before the
+     * conditions are checked again, so a producer pushing meanwhile either sees the flag or its work is found.
+     */
+    private void awaitSignal() {
+        dispatcherWaiting = true;
+        if (isRunning && !goesDown && (isPaused || worklist.isEmpty())) {
+            LockSupport.park(this);
+        }
+        dispatcherWaiting = false;
+        if (Thread.interrupted()) {
+            isRunning = false;
+        }
+    }
+
+    private void signalDispatcher(boolean always) {
+        final Thread waiting = dispatcher;
+        if (waiting != null && (always || dispatcherWaiting)) {
+            LockSupport.unpark(waiting);
+        }
+    }
+
     public boolean isIddle() {
         return isIddle && getWorklist().isEmpty();
     }
 
-    public Statistics getStatistics() {
+    /**
+     * Returns the dispatch time statistics, including the queue depth and the rejections.
+     *
+     * @return the statistics
+     */
+    public WorkServiceStatistics getStatistics() {
         if (statistics == null) {
-            statistics = new Statistics();
+            statistics = new WorkServiceStatistics(this);
         }
         return statistics;
     }
 
-    private void setStatistics(Statistics statistics) {
+    private void setStatistics(WorkServiceStatistics statistics) {
         this.statistics = statistics;
     }
 
@@ -184,15 +473,14 @@ public class WorkService<I> {
 
     public WorkService<I> stopWork() {
         isRunning = false;
+        signalDispatcher(true);
         return this;
     }
 
     public WorkService<I> pauseWork(boolean pause) {
         isPaused = pause;
         initState = (short) (isPaused ? INIT_STATE_PAUSED : INIT_STATE_RUNNING);
-        synchronized (worklist) {
-            getWorklist().notifyAll();
-        }
+        signalDispatcher(true);
         return this;
     }
 
@@ -203,6 +491,11 @@ public class WorkService<I> {
     public void shutdown() {
         isRunning = false;
         goesDown = true;
+        signalDispatcher(true);
+        // the remaining units of submitted batches won't run anymore
+        for (WorkBatch batch : activeBatches) {
+            batch.cancel();
+        }
         if (executorService != null)
             executorService.shutdown();
         if (consumerService != null)
@@ -223,6 +516,7 @@ public class WorkService<I> {
             while (initState != INIT_STATE_THREAD_EXIT) {
                 try {
                     goesDown = true;
+                    signalDispatcher(true);
                     sleep(1000);
                     //   System.out.println("waiting for shutdown:" + initState);
                 } catch (InterruptedException ex) {
@@ -235,6 +529,11 @@ public class WorkService<I> {
         return true;
     }
 
+    /**
+     * Returns the queue of work units not yet dispatched. Only the dispatcher may take elements from it.
+     *
+     * @return the work list
+     */
     public Queue<Runnable> getWorklist() {
         return worklist;
     }
@@ -256,53 +555,51 @@ public class WorkService<I> {
 //        });
 //    }
 
+    /**
+     * Pushes the work units and waits until all of them are done, with at most batchSize units in flight.
+     * Failures of single units are not reported, use {@link #submitWorkUnits(List, Object, int)} to get them.
+     */
     public WorkService<I> pushWorkUnit(List<Runnable> works, I info, int batchSize) {
-        int totalSize = works.size();
-        if (totalSize == 0) return this;
-        final List<Runnable> batchWorks = new ArrayList<Runnable>(batchSize);
-        AtomicInteger counter = new AtomicInteger(0);
-        final Object monitor = worklist;
-
-        WorkListener listener = rw -> {
-            synchronized (monitor) {
-                counter.incrementAndGet();
-                monitor.notify();
-            }
-        };
-        listeners.add(listener);
+        if (works.isEmpty()) return this;
         try {
-            int toProcess = totalSize;
-            for (int i = 0; i < totalSize; ) {
-
-                int todoSize = (toProcess >= batchSize) ? batchSize : toProcess;
-                batchWorks.addAll(works.subList(i, i + todoSize));
-                i = i + todoSize;
-                toProcess = toProcess - todoSize;
-
-                for (Runnable work : batchWorks) {
-                    pushWorkUnitInternal(new RunnableWrapper(this, work, info));
-                }
-                while (counter.get() < todoSize) {
-                    synchronized (monitor) {
-                        try {
-                            monitor.wait(200);
-                        } catch (InterruptedException e) {
-                        }
-                    }
-                    if (goesDown) break;
-                }
-                batchWorks.clear();
-                counter.set(0);
-                if ((toProcess == totalSize) || goesDown) {
-                    break;
-                }
-            }
-        } finally {
-            listeners.remove(listener);
+            submitWorkUnits(works, info, batchSize).getCompletion().join();
+        } catch (CompletionException | CancellationException e) {
+            // failed units or a shutdown, the remaining units were run or cancelled
         }
         return this;
     }
 
+    /**
+     * Submits the work units without blocking. At most maxInFlight units of the batch are in the service at a time,
+     * so the caller can submit the next batch while this one drains.
+     *
+     * @param works       the work units
+     * @param info        the info passed to the listeners and statistics
+     * @param maxInFlight the maximum number of units pushed at a time, 0 for all
+     * @return the handle with the futures of the batch and its units
+     */
+    public WorkBatch submitWorkUnits(List<Runnable> works, I info, int maxInFlight) {
+        checkShutdownd();
+        final WorkBatch batch = new WorkBatch(works.size());
+        final List<Runnable> tasks = new ArrayList<>(works.size());
+        for (int i = 0; i < works.size(); i++) {
+            final CompletableFuture<Void> unit = batch.getUnits().get(i);
+            final Runnable work = works.get(i);
+            tasks.add(new RunnableWrapper(this, () -> batch.run(unit, work), info, work));
+        }
+        activeBatches.add(batch);
+        batch.getCompletion().whenComplete((result, failure) -> activeBatches.remove(batch));
+        try {
+            // units released later replace finished ones, they bypass the admission limit
+            batch.start(tasks, maxInFlight, admitted -> pushWorkUnitsInternal(admitted, true),
+                    released -> pushWorkUnitsInternal(released, false));
+        } catch (RejectedExecutionException e) {
+            batch.cancel();
+            throw e;
+        }
+        return batch;
+    }
+
     public WorkService<I> pushWorkUnit(Runnable work, I info) {
         pushWorkUnitInternal(new RunnableWrapper(work, info));
         return this;
@@ -314,17 +611,84 @@ public class WorkService<I> {
 
     private WorkService<I> pushWorkUnitInternal(Runnable work) {
         checkShutdownd();
-        worklist.add(work);
-        synchronized (worklist) {
-            worklist.notifyAll();
+        admit();
+        enqueued.increment();
+        worklist.offer(work);
+        signalDispatcher(false);
+        return this;
+    }
+
+    private void pushWorkUnitsInternal(List<Runnable> works, boolean admit) {
+        checkShutdownd();
+        if (admissionPermits != null) {
+            // admitted one by one, so a blocked producer hands over what fits
+            for (Runnable work : works) {
+                if (admit) {
+                    admit();
+                } else {
+                    admissionPermits.forceAcquire();
+                }
+                enqueued.increment();
+                worklist.offer(work);
+                signalDispatcher(false);
+            }
+            return;
+        }
+        enqueued.add(works.size());
+        // hand over the whole batch with one atomic append and at most one wake up
+        worklist.offerAll(works);
+        signalDispatcher(false);
+    }
+
+    /**
+     * Takes a place in the work list according to the admission mode.
+     *
+     * @throws RejectedExecutionException if the work list is full
+     */
+    private void admit() {
+        if (admissionPermits == null) {
+            return;
+        }
+        boolean admitted;
+        try {
+            switch (admissionMode) {
+                case BLOCK:
+                    admissionPermits.acquire();
+                    admitted = true;
+                    break;
+                case TIMED:
+                    admitted = admissionPermits.tryAcquire(admissionTimeoutMillis, TimeUnit.MILLISECONDS);
+                    break;
+                default:
+                    admitted = admissionPermits.tryAcquire();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            admitted = false;
+        }
+        if (!admitted) {
+            rejected.increment();
+            throw new RejectedExecutionException("WorkService work list is full");
         }
+    }
+
+    /**
+     * Registers a listener called when a work unit of a batch finished.
+     *
+     * @param listener the listener
+     */
+    public WorkService<I> addWorkListener(WorkListener listener) {
+        listeners.add(listener);
         return this;
     }
 
+    public boolean removeWorkListener(WorkListener listener) {
+        return listeners.remove(listener);
+    }
+
     private void notifyDone(RunnableWrapper<I> iRunnableWrapper) {
-        for (WorkListener listener : listeners) {
-            listener.finished(iRunnableWrapper);
-        }
+        // iterates the current snapshot without locking or copying
+        listeners.forEach(listener -> listener.finished(iRunnableWrapper));
     }
 
     private void checkShutdownd() {
@@ -333,18 +697,59 @@ public class WorkService<I> {
         }
     }
 
+    /**
+     * Counts the free places of the work list; units which must not be rejected may take a place beyond the capacity.
+     */
+    private static final class AdmissionSemaphore extends Semaphore {
+        final int capacity;
+
+        AdmissionSemaphore(int capacity) {
+            super(capacity);
+            this.capacity = capacity;
+        }
+
+        void forceAcquire() {
+            reducePermits(1);
+        }
+    }
+
+    /**
+     * Runs a work unit within the concurrency limits and keeps the unit, so the scheduler sees its priority.
+     */
+    private static final class LimitedRun implements Runnable {
+        final Runnable unit;
+        final Runnable run;
+
+        LimitedRun(Runnable unit, Runnable run) {
+            this.unit = unit;
+            this.run = run;
+        }
+
+        @Override
+        public void run() {
+            run.run();
+        }
+    }
+
     class RunnableWrapper<I> implements Runnable {
         I info;
         Runnable run;
+        Runnable unit;
         WorkService<I> work;
 
         RunnableWrapper(Runnable runable, I info) {
             run = runable;
+            unit = runable;
             this.info = info;
         }
 
         RunnableWrapper(WorkService<I> work, Runnable runable, I info) {
+            this(work, runable, info, runable);
+        }
+
+        RunnableWrapper(WorkService<I> work, Runnable runable, I info, Runnable unit) {
             run = runable;
+            this.unit = unit;
             this.info = info;
             this.work = work;
         }
@@ -353,6 +758,13 @@ public class WorkService<I> {
             return run;
         }
 
+        /**
+         * Returns the work unit as pushed by the caller, which differs from {@link #getRun()} for batch units.
+         */
+        public Runnable getUnit() {
+            return unit;
+        }
+
         public I getInfo() {
             return info;
         }
@@ -0,0 +1,54 @@
+package org.basetools.util.concurrent.worker;
+
+import net.minidev.json.JSONObject;
+import org.basetools.util.Statistics;
+
+/**
+ * Statistics of a {@link WorkService}: the dispatch times plus the backpressure state of the service, read live when
+ * exported.
+ *
+ * @param <I> the info type
+ */
+public class WorkServiceStatistics<I> extends Statistics<I> {
+    private final WorkService<?> service;
+
+    WorkServiceStatistics(WorkService<?> service) {
+        super();
+        this.service = service;
+    }
+
+    /**
+     * Returns the number of work units waiting for dispatch.
+     *
+     * @return the queue depth
+     */
+    public long getQueueDepth() {
+        return service.getQueueDepth();
+    }
+
+    /**
+     * Returns the number of work units rejected by the admission limit.
+     *
+     * @return the number of rejections
+     */
+    public long getRejectedCount() {
+        return service.getRejectedCount();
+    }
+
+    @Override
+    public JSONObject toJSON() {
+        final JSONObject result = super.toJSON();
+        result.put("QueueDepth", getQueueDepth());
+        result.put("Rejected", getRejectedCount());
+        if (service.getAdmissionCapacity() > 0) {
+            result.put("AdmissionCapacity", service.getAdmissionCapacity());
+        }
+        if (service.getConcurrencyLimit() != null) {
+            result.put("ConcurrencyLimit", service.getConcurrencyLimit().toJSON());
+        }
+        if (service.getRateLimiter() != null) {
+            result.put("Rate", service.getRateLimiter().getRate());
+        }
+        return result;
+    }
+}
@@ -1,6 +1,7 @@
 package org.basetools.util.info.jmx;
 
 import org.basetools.util.info.SystemInfoManager;
+import org.basetools.util.info.SystemInfoProvider;
 
 public class SystemInfoManagement implements SystemInfoManagementMBean {
 
@@ -12,4 +13,10 @@ public class SystemInfoManagement implements SystemInfoManagementMBean {
     public String getInfo() {
         return SystemInfoManager.getInstance().getInfos().toString();
     }
+
+    @Override
+    public String getProviderInfo(String name) {
+        SystemInfoProvider provider = SystemInfoManager.getInstance().getProvider(name);
+        return provider != null ? provider.getInfo().toString() : null;
+    }
 }
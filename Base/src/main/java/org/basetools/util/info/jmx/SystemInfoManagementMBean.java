@@ -5,4 +5,6 @@ import java.io.IOException;
 public interface SystemInfoManagementMBean {
 
     String getInfo() throws IOException;
+
+    String getProviderInfo(String name) throws IOException;
 }
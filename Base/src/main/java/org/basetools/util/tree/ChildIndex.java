@@ -0,0 +1,212 @@
+package org.basetools.util.tree;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Hash index over the children of a {@link TreeNode}: the first child per name, the first child per explicit ID and
+ * the position of every child. It is built lazily by the owner and updated by its mutators. Appending keeps all
+ * positions valid; inserting or removing in the middle only lowers the mark up to which they are valid, and the
+ * positions behind it are renumbered by the next position lookup.
+ * <p>
+ * Changes of the children list made through {@link TreeNode#getChildren()} are detected if they change its size,
+ * the index is rebuilt then.
+ */
+final class ChildIndex<T, U> {
+    /**
+     * Nodes with fewer children are searched linearly.
+     */
+    static final int MIN_CHILDREN = 16;
+    private final TreeNode<T, U> owner;
+    private final Map<Object, TreeNode<T, U>> byName = new HashMap<>();
+    private final Map<Object, TreeNode<T, U>> byId = new HashMap<>();
+    /**
+     * The number of children without explicit ID, found by their structure ID.
+     */
+    private int anonymous;
+    /**
+     * The positions of the children before this index are valid.
+     */
+    private int validFrom;
+    private int size;
+
+    ChildIndex(TreeNode<T, U> owner) {
+        this.owner = owner;
+        rebuild();
+    }
+
+    private void rebuild() {
+        byName.clear();
+        byId.clear();
+        anonymous = 0;
+        final List<TreeNode<T, U>> children = owner.getChildren();
+        for (int i = 0; i < children.size(); i++) {
+            final TreeNode<T, U> child = children.get(i);
+            if (child == null) {
+                continue;
+            }
+            child._indexPos = i;
+            byName.putIfAbsent(child.getName(), child);
+            if (child._id != null) {
+                byId.putIfAbsent(child._id, child);
+            } else {
+                anonymous++;
+            }
+        }
+        validFrom = children.size();
+        size = children.size();
+    }
+
+    private List<TreeNode<T, U>> checkedChildren() {
+        final List<TreeNode<T, U>> children = owner.getChildren();
+        if (children.size() != size) {
+            rebuild();
+        }
+        return children;
+    }
+
+    TreeNode<T, U> getByName(Object name) {
+        checkedChildren();
+        TreeNode<T, U> found = byName.get(name);
+        if (found != null && (found.getParent() != owner || !Objects.equals(found.getName(), name))) {
+            rebuild();
+            found = byName.get(name);
+        }
+        return found;
+    }
+
+    TreeNode<T, U> getById(Object id) {
+        final List<TreeNode<T, U>> children = checkedChildren();
+        TreeNode<T, U> found = byId.get(id);
+        if (found != null && (found.getParent() != owner || !Objects.equals(found._id, id))) {
+            rebuild();
+            found = byId.get(id);
+        }
+        if (found == null && anonymous > 0) {
+            for (int i = 0; i < children.size(); i++) {
+                final TreeNode<T, U> child = children.get(i);
+                if (child != null && child._id == null && Objects.equals(child.getID(), id)) {
+                    return child;
+                }
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Returns the position of the child, or -1 if it isn't a child of the owner.
+     */
+    int position(TreeNode<T, U> child) {
+        final List<TreeNode<T, U>> children = checkedChildren();
+        if (child.getParent() != owner) {
+            return -1;
+        }
+        int pos = child._indexPos;
+        if (pos < 0 || pos >= validFrom || children.get(pos) != child) {
+            for (int i = validFrom; i < children.size(); i++) {
+                if (children.get(i) != null) {
+                    children.get(i)._indexPos = i;
+                }
+            }
+            validFrom = children.size();
+            pos = child._indexPos;
+            if (pos < 0 || pos >= children.size() || children.get(pos) != child) {
+                return children.indexOf(child);
+            }
+        }
+        return pos;
+    }
+
+    /**
+     * Records the child inserted at the position.
+     */
+    void added(int pos, TreeNode<T, U> child) {
+        if (size + 1 != owner.getChildren().size()) {
+            rebuild();
+            return;
+        }
+        final boolean append = pos == size;
+        size++;
+        if (append && validFrom == pos) {
+            child._indexPos = pos;
+            validFrom++;
+        } else {
+            validFrom = Math.min(validFrom, pos);
+        }
+        putFirst(byName, child.getName(), child, append);
+        if (child._id != null) {
+            putFirst(byId, child._id, child, append);
+        } else {
+            anonymous++;
+        }
+    }
+
+    private void putFirst(Map<Object, TreeNode<T, U>> map, Object key, TreeNode<T, U> child, boolean append) {
+        final TreeNode<T, U> current = map.get(key);
+        if (current == null || (!append && position(child) < position(current))) {
+            map.put(key, child);
+        }
+    }
+
+    /**
+     * Records the child removed from the position.
+     */
+    void removed(int pos, TreeNode<T, U> child) {
+        if (size - 1 != owner.getChildren().size()) {
+            rebuild();
+            return;
+        }
+        size--;
+        validFrom = Math.min(validFrom, pos);
+        removeFirst(byName, child.getName(), child, pos, false);
+        if (child._id != null) {
+            removeFirst(byId, child._id, child, pos, true);
+        } else {
+            anonymous--;
+        }
+    }
+
+    /**
+     * Replaces the mapping of the key to the child by the next child with the same key, which is searched from the
+     * position of the child on.
+     */
+    private void removeFirst(Map<Object, TreeNode<T, U>> map, Object key, TreeNode<T, U> child, int from, boolean id) {
+        if (map.get(key) != child) {
+            return;
+        }
+        map.remove(key);
+        final List<TreeNode<T, U>> children = owner.getChildren();
+        for (int i = from; i < children.size(); i++) {
+            final TreeNode<T, U> next = children.get(i);
+            if (next != null && next != child && Objects.equals(id ? next._id : next.getName(), key)) {
+                map.put(key, next);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Records the name and ID change of the child.
+     */
+    void renamed(TreeNode<T, U> child, Object oldName, String oldId) {
+        checkedChildren();
+        final int pos = position(child);
+        if (pos < 0) {
+            return;
+        }
+        removeFirst(byName, oldName, child, pos, false);
+        if (oldId != null) {
+            removeFirst(byId, oldId, child, pos, true);
+        } else {
+            anonymous--;
+        }
+        putFirst(byName, child.getName(), child, false);
+        if (child._id != null) {
+            putFirst(byId, child._id, child, false);
+        } else {
+            anonymous++;
+        }
+    }
+}
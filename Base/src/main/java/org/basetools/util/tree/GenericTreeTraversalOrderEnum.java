@@ -1,5 +1,9 @@
 package org.basetools.util.tree;
 
+/**
+ * The orders of {@link TreeCursor}. BREADTH_FIRST and LEVEL_ORDER return the nodes level by level; breadth first
+ * keeps a queue of a whole level, level order walks the tree depth first once per level and only keeps a path.
+ */
 public enum GenericTreeTraversalOrderEnum {
-    PRE_ORDER, POST_ORDER
+    PRE_ORDER, POST_ORDER, BREADTH_FIRST, LEVEL_ORDER
 }
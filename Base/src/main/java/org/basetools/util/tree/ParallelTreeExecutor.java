@@ -0,0 +1,320 @@
+package org.basetools.util.tree;
+
+import org.basetools.util.concurrent.worker.WorkService;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.BinaryOperator;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Processes the subtrees of a {@link TreeNode} in parallel. Nodes above the split depth (relative to the start node)
+ * fork their children, deeper subtrees are processed sequentially in pre-order. Sibling subtrees which aren't split
+ * are grouped into tasks of up to siblingBatch subtrees, so wide trees don't create a task per leaf. The partial
+ * results are combined in pre-order, independent of the order in which the tasks ran.
+ * <p>
+ * The tasks run on a {@link ForkJoinPool}, or as work units of a {@link WorkService}. With a WorkService the nodes
+ * above the split depth are processed by the calling thread, which waits for the units and must not be a thread of
+ * the same service. The tree must not be modified while it is processed.
+ */
+public class ParallelTreeExecutor {
+    public static final int DEFAULT_SPLIT_DEPTH = 6;
+    public static final int DEFAULT_SIBLING_BATCH = 64;
+    private final ForkJoinPool pool;
+    private final WorkService<?> workService;
+    private int splitDepth = DEFAULT_SPLIT_DEPTH;
+    private int siblingBatch = DEFAULT_SIBLING_BATCH;
+
+    public ParallelTreeExecutor() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    public ParallelTreeExecutor(ForkJoinPool pool) {
+        this.pool = pool;
+        this.workService = null;
+    }
+
+    /**
+     * @param workService the started service running the subtrees
+     */
+    public ParallelTreeExecutor(WorkService<?> workService) {
+        this.pool = null;
+        this.workService = workService;
+    }
+
+    /**
+     * @param depth the depth up to which nodes fork their children, 0 processes the tree sequentially
+     */
+    public ParallelTreeExecutor withSplitDepth(int depth) {
+        splitDepth = Math.max(0, depth);
+        return this;
+    }
+
+    /**
+     * @param size the maximum number of sibling subtrees processed by one task
+     */
+    public ParallelTreeExecutor withSiblingBatch(int size) {
+        siblingBatch = Math.max(1, size);
+        return this;
+    }
+
+    public int getSplitDepth() {
+        return splitDepth;
+    }
+
+    public int getSiblingBatch() {
+        return siblingBatch;
+    }
+
+    /**
+     * Reduces the node and its subtree.
+     *
+     * @param root    the start node
+     * @param visitor the reduction
+     * @return the combined result, as if the subtree was accumulated sequentially in pre-order
+     */
+    public <T, U, R> R reduce(TreeNode<T, U> root, TreeReduceVisitor<T, U, R> visitor) {
+        if (visitor.doBreak(root)) {
+            return visitor.identity();
+        }
+        if (!isSplit(root, 0)) {
+            return accumulate(visitor.identity(), root, visitor, new ArrayDeque<>());
+        }
+        if (pool != null) {
+            return pool.invoke(new SplitTask<>(root, 0, visitor));
+        }
+        return reduceOnWorkService(root, visitor);
+    }
+
+    /**
+     * Maps every node and reduces the values in pre-order.
+     *
+     * @param identity the identity of the reducer
+     * @param reducer  an associative function
+     */
+    public <T, U, R> R mapReduce(TreeNode<T, U> root, Function<? super TreeNode<T, U>, ? extends R> mapper, R identity,
+                                 BinaryOperator<R> reducer) {
+        return reduce(root, new TreeReduceVisitor<T, U, R>() {
+            @Override
+            public R identity() {
+                return identity;
+            }
+
+            @Override
+            public R accumulate(R result, TreeNode<T, U> node) {
+                return reducer.apply(result, mapper.apply(node));
+            }
+
+            @Override
+            public R combine(R left, R right) {
+                return reducer.apply(left, right);
+            }
+        });
+    }
+
+    /**
+     * Runs the action for the node and its subtree. The action is called concurrently and in no particular order.
+     */
+    public <T, U> void forEach(TreeNode<T, U> root, Consumer<? super TreeNode<T, U>> action) {
+        reduce(root, new TreeReduceVisitor<T, U, Void>() {
+            @Override
+            public Void identity() {
+                return null;
+            }
+
+            @Override
+            public Void accumulate(Void result, TreeNode<T, U> node) {
+                action.accept(node);
+                return null;
+            }
+
+            @Override
+            public Void combine(Void left, Void right) {
+                return null;
+            }
+        });
+    }
+
+    /**
+     * Collects the matching nodes of the subtree, including the start node, in pre-order like
+     * {@link Tree#build(TreeNode, GenericTreeTraversalOrderEnum)}.
+     */
+    public <T, U> List<TreeNode<T, U>> collect(TreeNode<T, U> root, Predicate<? super TreeNode<T, U>> filter) {
+        return reduce(root, new TreeReduceVisitor<T, U, List<TreeNode<T, U>>>() {
+            @Override
+            public List<TreeNode<T, U>> identity() {
+                return new ArrayList<>();
+            }
+
+            @Override
+            public List<TreeNode<T, U>> accumulate(List<TreeNode<T, U>> result, TreeNode<T, U> node) {
+                if (filter.test(node)) {
+                    result.add(node);
+                }
+                return result;
+            }
+
+            @Override
+            public List<TreeNode<T, U>> combine(List<TreeNode<T, U>> left, List<TreeNode<T, U>> right) {
+                left.addAll(right);
+                return left;
+            }
+        });
+    }
+
+    private boolean isSplit(TreeNode<?, ?> node, int depth) {
+        return depth < splitDepth && node.hasChildren();
+    }
+
+    /**
+     * Accumulates the subtree in pre-order, using an explicit stack so deep trees don't overflow the thread stack.
+     */
+    private static <T, U, R> R accumulate(R result, TreeNode<T, U> root, TreeReduceVisitor<T, U, R> visitor,
+                                          ArrayDeque<TreeNode<T, U>> stack) {
+        stack.push(root);
+        while (!stack.isEmpty()) {
+            final TreeNode<T, U> node = stack.pop();
+            if (visitor.doBreak(node)) {
+                continue;
+            }
+            result = visitor.accumulate(result, node);
+            if (node.hasChildren()) {
+                final List<TreeNode<T, U>> children = node.getChildren();
+                for (int c = children.size() - 1; c >= 0; c--) {
+                    stack.push(children.get(c));
+                }
+            }
+        }
+        return result;
+    }
+
+    private static <T, U, R> R accumulate(List<TreeNode<T, U>> roots, TreeReduceVisitor<T, U, R> visitor) {
+        final ArrayDeque<TreeNode<T, U>> stack = new ArrayDeque<>();
+        R result = visitor.identity();
+        for (TreeNode<T, U> root : roots) {
+            result = accumulate(result, root, visitor, stack);
+        }
+        return result;
+    }
+
+    /**
+     * Hands the children of a split node in order to the consumers: children which split on their own one by one,
+     * the others in batches of consecutive siblings.
+     */
+    private <T, U> void split(TreeNode<T, U> node, int depth, TreeReduceVisitor<T, U, ?> visitor,
+                              Consumer<TreeNode<T, U>> splitChild, Consumer<List<TreeNode<T, U>>> batch) {
+        final int childDepth = depth + 1;
+        List<TreeNode<T, U>> siblings = new ArrayList<>();
+        for (TreeNode<T, U> child : node.getChildren()) {
+            if (isSplit(child, childDepth)) {
+                if (!siblings.isEmpty()) {
+                    batch.accept(siblings);
+                    siblings = new ArrayList<>();
+                }
+                if (!visitor.doBreak(child)) {
+                    splitChild.accept(child);
+                }
+            } else {
+                siblings.add(child);
+                if (siblings.size() == siblingBatch) {
+                    batch.accept(siblings);
+                    siblings = new ArrayList<>();
+                }
+            }
+        }
+        if (!siblings.isEmpty()) {
+            batch.accept(siblings);
+        }
+    }
+
+    private <T, U, R> R reduceOnWorkService(TreeNode<T, U> root, TreeReduceVisitor<T, U, R> visitor) {
+        final List<Segment<R>> segments = new ArrayList<>();
+        final List<Runnable> units = new ArrayList<>();
+        plan(root, 0, visitor, segments, units);
+        try {
+            workService.submitWorkUnits(units, null, 0).getCompletion().join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+        R result = visitor.identity();
+        for (Segment<R> segment : segments) {
+            result = visitor.combine(result, segment.result);
+        }
+        return result;
+    }
+
+    /**
+     * Accumulates the split nodes on the calling thread and adds a unit per subtree batch, keeping the segments in
+     * pre-order.
+     */
+    private <T, U, R> void plan(TreeNode<T, U> node, int depth, TreeReduceVisitor<T, U, R> visitor,
+                                List<Segment<R>> segments, List<Runnable> units) {
+        segments.add(new Segment<>(visitor.accumulate(visitor.identity(), node)));
+        split(node, depth, visitor, child -> plan(child, depth + 1, visitor, segments, units), siblings -> {
+            final Segment<R> segment = new Segment<>(null);
+            segments.add(segment);
+            units.add(() -> segment.result = accumulate(siblings, visitor));
+        });
+    }
+
+    /**
+     * Partial result of a split node or of a unit, written by the unit before its batch completes.
+     */
+    private static final class Segment<R> {
+        private R result;
+
+        private Segment(R result) {
+            this.result = result;
+        }
+    }
+
+    private final class SplitTask<T, U, R> extends RecursiveTask<R> {
+        private final TreeNode<T, U> node;
+        private final int depth;
+        private final TreeReduceVisitor<T, U, R> visitor;
+
+        private SplitTask(TreeNode<T, U> node, int depth, TreeReduceVisitor<T, U, R> visitor) {
+            this.node = node;
+            this.depth = depth;
+            this.visitor = visitor;
+        }
+
+        @Override
+        protected R compute() {
+            final List<ForkJoinTask<R>> tasks = new ArrayList<>();
+            split(node, depth, visitor, child -> tasks.add(new SplitTask<>(child, depth + 1, visitor)),
+                    siblings -> tasks.add(new BatchTask<>(siblings, visitor)));
+            R result = visitor.accumulate(visitor.identity(), node);
+            ForkJoinTask.invokeAll(tasks);
+            for (ForkJoinTask<R> task : tasks) {
+                result = visitor.combine(result, task.join());
+            }
+            return result;
+        }
+    }
+
+    private static final class BatchTask<T, U, R> extends RecursiveTask<R> {
+        private final List<TreeNode<T, U>> roots;
+        private final TreeReduceVisitor<T, U, R> visitor;
+
+        private BatchTask(List<TreeNode<T, U>> roots, TreeReduceVisitor<T, U, R> visitor) {
+            this.roots = roots;
+            this.visitor = visitor;
+        }
+
+        @Override
+        protected R compute() {
+            return accumulate(roots, visitor);
+        }
+    }
+}
@@ -10,11 +10,51 @@ import java.util.Map;
 public class Tree<T, U> {
     private final Map<Object, TreeNode<T, U>> cache = new HashMap<>();
     private TreeNode<T, U> root;
+    private boolean childIndex;
+    private boolean index;
 
     public Tree() {
         super();
     }
 
+    /**
+     * Enables hash indexes over the children of the nodes, so looking up a child by name or ID and the position of a
+     * node take constant time. The indexes are built lazily for nodes with many children.
+     *
+     * @param use true to index the children of the root and of all nodes added later
+     */
+    public Tree<T, U> withChildIndex(boolean use) {
+        childIndex = use;
+        if (root != null) {
+            root.setChildIndexEnabled(use);
+        }
+        return this;
+    }
+
+    public boolean isChildIndex() {
+        return childIndex;
+    }
+
+    /**
+     * Enables the index over all nodes of the tree, so finding nodes by data or ID and getting their paths don't scan
+     * the tree. The index is rebuilt lazily after the tree changed, see {@link TreeNode#setTreeIndexEnabled(boolean)}.
+     * Nodes which aren't in the cache are found by {@link #find(Object)} through the index. Lookups on an indexed tree
+     * are not thread safe.
+     *
+     * @param use true to index the tree of the current and of later roots
+     */
+    public Tree<T, U> withIndex(boolean use) {
+        index = use;
+        if (root != null) {
+            root.setTreeIndexEnabled(use);
+        }
+        return this;
+    }
+
+    public boolean isIndex() {
+        return index;
+    }
+
     public int getNumberOfNodes() {
         int numberOfNodes = 0;
         if (root != null) {
@@ -37,14 +77,18 @@ public class Tree<T, U> {
             buildPreOrder(node, traversalResult);
         } else if (traversalOrder == GenericTreeTraversalOrderEnum.POST_ORDER) {
             buildPostOrder(node, traversalResult);
+        } else if (traversalOrder != null) {
+            node.cursor(traversalOrder).forEachRemaining(traversalResult::add);
         }
         return traversalResult;
     }
 
     private int auxiliaryGetNumberOfNodes(TreeNode<T, U> node) {
-        int numberOfNodes = node.size();
-        for (TreeNode<T, U> child : node.getChildren()) {
-            numberOfNodes += auxiliaryGetNumberOfNodes(child);
+        final TreeCursor<T, U> cursor = node.cursor(GenericTreeTraversalOrderEnum.PRE_ORDER);
+        int numberOfNodes = -1; // without the node itself
+        while (cursor.hasNext()) {
+            cursor.next();
+            numberOfNodes++;
         }
         return numberOfNodes;
     }
@@ -69,7 +113,9 @@ public class Tree<T, U> {
 
     public TreeNode<T, U> find(TreeNode<T, U> nodeToFind) {
         TreeNode<T, U> returnNode = null;
-        if (root != null) {
+        if (root != null && root.isTreeIndexEnabled()) {
+            returnNode = root.find(nodeToFind);
+        } else if (root != null) {
             returnNode = auxiliaryFind(root, nodeToFind);
         }
         return returnNode;
@@ -136,6 +182,12 @@ public class Tree<T, U> {
     public void setRoot(TreeNode<T, U> root) {
         cache.clear();
         cache.put(root.getID(), root);
+        if (childIndex && !root.isChildIndexEnabled()) {
+            root.setChildIndexEnabled(true);
+        }
+        if (index && !root.isTreeIndexEnabled()) {
+            root.setTreeIndexEnabled(true);
+        }
         this.root = root;
     }
 
@@ -161,20 +213,15 @@ public class Tree<T, U> {
     }
 
     private TreeNode<T, U> auxiliaryFind(TreeNode<T, U> currentNode, TreeNode<T, U> nodeToFind) {
-        TreeNode<T, U> returnNode = null;
-        int i = 0;
-        if (currentNode.equals(nodeToFind)) {
-            returnNode = currentNode;
-        } else if (currentNode.getData() == nodeToFind.getData() && currentNode.getUserObject() == nodeToFind.getUserObject()) {
-            returnNode = currentNode;
-        } else if (currentNode.hasChildren()) {
-            i = 0;
-            while (returnNode == null && i < currentNode.size()) {
-                returnNode = auxiliaryFind(currentNode.get(i), nodeToFind);
-                i++;
+        final TreeCursor<T, U> cursor = currentNode.cursor(GenericTreeTraversalOrderEnum.PRE_ORDER);
+        while (cursor.hasNext()) {
+            final TreeNode<T, U> node = cursor.next();
+            if (node.equals(nodeToFind)
+                    || node.getData() == nodeToFind.getData() && node.getUserObject() == nodeToFind.getUserObject()) {
+                return node;
             }
         }
-        return returnNode;
+        return null;
     }
 
     public boolean isEmpty() {
@@ -182,31 +229,25 @@ public class Tree<T, U> {
     }
 
     private void buildPreOrder(TreeNode<T, U> node, List<TreeNode<T, U>> traversalResult) {
-        traversalResult.add(node);
-        for (TreeNode<T, U> child : node.getChildren()) {
-            buildPreOrder(child, traversalResult);
-        }
+        node.cursor(GenericTreeTraversalOrderEnum.PRE_ORDER).forEachRemaining(traversalResult::add);
     }
 
     private void buildPostOrder(TreeNode<T, U> node, List<TreeNode<T, U>> traversalResult) {
-        for (TreeNode<T, U> child : node.getChildren()) {
-            buildPostOrder(child, traversalResult);
-        }
-        traversalResult.add(node);
+        node.cursor(GenericTreeTraversalOrderEnum.POST_ORDER).forEachRemaining(traversalResult::add);
     }
 
     private void buildPreOrderWithDepth(TreeNode<T, U> node, Map<TreeNode<T, U>, Integer> traversalResult, int depth) {
-        traversalResult.put(node, depth);
-        for (TreeNode<T, U> child : node.getChildren()) {
-            buildPreOrderWithDepth(child, traversalResult, depth + 1);
+        final TreeCursor<T, U> cursor = node.cursor(GenericTreeTraversalOrderEnum.PRE_ORDER);
+        while (cursor.hasNext()) {
+            traversalResult.put(cursor.next(), depth + cursor.getDepth());
         }
     }
 
     private void buildPostOrderWithDepth(TreeNode<T, U> node, Map<TreeNode<T, U>, Integer> traversalResult, int depth) {
-        for (TreeNode<T, U> child : node.getChildren()) {
-            buildPostOrderWithDepth(child, traversalResult, depth + 1);
+        final TreeCursor<T, U> cursor = node.cursor(GenericTreeTraversalOrderEnum.POST_ORDER);
+        while (cursor.hasNext()) {
+            traversalResult.put(cursor.next(), depth + cursor.getDepth());
         }
-        traversalResult.put(node, depth);
     }
 
     /**
@@ -295,7 +336,11 @@ public class Tree<T, U> {
     }
 
     public TreeNode<T, U> find(Object parentID) {
-        return cache.get(parentID);
+        TreeNode<T, U> node = cache.get(parentID);
+        if (node == null && index && root != null && parentID != null) {
+            node = root.findNodeByID(parentID);
+        }
+        return node;
     }
 
     public TreeNode<T, U> getLastNode() {
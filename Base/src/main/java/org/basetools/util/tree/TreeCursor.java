@@ -0,0 +1,363 @@
+package org.basetools.util.tree;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Iterates the subtree of a node without recursion, so trees of any depth can be traversed. The depth first orders
+ * keep the path to the current node, breadth first keeps a queue of the current and the next level; both are arrays
+ * which only grow, so a cursor allocates nothing per node and can be reused for other subtrees with
+ * {@link #reset(TreeNode)}.
+ * <p>
+ * Nodes matching the break predicate are skipped together with their subtrees, like
+ * {@link TreeVisitor#doBreak(TreeNode)}. The tree must not be changed structurally while it is iterated. A cursor is
+ * not thread safe.
+ *
+ * @see TreeNode#cursor(GenericTreeTraversalOrderEnum)
+ * @see TreeNode#stream(GenericTreeTraversalOrderEnum)
+ */
+public final class TreeCursor<T, U> implements Iterator<TreeNode<T, U>> {
+    private static final int INITIAL_CAPACITY = 16;
+    private final GenericTreeTraversalOrderEnum order;
+    private Predicate<? super TreeNode<T, U>> breakPredicate;
+    private int level = -1;
+    private TreeNode<T, U> root;
+    // depth first: the path to the current node and the next child position per node on it
+    private TreeNode<T, U>[] path;
+    private int[] childPos;
+    private int top;
+    // breadth first: a circular queue and the number of nodes left in the current and queued for the next level
+    private TreeNode<T, U>[] queue;
+    private int head;
+    private int count;
+    private int levelRemaining;
+    private int nextLevelCount;
+    // level order: the level of the current pass and whether a node was found below it
+    private int passLevel;
+    private boolean deeper;
+    private TreeNode<T, U> current;
+    private int depth;
+    private boolean skipChildren;
+    private boolean started;
+    private TreeNode<T, U> next;
+    private int nextDepth;
+    private boolean nextReady;
+
+    public TreeCursor(GenericTreeTraversalOrderEnum order) {
+        this.order = order;
+    }
+
+    /**
+     * @param breakPredicate nodes to skip together with their subtrees, null to visit all nodes
+     */
+    public TreeCursor<T, U> withBreak(Predicate<? super TreeNode<T, U>> breakPredicate) {
+        this.breakPredicate = breakPredicate;
+        return this;
+    }
+
+    /**
+     * Restricts a LEVEL_ORDER cursor to the nodes of one level.
+     *
+     * @param level the depth relative to the start node, 0 is the start node, negative for all levels
+     */
+    public TreeCursor<T, U> withLevel(int level) {
+        this.level = level;
+        return this;
+    }
+
+    public GenericTreeTraversalOrderEnum getOrder() {
+        return order;
+    }
+
+    /**
+     * Starts iterating the subtree of the node, dropping the state of the previous iteration.
+     *
+     * @param root the start node, included in the iteration
+     */
+    @SuppressWarnings("unchecked")
+    public TreeCursor<T, U> reset(TreeNode<T, U> root) {
+        this.root = root;
+        if (order == GenericTreeTraversalOrderEnum.BREADTH_FIRST) {
+            if (queue == null) {
+                queue = new TreeNode[INITIAL_CAPACITY];
+            } else {
+                Arrays.fill(queue, null);
+            }
+            head = 0;
+            count = 0;
+            levelRemaining = 0;
+            nextLevelCount = 0;
+            depth = -1;
+            if (root != null && !breaks(root)) {
+                enqueue(root);
+            }
+        } else {
+            clearPath();
+            passLevel = level >= 0 ? level : 0;
+            deeper = false;
+            if (root != null && !breaks(root)) {
+                push(root);
+            }
+        }
+        current = null;
+        next = null;
+        nextReady = false;
+        skipChildren = false;
+        started = false;
+        return this;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void clearPath() {
+        if (path == null) {
+            path = new TreeNode[INITIAL_CAPACITY];
+            childPos = new int[INITIAL_CAPACITY];
+        } else {
+            Arrays.fill(path, null);
+        }
+        top = -1;
+    }
+
+    private boolean breaks(TreeNode<T, U> node) {
+        return breakPredicate != null && breakPredicate.test(node);
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (!nextReady) {
+            next = advance();
+            nextReady = true;
+        }
+        return next != null;
+    }
+
+    @Override
+    public TreeNode<T, U> next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        current = next;
+        depth = nextDepth;
+        next = null;
+        nextReady = false;
+        return current;
+    }
+
+    /**
+     * Returns the depth of the node last returned by {@link #next()}, relative to the start node.
+     */
+    public int getDepth() {
+        return depth;
+    }
+
+    /**
+     * Doesn't descend into the children of the node last returned by {@link #next()}. Only supported by PRE_ORDER and
+     * BREADTH_FIRST, in the other orders the children are already visited or visited in a later pass.
+     */
+    public void skipChildren() {
+        if (order != GenericTreeTraversalOrderEnum.PRE_ORDER && order != GenericTreeTraversalOrderEnum.BREADTH_FIRST) {
+            throw new UnsupportedOperationException("skipChildren is not supported in " + order);
+        }
+        if (nextReady) {
+            throw new IllegalStateException("skipChildren must be called before hasNext");
+        }
+        skipChildren = true;
+    }
+
+    /**
+     * Returns the remaining nodes as lazy stream, consuming this cursor.
+     */
+    public Stream<TreeNode<T, U>> stream() {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(this, Spliterator.ORDERED
+                | Spliterator.NONNULL), false);
+    }
+
+    /**
+     * Visits the subtree with start and end events, like {@link TreeNode#accept(TreeVisitor)}: the end of a node is
+     * visited after its subtree. Nodes for which the visitor breaks are neither started nor ended. The order of the
+     * cursor isn't used.
+     */
+    public void visit(TreeNode<T, U> root, TreeVisitor<T, U> visitor) {
+        reset(null);
+        clearPath();
+        if (visitor.doBreak(root)) {
+            return;
+        }
+        visitor.visitStart(root);
+        push(root);
+        while (top >= 0) {
+            final TreeNode<T, U> node = path[top];
+            final int pos = childPos[top];
+            if (pos < node.size()) {
+                childPos[top] = pos + 1;
+                final TreeNode<T, U> child = node.get(pos);
+                if (!visitor.doBreak(child)) {
+                    visitor.visitStart(child);
+                    push(child);
+                }
+            } else {
+                path[top--] = null;
+                visitor.visitEnd(node);
+            }
+        }
+    }
+
+    private TreeNode<T, U> advance() {
+        switch (order) {
+            case PRE_ORDER:
+                return advancePreOrder();
+            case POST_ORDER:
+                return advancePostOrder();
+            case BREADTH_FIRST:
+                return advanceBreadthFirst();
+            case LEVEL_ORDER:
+                return advanceLevelOrder();
+            default:
+                throw new IllegalStateException("unsupported order " + order);
+        }
+    }
+
+    private TreeNode<T, U> advancePreOrder() {
+        if (!started) {
+            // the root is pushed by reset
+            started = true;
+            nextDepth = 0;
+            return top == 0 ? root : null;
+        }
+        if (skipChildren) {
+            skipChildren = false;
+            childPos[top] = Integer.MAX_VALUE;
+        }
+        while (top >= 0) {
+            final TreeNode<T, U> node = path[top];
+            final int pos = childPos[top];
+            if (pos < node.size()) {
+                childPos[top] = pos + 1;
+                final TreeNode<T, U> child = node.get(pos);
+                if (!breaks(child)) {
+                    push(child);
+                    nextDepth = top;
+                    return child;
+                }
+            } else {
+                path[top--] = null;
+            }
+        }
+        return null;
+    }
+
+    private TreeNode<T, U> advancePostOrder() {
+        while (top >= 0) {
+            final TreeNode<T, U> node = path[top];
+            final int pos = childPos[top];
+            if (pos < node.size()) {
+                childPos[top] = pos + 1;
+                final TreeNode<T, U> child = node.get(pos);
+                if (!breaks(child)) {
+                    push(child);
+                }
+            } else {
+                nextDepth = top;
+                path[top--] = null;
+                return node;
+            }
+        }
+        return null;
+    }
+
+    private TreeNode<T, U> advanceBreadthFirst() {
+        if (current != null) {
+            if (skipChildren) {
+                skipChildren = false;
+            } else {
+                for (int c = 0; c < current.size(); c++) {
+                    final TreeNode<T, U> child = current.get(c);
+                    if (!breaks(child)) {
+                        enqueue(child);
+                    }
+                }
+            }
+            // only the children of the last node are enqueued, so the cursor doesn't hold it
+            current = null;
+        }
+        if (count == 0) {
+            return null;
+        }
+        if (levelRemaining == 0) {
+            levelRemaining = nextLevelCount;
+            nextLevelCount = 0;
+            nextDepth = depth + 1;
+        } else {
+            nextDepth = depth;
+        }
+        levelRemaining--;
+        final TreeNode<T, U> node = queue[head];
+        queue[head] = null;
+        head = (head + 1) & (queue.length - 1);
+        count--;
+        return node;
+    }
+
+    private void enqueue(TreeNode<T, U> node) {
+        if (count == queue.length) {
+            final TreeNode<T, U>[] grown = Arrays.copyOf(queue, queue.length * 2);
+            // unwrap the circular part behind the old end
+            System.arraycopy(queue, 0, grown, queue.length, head);
+            Arrays.fill(grown, 0, head, null);
+            queue = grown;
+        }
+        queue[(head + count) & (queue.length - 1)] = node;
+        count++;
+        nextLevelCount++;
+    }
+
+    /**
+     * Walks the tree depth first up to the level of the pass and returns its nodes; without a fixed level the next
+     * pass is started as long as a node had children at the level of the previous pass.
+     */
+    private TreeNode<T, U> advanceLevelOrder() {
+        while (true) {
+            while (top >= 0) {
+                final TreeNode<T, U> node = path[top];
+                final int pos = childPos[top];
+                if (top == passLevel && pos == 0) {
+                    // first time on the path: return it, don't descend
+                    childPos[top] = Integer.MAX_VALUE;
+                    deeper |= node.size() > 0;
+                    nextDepth = top;
+                    return node;
+                }
+                if (top < passLevel && pos < node.size()) {
+                    childPos[top] = pos + 1;
+                    final TreeNode<T, U> child = node.get(pos);
+                    if (!breaks(child)) {
+                        push(child);
+                    }
+                } else {
+                    path[top--] = null;
+                }
+            }
+            if (level >= 0 || !deeper || root == null || breaks(root)) {
+                return null;
+            }
+            passLevel++;
+            deeper = false;
+            push(root);
+        }
+    }
+
+    private void push(TreeNode<T, U> node) {
+        if (++top == path.length) {
+            path = Arrays.copyOf(path, path.length * 2);
+            childPos = Arrays.copyOf(childPos, childPos.length * 2);
+        }
+        path[top] = node;
+        childPos[top] = 0;
+    }
+}
@@ -0,0 +1,345 @@
+package org.basetools.util.tree;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Index over all nodes of a tree: data to nodes (by identity and by equality), ID to nodes and the cached paths. Every
+ * node of the tree refers to the index and invalidates the affected part when it changes: a change of the structure
+ * drops the whole index, a change of an ID only the IDs and paths, of the data only the data maps and of the list flag
+ * only the paths. Changes of user objects don't touch the index, they are compared while looking up.
+ * <p>
+ * A dropped part isn't rebuilt by the next lookup: up to {@value #SCANS_BEFORE_REBUILD} lookups after a change scan
+ * the tree like an unindexed tree, only further lookups rebuild it. So alternating small changes and lookups costs no
+ * more than the early-exit scan, while a series of lookups soon runs on the index again. The paths are cached until
+ * the next change.
+ * <p>
+ * Nodes are numbered in pre-order, so a lookup started at any node of the tree is restricted to its subtree by the
+ * numbers and returns the same node as the scan it replaces. Data used for equality lookups must implement hashCode
+ * consistently with equals. Changes made directly through {@link TreeNode#getChildren()} are not seen.
+ * <p>
+ * Lookups update the index and the nodes' index state, so unlike lookups on an unindexed tree they are not thread
+ * safe, concurrent lookups on an indexed tree have to be synchronized by the caller.
+ */
+final class TreeIndex<T, U> {
+    /**
+     * The number of lookups after a change which scan the tree before the index is rebuilt
+     */
+    static final int SCANS_BEFORE_REBUILD = 4;
+    private static final AtomicLong VERSIONS = new AtomicLong();
+    private final TreeNode<T, U> root;
+    private boolean dirty = true;
+    private int scans;
+    private long version;
+    private long pathVersion = VERSIONS.incrementAndGet();
+    private final List<TreeNode<T, U>> order = new ArrayList<>();
+    private Map<Object, Object> byDataIdentity;
+    private Map<Object, Object> byData;
+    private Map<Object, Object> byId;
+
+    /**
+     * The kinds of lookups, each one uses its own map.
+     */
+    enum Lookup {
+        DATA_IDENTITY, DATA, ID
+    }
+
+    TreeIndex(TreeNode<T, U> root) {
+        this.root = root;
+    }
+
+    TreeNode<T, U> getRoot() {
+        return root;
+    }
+
+    /**
+     * Drops the whole index after a change of the structure.
+     */
+    void invalidate() {
+        dirty = true;
+        byDataIdentity = null;
+        byData = null;
+        byId = null;
+        scans = 0;
+        invalidatePaths();
+    }
+
+    void invalidateIds() {
+        byId = null;
+        scans = 0;
+        invalidatePaths();
+    }
+
+    void invalidateData() {
+        byDataIdentity = null;
+        byData = null;
+        scans = 0;
+    }
+
+    /**
+     * Drops the cached paths. Versions are unique over all indexes, so stamps of nodes moved between trees never match
+     * by accident.
+     */
+    void invalidatePaths() {
+        pathVersion = VERSIONS.incrementAndGet();
+    }
+
+    /**
+     * Tells whether the lookup can use the index, rebuilding the parts it needs unless the lookup should still scan
+     * after a change.
+     *
+     * @param node   the node the lookup starts at
+     * @param lookup the kind of lookup
+     * @return true if the node belongs to the indexed tree and the index is up to date
+     */
+    boolean isUsable(TreeNode<T, U> node, Lookup lookup) {
+        if (dirty || map(lookup) == null) {
+            if (scans < SCANS_BEFORE_REBUILD) {
+                scans++;
+                return false;
+            }
+            if (dirty) {
+                dirty = false;
+                version = VERSIONS.incrementAndGet();
+                number(version);
+            }
+        }
+        return node._indexVersion == version;
+    }
+
+    private Map<Object, Object> map(Lookup lookup) {
+        switch (lookup) {
+            case DATA_IDENTITY:
+                return byDataIdentity;
+            case DATA:
+                return byData;
+            default:
+                return byId;
+        }
+    }
+
+    private void number(long current) {
+        order.clear();
+        final Deque<TreeNode<T, U>> stack = new ArrayDeque<>();
+        stack.push(root);
+        while (!stack.isEmpty()) {
+            final TreeNode<T, U> node = stack.pop();
+            node._indexVersion = current;
+            node._preOrder = order.size();
+            order.add(node);
+            if (node.children != null) {
+                for (int c = node.children.size() - 1; c >= 0; c--) {
+                    stack.push(node.children.get(c));
+                }
+            }
+        }
+        // in reverse pre-order the children are done before their parent, the last child ends the parent's subtree
+        for (int i = order.size() - 1; i >= 0; i--) {
+            final TreeNode<T, U> node = order.get(i);
+            node._subtreeEnd = node.hasChildren() ? node.get(node.size() - 1)._subtreeEnd : i + 1;
+        }
+    }
+
+    private Map<Object, Object> byDataIdentity() {
+        if (byDataIdentity == null) {
+            byDataIdentity = new IdentityHashMap<>();
+            for (TreeNode<T, U> node : order) {
+                put(byDataIdentity, node.getData(), node);
+            }
+        }
+        return byDataIdentity;
+    }
+
+    private Map<Object, Object> byData() {
+        if (byData == null) {
+            byData = new HashMap<>();
+            for (TreeNode<T, U> node : order) {
+                if (node.getData() != null) {
+                    put(byData, node.getData(), node);
+                }
+            }
+        }
+        return byData;
+    }
+
+    private Map<Object, Object> byId() {
+        if (byId == null) {
+            byId = new HashMap<>();
+            for (TreeNode<T, U> node : order) {
+                put(byId, node.getID(), node);
+            }
+        }
+        return byId;
+    }
+
+    /**
+     * Maps the key to the node, or to the list of nodes in pre-order if there are several.
+     */
+    @SuppressWarnings("unchecked")
+    private static <T, U> void put(Map<Object, Object> map, Object key, TreeNode<T, U> node) {
+        final Object current = map.putIfAbsent(key, node);
+        if (current instanceof TreeNode) {
+            final List<TreeNode<T, U>> nodes = new ArrayList<>(2);
+            nodes.add((TreeNode<T, U>) current);
+            nodes.add(node);
+            map.put(key, nodes);
+        } else if (current != null) {
+            ((List<TreeNode<T, U>>) current).add(node);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T, U> List<TreeNode<T, U>> nodes(Object value) {
+        if (value == null) {
+            return Collections.emptyList();
+        }
+        if (value instanceof TreeNode) {
+            return Collections.singletonList((TreeNode<T, U>) value);
+        }
+        return (List<TreeNode<T, U>>) value;
+    }
+
+    /**
+     * Returns the position of the first node in the subtree of from, or nodes.size() if there is none.
+     */
+    private static <T, U> int firstInSubtree(List<TreeNode<T, U>> nodes, TreeNode<T, U> from) {
+        int low = 0;
+        int high = nodes.size();
+        while (low < high) {
+            final int mid = (low + high) >>> 1;
+            if (nodes.get(mid)._preOrder < from._preOrder) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Returns the first node of the subtree, in pre-order, whose data is the data and whose user object is the user
+     * object if matchUserObject is set.
+     */
+    TreeNode<T, U> findByDataIdentity(TreeNode<T, U> from, Object data, boolean matchUserObject, U userObject) {
+        final List<TreeNode<T, U>> nodes = nodes(byDataIdentity().get(data));
+        for (int i = firstInSubtree(nodes, from); i < nodes.size(); i++) {
+            final TreeNode<T, U> node = nodes.get(i);
+            if (node._preOrder >= from._subtreeEnd) {
+                break;
+            }
+            if (!matchUserObject || node.getUserObject() == userObject) {
+                return node;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the nodes of the subtree whose data equals the data, in pre-order.
+     */
+    List<TreeNode<T, U>> findByData(TreeNode<T, U> from, Object data) {
+        final List<TreeNode<T, U>> nodes = nodes(byData().get(data));
+        final int start = firstInSubtree(nodes, from);
+        int end = start;
+        while (end < nodes.size() && nodes.get(end)._preOrder < from._subtreeEnd) {
+            end++;
+        }
+        return nodes.subList(start, end);
+    }
+
+    /**
+     * Returns the first node of the subtree with the ID.
+     */
+    TreeNode<T, U> findById(TreeNode<T, U> from, Object id) {
+        final List<TreeNode<T, U>> nodes = nodes(byId().get(id));
+        final int i = firstInSubtree(nodes, from);
+        return i < nodes.size() && nodes.get(i)._preOrder < from._subtreeEnd ? nodes.get(i) : null;
+    }
+
+    /**
+     * Returns the nearest node with the ID among the node and its ancestors within the tree.
+     */
+    TreeNode<T, U> findAncestorById(TreeNode<T, U> from, Object id) {
+        final List<TreeNode<T, U>> nodes = nodes(byId().get(id));
+        // candidates numbered up to from, the nearest ancestor is the last one whose subtree contains from
+        int i = firstInSubtree(nodes, from);
+        if (i < nodes.size() && nodes.get(i) == from) {
+            return from;
+        }
+        for (i--; i >= 0; i--) {
+            final TreeNode<T, U> node = nodes.get(i);
+            if (node._subtreeEnd > from._preOrder) {
+                return node;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the path of the node like {@link TreeNode#createPath(StringBuffer, java.util.function.Function)} with
+     * the IDs as names. The path is built on the cached path of the nearest ancestor and cached itself; the paths of
+     * the ancestors in between aren't cached, so deep trees don't keep a path per level.
+     */
+    String getPath(TreeNode<T, U> node) {
+        final long current = pathVersion;
+        if (node._pathVersion == current) {
+            return node._path;
+        }
+        final TreeNode<T, U> parent = node.getParent();
+        if (parent != null && parent._treeIndex == this && parent._pathVersion == current) {
+            final StringBuilder sb = new StringBuilder(parent._path.length() + 16).append(parent._path);
+            append(sb, node);
+            node._path = sb.toString();
+            node._pathVersion = current;
+            return node._path;
+        }
+        final Deque<TreeNode<T, U>> uncached = new ArrayDeque<>();
+        TreeNode<T, U> top = node;
+        while (top != null && (top == node || top._treeIndex != this || top._pathVersion != current)) {
+            if (top._treeIndex != this) {
+                // above the indexed tree
+                uncached.push(top);
+                top = null;
+                break;
+            }
+            uncached.push(top);
+            top = top.getParent();
+        }
+        final StringBuilder sb = new StringBuilder();
+        if (top != null) {
+            sb.append(top._path);
+        }
+        if (uncached.peek()._treeIndex != this) {
+            sb.append(uncached.pop().getPath());
+        }
+        while (!uncached.isEmpty()) {
+            append(sb, uncached.pop());
+        }
+        node._path = sb.toString();
+        node._pathVersion = current;
+        return node._path;
+    }
+
+    private static <T, U> void append(StringBuilder sb, TreeNode<T, U> node) {
+        final String name = node.getID();
+        final TreeNode<T, U> parent = node.getParent();
+        if (TreeNode.SKIP_MARKER == name) {
+            sb.setLength(0);
+        } else if (parent == null) {
+            sb.setLength(0);
+            sb.append('/').append(name);
+        } else if (!node.isList()) {
+            sb.append('/').append(name);
+            if (parent.isList() && parent.size() > 0) {
+                sb.append('[').append(node.getPos() + 1).append(']');
+            }
+        }
+    }
+}
@@ -17,6 +17,7 @@ import java.util.function.Function;
 import java.util.function.Predicate;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import java.util.stream.Stream;
 
 public class TreeNode<T, U> {
     public static final String FIND_WILDCARD = "*";
@@ -34,6 +35,22 @@ public class TreeNode<T, U> {
 
     protected boolean _isList;
     protected boolean _isRecursive;
+    protected ChildIndex<T, U> _childIndex;
+    protected boolean _childIndexEnabled;
+    /**
+     * The position within the parent's children, maintained by the parent's {@link ChildIndex}.
+     */
+    int _indexPos = -1;
+    protected TreeIndex<T, U> _treeIndex;
+    /**
+     * The state maintained by the {@link TreeIndex}: the version the node was numbered in, its pre-order number, the
+     * end of its subtree's numbers and the cached path.
+     */
+    long _indexVersion;
+    int _preOrder;
+    int _subtreeEnd;
+    String _path;
+    long _pathVersion;
 
     public TreeNode(TreeNode<T, U> parent, T data, U usrobj, boolean add) {
         this(data, usrobj);
@@ -95,9 +112,119 @@ public class TreeNode<T, U> {
         depth = -1;
         getChildren().add(child);
         child.setParent(this);
+        childAdded(children.size() - 1, child);
         return child;
     }
 
+    private void childAdded(int index, TreeNode<T, U> child) {
+        if (child._childIndexEnabled != _childIndexEnabled) {
+            child.setChildIndexEnabled(_childIndexEnabled);
+        }
+        if (_childIndex != null) {
+            _childIndex.added(index, child);
+        }
+        if (child._treeIndex != _treeIndex) {
+            child.setTreeIndex(_treeIndex);
+        }
+        modified();
+    }
+
+    /**
+     * Marks the tree index dirty, called by the mutators changing the structure.
+     */
+    private void modified() {
+        if (_treeIndex != null) {
+            _treeIndex.invalidate();
+        }
+    }
+
+    /**
+     * Enables or disables the index over all nodes of the tree, see {@link Tree#withIndex(boolean)}. It has to be
+     * called on the root, the paths of the nodes are cached and not updated on changes above it. Lookups on an indexed
+     * tree update the index, so they are not thread safe.
+     *
+     * @param enabled true to find nodes by data and ID and to get their paths without scanning the tree
+     */
+    public void setTreeIndexEnabled(boolean enabled) {
+        setTreeIndex(enabled ? new TreeIndex<>(this) : null);
+    }
+
+    public boolean isTreeIndexEnabled() {
+        return _treeIndex != null;
+    }
+
+    private void setTreeIndex(TreeIndex<T, U> index) {
+        if (_treeIndex != null) {
+            _treeIndex.invalidate();
+        }
+        final Deque<TreeNode<T, U>> stack = new ArrayDeque<>();
+        stack.push(this);
+        while (!stack.isEmpty()) {
+            final TreeNode<T, U> node = stack.pop();
+            node._treeIndex = index;
+            node._path = null;
+            if (node.children != null) {
+                for (TreeNode<T, U> child : node.children) {
+                    if (child != null && child._treeIndex != index) {
+                        stack.push(child);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the tree index if this node belongs to the indexed tree and the index can be used for the lookup,
+     * otherwise null to scan the tree.
+     */
+    private TreeIndex<T, U> treeIndex(TreeIndex.Lookup lookup) {
+        return _treeIndex != null && _treeIndex.isUsable(this, lookup) ? _treeIndex : null;
+    }
+
+    /**
+     * Enables or disables the hash index over the children of this node and all its descendants, see
+     * {@link Tree#withChildIndex(boolean)}. Children added later inherit the setting of their parent.
+     *
+     * @param enabled true to look up children by name or ID and positions in constant time
+     */
+    public void setChildIndexEnabled(boolean enabled) {
+        final Deque<TreeNode<T, U>> stack = new ArrayDeque<>();
+        stack.push(this);
+        while (!stack.isEmpty()) {
+            final TreeNode<T, U> node = stack.pop();
+            node._childIndexEnabled = enabled;
+            node._childIndex = null;
+            if (node.children != null) {
+                for (TreeNode<T, U> child : node.children) {
+                    if (child != null && child._childIndexEnabled != enabled) {
+                        stack.push(child);
+                    }
+                }
+            }
+        }
+    }
+
+    public boolean isChildIndexEnabled() {
+        return _childIndexEnabled;
+    }
+
+    /**
+     * Returns the index over the children, building it if it is enabled and worth it, otherwise null.
+     */
+    private ChildIndex<T, U> childIndex() {
+        if (_childIndex == null && _childIndexEnabled && children != null
+                && children.size() >= ChildIndex.MIN_CHILDREN) {
+            _childIndex = new ChildIndex<>(this);
+        }
+        return _childIndex;
+    }
+
+    private void childRenamed(Object oldName, String oldId) {
+        if (parent != null && parent._childIndex != null) {
+            parent._childIndex.renamed(this, oldName, oldId);
+        }
+    }
+
     private void reset() {
         _strucId = null;
     }
@@ -111,17 +238,36 @@ public class TreeNode<T, U> {
 
     public void setChildren(List<TreeNode<T, U>> children) {
         depth = -1;
+        _childIndex = null;
         this.children = children;
         for (TreeNode<T, U> child : children) {
             child.setParent(this);
+            if (child._childIndexEnabled != _childIndexEnabled) {
+                child.setChildIndexEnabled(_childIndexEnabled);
+            }
+            if (child._treeIndex != _treeIndex) {
+                child.setTreeIndex(_treeIndex);
+            }
         }
+        modified();
     }
 
     public void setId(String id) {
+        final Object oldName = getName();
+        final String oldId = _id;
         _id = id;
+        childRenamed(oldName, oldId);
+        if (_treeIndex != null) {
+            _treeIndex.invalidateIds();
+        }
     }
 
     public TreeNode<T, U> find(TreeNode<T, U> nodeToFind) {
+        final TreeIndex<T, U> index = treeIndex(TreeIndex.Lookup.DATA_IDENTITY);
+        if (index != null) {
+            // the node itself has its data and user object, so the first node matching both is found
+            return index.findByDataIdentity(this, nodeToFind.getData(), true, nodeToFind.getUserObject());
+        }
         TreeNode<T, U> returnNode = auxiliaryFind(this, nodeToFind);
         return returnNode;
     }
@@ -142,60 +288,73 @@ public class TreeNode<T, U> {
     }
 
     public TreeNode<T, U> find(T data, U userObj) {
+        final TreeIndex<T, U> index = treeIndex(TreeIndex.Lookup.DATA_IDENTITY);
+        if (index != null) {
+            return index.findByDataIdentity(this, data, true, userObj);
+        }
         TreeNode<T, U> returnNode = auxiliaryFind(this, data, userObj);
         return returnNode;
     }
 
     public TreeNode<T, U> find(T data) {
+        final TreeIndex<T, U> index = treeIndex(TreeIndex.Lookup.DATA_IDENTITY);
+        if (index != null) {
+            return index.findByDataIdentity(this, data, false, null);
+        }
         TreeNode<T, U> returnNode = auxiliaryFind(this, data);
         return returnNode;
     }
 
     private TreeNode<T, U> auxiliaryFind(TreeNode<T, U> currentNode, T data) {
-        TreeNode<T, U> returnNode = null;
-        int i = 0;
-        if (currentNode.getData() == data) {
-            returnNode = currentNode;
-        } else if (currentNode.hasChildren()) {
-            i = 0;
-            while (returnNode == null && i < currentNode.size()) {
-                returnNode = auxiliaryFind(currentNode.get(i), data);
-                i++;
+        final TreeCursor<T, U> cursor = currentNode.cursor(GenericTreeTraversalOrderEnum.PRE_ORDER);
+        while (cursor.hasNext()) {
+            final TreeNode<T, U> node = cursor.next();
+            if (node.getData() == data) {
+                return node;
             }
         }
-        return returnNode;
+        return null;
     }
 
     private TreeNode<T, U> auxiliaryFind(TreeNode<T, U> currentNode, T data, U userObj) {
-        TreeNode<T, U> returnNode = null;
-        int i = 0;
-        if (currentNode.getData() == data && (currentNode.getUserObject() == userObj)) {
-            returnNode = currentNode;
-        } else if (currentNode.hasChildren()) {
-            i = 0;
-            while (returnNode == null && i < currentNode.size()) {
-                returnNode = auxiliaryFind(currentNode.get(i), data, userObj);
-                i++;
+        final TreeCursor<T, U> cursor = currentNode.cursor(GenericTreeTraversalOrderEnum.PRE_ORDER);
+        while (cursor.hasNext()) {
+            final TreeNode<T, U> node = cursor.next();
+            if (node.getData() == data && node.getUserObject() == userObj) {
+                return node;
             }
         }
-        return returnNode;
+        return null;
     }
 
     private TreeNode<T, U> auxiliaryFind(TreeNode<T, U> currentNode, TreeNode<T, U> nodeToFind) {
-        TreeNode<T, U> returnNode = null;
-        int i = 0;
-        if (Objects.equals(currentNode, nodeToFind)) {
-            returnNode = currentNode;
-        } else if (currentNode.getData() == nodeToFind.getData() && currentNode.getUserObject() == nodeToFind.getUserObject()) {
-            returnNode = currentNode;
-        } else if (currentNode.hasChildren()) {
-            i = 0;
-            while (returnNode == null && i < currentNode.size()) {
-                returnNode = auxiliaryFind(currentNode.get(i), nodeToFind);
-                i++;
+        final TreeCursor<T, U> cursor = currentNode.cursor(GenericTreeTraversalOrderEnum.PRE_ORDER);
+        while (cursor.hasNext()) {
+            final TreeNode<T, U> node = cursor.next();
+            if (Objects.equals(node, nodeToFind)
+                    || node.getData() == nodeToFind.getData() && node.getUserObject() == nodeToFind.getUserObject()) {
+                return node;
             }
         }
-        return returnNode;
+        return null;
+    }
+
+    /**
+     * Returns a cursor iterating this node and its subtree without recursion.
+     */
+    public TreeCursor<T, U> cursor(GenericTreeTraversalOrderEnum order) {
+        return new TreeCursor<T, U>(order).reset(this);
+    }
+
+    /**
+     * Returns a lazy stream of this node and its subtree in pre-order.
+     */
+    public Stream<TreeNode<T, U>> stream() {
+        return stream(GenericTreeTraversalOrderEnum.PRE_ORDER);
+    }
+
+    public Stream<TreeNode<T, U>> stream(GenericTreeTraversalOrderEnum order) {
+        return cursor(order).stream();
     }
 
     public boolean isSame(TreeNode<T, U> other) {
@@ -215,6 +374,9 @@ public class TreeNode<T, U> {
 
     public void setData(T data) {
         this.data = data;
+        if (_treeIndex != null) {
+            _treeIndex.invalidateData();
+        }
     }
 
     public U getUserObject() {
@@ -249,12 +411,16 @@ public class TreeNode<T, U> {
 
     public int getPos() {
         if (getParent() != null) {
-            int pos = getParent().getChildren().indexOf(this);
-            return pos;
+            return getParent().positionOf(this);
         }
         return -1;
     }
 
+    private int positionOf(TreeNode<T, U> child) {
+        final ChildIndex<T, U> index = childIndex();
+        return index != null ? index.position(child) : getChildren().indexOf(child);
+    }
+
     public boolean isNodeChild(TreeNode<T, U> aNode) {
         boolean retval;
         if (aNode == null) {
@@ -276,50 +442,21 @@ public class TreeNode<T, U> {
         if (!isNodeChild(aChild)) {
             return -1;
         }
-        return children.indexOf(aChild); // linear search
+        return positionOf(aChild);
     }
 
     public Collection<TreeNode<T, U>> getAllChildren() {
-        //List<TreeNode<T, U>> childrens = getChildrenOld(this);
-        return getChildren(this, new ArrayList<>());
-//        if (childrens.size() != childrens2.size()) {
-//            System.out.println("error");
-//        }
-//        return childrens2;
+        return getAllChildren(new ArrayList<>());
     }
 
     public <c extends Collection<TreeNode<T, U>>> c getAllChildren(Collection<TreeNode<T, U>> result) {
-        //List<TreeNode<T, U>> childrens = getChildrenOld(this);
-        return (c) getChildren(this, result);
-//        if (childrens.size() != childrens2.size()) {
-//            System.out.println("error");
-//        }
-//        return childrens2;
-    }
-
-    private List<TreeNode<T, U>> getChildrenOld(TreeNode<T, U> root) {
-        List<TreeNode<T, U>> childrens = new ArrayList<>();
-        if (root != null) {
-            for (TreeNode<T, U> node : root.getChildren()) {
-                childrens.add(node);
-                if (node.hasChildren()) {
-                    childrens.addAll(getChildrenOld(node));
-                }
-            }
+        final TreeCursor<T, U> cursor = cursor(GenericTreeTraversalOrderEnum.PRE_ORDER);
+        // skip this node
+        cursor.next();
+        while (cursor.hasNext()) {
+            result.add(cursor.next());
         }
-        return childrens;
-    }
-
-    private Collection<TreeNode<T, U>> getChildren(TreeNode<T, U> startNode, Collection<TreeNode<T, U>> childrens) {
-        if (startNode != null) {
-            for (TreeNode<T, U> node : startNode.getChildren()) {
-                childrens.add(node);
-                if (node.hasChildren()) {
-                    getChildren(node, childrens);
-                }
-            }
-        }
-        return childrens;
+        return (c) result;
     }
 
     public List<TreeNode<T, U>> findChildren(Predicate<TreeNode<T, U>> predicate) {
@@ -361,16 +498,22 @@ public class TreeNode<T, U> {
 
     public void addChildren(List<TreeNode<T, U>> childs) {
         depth = -1;
+        int index = getChildren().size();
+        // rebuilt once by the next lookup instead of being updated per child
+        _childIndex = null;
         getChildren().addAll(childs);
         for (TreeNode<T, U> child : childs) {
             child.setParent(this);
+            childAdded(index++, child);
         }
     }
 
     public void clear() {
         if (children != null) {
             depth = -1;
+            _childIndex = null;
             children.clear();
+            modified();
         }
     }
 
@@ -388,11 +531,13 @@ public class TreeNode<T, U> {
     }
 
     public void setName(String name) {
+        final Object oldName = getName();
         _name = name;
+        childRenamed(oldName, _id);
     }
 
     public TreeNode<T, U> withName(String name) {
-        _name = name;
+        setName(name);
         return this;
     }
 
@@ -401,8 +546,7 @@ public class TreeNode<T, U> {
         if (getParent() != null && getParent().getParent() != null) {
             TreeNode<T, U> parent = getParent();
             TreeNode<T, U> pParent = parent.getParent();
-            List<TreeNode<T, U>> childrens = parent.getChildren();
-            int idx = childrens.indexOf(this);
+            int idx = parent.positionOf(this);
             if (idx >= 0) {
                 depth = -1;
                 removed = parent.remove(idx);
@@ -444,8 +588,7 @@ public class TreeNode<T, U> {
         boolean removed = false;
         if (getParent() != null && newParent != null) {
             TreeNode<T, U> parent = getParent();
-            List<TreeNode<T, U>> childrens = parent.getChildren();
-            int idx = childrens.indexOf(this);
+            int idx = parent.positionOf(this);
             if (idx >= 0) {
                 depth = -1;
                 removed = parent.remove(idx);
@@ -474,8 +617,7 @@ public class TreeNode<T, U> {
         boolean injected = false;
         if (getParent() != null && getParent().getParent() != null) {
             TreeNode<T, U> parent = getParent();
-            List<TreeNode<T, U>> childrens = parent.getChildren();
-            int idx = childrens.indexOf(this);
+            int idx = parent.positionOf(this);
             if (idx >= 0) {
                 depth = -1;
                 injected = parent.remove(idx);
@@ -533,6 +675,11 @@ public class TreeNode<T, U> {
     }
 
     public TreeNode<T, U> findNodeByData(T data) {
+        final TreeIndex<T, U> index = data != null ? treeIndex(TreeIndex.Lookup.DATA) : null;
+        if (index != null) {
+            final List<TreeNode<T, U>> nodes = index.findByData(this, data);
+            return nodes.isEmpty() ? null : nodes.get(0);
+        }
         List<TreeNode<T, U>> returnNodes = null;
         returnNodes = findNodesByData(returnNodes, data);
         return returnNodes != null && returnNodes.size() > 0 ? returnNodes.get(0) : null;
@@ -553,25 +700,55 @@ public class TreeNode<T, U> {
 //    }
 
     public List<TreeNode<T, U>> findNodesByData(T data) {
+        final TreeIndex<T, U> index = data != null ? treeIndex(TreeIndex.Lookup.DATA) : null;
+        if (index != null) {
+            final List<TreeNode<T, U>> nodes = index.findByData(this, data);
+            return nodes.isEmpty() ? null : new ArrayList<>(nodes);
+        }
         List<TreeNode<T, U>> returnNodes = null;
         returnNodes = findNodesByData(returnNodes, data);
         return returnNodes;
     }
 
     public List<TreeNode<T, U>> findNodesByData(List<TreeNode<T, U>> returnNodes, T data) {
-        if (data != null && data.equals(getData())) {
-            if (returnNodes == null) {
-                returnNodes = new ArrayList<>();
+        if (data == null) {
+            return returnNodes;
+        }
+        final TreeCursor<T, U> cursor = cursor(GenericTreeTraversalOrderEnum.PRE_ORDER);
+        while (cursor.hasNext()) {
+            final TreeNode<T, U> node = cursor.next();
+            if (data.equals(node.getData())) {
+                if (returnNodes == null) {
+                    returnNodes = new ArrayList<>();
+                }
+                returnNodes.add(node);
             }
-            returnNodes.add(this);
-        }
-        List<TreeNode<T, U>> childs = getChildren();
-        for (int c = 0; c < childs.size(); c++) {
-            returnNodes = childs.get(c).findNodesByData(returnNodes, data);
         }
         return returnNodes;
     }
 
+    /**
+     * Returns the first node of the subtree in pre-order whose {@link #getID()} equals the ID.
+     */
+    public TreeNode<T, U> findNodeByID(Object id) {
+        final TreeIndex<T, U> index = treeIndex(TreeIndex.Lookup.ID);
+        if (index != null) {
+            return index.findById(this, id);
+        }
+        final Deque<TreeNode<T, U>> stack = new ArrayDeque<>();
+        stack.push(this);
+        while (!stack.isEmpty()) {
+            final TreeNode<T, U> node = stack.pop();
+            if (Objects.equals(node.getID(), id)) {
+                return node;
+            }
+            for (int c = node.size() - 1; c >= 0; c--) {
+                stack.push(node.get(c));
+            }
+        }
+        return null;
+    }
+
     public TreeNode<T, U> findParentByData(T data) {
         if (getParent() != null && Objects.equals(getParent().getData(), data)) {
             return getParent();
@@ -658,16 +835,13 @@ public class TreeNode<T, U> {
     }
 
     private int getDepth(int depth) {
-        int cc = size();
-        if (cc > 0) {
-            depth++;
-            List<TreeNode<T, U>> childs = getChildren();
-            for (TreeNode<T, U> child : childs) {
-                int cdepth = child.getDepth(depth);
-                depth = Math.max(cdepth, depth);
-            }
+        final TreeCursor<T, U> cursor = cursor(GenericTreeTraversalOrderEnum.PRE_ORDER);
+        int max = 0;
+        while (cursor.hasNext()) {
+            cursor.next();
+            max = Math.max(max, cursor.getDepth());
         }
-        return depth;
+        return depth + max;
     }
 
     public List<TreeNode<T, U>> findLeafNodes() {
@@ -695,15 +869,14 @@ public class TreeNode<T, U> {
     }
 
     public List<TreeNode<T, U>> findLeafNodes(List<TreeNode<T, U>> returnNodes) {
-        if (size() == 0) {
-            if (returnNodes == null) {
-                returnNodes = new ArrayList<>();
-            }
-            returnNodes.add(this);
-        } else {
-            List<TreeNode<T, U>> childs = getChildren();
-            for (int c = 0; c < childs.size(); c++) {
-                returnNodes = childs.get(c).findLeafNodes(returnNodes);
+        final TreeCursor<T, U> cursor = cursor(GenericTreeTraversalOrderEnum.PRE_ORDER);
+        while (cursor.hasNext()) {
+            final TreeNode<T, U> node = cursor.next();
+            if (node.size() == 0) {
+                if (returnNodes == null) {
+                    returnNodes = new ArrayList<>();
+                }
+                returnNodes.add(node);
             }
         }
         return returnNodes;
@@ -806,7 +979,7 @@ public class TreeNode<T, U> {
     public boolean remove(TreeNode<T, U> child, boolean shiftChildsUp) throws IndexOutOfBoundsException {
         boolean removed = false;
         if (children != null) {
-            int idx = children.indexOf(child);
+            int idx = child != null && child.getParent() == this ? positionOf(child) : children.indexOf(child);
             if (idx >= 0) {
                 depth = -1;
                 removed = remove(idx);
@@ -826,6 +999,10 @@ public class TreeNode<T, U> {
             if (removed) {
                 removedChild.reset();
                 depth = -1;
+                if (_childIndex != null) {
+                    _childIndex.removed(index, removedChild);
+                }
+                modified();
             }
         }
         return removed;
@@ -849,6 +1026,7 @@ public class TreeNode<T, U> {
         depth = -1;
         getChildren().add(index, child);
         child.setParent(this);
+        childAdded(index, child);
         return child;
     }
 
@@ -856,9 +1034,11 @@ public class TreeNode<T, U> {
         if (getParent() != null) {
             getParent().remove(this);
         }
+        _childIndex = null;
         for (int i = 0; i < size(); i++) {
             get(i).setParent(null);
         }
+        modified();
         return getChildren();
     }
 
@@ -867,6 +1047,9 @@ public class TreeNode<T, U> {
     }
 
     public String getPath() {
+        if (_treeIndex != null) {
+            return _treeIndex.getPath(this);
+        }
         StringBuffer sb = new StringBuffer();
         createPath(sb, null);
         return sb.toString();
@@ -891,7 +1074,7 @@ public class TreeNode<T, U> {
                     sb.append(name);
                     if (getParent() != null && getParent().isList() && getParent().size() > 0) {
                         sb.append("[");
-                        sb.append(getParent().getChildren().indexOf(this) + 1);
+                        sb.append(getPos() + 1);
                         sb.append("]");
                     }
                 }
@@ -903,23 +1086,14 @@ public class TreeNode<T, U> {
     }
 
     public void accept(TreeVisitor<T, U> visitor) {
-        if (!visitor.doBreak(this)) {
-            visitor.visitStart(this);
-            List<TreeNode<T, U>> childs = getChildren();
-            for (int c = 0; c < childs.size(); c++) {
-                TreeNode<T, U> achild = childs.get(c);
-                achild.accept(visitor);
-            }
-            visitor.visitEnd(this);
-        }
+        new TreeCursor<T, U>(GenericTreeTraversalOrderEnum.PRE_ORDER).visit(this, visitor);
     }
 
     public void accept(BiFunction<T, U, Void> visitor) {
-        visitor.apply(getData(), getUserObject());
-        List<TreeNode<T, U>> childs = getChildren();
-        for (int c = 0; c < childs.size(); c++) {
-            TreeNode<T, U> achild = childs.get(c);
-            achild.accept(visitor);
+        final TreeCursor<T, U> cursor = cursor(GenericTreeTraversalOrderEnum.PRE_ORDER);
+        while (cursor.hasNext()) {
+            final TreeNode<T, U> node = cursor.next();
+            visitor.apply(node.getData(), node.getUserObject());
         }
     }
 
@@ -956,6 +1130,9 @@ public class TreeNode<T, U> {
 
     public void setIsList(boolean isList) {
         _isList = isList;
+        if (_treeIndex != null) {
+            _treeIndex.invalidatePaths();
+        }
     }
 
     public TreeNode<T, U> setIsRecursive(boolean recursive) {
@@ -992,7 +1169,45 @@ public class TreeNode<T, U> {
     }
 
     public void toXML(StringBuilder stringRepresentation, ValueFacade<String, T> dataFacade, ValueFacade<String, U> userObjFacade) {
-        boolean isLeaf = isLeaf();
+        // the element names of the nodes on the path, null for nodes without name
+        final Deque<String> names = new ArrayDeque<>();
+        accept(new TreeVisitor<T, U>() {
+            @Override
+            public void visitStart(TreeNode<T, U> aNode) {
+                String name = aNode.toXMLName(dataFacade);
+                if (name != null) {
+                    stringRepresentation.append("<");
+                    stringRepresentation.append(name);
+                    stringRepresentation.append(">");
+                }
+                if (aNode.isLeaf() && aNode.getUserObject() != null) {
+                    stringRepresentation.append(StringEscapeUtils.escapeXml10(userObjFacade != null ? userObjFacade.getValue(aNode.getUserObject()) : aNode.getUserObject().toString()));
+                }
+                names.push(name != null ? name : "");
+            }
+
+            @Override
+            public void visitEnd(TreeNode<T, U> aNode) {
+                String name = names.pop();
+                if (!name.isEmpty()) {
+                    stringRepresentation.append("</");
+                    stringRepresentation.append(name);
+                    stringRepresentation.append(">");
+                }
+            }
+
+            @Override
+            public boolean doBreak(TreeNode<T, U> aNode) {
+                return false;
+            }
+        });
+    }
+
+    /**
+     * Returns the element name of the node for {@link #toXML(StringBuilder, ValueFacade, ValueFacade)}, or null if it
+     * has none.
+     */
+    private String toXMLName(ValueFacade<String, T> dataFacade) {
         String name;
         if (dataFacade != null) {
             name = dataFacade.getValue(getData());
@@ -1000,32 +1215,16 @@ public class TreeNode<T, U> {
             name = (getData() != null ? StringUtils.replace(getData().toString(), "/", "") : "null");
         }
         name = StringEscapeUtils.escapeXml11(name);
-        boolean hasName = !StringUtils.isEmpty(name);
-        if (hasName) {
-            name = StringUtils.replace(name, " ", "");
-            name = StringUtils.replace(name, "[", "");
-            name = StringUtils.replace(name, "]", "");
-            if (StringUtils.isNumeric(name)) {
-                name = "NUM" + name;
-            }
-            stringRepresentation.append("<");
-            stringRepresentation.append(name);
-            stringRepresentation.append(">");
-        }
-        if (isLeaf) {
-            if (getUserObject() != null) {
-                stringRepresentation.append(StringEscapeUtils.escapeXml10(userObjFacade != null ? userObjFacade.getValue(getUserObject()) : getUserObject().toString()));
-            }
-        } else {
-            for (TreeNode<T, U> aNode : getChildren()) {
-                aNode.toXML(stringRepresentation, dataFacade, userObjFacade);
-            }
+        if (StringUtils.isEmpty(name)) {
+            return null;
         }
-        if (hasName) {
-            stringRepresentation.append("</");
-            stringRepresentation.append(name);
-            stringRepresentation.append(">");
+        name = StringUtils.replace(name, " ", "");
+        name = StringUtils.replace(name, "[", "");
+        name = StringUtils.replace(name, "]", "");
+        if (StringUtils.isNumeric(name)) {
+            name = "NUM" + name;
         }
+        return name;
     }
 
     public <T> T getProperty(String key) {
@@ -1037,6 +1236,10 @@ public class TreeNode<T, U> {
     }
 
     public TreeNode<T, U> getChildByID(Object id) throws IndexOutOfBoundsException {
+        final ChildIndex<T, U> index = childIndex();
+        if (index != null) {
+            return index.getById(id);
+        }
         if (children != null) {
             List<TreeNode<T, U>> childs = getChildren();
             for (TreeNode<T, U> child : childs) {
@@ -1049,6 +1252,10 @@ public class TreeNode<T, U> {
     }
 
     public TreeNode<T, U> getChildByName(Object name) throws IndexOutOfBoundsException {
+        final ChildIndex<T, U> index = childIndex();
+        if (index != null) {
+            return index.getByName(name);
+        }
         if (children != null) {
             List<TreeNode<T, U>> childs = getChildren();
             for (TreeNode<T, U> child : childs) {
@@ -1061,16 +1268,14 @@ public class TreeNode<T, U> {
     }
 
     public void getNodesAtLevel(int level, List<TreeNode<T, U>> result) throws IndexOutOfBoundsException {
-        if (children != null) {
-            List<TreeNode<T, U>> childs = getChildren();
-            if (level == 0) {
-                result.addAll(childs);
-            } else {
-                for (int c = 0; c < childs.size(); c++) {
-                    TreeNode<T, U> achild = childs.get(c);
-                    achild.getNodesAtLevel(level - 1, result);
-                }
-            }
+        if (level < 0) {
+            return;
+        }
+        // level 0 are the children
+        final TreeCursor<T, U> cursor = new TreeCursor<T, U>(GenericTreeTraversalOrderEnum.LEVEL_ORDER)
+                .withLevel(level + 1).reset(this);
+        while (cursor.hasNext()) {
+            result.add(cursor.next());
         }
     }
 
@@ -1078,6 +1283,13 @@ public class TreeNode<T, U> {
         if (parentID == null) {
             return null;
         }
+        final TreeIndex<T, U> index = treeIndex(TreeIndex.Lookup.ID);
+        if (index != null) {
+            final TreeNode<T, U> found = index.findAncestorById(this, parentID);
+            final TreeNode<T, U> indexRoot = index.getRoot();
+            return found != null || indexRoot.getParent() == null ? found
+                    : indexRoot.getParent().findParentByID(parentID);
+        }
         if (Objects.equals(getID(), parentID)) {
             return this;
         }
@@ -1240,14 +1452,15 @@ public class TreeNode<T, U> {
     }
 
     public TreeNode<T, U> getFirstLeaf() {
-        Iterator<TreeNode<T, U>> allChilds = getAllChildren().iterator();
-        while (allChilds.hasNext()) {
-            TreeNode<T, U> aChild = allChilds.next();
-            if (aChild.isLeaf()) {
-                return aChild;
-            }
+        if (isLeaf()) {
+            return null;
         }
-        return null;
+        // the first leaf in pre-order
+        TreeNode<T, U> leaf = get(0);
+        while (!leaf.isLeaf()) {
+            leaf = leaf.get(0);
+        }
+        return leaf;
     }
 
     /**
@@ -1257,14 +1470,8 @@ public class TreeNode<T, U> {
      * @see #isLeaf
      */
     public TreeNode<T, U> getLastLeaf() {
-        List<TreeNode<T, U>> allChilds = getAllChildren(new ArrayList<>());
-        for (int a = allChilds.size() - 1; a >= 0; a--) {
-            TreeNode<T, U> aChild = allChilds.get(a);
-            if (aChild.isLeaf()) {
-                return aChild;
-            }
-        }
-        return null;
+        // the last node in pre-order is a leaf
+        return getLastChild();
     }
 
     /**
@@ -1274,9 +1481,8 @@ public class TreeNode<T, U> {
      * @throws NoSuchElementException if this node has no children
      */
     public TreeNode<T, U> getFirstChild() {
-        List<TreeNode<T, U>> allChilds = getAllChildren(new ArrayList<>());
-        if (allChilds.size() > 0) {
-            return allChilds.get(0);
+        if (size() > 0) {
+            return get(0);
         }
         return null;
     }
@@ -1288,12 +1494,15 @@ public class TreeNode<T, U> {
      * @throws NoSuchElementException if this node has no children
      */
     public TreeNode<T, U> getLastChild() {
-        List<TreeNode<T, U>> allChilds = getAllChildren(new ArrayList<>());
-        if (allChilds.size() > 0) {
-            return allChilds.get(allChilds.size() - 1);
-        } else {
+        if (size() == 0) {
             return null;
         }
+        // the last node of the subtree in pre-order, like the last of getAllChildren()
+        TreeNode<T, U> last = get(size() - 1);
+        while (last.size() > 0) {
+            last = last.get(last.size() - 1);
+        }
+        return last;
     }
 
     public void clearParents() {
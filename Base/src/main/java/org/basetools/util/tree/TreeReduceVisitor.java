@@ -0,0 +1,41 @@
+package org.basetools.util.tree;
+
+/**
+ * Visitor reducing the nodes of a tree to one result, see {@link ParallelTreeExecutor}. Subtrees are accumulated into
+ * their own partial results, which are combined in pre-order, so the result equals a sequential pre-order
+ * accumulation as long as combine is associative.
+ *
+ * @param <T> the node data type
+ * @param <U> the node user object type
+ * @param <R> the result type
+ */
+public interface TreeReduceVisitor<T, U, R> {
+
+    /**
+     * Returns a new empty result. It is called once per partial result, so mutable containers can be used.
+     */
+    R identity();
+
+    /**
+     * Adds the node to the partial result.
+     *
+     * @param result the partial result
+     * @param node   the node
+     * @return the partial result, may be the same instance
+     */
+    R accumulate(R result, TreeNode<T, U> node);
+
+    /**
+     * Combines two partial results, the nodes of left precede the nodes of right in pre-order.
+     *
+     * @return the combined result, may be left
+     */
+    R combine(R left, R right);
+
+    /**
+     * Skips the node and its subtree, like {@link TreeVisitor#doBreak(TreeNode)}.
+     */
+    default boolean doBreak(TreeNode<T, U> node) {
+        return false;
+    }
+}
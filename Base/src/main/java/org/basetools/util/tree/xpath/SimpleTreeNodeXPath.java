@@ -0,0 +1,286 @@
+package org.basetools.util.tree.xpath;
+
+import org.basetools.util.tree.TreeNode;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Evaluates simple location paths directly on the children of {@link TreeNode}s, without Jaxen's axis iterators.
+ * The supported subset is a path of child ({@code /}) and descendant ({@code //}) steps, each with a name, {@code *} or
+ * {@code node()} test and at most one predicate, which is either a positive index or an attribute test, as well as
+ * attribute steps. As {@link TreeDocumentNavigator} has no attributes, attribute steps and tests select nothing.
+ * <p>
+ * The results equal the results of Jaxen with a {@link TreeDocumentNavigator}: the root of an absolute path is the
+ * context node, and the nodes of a descendant step are ordered by their parents in pre-order, like Jaxen orders them
+ * for this navigator. Instances are immutable and thread safe.
+ *
+ * @see #parse(String)
+ */
+public final class SimpleTreeNodeXPath {
+    private final String xpath;
+    private final Step[] steps;
+    private final boolean empty;
+
+    private SimpleTreeNodeXPath(String xpath, Step[] steps, boolean empty) {
+        this.xpath = xpath;
+        this.steps = steps;
+        this.empty = empty;
+    }
+
+    /**
+     * Parses the expression if it belongs to the supported subset.
+     *
+     * @param xpath the expression
+     * @return the path, or null if the expression has to be evaluated by Jaxen
+     */
+    public static SimpleTreeNodeXPath parse(String xpath) {
+        if (xpath == null || xpath.isEmpty()) {
+            return null;
+        }
+        final List<Step> steps = new ArrayList<>();
+        boolean empty = false;
+        int pos = 0;
+        final int length = xpath.length();
+        if (xpath.charAt(0) == '/' && length == 1) {
+            return new SimpleTreeNodeXPath(xpath, new Step[0], false);
+        }
+        while (pos < length) {
+            boolean descendant = false;
+            if (xpath.charAt(pos) == '/') {
+                descendant = pos + 1 < length && xpath.charAt(pos + 1) == '/';
+                pos += descendant ? 2 : 1;
+            } else if (pos > 0) {
+                return null;
+            }
+            if (pos >= length) {
+                return null;
+            }
+            boolean attribute = false;
+            if (xpath.charAt(pos) == '@') {
+                attribute = true;
+                pos++;
+            }
+            // name test
+            final int nameEnd = nameTestEnd(xpath, pos);
+            if (nameEnd < 0) {
+                return null;
+            }
+            String name = xpath.substring(pos, nameEnd);
+            if (name.equals("*") || name.equals("node()")) {
+                if (attribute && name.equals("node()")) {
+                    return null;
+                }
+                name = null;
+            }
+            pos = nameEnd;
+            // predicate
+            int index = 0;
+            if (pos < length && xpath.charAt(pos) == '[') {
+                final int close = xpath.indexOf(']', pos);
+                if (close < 0) {
+                    return null;
+                }
+                final String predicate = xpath.substring(pos + 1, close);
+                if (!predicate.isEmpty() && predicate.charAt(0) == '@') {
+                    if (nameTestEnd(predicate, 1) != predicate.length() || predicate.equals("@node()")) {
+                        return null;
+                    }
+                    empty = true;
+                } else {
+                    index = parseIndex(predicate);
+                    if (index <= 0) {
+                        return null;
+                    }
+                }
+                pos = close + 1;
+            }
+            if (pos < length && xpath.charAt(pos) != '/') {
+                return null;
+            }
+            empty |= attribute;
+            steps.add(new Step(descendant, name, index));
+        }
+        return new SimpleTreeNodeXPath(xpath, steps.toArray(new Step[0]), empty);
+    }
+
+    /**
+     * Returns the end of the name test starting at pos: a name without prefix, {@code *} or {@code node()}.
+     *
+     * @return the end index, or -1 if there is no supported name test
+     */
+    private static int nameTestEnd(String xpath, int pos) {
+        if (pos >= xpath.length()) {
+            return -1;
+        }
+        if (xpath.charAt(pos) == '*') {
+            return pos + 1;
+        }
+        if (xpath.startsWith("node()", pos)) {
+            return pos + 6;
+        }
+        final char first = xpath.charAt(pos);
+        if (!Character.isLetter(first) && first != '_') {
+            return -1;
+        }
+        int end = pos + 1;
+        while (end < xpath.length()) {
+            final char c = xpath.charAt(end);
+            if (!Character.isLetterOrDigit(c) && c != '_' && c != '-' && c != '.') {
+                break;
+            }
+            end++;
+        }
+        // prefixed names and function calls are left to Jaxen
+        if (end < xpath.length() && (xpath.charAt(end) == ':' || xpath.charAt(end) == '(')) {
+            return -1;
+        }
+        return end;
+    }
+
+    private static int parseIndex(String predicate) {
+        if (predicate.isEmpty() || predicate.length() > 9) {
+            return -1;
+        }
+        int index = 0;
+        for (int i = 0; i < predicate.length(); i++) {
+            final char c = predicate.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            index = index * 10 + (c - '0');
+        }
+        return index;
+    }
+
+    public String getXPath() {
+        return xpath;
+    }
+
+    /**
+     * Selects the nodes of the path.
+     *
+     * @param context   the context node, also the root of absolute paths
+     * @param navigator the navigator providing the node names
+     * @return the selected nodes
+     */
+    public List<TreeNode> selectNodes(TreeNode context, TreeDocumentNavigator navigator) {
+        List<TreeNode> current = new ArrayList<>(1);
+        if (empty) {
+            return current;
+        }
+        current.add(context);
+        TreeNode[] stack = null;
+        for (Step step : steps) {
+            final List<TreeNode> next = new ArrayList<>();
+            if (!step.descendant) {
+                for (int i = 0; i < current.size(); i++) {
+                    step.addChildren(current.get(i), navigator, next);
+                }
+            } else {
+                if (stack == null) {
+                    stack = new TreeNode[16];
+                }
+                // contexts in the subtree of a previous context were already visited, like Jaxen skips duplicates
+                final Set<TreeNode> visited = current.size() > 1 ? Collections.newSetFromMap(new IdentityHashMap<>())
+                        : null;
+                for (int i = 0; i < current.size(); i++) {
+                    final TreeNode node = current.get(i);
+                    if (visited != null) {
+                        if (isBelow(node, visited)) {
+                            continue;
+                        }
+                        visited.add(node);
+                    }
+                    stack = addDescendantChildren(node, step, navigator, next, stack);
+                }
+            }
+            if (next.isEmpty()) {
+                return next;
+            }
+            current = next;
+        }
+        return current;
+    }
+
+    /**
+     * Adds the matching children of the node and of all its descendants, visiting the parents in pre-order.
+     *
+     * @return the stack, grown if necessary
+     */
+    private static TreeNode[] addDescendantChildren(TreeNode root, Step step, TreeDocumentNavigator navigator,
+                                                    List<TreeNode> result, TreeNode[] stack) {
+        int top = 0;
+        stack[top++] = root;
+        while (top > 0) {
+            final TreeNode node = stack[--top];
+            stack[top] = null;
+            if (!node.hasChildren()) {
+                continue;
+            }
+            step.addChildren(node, navigator, result);
+            final List<TreeNode> children = node.getChildren();
+            if (top + children.size() > stack.length) {
+                stack = Arrays.copyOf(stack, Math.max(stack.length * 2, top + children.size()));
+            }
+            for (int c = children.size() - 1; c >= 0; c--) {
+                stack[top++] = children.get(c);
+            }
+        }
+        return stack;
+    }
+
+    private static boolean isBelow(TreeNode node, Set<TreeNode> ancestors) {
+        TreeNode parent = node.getParent();
+        while (parent != null) {
+            if (ancestors.contains(parent)) {
+                return true;
+            }
+            parent = parent.getParent();
+        }
+        return false;
+    }
+
+    @Override
+    public String toString() {
+        return xpath;
+    }
+
+    private static final class Step {
+        private final boolean descendant;
+        private final String name;
+        private final int index;
+
+        private Step(boolean descendant, String name, int index) {
+            this.descendant = descendant;
+            this.name = name;
+            this.index = index;
+        }
+
+        /**
+         * Adds the children matching the name, or the index-th of them if the step has an index.
+         */
+        private void addChildren(TreeNode parent, TreeDocumentNavigator navigator, List<TreeNode> result) {
+            if (!parent.hasChildren()) {
+                return;
+            }
+            final List<TreeNode> children = parent.getChildren();
+            int matched = 0;
+            for (int c = 0; c < children.size(); c++) {
+                final TreeNode child = children.get(c);
+                if (name == null || name.equals(navigator.getElementName(child))) {
+                    if (index == 0) {
+                        result.add(child);
+                    } else if (++matched == index) {
+                        result.add(child);
+                        return;
+                    }
+                }
+            }
+        }
+    }
+}
@@ -53,6 +53,10 @@ public class TreeDocumentNavigator extends DefaultNavigator {
         return this;
     }
 
+    public boolean isUseIdAsName() {
+        return _usIdAsName;
+    }
+
     public void reset() {
         if (getHandler() != null) {
             getHandler().reset();
@@ -1,48 +1,287 @@
 package org.basetools.util.tree.xpath;
 
+import net.minidev.json.JSONObject;
+import org.basetools.util.cache.ConcurrentMRUMap;
+import org.basetools.util.cache.metrics.LatencyHistogram;
 import org.basetools.util.tree.TreeNode;
 import org.jaxen.DefaultNavigator;
+import org.jaxen.JaxenException;
 import org.jaxen.XPath;
 
 import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.atomic.LongAdder;
 
+/**
+ * Evaluates XPath expressions against {@link TreeNode} trees with Jaxen. Compiled expressions are kept in a bounded
+ * cache keyed by the expression and the navigator instance, so repeated expressions are parsed once. A compiled
+ * expression is thread safe and shared by all threads evaluating it.
+ * <p>
+ * Simple location paths evaluated with a {@link TreeDocumentNavigator} bypass Jaxen, see {@link SimpleTreeNodeXPath}.
+ * <p>
+ * The evaluation times of every cached expression are recorded lock-free in a {@link LatencyHistogram} kept next to the
+ * compiled expression, see {@link #getTimings()}. They are dropped together with the expression when it is evicted, and
+ * not recorded without a cache.
+ */
 public class TreeNodeXPathExecuterImpl {
+    public static final int DEFAULT_CACHE_CAPACITY = 1024;
     private static final XPathTreeNodeHandler DEFAULT_HANDLER = new XPathTreeNodeHandler();
-    public static long timeConsumption = 0;
-    public static int counter = 0;
-    private static TreeNodeXPathExecuterImpl _singleton = null;
+    private static final TreeNodeXPathExecuterImpl _singleton = new TreeNodeXPathExecuterImpl();
+    private final TreeDocumentNavigator defaultNavigator = new TreeDocumentNavigator(DEFAULT_HANDLER);
+    private final ConcurrentMRUMap<ExpressionKey, CompiledExpression, Object, Object> expressions;
+    private final LongAdder evaluations = new LongAdder();
+    private final LongAdder compilations = new LongAdder();
+    private final LongAdder fastPathEvaluations = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder timeConsumption = new LongAdder();
+    private volatile boolean useTimings = true;
+    private volatile boolean useFastPath = true;
 
     public TreeNodeXPathExecuterImpl() {
+        this(DEFAULT_CACHE_CAPACITY);
+    }
+
+    /**
+     * @param cacheCapacity the maximum number of compiled expressions, 0 to parse every expression on each call
+     */
+    public TreeNodeXPathExecuterImpl(int cacheCapacity) {
         super();
+        expressions = cacheCapacity > 0 ? new ConcurrentMRUMap<>(cacheCapacity) : null;
     }
 
     public static TreeNodeXPathExecuterImpl getInstance() {
-        if (_singleton == null) {
-            _singleton = new TreeNodeXPathExecuterImpl();
-            return _singleton;
-        } else {
-            return _singleton;
-        }
+        return _singleton;
+    }
+
+    /**
+     * Enables or disables recording the per expression timings. The counters are always updated.
+     */
+    public TreeNodeXPathExecuterImpl withTimings(boolean use) {
+        useTimings = use;
+        return this;
+    }
+
+    /**
+     * Enables or disables evaluating simple location paths without Jaxen.
+     */
+    public TreeNodeXPathExecuterImpl withFastPath(boolean use) {
+        useFastPath = use;
+        return this;
     }
 
     public List<? extends TreeNode> processXPathJaxen(String xpath, TreeNode type) {
-        TreeDocumentNavigator navigator = new TreeDocumentNavigator(DEFAULT_HANDLER);
-        return processXPathJaxen(navigator, xpath, type);
+        return processXPathJaxen(defaultNavigator, xpath, type);
     }
 
     public List<? extends TreeNode> processXPathJaxen(DefaultNavigator navigator, String xpath, TreeNode type) {
-        long start = System.currentTimeMillis();
-        counter++;
+        long start = System.nanoTime();
+        evaluations.increment();
         List<TreeNode> results = null;
+        CompiledExpression expression = null;
         try {
-            XPath typeXpath = new TreeNodeXPath(xpath, navigator);
-            results = typeXpath.selectNodes(type);
+            expression = lookup(navigator, xpath);
+            if (useFastPath && expression.simplePath != null) {
+                fastPathEvaluations.increment();
+                results = expression.simplePath.selectNodes(type, (TreeDocumentNavigator) navigator);
+            } else {
+                results = expression.xpath.selectNodes(type);
+            }
         } catch (Exception e) {
+            failures.increment();
             e.printStackTrace();
         }
-
-        long stop = System.currentTimeMillis();
-        timeConsumption += (stop - start);
+        long duration = System.nanoTime() - start;
+        timeConsumption.add(duration);
+        if (useTimings && expression != null) {
+            expression.latency.record(duration);
+        }
         return results;
     }
+
+    /**
+     * Returns the compiled expression for the navigator, parsing it only if it isn't cached yet.
+     *
+     * @param navigator the navigator the expression is evaluated with
+     * @param xpath     the expression
+     * @return the compiled expression
+     * @throws JaxenException if the expression is invalid
+     */
+    public XPath compile(DefaultNavigator navigator, String xpath) throws JaxenException {
+        return lookup(navigator, xpath).xpath;
+    }
+
+    private CompiledExpression lookup(DefaultNavigator navigator, String xpath) throws JaxenException {
+        if (expressions == null) {
+            return compileExpression(navigator, xpath);
+        }
+        final ExpressionKey key = new ExpressionKey(xpath, navigator);
+        try {
+            return expressions.getOrCreate(key, k -> {
+                try {
+                    return compileExpression(navigator, xpath);
+                } catch (JaxenException e) {
+                    throw new InvalidExpressionException(e);
+                }
+            });
+        } catch (InvalidExpressionException e) {
+            throw (JaxenException) e.getCause();
+        }
+    }
+
+    private CompiledExpression compileExpression(DefaultNavigator navigator, String xpath) throws JaxenException {
+        compilations.increment();
+        final XPath compiled = new TreeNodeXPath(xpath, navigator);
+        // the fast path relies on the axes of the tree navigator, subclasses may change them
+        final SimpleTreeNodeXPath simplePath = navigator.getClass() == TreeDocumentNavigator.class
+                ? SimpleTreeNodeXPath.parse(xpath) : null;
+        return new CompiledExpression(compiled, simplePath);
+    }
+
+    /**
+     * Returns the evaluation times of the expression evaluated with the default navigator.
+     *
+     * @param xpath the expression
+     * @return the histogram in nanoseconds or null if the expression isn't cached
+     */
+    public LatencyHistogram getTiming(String xpath) {
+        return getTiming(defaultNavigator, xpath);
+    }
+
+    /**
+     * Returns the evaluation times of the expression evaluated with the navigator.
+     *
+     * @param navigator the navigator
+     * @param xpath     the expression
+     * @return the histogram in nanoseconds or null if the expression isn't cached
+     */
+    public LatencyHistogram getTiming(DefaultNavigator navigator, String xpath) {
+        if (expressions == null) {
+            return null;
+        }
+        final CompiledExpression expression = expressions.peek(new ExpressionKey(xpath, navigator));
+        return expression != null ? expression.latency : null;
+    }
+
+    /**
+     * Returns the evaluation times of all cached expressions in nanoseconds. An expression compiled for several
+     * navigators is listed once per navigator, the further entries are numbered.
+     */
+    public JSONObject getTimings() {
+        final JSONObject result = new JSONObject();
+        if (expressions != null) {
+            expressions.traverse((key, expression) -> {
+                if (expression.latency.getCount() > 0) {
+                    String name = key.xpath;
+                    for (int i = 2; result.containsKey(name); i++) {
+                        name = key.xpath + " #" + i;
+                    }
+                    result.appendField(name, expression.latency.toJSON());
+                }
+                return null;
+            });
+        }
+        return result;
+    }
+
+    public long getEvaluationCount() {
+        return evaluations.sum();
+    }
+
+    /**
+     * Returns the number of parsed expressions, which is the number of cache misses.
+     */
+    public long getCompilationCount() {
+        return compilations.sum();
+    }
+
+    /**
+     * Returns the number of evaluations which bypassed Jaxen.
+     */
+    public long getFastPathCount() {
+        return fastPathEvaluations.sum();
+    }
+
+    public long getFailureCount() {
+        return failures.sum();
+    }
+
+    /**
+     * Returns the time spent in evaluating expressions in milliseconds.
+     */
+    public long getTimeConsumption() {
+        return timeConsumption.sum() / 1_000_000;
+    }
+
+    public JSONObject getInfo() {
+        final JSONObject info = new JSONObject();
+        info.appendField("Evaluations", getEvaluationCount());
+        info.appendField("Compilations", getCompilationCount());
+        info.appendField("FastPathEvaluations", getFastPathCount());
+        info.appendField("Failures", getFailureCount());
+        info.appendField("TimeConsumption", getTimeConsumption());
+        if (expressions != null) {
+            info.appendField("Cache", expressions.getInfo());
+        }
+        return info;
+    }
+
+    /**
+     * Removes the compiled expressions together with their timings.
+     */
+    public void clear() {
+        if (expressions != null) {
+            expressions.clear();
+        }
+    }
+
+    /**
+     * Cache key of an expression. Navigators are compared by identity: a compiled expression is bound to the navigator
+     * it was compiled with, and a navigator's configuration such as {@link TreeDocumentNavigator#withUseIdAsName} may
+     * change after it was used. Navigators should therefore be reused instead of created per evaluation.
+     */
+    private static final class ExpressionKey {
+        private final String xpath;
+        private final DefaultNavigator navigator;
+        private final int hash;
+
+        private ExpressionKey(String xpath, DefaultNavigator navigator) {
+            this.xpath = xpath;
+            this.navigator = navigator;
+            hash = 31 * Objects.hashCode(xpath) + System.identityHashCode(navigator);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof ExpressionKey)) {
+                return false;
+            }
+            final ExpressionKey other = (ExpressionKey) o;
+            return hash == other.hash && navigator == other.navigator && Objects.equals(xpath, other.xpath);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    private static final class CompiledExpression {
+        private final XPath xpath;
+        private final SimpleTreeNodeXPath simplePath;
+        private final LatencyHistogram latency = new LatencyHistogram();
+
+        private CompiledExpression(XPath xpath, SimpleTreeNodeXPath simplePath) {
+            this.xpath = xpath;
+            this.simplePath = simplePath;
+        }
+    }
+
+    private static final class InvalidExpressionException extends RuntimeException {
+        private InvalidExpressionException(JaxenException cause) {
+            super(cause);
+        }
+    }
 }
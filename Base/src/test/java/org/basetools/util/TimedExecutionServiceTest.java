@@ -0,0 +1,36 @@
+package org.basetools.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.TimerTask;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TimedExecutionServiceTest {
+
+    @Test
+    void givenCancelledTimerTask_whenDue_thenItDoesNotRun() throws InterruptedException {
+        AtomicBoolean cancelledRan = new AtomicBoolean();
+        CountDownLatch done = new CountDownLatch(1);
+        TimerTask cancelled = new TimerTask() {
+            @Override
+            public void run() {
+                cancelledRan.set(true);
+            }
+        };
+        TimedExecutionService.schedule(cancelled, 20);
+        TimedExecutionService.schedule(new TimerTask() {
+            @Override
+            public void run() {
+                done.countDown();
+            }
+        }, 60);
+        assertTrue(cancelled.cancel());
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertFalse(cancelledRan.get());
+        assertThrows(IllegalStateException.class, () -> TimedExecutionService.schedule(cancelled, 0));
+    }
+}
@@ -0,0 +1,100 @@
+package org.basetools.util.array;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RingBufferTest {
+
+    @Test
+    void givenFullBuffer_whenOffered_thenOfferFailsUntilDrained() {
+        RingBuffer<String> buffer = new RingBuffer<>(3, RingBufferMode.SPSC);
+        assertEquals(4, buffer.capacity());
+        assertEquals(3, buffer.offer(new String[]{"a", "b", "c"}));
+        assertEquals(1, buffer.offer(new String[]{"d", "e"}));
+        assertFalse(buffer.offer("f"));
+        assertEquals("a", buffer.poll());
+        List<String> drained = new ArrayList<>();
+        assertEquals(2, buffer.drain(drained::add, 2));
+        assertEquals(List.of("b", "c"), drained);
+        assertTrue(buffer.offer("f"));
+        assertEquals(2, buffer.size());
+    }
+
+    @Test
+    void givenManyProducers_whenOneConsumerDrains_thenEveryElementArrivesInProducerOrder() throws InterruptedException {
+        RingBuffer<int[]> buffer = new RingBuffer<>(64, RingBufferMode.MPSC);
+        int producers = 4;
+        int perProducer = 20_000;
+        List<Thread> threads = new ArrayList<>();
+        for (int p = 0; p < producers; p++) {
+            final int producer = p;
+            Thread thread = new Thread(() -> {
+                for (int i = 0; i < perProducer; i += 2) {
+                    buffer.push(new int[][]{{producer, i}, {producer, i + 1}});
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        int[] next = new int[producers];
+        int[] received = {0};
+        while (received[0] < producers * perProducer) {
+            buffer.drain(element -> {
+                assertEquals(next[element[0]]++, element[1]);
+                received[0]++;
+            }, 16);
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertTrue(buffer.isEmpty());
+    }
+
+    @Test
+    void givenOneProducer_whenManyConsumersPoll_thenEveryValueIsTakenOnce() throws InterruptedException {
+        LongRingBuffer buffer = new LongRingBuffer(32, RingBufferMode.SPMC);
+        int values = 100_000;
+        AtomicLong sum = new AtomicLong();
+        AtomicLong count = new AtomicLong();
+        List<Thread> consumers = new ArrayList<>();
+        for (int c = 0; c < 3; c++) {
+            Thread consumer = new Thread(() -> {
+                while (count.get() < values) {
+                    buffer.drain(value -> {
+                        sum.addAndGet(value);
+                        count.incrementAndGet();
+                    }, 8);
+                }
+            });
+            consumers.add(consumer);
+            consumer.start();
+        }
+        long[] batch = new long[10];
+        for (int i = 0; i < values; i += batch.length) {
+            for (int j = 0; j < batch.length; j++) {
+                batch[j] = i + j;
+            }
+            buffer.push(batch);
+        }
+        for (Thread consumer : consumers) {
+            consumer.join();
+        }
+        assertEquals(values, count.get());
+        assertEquals((long) values * (values - 1) / 2, sum.get());
+    }
+
+    @Test
+    void givenDoubles_whenDrained_thenValuesKeepTheirBits() {
+        DoubleRingBuffer buffer = new DoubleRingBuffer(8, RingBufferMode.SPSC);
+        buffer.push(new double[]{1.5, -0.0, Double.NaN});
+        List<Double> drained = new ArrayList<>();
+        assertEquals(3, buffer.drain(drained::add, 10));
+        assertEquals(List.of(1.5, -0.0, Double.NaN), drained);
+        assertTrue(buffer.isEmpty());
+    }
+}
@@ -0,0 +1,110 @@
+package org.basetools.util.cache;
+
+import org.apache.commons.collections4.keyvalue.MultiKey;
+import org.apache.commons.collections4.map.MultiKeyMap;
+import org.basetools.util.cache.eviction.CountMinSketch;
+import org.basetools.util.cache.eviction.LFUEvictionPolicy;
+import org.basetools.util.cache.eviction.LRUEvictionPolicy;
+import org.basetools.util.cache.eviction.WTinyLFUEvictionPolicy;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CacheTest {
+
+    @Test
+    void givenLRUPolicy_whenFull_thenLeastRecentlyUsedIsEvicted() {
+        Cache<String, String> cache = new Cache<>(new HashMap<>(), 2, new LRUEvictionPolicy<>());
+        cache.put("a", "Anton");
+        cache.put("b", "Bohnen");
+        cache.get("a");
+        cache.put("c", "Cache");
+        assertTrue(cache.containsKey("a"));
+        assertFalse(cache.containsKey("b"));
+        assertEquals("LRU", cache.getInfo().get("policy"));
+    }
+
+    @Test
+    void givenLFUPolicy_whenFull_thenLeastFrequentlyUsedIsEvicted() {
+        Cache<String, String> cache = new Cache<>(new HashMap<>(), 2, new LFUEvictionPolicy<>());
+        cache.put("a", "Anton");
+        cache.put("b", "Bohnen");
+        cache.get("a");
+        cache.get("b");
+        cache.get("a");
+        cache.put("c", "Cache");
+        assertTrue(cache.containsKey("a"));
+        assertFalse(cache.containsKey("b"));
+        assertEquals(2, cache.getCache().size());
+    }
+
+    @Test
+    void givenScanWorkload_whenWTinyLFU_thenHitRateBeatsLRU() {
+        Cache<Integer, Integer> lru = new Cache<>(new HashMap<>(), 100, new LRUEvictionPolicy<>());
+        Cache<Integer, Integer> tinyLfu = new Cache<>(new HashMap<>(), 100, new WTinyLFUEvictionPolicy<>(100));
+        int scanKey = 1000;
+        for (int round = 0; round < 200; round++) {
+            for (int hot = 0; hot < 50; hot++) {
+                lru.getOrCreate(hot, key -> key);
+                tinyLfu.getOrCreate(hot, key -> key);
+            }
+            for (int scan = 0; scan < 100; scan++, scanKey++) {
+                lru.getOrCreate(scanKey, key -> key);
+                tinyLfu.getOrCreate(scanKey, key -> key);
+            }
+        }
+        assertTrue(tinyLfu.getHitRate() > lru.getHitRate(), tinyLfu.getHitRate() + " <= " + lru.getHitRate());
+        assertTrue(tinyLfu.getCache().size() <= 100);
+    }
+
+    @Test
+    void givenCountMinSketch_whenKeysAreCounted_thenCountersSaturateAndAreHalved() {
+        CountMinSketch sketch = new CountMinSketch(1000);
+        for (int i = 0; i < 20; i++) {
+            sketch.increment("hot");
+        }
+        for (int i = 0; i < 3; i++) {
+            sketch.increment("warm");
+        }
+        assertEquals(15, sketch.frequency("hot"));
+        assertTrue(sketch.frequency("warm") >= 3);
+        assertTrue(sketch.frequency("cold") < 3);
+        // reaching the sample size halves all counters
+        for (int i = 0; i < 10_000; i++) {
+            sketch.increment(i);
+        }
+        assertTrue(sketch.frequency("hot") <= 7);
+    }
+
+    @Test
+    void givenMultiKeyCache_whenLoadingConcurrently_thenSizeStaysBounded() throws InterruptedException {
+        MultiKeyCache<Integer, Integer> cache = new MultiKeyCache<>(new MultiKeyMap<>(), 16);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            int offset = t;
+            threads.add(new Thread(() -> {
+                try {
+                    for (int i = 0; i < 20_000; i++) {
+                        int key = (i * 7 + offset) % 64;
+                        assertEquals(key, cache.getOrCreate(new MultiKey<>(key, key), () -> key));
+                        cache.getInfo();
+                    }
+                } catch (Throwable e) {
+                    failure.compareAndSet(null, e);
+                }
+            }));
+        }
+        threads.forEach(Thread::start);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertNull(failure.get());
+        assertTrue(cache.getCache().size() <= 16);
+    }
+}
@@ -0,0 +1,91 @@
+package org.basetools.util.cache;
+
+import net.minidev.json.JSONObject;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ConcurrentMRUMapTest {
+
+    @Test
+    void givenFullMap_whenPut_thenLeastRecentlyUsedIsEvicted() {
+        ConcurrentMRUMap<String, String, Void, Void> cache = new ConcurrentMRUMap<>(3);
+        assertEquals(1, cache.getSegmentCount());
+        cache.put("a", "Anton");
+        cache.put("b", "Bohnen");
+        cache.put("c", "Cache");
+        cache.get("a");
+        cache.put("d", "Dieter");
+        assertEquals("Anton", cache.get("a"));
+        assertNull(cache.get("b"));
+        assertEquals(3, cache.getCurrentSize());
+    }
+
+    @Test
+    void givenSameKey_whenPutTwice_thenEntryIsReplaced() {
+        ConcurrentMRUMap<String, String, String, String> cache = new ConcurrentMRUMap<>(10);
+        cache.put("a", "Anton", "ctx", "sub", 100, 200);
+        cache.put("a", "Andreas");
+        assertEquals(1, cache.getCurrentSize());
+        assertEquals("Andreas", cache.get("a"));
+        cache.remove("a");
+        assertTrue(cache.isEmpty());
+    }
+
+    @Test
+    void givenConcurrentAccess_whenHammered_thenCapacityIsKept() throws InterruptedException {
+        ConcurrentMRUMap<Integer, Integer, Void, Void> cache = new ConcurrentMRUMap<>(1000, 16);
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            Thread thread = new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int i = 0; i < 50000; i++) {
+                    int key = random.nextInt(4000);
+                    if (cache.get(key) == null) {
+                        cache.put(key, key);
+                    }
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertTrue(cache.getCurrentSize() <= 1000);
+        JSONObject info = cache.getInfo();
+        assertEquals(1000, info.get("capacity"));
+        assertTrue((Double) info.get("hitRate") > 0);
+    }
+
+    @Test
+    void givenNegativeCapacity_whenCreated_thenItIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> new ConcurrentMRUMap<String, String, Void, Void>(-1));
+        ConcurrentMRUMap<String, String, Void, Void> cache = new ConcurrentMRUMap<>(4);
+        assertThrows(IllegalArgumentException.class, () -> cache.setCapacity(-1));
+        assertEquals(4, cache.getCapacity());
+    }
+
+    @Test
+    void givenPeriodicClear_whenRestartedRightAfterStop_thenOneThreadRemains() throws InterruptedException {
+        ConcurrentMRUMap<String, String, Void, Void> cache = new ConcurrentMRUMap<>(4);
+        cache.setPeriodicClear(true, 50, 1000, "ConcurrentMRUMapTest clear");
+        cache.stopPeriodicClear();
+        cache.setPeriodicClear(true, 50, 1000, "ConcurrentMRUMapTest clear");
+        Thread.sleep(200);
+        assertEquals(1, countThreads("ConcurrentMRUMapTest clear"));
+        assertTrue(cache.isRunning());
+        cache.stopPeriodicClear();
+        Thread.sleep(200);
+        assertEquals(0, countThreads("ConcurrentMRUMapTest clear"));
+    }
+
+    private static long countThreads(String name) {
+        return Thread.getAllStackTraces().keySet().stream()
+                .filter(thread -> thread.isAlive() && name.equals(thread.getName())).count();
+    }
+}
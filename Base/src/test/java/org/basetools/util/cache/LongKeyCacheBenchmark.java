@@ -0,0 +1,55 @@
+package org.basetools.util.cache;
+
+import java.lang.management.ManagementFactory;
+import java.util.HashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.LongConsumer;
+
+/**
+ * Latency and allocation comparison of {@link LongKeyCache} with the boxed {@link Cache} and {@link MRUMap} for a
+ * 90% read / 10% write mix of long keys. Not part of the test run, start it with the main method.
+ */
+public class LongKeyCacheBenchmark {
+    private static final int CAPACITY = 100_000;
+    private static final int KEY_RANGE = CAPACITY * 2;
+    private static final int OPERATIONS = 5_000_000;
+    private static final int ROUNDS = 3;
+
+    public static void main(String[] args) {
+        final String value = "value";
+        for (int round = 0; round < ROUNDS; round++) {
+            LongKeyCache<String> longKeyCache = new LongKeyCache<>(CAPACITY);
+            Cache<Long, String> cache = new Cache<>(new HashMap<>(), CAPACITY);
+            MRUMap<Long, String, Void, Void> mruMap = new MRUMap<>(CAPACITY);
+            run("LongKeyCache", longKeyCache::get, key -> longKeyCache.put(key, value));
+            run("Cache<Long>", cache::get, key -> cache.put(key, value));
+            run("MRUMap<Long>", mruMap::get, key -> mruMap.put(key, value));
+        }
+    }
+
+    private static void run(String name, LongConsumer reader, LongConsumer writer) {
+        for (long key = 0; key < CAPACITY; key++) {
+            writer.accept(key);
+        }
+        final ThreadLocalRandom random = ThreadLocalRandom.current();
+        final long allocatedBefore = allocatedBytes();
+        final long start = System.nanoTime();
+        for (int i = 0; i < OPERATIONS; i++) {
+            final long key = random.nextInt(KEY_RANGE);
+            if (random.nextInt(10) == 0) {
+                writer.accept(key);
+            } else {
+                reader.accept(key);
+            }
+        }
+        final long elapsed = System.nanoTime() - start;
+        final long allocated = allocatedBytes() - allocatedBefore;
+        System.out.printf("%-14s %6.1f ns/op %8.1f bytes/op%n", name, (double) elapsed / OPERATIONS,
+                (double) allocated / OPERATIONS);
+    }
+
+    private static long allocatedBytes() {
+        return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean())
+                .getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+}
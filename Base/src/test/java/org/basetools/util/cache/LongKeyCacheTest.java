@@ -0,0 +1,55 @@
+package org.basetools.util.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LongKeyCacheTest {
+
+    @Test
+    void givenFullCache_whenPut_thenLeastRecentlyUsedIsEvicted() {
+        LongKeyCache<String> cache = new LongKeyCache<>(2);
+        cache.put(1L, "Anton");
+        cache.put(2L, "Bohnen");
+        cache.get(1L);
+        cache.put(3L, "Cache");
+        assertNull(cache.get(2L));
+        assertEquals("Anton", cache.get(1L));
+        assertEquals("Cache", cache.get(3L));
+        assertEquals(1L, cache.getInfo().get("evictions"));
+    }
+
+    @Test
+    void givenTtl_whenExceeded_thenEntryIsNotReturned() throws InterruptedException {
+        IntKeyCache<String> cache = new IntKeyCache<>(10, 30);
+        cache.put(1, "Anton");
+        cache.put(2, "Bohnen");
+        cache.put(3, "Cache", -1);
+        Thread.sleep(60);
+        assertNull(cache.get(1));
+        assertEquals(1, cache.removeExpired());
+        assertEquals(1, cache.size());
+        assertEquals("Cache", cache.get(3));
+    }
+
+    @Test
+    void givenRandomOperations_whenComparedToHashMap_thenContentsMatch() {
+        LongKeyCache<Long> cache = new LongKeyCache<>(1000);
+        Map<Long, Long> expected = new HashMap<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 100_000; i++) {
+            long key = random.nextInt(900) * 1024L;
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(key), cache.remove(key));
+            } else {
+                assertEquals(expected.put(key, (long) i), cache.put(key, (long) i));
+            }
+        }
+        assertEquals(expected.size(), cache.size());
+        expected.forEach((key, value) -> assertEquals(value, cache.get(key)));
+    }
+}
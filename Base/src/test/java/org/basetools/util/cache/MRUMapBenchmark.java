@@ -0,0 +1,65 @@
+package org.basetools.util.cache;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+
+/**
+ * Throughput comparison of {@link MRUMap} and {@link ConcurrentMRUMap} with a 90% read / 10% write mix at 1, 8 and
+ * 32 threads. Not part of the test run, start it with the main method.
+ */
+public class MRUMapBenchmark {
+    private static final int CAPACITY = 100_000;
+    private static final int KEY_RANGE = CAPACITY * 2;
+    private static final long RUN_MILLIS = 3000;
+
+    public static void main(String[] args) throws Exception {
+        for (int threads : new int[]{1, 8, 32}) {
+            MRUMap<Integer, Integer, Void, Void> mruMap = new MRUMap<>(CAPACITY);
+            ConcurrentMRUMap<Integer, Integer, Void, Void> concurrentMap = new ConcurrentMRUMap<>(CAPACITY, threads);
+            run("MRUMap", threads, mruMap::get, key -> {
+                mruMap.put(key, key);
+                return null;
+            });
+            run("ConcurrentMRUMap", threads, concurrentMap::get, key -> {
+                concurrentMap.put(key, key);
+                return null;
+            });
+        }
+    }
+
+    private static void run(String name, int threadCount, IntFunction<Integer> reader, Function<Integer, Void> writer)
+            throws InterruptedException {
+        for (int key = 0; key < CAPACITY; key++) {
+            writer.apply(key);
+        }
+        final LongAdder operations = new LongAdder();
+        final long end = System.currentTimeMillis() + RUN_MILLIS;
+        final List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < threadCount; t++) {
+            Thread thread = new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                long count = 0;
+                while ((count & 1023) != 0 || System.currentTimeMillis() < end) {
+                    int key = random.nextInt(KEY_RANGE);
+                    if (random.nextInt(10) == 0) {
+                        writer.apply(key);
+                    } else {
+                        reader.apply(key);
+                    }
+                    count++;
+                }
+                operations.add(count);
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        System.out.printf("%-18s threads=%2d %,15d ops/s%n", name, threadCount, operations.sum() * 1000 / RUN_MILLIS);
+    }
+}
@@ -0,0 +1,164 @@
+package org.basetools.util.cache;
+
+import org.basetools.util.cache.metrics.RemovalCause;
+import org.basetools.util.concurrent.HashedWheelTimer;
+import org.basetools.util.tree.TreeNode;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MRUMapTest {
+
+    @Test
+    void givenTtl_whenRemoveExpired_thenOnlyDueEntriesAreRemoved() throws InterruptedException {
+        MRUMap<String, String, Void, Void> cache = new MRUMap<>(10);
+        cache.put("short", "Anton", null, null, -1, 50);
+        cache.put("long", "Bohnen", null, null, -1, 60000);
+        cache.put("forever", "Cache");
+        Thread.sleep(100);
+        cache.removeExpired();
+        assertNull(cache.get("short"));
+        assertEquals("Bohnen", cache.get("long"));
+        assertEquals("Cache", cache.get("forever"));
+        assertEquals(2, cache.getCurrentSize());
+    }
+
+    @Test
+    void givenExpireOnRead_whenTtlExceeded_thenEntryIsNotReturned() throws InterruptedException {
+        MRUMap<String, String, Void, Void> cache = new MRUMap<>(10);
+        cache.setExpireOnRead(true);
+        cache.put("a", "Anton", null, null, 30, -1);
+        assertEquals("Anton", cache.get("a"));
+        Thread.sleep(60);
+        assertNull(cache.get("a"));
+        assertTrue(cache.isEmpty());
+    }
+
+    @Test
+    void givenExpireOnRead_whenConcurrentMapTtlExceeded_thenEntryIsNotReturned() throws InterruptedException {
+        ConcurrentMRUMap<String, String, Void, Void> cache = new ConcurrentMRUMap<>(10);
+        cache.setExpireOnRead(true);
+        cache.put("a", "Anton", null, null, -1, 30);
+        cache.put("b", "Bohnen", null, null, -1, 30);
+        Thread.sleep(60);
+        assertNull(cache.get("a"));
+        cache.removeExpired();
+        assertTrue(cache.isEmpty());
+    }
+
+    @Test
+    void givenMaximumWeight_whenPut_thenLeastRecentlyUsedIsEvictedByWeight() {
+        MRUMap<String, byte[], Void, Void> cache = new MRUMap<>(100);
+        cache.setMaximumWeight(250, (key, value) -> value.length);
+        cache.put("a", new byte[100]);
+        cache.put("b", new byte[100]);
+        cache.get("a");
+        cache.put("c", new byte[100]);
+        assertNull(cache.get("b"));
+        assertEquals(200, cache.getTotalWeight());
+        cache.put("huge", new byte[300]);
+        assertNull(cache.get("huge"));
+        assertEquals(200L, cache.getInfo().get("weight"));
+        cache.remove("a");
+        assertEquals(100, cache.getTotalWeight());
+    }
+
+    @Test
+    void givenSizeInBytesWeigher_whenTreeNodeIsWeighed_thenAllNodesAreCounted() {
+        TreeNode<String, String> root = new TreeNode<>("root");
+        TreeNode<String, String> child = new TreeNode<>(root, "child");
+        new TreeNode<>(child, "grandchild");
+        long single = SizeEstimator.estimate(new TreeNode<>("root"));
+        assertTrue(SizeEstimator.estimate(root) > 2 * single);
+        assertEquals(SizeEstimator.estimate("abc") + SizeEstimator.estimate(new byte[10]),
+                Weigher.sizeInBytes().weigh("abc", new byte[10]));
+    }
+
+    @Test
+    void givenSnapshot_whenRestored_thenRecencyIsKeptAndExpiredEntriesAreDropped(@TempDir File dir) throws Exception {
+        ValueSerializer<String> strings = new ValueSerializer<String>() {
+            @Override
+            public byte[] serialize(String value) {
+                return value.getBytes(StandardCharsets.UTF_8);
+            }
+
+            @Override
+            public String deserialize(byte[] bytes) {
+                return new String(bytes, StandardCharsets.UTF_8);
+            }
+        };
+        MRUMap<String, String, Void, Void> cache = new MRUMap<>(10);
+        cache.put("a", "Anton");
+        cache.put("b", "Bohnen", null, null, -1, 50);
+        cache.put("c", "Cache", null, null, -1, 60000);
+        cache.get("a");
+        File file = new File(dir, "mru.snapshot");
+        assertEquals(3, cache.writeSnapshot(file, strings, strings));
+        // file header, three records and the end marker, not the mapped window
+        assertEquals(8 + 3 * 36 + 3 + 16 + 36, file.length());
+        Thread.sleep(100);
+
+        MRUMap<String, String, Void, Void> restored = new MRUMap<>(10);
+        restored.put("c", "live");
+        assertEquals(1, restored.restoreSnapshot(file, strings, strings).get(5, TimeUnit.SECONDS));
+        assertEquals(2, restored.getCurrentSize());
+        assertEquals("live", restored.get("c"));
+        assertNull(restored.get("b"));
+        assertEquals("Anton", restored.getEntriesByRecency().get(0).getValue());
+    }
+
+    @Test
+    void givenRefreshAhead_whenEntryIsOld_thenStaleValueIsServedAndReloaded() throws InterruptedException {
+        AtomicInteger loads = new AtomicInteger();
+        MRUMap<String, String, Void, Void> cache = new MRUMap<>(10);
+        cache.setExpireOnRead(true);
+        cache.setRefreshAhead(20, 10_000, key -> key + loads.incrementAndGet(), Runnable::run);
+        cache.put("a", "initial", null, null, -1, 40);
+        assertEquals("initial", cache.get("a"));
+        Thread.sleep(30);
+        assertEquals("initial", cache.get("a"));
+        assertEquals("a1", cache.get("a"));
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void givenFailingReload_whenTtlExceeded_thenStaleValueIsServedUpToTheLimit() throws InterruptedException {
+        MRUMap<String, String, Void, Void> cache = new MRUMap<>(10);
+        cache.setExpireOnRead(true);
+        cache.setRefreshAhead(10, 50, key -> {
+            throw new IllegalStateException("backend down");
+        }, Runnable::run);
+        cache.put("a", "stale", null, null, -1, 20);
+        Thread.sleep(40);
+        assertEquals("stale", cache.get("a"));
+        Thread.sleep(60);
+        assertNull(cache.get("a"));
+        assertEquals(1, cache.getMetrics().getRemovalCount(RemovalCause.TTL));
+    }
+
+    @Test
+    void givenPeriodicClearOnTimer_whenSurviveTimeExceeded_thenEntriesAreRemoved() throws InterruptedException {
+        HashedWheelTimer timer = new HashedWheelTimer(5, TimeUnit.MILLISECONDS, 64, Runnable::run);
+        try {
+            MRUMap<String, String, Void, Void> cache = new MRUMap<>(10);
+            cache.setPeriodicClearOnTimer(10, 20, timer);
+            cache.put("a", "value");
+            assertTrue(cache.isRunning());
+            long deadline = System.currentTimeMillis() + 5000;
+            while (!cache.isEmpty() && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            assertTrue(cache.isEmpty());
+            cache.stopPeriodicClear();
+            assertFalse(cache.isRunning());
+        } finally {
+            timer.stop();
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package org.basetools.util.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class OffHeapStoreTest {
+
+    @Test
+    void givenStore_whenPutAndRemove_thenValueRoundTrips() {
+        OffHeapStore<String, String> store = OffHeapStore.direct(1024, 2, ValueSerializer.javaSerialization());
+        assertTrue(store.put("a", "Anton"));
+        assertEquals("Anton", store.get("a"));
+        assertEquals("Anton", store.remove("a"));
+        assertNull(store.get("a"));
+        assertEquals(0, store.size());
+        assertFalse(store.put("huge", new String(new char[2048])));
+    }
+
+    @Test
+    void givenFullStore_whenPut_thenOldestSlabIsDropped() {
+        OffHeapStore<Integer, String> store = OffHeapStore.direct(256, 2, ValueSerializer.javaSerialization());
+        for (int i = 0; i < 50; i++) {
+            store.put(i, "value" + i);
+        }
+        assertNull(store.get(0));
+        assertEquals("value49", store.get(49));
+        assertTrue((Long) store.getInfo().get("droppedEntries") > 0);
+    }
+
+    @Test
+    void givenRandomChanges_whenSlabsAreDropped_thenIndexMatchesLastValues() {
+        OffHeapStore<Integer, String> store = OffHeapStore.direct(512, 4, ValueSerializer.javaSerialization());
+        Map<Integer, String> written = new HashMap<>();
+        Random random = new Random(3);
+        for (int i = 0; i < 5000; i++) {
+            Integer key = random.nextInt(20) == 0 ? null : random.nextInt(300);
+            if (random.nextInt(4) == 0) {
+                store.discard(key);
+                written.remove(key);
+            } else {
+                store.put(key, "v" + i);
+                written.put(key, "v" + i);
+            }
+        }
+        int found = 0;
+        for (Map.Entry<Integer, String> entry : written.entrySet()) {
+            String value = store.get(entry.getKey());
+            if (value != null) {
+                assertEquals(entry.getValue(), value);
+                found++;
+            }
+        }
+        assertEquals(found, store.size());
+        assertTrue((Long) store.getInfo().get("droppedEntries") > 0);
+        for (int key = 300; key < 400; key++) {
+            assertFalse(store.containsKey(key));
+        }
+    }
+
+    @Test
+    void givenOverflowStore_whenMRUMapEvicts_thenEntryIsPromotedOnGet() {
+        MRUMap<String, String, Void, Void> cache = new MRUMap<>(2);
+        cache.setOverflowStore(OffHeapStore.direct(4096, 4, ValueSerializer.javaSerialization()));
+        cache.put("a", "Anton");
+        cache.put("b", "Bohnen");
+        cache.put("c", "Cache");
+        assertEquals(1, cache.getOverflowStore().size());
+        assertEquals("Anton", cache.get("a"));
+        assertEquals(2, cache.getCurrentSize());
+        assertEquals(1, cache.getOverflowStore().size());
+        cache.remove("b");
+        assertNull(cache.get("b"));
+    }
+
+    @Test
+    void givenOverflowStore_whenEvictedEntryIsPromoted_thenItKeepsItsExpiration() throws InterruptedException {
+        MRUMap<String, String, Void, Void> cache = new MRUMap<>(1);
+        cache.setExpireOnRead(true);
+        cache.setOverflowStore(OffHeapStore.direct(4096, 4, ValueSerializer.javaSerialization()));
+        cache.put("a", "Anton", null, null, -1, 100);
+        cache.put("b", "Bohnen");
+        assertEquals(1, cache.getOverflowStore().size());
+        assertEquals("Anton", cache.get("a"));
+        assertTrue(cache.keySet().contains("a"));
+        Thread.sleep(150);
+        assertNull(cache.get("a"));
+        assertFalse(cache.keySet().contains("a"));
+        assertFalse(cache.getOverflowStore().containsKey("a"));
+    }
+
+    @Test
+    void givenOverflowStore_whenCacheEvicts_thenEntryIsPromotedOnGet() {
+        Cache<String, String> cache = new Cache<>(new HashMap<>(), 1);
+        cache.setOverflowStore(OffHeapStore.direct(4096, 4, ValueSerializer.javaSerialization()));
+        cache.put("a", "Anton");
+        cache.put("b", "Bohnen");
+        assertEquals("Anton", cache.get("a"));
+        assertEquals("Bohnen", cache.get("b"));
+    }
+}
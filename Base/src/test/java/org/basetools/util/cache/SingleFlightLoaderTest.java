@@ -0,0 +1,64 @@
+package org.basetools.util.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SingleFlightLoaderTest {
+
+    @Test
+    void givenConcurrentMisses_whenGetOrCreate_thenCreatorRunsOnce() throws InterruptedException {
+        Cache<String, String> cache = new Cache<>(new HashMap<>(), 10);
+        AtomicInteger created = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        List<String> results = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                String value = cache.getOrCreate("a", key -> {
+                    created.incrementAndGet();
+                    try {
+                        Thread.sleep(100);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    return "Anton";
+                });
+                synchronized (results) {
+                    results.add(value);
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(1, created.get());
+        assertEquals(8, results.size());
+        results.forEach(value -> assertEquals("Anton", value));
+    }
+
+    @Test
+    void givenFailingCreator_whenGetOrCreate_thenFailureIsNotCached() {
+        MRUMap<String, String, Void, Void> cache = new MRUMap<>(10);
+        assertThrows(IllegalStateException.class, () -> cache.getOrCreate("a", key -> {
+            throw new IllegalStateException("load failed");
+        }));
+        assertNull(cache.get("a"));
+        assertEquals("Anton", cache.getOrCreate("a", () -> "Anton"));
+        assertEquals("Anton", cache.get("a"));
+    }
+}
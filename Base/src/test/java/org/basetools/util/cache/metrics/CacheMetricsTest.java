@@ -0,0 +1,83 @@
+package org.basetools.util.cache.metrics;
+
+import net.minidev.json.JSONObject;
+import org.basetools.util.cache.MRUMap;
+import org.basetools.util.info.SystemInfoManager;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CacheMetricsTest {
+
+    @Test
+    void givenRecordedLatencies_whenPercentileRequested_thenRelativeErrorIsSmall() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long nanos = 1; nanos <= 100_000; nanos++) {
+            histogram.record(nanos * 1000);
+        }
+        assertEquals(100_000, histogram.getCount());
+        assertEquals(50_000_000, histogram.getValueAtPercentile(50), 50_000_000 * 0.0625);
+        assertEquals(99_000_000, histogram.getValueAtPercentile(99), 99_000_000 * 0.0625);
+        assertEquals(100_000_000, histogram.getValueAtPercentile(100));
+        for (long value : new long[]{0, 31, 32, 1000, Long.MAX_VALUE}) {
+            assertTrue(LatencyHistogram.bucketUpperBound(LatencyHistogram.bucketIndex(value)) >= value);
+        }
+    }
+
+    @Test
+    void givenMRUMap_whenEntriesAreRemoved_thenCausesAreCounted() throws InterruptedException {
+        MRUMap<String, String, Void, Void> cache = new MRUMap<>(2);
+        cache.put("ttl", "Anton", null, null, -1, 20);
+        cache.put("survive", "Bohnen", null, null, 20, -1);
+        cache.put("size", "Cache");
+        cache.put("explicit", "Dieter");
+        cache.remove("explicit");
+        cache.put("ttl", "Anton", null, null, -1, 20);
+        cache.put("survive", "Bohnen", null, null, 20, -1);
+        Thread.sleep(50);
+        cache.removeExpired();
+        CacheMetrics metrics = cache.getMetrics();
+        assertEquals(3, metrics.getRemovalCount(RemovalCause.SIZE));
+        assertEquals(1, metrics.getRemovalCount(RemovalCause.EXPLICIT));
+        assertEquals(1, metrics.getRemovalCount(RemovalCause.TTL));
+        assertEquals(1, metrics.getRemovalCount(RemovalCause.SURVIVE_TIME));
+        assertNull(cache.get("ttl"));
+        assertEquals("x", cache.getOrCreate("loaded", k -> "x"));
+        assertEquals(1, metrics.getLoadLatency().getCount());
+        assertEquals(0.0, metrics.getHitRate(10_000));
+    }
+
+    @Test
+    void givenPublishedMetrics_whenInfosRequested_thenMetricsAreIncluded() {
+        CacheMetrics metrics = new CacheMetrics().publish("testCache");
+        try {
+            metrics.recordHit();
+            JSONObject info = (JSONObject) SystemInfoManager.getInstance().getInfos().get("testCache");
+            assertEquals(1L, info.get("hits"));
+        } finally {
+            metrics.unpublish();
+        }
+        assertNull(SystemInfoManager.getInstance().getProvider("testCache"));
+    }
+
+    @Test
+    void givenWarmMetrics_whenRecording_thenNothingIsAllocated() {
+        CacheMetrics metrics = new CacheMetrics();
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long thread = Thread.currentThread().getId();
+        for (int i = 0; i < 100_000; i++) {
+            metrics.recordHit();
+            metrics.recordLoad(i, true);
+        }
+        long before = threads.getThreadAllocatedBytes(thread);
+        for (int i = 0; i < 100_000; i++) {
+            metrics.recordHit();
+            metrics.recordMiss();
+            metrics.recordLoad(i, true);
+            metrics.recordRemoval(RemovalCause.SIZE);
+        }
+        assertTrue(threads.getThreadAllocatedBytes(thread) - before < 1024);
+    }
+}
@@ -0,0 +1,126 @@
+package org.basetools.util.collection;
+
+import java.util.AbstractCollection;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.function.Supplier;
+
+/**
+ * Throughput comparison of {@link SnapshotList} and {@link StripedAppendList} with {@link ConcurrentList} and
+ * {@link CopyOnWriteArrayList} for a listener registry (many iterating threads, rare changes) and an append-heavy log
+ * (many appending threads). Not part of the test run, start it with the main method.
+ */
+public class ConcurrentListBenchmark {
+    private static final int THREADS = 4;
+    private static final int LISTENERS = 16;
+    private static final int ITERATIONS = 500_000;
+    private static final int WRITE_EVERY = 10_000;
+    private static final int APPENDS = 50_000;
+    private static final int ROUNDS = 3;
+
+    public static void main(String[] args) throws InterruptedException {
+        for (int round = 0; round < ROUNDS; round++) {
+            iterate("ConcurrentList", () -> new ConcurrentList<>(new ArrayList<>()));
+            iterate("CopyOnWriteArrayList", CopyOnWriteArrayList::new);
+            iterate("SnapshotList", SnapshotList::new);
+            append("ConcurrentList", () -> new ConcurrentList<>(new ArrayList<>()));
+            append("CopyOnWriteArrayList", CopyOnWriteArrayList::new);
+            append("StripedAppendList", () -> new AppendView<>(new StripedAppendList<>()));
+        }
+    }
+
+    /**
+     * Every thread iterates the listeners, one of them replaces a listener every WRITE_EVERY iterations.
+     */
+    private static void iterate(String name, Supplier<List<Integer>> factory) throws InterruptedException {
+        final List<Integer> listeners = factory.get();
+        for (int i = 0; i < LISTENERS; i++) {
+            listeners.add(i);
+        }
+        final long elapsed = runThreads(thread -> {
+            long sum = 0;
+            for (int i = 0; i < ITERATIONS; i++) {
+                if (thread == 0 && i % WRITE_EVERY == 0) {
+                    listeners.remove(Integer.valueOf(i % LISTENERS));
+                    listeners.add(i % LISTENERS);
+                }
+                for (Integer listener : listeners) {
+                    sum += listener;
+                }
+            }
+            return sum;
+        });
+        System.out.printf("iterate %-22s %8.1f ns/iteration%n", name, (double) elapsed / (THREADS * ITERATIONS));
+    }
+
+    private static void append(String name, Supplier<Collection<Integer>> factory) throws InterruptedException {
+        final Collection<Integer> log = factory.get();
+        final long elapsed = runThreads(thread -> {
+            for (int i = 0; i < APPENDS; i++) {
+                log.add(i);
+            }
+            return log.size();
+        });
+        System.out.printf("append  %-22s %8.1f ns/append%n", name, (double) elapsed / (THREADS * APPENDS));
+    }
+
+    private static long runThreads(ThreadTask task) throws InterruptedException {
+        final CountDownLatch start = new CountDownLatch(1);
+        final List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            final int thread = t;
+            final Thread worker = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                if (task.run(thread) == 42) {
+                    System.out.print("");
+                }
+            });
+            threads.add(worker);
+            worker.start();
+        }
+        final long begin = System.nanoTime();
+        start.countDown();
+        for (Thread worker : threads) {
+            worker.join();
+        }
+        return System.nanoTime() - begin;
+    }
+
+    private interface ThreadTask {
+        long run(int thread);
+    }
+
+    /**
+     * Adapts the append list to the collection based driver, only add and size are used.
+     */
+    private static final class AppendView<T> extends AbstractCollection<T> {
+        private final StripedAppendList<T> log;
+
+        AppendView(StripedAppendList<T> log) {
+            this.log = log;
+        }
+
+        @Override
+        public boolean add(T t) {
+            return log.add(t);
+        }
+
+        @Override
+        public Iterator<T> iterator() {
+            return log.iterator();
+        }
+
+        @Override
+        public int size() {
+            return log.size();
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package org.basetools.util.collection;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LimitedQueueTest {
+
+    @Test
+    void givenFullQueue_whenAdded_thenOldestIsEvicted() {
+        LimitedQueue<Integer> queue = new LimitedQueue<>(40);
+        for (int i = 0; i < 100; i++) {
+            queue.add(i);
+        }
+        assertEquals(40, queue.size());
+        assertEquals(60, queue.peek());
+        assertEquals(99, queue.peekLast());
+        assertFalse(queue.contains(59));
+        assertTrue(queue.contains(60));
+        List<Integer> elements = new ArrayList<>(queue);
+        assertEquals(60, elements.get(0));
+        assertEquals(99, elements.get(39));
+        assertEquals(60, queue.poll());
+        queue.add(100);
+        assertEquals(40, queue.size());
+        assertEquals(61, queue.peek());
+    }
+
+    @Test
+    void givenWrappedQueue_whenElementsAreRemoved_thenOrderIsKept() {
+        LimitedQueue<String> queue = new LimitedQueue<>(4);
+        queue.addAll(Arrays.asList("a", "b", "c", "d", "e", "f"));
+        assertTrue(queue.remove("d"));
+        assertArrayEquals(new String[]{"c", "e", "f"}, queue.toArray(new String[0]));
+        Iterator<String> iterator = queue.iterator();
+        iterator.next();
+        iterator.remove();
+        assertEquals("e", iterator.next());
+        queue.add("g");
+        queue.add("h");
+        assertArrayEquals(new Object[]{"e", "f", "g", "h"}, queue.toArray());
+        queue.retainAll(Arrays.asList("f", "h"));
+        assertArrayEquals(new Object[]{"f", "h"}, queue.toArray());
+        queue.clear();
+        assertNull(queue.poll());
+        assertTrue(new LimitedQueue<String>(0).add("x"));
+    }
+
+    @Test
+    void givenConcurrentQueue_whenFilledByManyThreads_thenLimitHolds() throws InterruptedException {
+        ConcurrentLimitedQueue<Integer> queue = new ConcurrentLimitedQueue<>(5);
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            Thread thread = new Thread(() -> {
+                for (int i = 0; i < 10_000; i++) {
+                    queue.add(i);
+                    for (Integer ignored : queue) {
+                        // iterating a snapshot never fails while others add
+                    }
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(5, queue.size());
+        assertEquals(5, queue.toArray().length);
+    }
+}
@@ -0,0 +1,73 @@
+package org.basetools.util.collection;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SnapshotListTest {
+
+    @Test
+    void givenIterator_whenListChanges_thenIteratorKeepsItsSnapshot() {
+        SnapshotList<String> list = new SnapshotList<>(Arrays.asList("a", "b", "c"));
+        Iterator<String> iterator = list.iterator();
+        list.remove("b");
+        list.add("d");
+        list.add(0, "z");
+        assertEquals(Arrays.asList("a", "b", "c"), Arrays.asList(iterator.next(), iterator.next(), iterator.next()));
+        assertFalse(iterator.hasNext());
+        assertEquals(Arrays.asList("z", "a", "c", "d"), list);
+        assertEquals(3, list.lastIndexOf("d"));
+        assertThrows(UnsupportedOperationException.class, () -> list.iterator().remove());
+    }
+
+    @Test
+    void givenBatchedUpdate_whenReadConcurrently_thenReadersSeeAllOrNothing() throws InterruptedException {
+        SnapshotList<Integer> list = new SnapshotList<>();
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        Thread reader = new Thread(() -> {
+            try {
+                for (int i = 0; i < 20_000; i++) {
+                    int size = list.size();
+                    // every update adds pairs
+                    assertEquals(0, list.snapshot().size() % 2);
+                    int sum = 0;
+                    for (Integer value : list) {
+                        sum += value;
+                    }
+                    assertTrue(size == 0 || sum != 0);
+                }
+            } catch (ConcurrentModificationException | AssertionError e) {
+                failure.set(e);
+            }
+        });
+        reader.start();
+        for (int i = 1; i <= 500; i++) {
+            int value = i;
+            list.update(elements -> elements.addAll(Arrays.asList(value, value)));
+        }
+        reader.join();
+        assertNull(failure.get());
+        assertEquals(1000, list.size());
+        list.removeIf(value -> value > 1);
+        assertEquals(Collections.nCopies(2, 1), list);
+        list.clear();
+        assertTrue(list.isEmpty());
+    }
+
+    @Test
+    void givenSubList_whenListChanges_thenSubListIsReadOnlySnapshot() {
+        SnapshotList<String> list = new SnapshotList<>(Arrays.asList("a", "b", "c"));
+        List<String> sub = list.subList(1, 3);
+        list.set(1, "x");
+        assertEquals(Arrays.asList("b", "c"), sub);
+        assertThrows(UnsupportedOperationException.class, () -> sub.add("d"));
+        assertEquals(Arrays.asList("a", "x", "c"), list);
+    }
+}
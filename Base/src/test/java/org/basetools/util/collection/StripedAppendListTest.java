@@ -0,0 +1,47 @@
+package org.basetools.util.collection;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class StripedAppendListTest {
+
+    @Test
+    void givenConcurrentAppenders_whenIterated_thenAllElementsArePresentInThreadOrder() throws InterruptedException {
+        // small chunks, so appenders share stripes and link many chunks
+        StripedAppendList<long[]> log = new StripedAppendList<>(2, 16);
+        int threads = 4;
+        int perThread = 20_000;
+        List<Thread> appenders = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            final long thread = t;
+            Thread appender = new Thread(() -> {
+                for (int i = 0; i < perThread; i++) {
+                    log.add(new long[]{thread, i});
+                }
+            });
+            appenders.add(appender);
+            appender.start();
+        }
+        for (Thread appender : appenders) {
+            appender.join();
+        }
+        assertEquals(threads * perThread, log.size());
+        long[] next = new long[threads];
+        int count = 0;
+        for (long[] element : log) {
+            // stripes are shared, but the elements of a thread keep their order
+            assertTrue(element[1] >= next[(int) element[0]]);
+            next[(int) element[0]] = element[1] + 1;
+            count++;
+        }
+        assertEquals(threads * perThread, count);
+        assertEquals(threads * perThread, log.stream().count());
+        log.clear();
+        assertTrue(log.isEmpty());
+        assertFalse(log.iterator().hasNext());
+    }
+}
@@ -0,0 +1,115 @@
+package org.basetools.util.concurrent;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class HashedWheelTimerTest {
+    private final HashedWheelTimer timer = new HashedWheelTimer(5, TimeUnit.MILLISECONDS, 8, Runnable::run);
+
+    @AfterEach
+    void stopTimer() {
+        timer.stop();
+    }
+
+    @Test
+    void givenTasksBeyondOneRound_whenDue_thenEachRunsOnceNotBeforeItsDelay() throws InterruptedException {
+        int count = 20;
+        CountDownLatch done = new CountDownLatch(count);
+        AtomicInteger early = new AtomicInteger();
+        for (int i = 0; i < count; i++) {
+            // up to 190ms, several rounds of the 8 x 5ms wheel
+            long delay = i * 10;
+            long start = System.nanoTime();
+            timer.schedule(() -> {
+                if (TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < delay) {
+                    early.incrementAndGet();
+                }
+                done.countDown();
+            }, delay, TimeUnit.MILLISECONDS);
+        }
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(0, early.get());
+        assertEquals(0, timer.getPendingCount());
+    }
+
+    @Test
+    void givenCancelledTask_whenDue_thenItDoesNotRun() throws InterruptedException {
+        AtomicInteger runs = new AtomicInteger();
+        HashedWheelTimer.Timeout timeout = timer.schedule(runs::incrementAndGet, 50, TimeUnit.MILLISECONDS);
+        CountDownLatch later = new CountDownLatch(1);
+        timer.schedule(later::countDown, 100, TimeUnit.MILLISECONDS);
+        assertTrue(timeout.cancel());
+        assertFalse(timeout.cancel());
+        assertTrue(later.await(5, TimeUnit.SECONDS));
+        assertEquals(0, runs.get());
+        assertTrue(timeout.isCancelled());
+        assertFalse(timeout.isExpired());
+    }
+
+    @Test
+    void givenPeriodicTask_whenCancelled_thenItStopsRunning() throws InterruptedException {
+        AtomicInteger runs = new AtomicInteger();
+        CountDownLatch threeRuns = new CountDownLatch(3);
+        HashedWheelTimer.Timeout timeout = timer.scheduleAtFixedRate(() -> {
+            runs.incrementAndGet();
+            threeRuns.countDown();
+        }, 0, 10, TimeUnit.MILLISECONDS);
+        assertTrue(threeRuns.await(5, TimeUnit.SECONDS));
+        assertTrue(timeout.cancel());
+        int cancelledAt = runs.get();
+        TimeUnit.MILLISECONDS.sleep(60);
+        assertTrue(runs.get() <= cancelledAt + 1);
+        assertEquals(0, timer.getPendingCount());
+    }
+
+    @Test
+    void givenPeriodShorterThanTick_whenRunning_thenTaskRunsOncePerTick() throws InterruptedException {
+        HashedWheelTimer coarse = new HashedWheelTimer(10, TimeUnit.MILLISECONDS, 512, Runnable::run);
+        try {
+            AtomicInteger runs = new AtomicInteger();
+            HashedWheelTimer.Timeout timeout = coarse.scheduleAtFixedRate(runs::incrementAndGet, 0, 3,
+                    TimeUnit.MILLISECONDS);
+            TimeUnit.MILLISECONDS.sleep(500);
+            timeout.cancel();
+            // about 50 ticks, without re-arming behind the expired bucket it waits a whole rotation of 5.12s
+            assertTrue(runs.get() >= 20, String.valueOf(runs.get()));
+        } finally {
+            coarse.stop();
+        }
+    }
+
+    @Test
+    void givenCallerExecutor_whenTimerStops_thenExecutorKeepsRunning() {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            HashedWheelTimer owned = new HashedWheelTimer(10, TimeUnit.MILLISECONDS, 8, executor);
+            owned.schedule(() -> {
+            }, 0, TimeUnit.MILLISECONDS);
+            owned.stop();
+            assertFalse(executor.isShutdown());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void givenFailingTask_whenDue_thenLaterTasksStillRun() throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(1);
+        timer.schedule(() -> {
+            // keep the test output clean
+            Thread.currentThread().setUncaughtExceptionHandler((t, e) -> {
+            });
+            throw new IllegalStateException("failed");
+        }, 0, TimeUnit.MILLISECONDS);
+        timer.schedule(done::countDown, 20, TimeUnit.MILLISECONDS);
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+    }
+}
@@ -0,0 +1,60 @@
+package org.basetools.util.concurrent;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MpscQueueTest {
+
+    @Test
+    void givenConcurrentProducers_whenDrained_thenEveryElementArrivesInProducerOrder() throws InterruptedException {
+        MpscQueue<int[]> queue = new MpscQueue<>();
+        int producers = 4;
+        int perProducer = 50_000;
+        List<Thread> threads = new ArrayList<>();
+        for (int p = 0; p < producers; p++) {
+            final int producer = p;
+            Thread thread = new Thread(() -> {
+                for (int i = 0; i < perProducer; i += 2) {
+                    if (i % 4 == 0) {
+                        queue.offer(new int[]{producer, i});
+                        queue.offer(new int[]{producer, i + 1});
+                    } else {
+                        queue.offerAll(Arrays.asList(new int[]{producer, i}, new int[]{producer, i + 1}));
+                    }
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        int[] next = new int[producers];
+        int received = 0;
+        while (received < producers * perProducer) {
+            int[] element = queue.poll();
+            if (element != null) {
+                assertEquals(next[element[0]]++, element[1]);
+                received++;
+            }
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertTrue(queue.isEmpty());
+        assertNull(queue.poll());
+    }
+
+    @Test
+    void givenElements_whenDrainedWithLimit_thenRemainingElementsStay() {
+        MpscQueue<String> queue = new MpscQueue<>();
+        queue.offerAll(Arrays.asList("a", "b", "c"));
+        List<String> drained = new ArrayList<>();
+        assertEquals(2, queue.drain(drained::add, 2));
+        assertEquals(Arrays.asList("a", "b"), drained);
+        assertEquals(1, queue.size());
+        assertEquals("c", queue.iterator().next());
+    }
+}
@@ -0,0 +1,156 @@
+package org.basetools.util.concurrent.worker;
+
+import org.basetools.util.sort.Priorized;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PriorityWorkSchedulerTest {
+
+    @Test
+    void givenBusyWorker_whenTasksOfMixedPriorityQueue_thenUrgentTasksRunFirst() throws InterruptedException {
+        PriorityWorkScheduler scheduler = new PriorityWorkScheduler(1, 8, 60_000, null);
+        CountDownLatch blocker = new CountDownLatch(1);
+        CountDownLatch blocking = new CountDownLatch(1);
+        scheduler.execute(() -> {
+            blocking.countDown();
+            try {
+                blocker.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        // queue the others only while the worker is busy
+        assertTrue(blocking.await(5, TimeUnit.SECONDS));
+        List<Integer> order = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch done = new CountDownLatch(6);
+        for (int priority : new int[]{7, 3, 0, 7, 0, 3}) {
+            scheduler.execute(new PriorizedWork(priority, () -> {
+                order.add(priority);
+                done.countDown();
+            }));
+        }
+        blocker.countDown();
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(List.of(0, 0, 3, 3, 7, 7), order);
+        assertEquals(2, scheduler.getWaitTime(7).getCount());
+        scheduler.shutdown();
+        assertTrue(scheduler.awaitTermination(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void givenAgedBulkTask_whenUrgentTasksArrive_thenBulkTaskIsNotStarved() throws InterruptedException {
+        PriorityWorkScheduler scheduler = new PriorityWorkScheduler(1, 8, 5, null);
+        CountDownLatch blocker = new CountDownLatch(1);
+        scheduler.execute(() -> {
+            try {
+                blocker.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        List<Integer> order = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch done = new CountDownLatch(2);
+        scheduler.execute(new PriorizedWork(7, () -> {
+            order.add(7);
+            done.countDown();
+        }));
+        Thread.sleep(100);
+        scheduler.execute(new PriorizedWork(0, () -> {
+            order.add(0);
+            done.countDown();
+        }));
+        blocker.countDown();
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(List.of(7, 0), order);
+        scheduler.shutdown();
+    }
+
+    @Test
+    void givenPriorityWorkService_whenUnitsArePushed_thenAllRunOnTheScheduler() throws InterruptedException {
+        WorkService<Void> workService = new WorkService<Void>().withCorePoolSize(4).withPriorityScheduling().startWork();
+        CountDownLatch done = new CountDownLatch(1000);
+        for (int i = 0; i < 1000; i++) {
+            workService.pushWorkUnit(new PriorizedWork(i % 8, done::countDown));
+        }
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        assertNotNull(workService.getPriorityScheduler().getInfo().get("waitTimes"));
+        workService.shutdown();
+    }
+
+    @Test
+    void givenBatchAndAdaptiveSubmission_whenUnitsArePriorized_thenTheirClassesAreUsed() {
+        WorkService<Void> batchService = new WorkService<Void>().withCorePoolSize(2).withPriorityScheduling()
+                .startWork();
+        WorkService<Void> adaptiveService = new WorkService<Void>().withCorePoolSize(2).withPriorityScheduling()
+                .withAdaptiveConcurrency(2, 4).startWork();
+        List<Runnable> works = new ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            works.add(new PriorizedWork(i % 3 == 0 ? 0 : 7, () -> {
+            }));
+        }
+        batchService.submitWorkUnits(works, null, 0).getCompletion().join();
+        adaptiveService.submitWorkUnits(works, null, 4).getCompletion().join();
+        for (WorkService<Void> workService : List.of(batchService, adaptiveService)) {
+            PriorityWorkScheduler scheduler = workService.getPriorityScheduler();
+            assertEquals(10, scheduler.getWaitTime(0).getCount());
+            assertEquals(20, scheduler.getWaitTime(7).getCount());
+            assertEquals(0, scheduler.getWaitTime(PriorityWorkScheduler.DEFAULT_PRIORITY_CLASSES / 2).getCount());
+            workService.shutdown();
+        }
+    }
+
+    @Test
+    void givenTaskThrowingAnError_whenExecuted_thenItIsReportedAndTheWorkerSurvives() throws InterruptedException {
+        Thread.UncaughtExceptionHandler previous = Thread.getDefaultUncaughtExceptionHandler();
+        List<Throwable> reported = Collections.synchronizedList(new ArrayList<>());
+        Thread.setDefaultUncaughtExceptionHandler((thread, e) -> reported.add(e));
+        try {
+            PriorityWorkScheduler scheduler = new PriorityWorkScheduler(1, 8, 60_000, null);
+            Error error = new Error("task failed");
+            scheduler.execute(() -> {
+                throw error;
+            });
+            CountDownLatch done = new CountDownLatch(1);
+            scheduler.execute(done::countDown);
+            assertTrue(done.await(5, TimeUnit.SECONDS));
+            assertEquals(List.of(error), reported);
+            assertFalse(scheduler.isTerminated());
+            scheduler.shutdown();
+            assertTrue(scheduler.awaitTermination(5, TimeUnit.SECONDS));
+        } finally {
+            Thread.setDefaultUncaughtExceptionHandler(previous);
+        }
+    }
+
+    private static final class PriorizedWork implements Runnable, Priorized {
+        private final int priority;
+        private final Runnable work;
+
+        PriorizedWork(int priority, Runnable work) {
+            this.priority = priority;
+            this.work = work;
+        }
+
+        @Override
+        public int getPriority() {
+            return priority;
+        }
+
+        @Override
+        public long getCreationId() {
+            return 0;
+        }
+
+        @Override
+        public void run() {
+            work.run();
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package org.basetools.util.concurrent.worker;
+
+import org.basetools.util.cache.metrics.LatencyHistogram;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Throughput and submit-to-start latency of small work units pushed by several producers into a {@link WorkService},
+ * and the wake-up latency of an idle service for units pushed one at a time. Not part of the test run, start it with
+ * the main method.
+ */
+public class WorkServiceBenchmark {
+    private static final int PRODUCERS = 4;
+    private static final int UNITS_PER_PRODUCER = 50_000;
+    private static final int ROUNDS = 3;
+    private static final int SEQUENTIAL_UNITS = 20_000;
+
+    public static void main(String[] args) throws InterruptedException {
+        for (int round = 0; round < ROUNDS; round++) {
+            run();
+            runSequential();
+        }
+    }
+
+    private static void runSequential() throws InterruptedException {
+        final WorkService<Void> workService = new WorkService<Void>().withCorePoolSize(4).withMaximumPoolSize(4)
+                .withJobQueueSize(1024).startWork();
+        final LatencyHistogram latency = new LatencyHistogram();
+        for (int i = 0; i < SEQUENTIAL_UNITS; i++) {
+            final CountDownLatch started = new CountDownLatch(1);
+            final long submitted = System.nanoTime();
+            workService.pushWorkUnit(() -> {
+                latency.record(System.nanoTime() - submitted);
+                started.countDown();
+            });
+            started.await();
+        }
+        workService.shutdown();
+        System.out.printf("sequential        p50 %,10d ns  p99 %,12d ns%n", latency.getValueAtPercentile(50),
+                latency.getValueAtPercentile(99));
+    }
+
+    private static void run() throws InterruptedException {
+        final WorkService<Void> workService = new WorkService<Void>().withCorePoolSize(4).withMaximumPoolSize(4)
+                .withJobQueueSize(1024).startWork();
+        final LatencyHistogram latency = new LatencyHistogram();
+        final CountDownLatch done = new CountDownLatch(PRODUCERS * UNITS_PER_PRODUCER);
+        final List<Thread> producers = new ArrayList<>();
+        final long start = System.nanoTime();
+        for (int p = 0; p < PRODUCERS; p++) {
+            Thread producer = new Thread(() -> {
+                for (int i = 0; i < UNITS_PER_PRODUCER; i++) {
+                    final long submitted = System.nanoTime();
+                    workService.pushWorkUnit(() -> {
+                        latency.record(System.nanoTime() - submitted);
+                        done.countDown();
+                    });
+                }
+            });
+            producers.add(producer);
+            producer.start();
+        }
+        for (Thread producer : producers) {
+            producer.join();
+        }
+        done.await();
+        final long elapsed = System.nanoTime() - start;
+        workService.shutdown();
+        System.out.printf("%,12d units/s  p50 %,10d ns  p99 %,12d ns%n",
+                (long) (PRODUCERS * UNITS_PER_PRODUCER * 1e9 / elapsed), latency.getValueAtPercentile(50),
+                latency.getValueAtPercentile(99));
+    }
+}
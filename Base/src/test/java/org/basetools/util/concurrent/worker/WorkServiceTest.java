@@ -3,9 +3,15 @@ package org.basetools.util.concurrent.worker;
 import org.basetools.util.xml.Xml;
 import org.junit.jupiter.api.Test;
 
+import static org.junit.jupiter.api.Assertions.*;
+
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
 class WorkServiceTest {
@@ -89,4 +95,176 @@ class WorkServiceTest {
         }catch (RuntimeException re){}
         //  System.out.println("executed:" + workService.shutdown(false));
     }
-}
\ No newline at end of file
+
+    @Test
+    void givenPausedService_whenResumed_thenPushedWorkRuns() throws InterruptedException {
+        WorkService<Xml> workService = new WorkService<Xml>().startWork();
+        workService.pauseWork(true);
+        CountDownLatch done = new CountDownLatch(3);
+        for (int i = 0; i < 3; i++) {
+            workService.pushWorkUnit(done::countDown);
+        }
+        assertFalse(done.await(200, TimeUnit.MILLISECONDS));
+        workService.pauseWork(false);
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertTrue(workService.shutdown(false));
+    }
+
+    @Test
+    void givenVirtualThreads_whenManyBlockingUnitsArePushed_thenConcurrencyIsCapped() throws InterruptedException {
+        WorkService<Xml> workService = new WorkService<Xml>().withVirtualThreads().withMaxConcurrency(20).startWork();
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(200);
+        for (int i = 0; i < 200; i++) {
+            workService.pushWorkUnit(() -> {
+                maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                try {
+                    Thread.sleep(10);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                running.decrementAndGet();
+                done.countDown();
+            });
+        }
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        assertTrue(maxRunning.get() <= 20);
+        workService.shutdown();
+    }
+
+    @Test
+    void givenBatchWithFailingUnit_whenSubmitted_thenFailureIsReportedPerUnitAndAggregated() {
+        WorkService<Xml> workService = new WorkService<Xml>().startWork();
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        List<Runnable> works = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            final int unit = i;
+            works.add(() -> {
+                maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                try {
+                    if (unit == 7) {
+                        throw new IllegalArgumentException("unit 7");
+                    }
+                } finally {
+                    running.decrementAndGet();
+                }
+            });
+        }
+        WorkBatch batch = workService.submitWorkUnits(works, null, 3);
+        CompletionException failure = assertThrows(CompletionException.class, () -> batch.getCompletion().join());
+        assertTrue(failure.getCause() instanceof IllegalArgumentException);
+        assertTrue(batch.getUnits().get(7).isCompletedExceptionally());
+        assertEquals(49, batch.getUnits().stream().filter(unit -> !unit.isCompletedExceptionally()).count());
+        assertTrue(maxRunning.get() <= 3);
+        workService.shutdown();
+    }
+
+    @Test
+    void givenRunningBatch_whenCancelled_thenPendingUnitsAreSkipped() throws InterruptedException {
+        WorkService<Xml> workService = new WorkService<Xml>().startWork();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger ran = new AtomicInteger();
+        List<Runnable> works = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            works.add(() -> {
+                ran.incrementAndGet();
+                started.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+        }
+        WorkBatch batch = workService.submitWorkUnits(works, null, 1);
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        assertTrue(batch.cancel());
+        release.countDown();
+        assertTrue(batch.getCompletion().isCancelled() || batch.getCompletion().isCompletedExceptionally());
+        Thread.sleep(100);
+        assertEquals(1, ran.get());
+        workService.shutdown();
+    }
+
+    @Test
+    void givenFullAdmissionQueue_whenRejecting_thenRejectionsAndDepthAreExported() throws InterruptedException {
+        WorkService<Xml> workService = new WorkService<Xml>().withAdmissionLimit(2, AdmissionMode.REJECT);
+        // not started, so nothing is dispatched
+        workService.pushWorkUnit(() -> {
+        });
+        workService.pushWorkUnit(() -> {
+        });
+        assertThrows(RejectedExecutionException.class, () -> workService.pushWorkUnit(() -> {
+        }));
+        assertEquals(2, workService.getStatistics().getQueueDepth());
+        assertEquals(1, workService.getStatistics().getRejectedCount());
+        assertEquals(1L, workService.getStatistics().toJSON().get("Rejected"));
+        CountDownLatch done = new CountDownLatch(1);
+        workService.startWork();
+        long deadline = System.currentTimeMillis() + 5000;
+        while (workService.getQueueDepth() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        workService.pushWorkUnit(done::countDown);
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        workService.shutdown();
+    }
+
+    @Test
+    void givenTimedAdmission_whenQueueStaysFull_thenProducerIsRejectedAfterTimeout() {
+        WorkService<Xml> workService = new WorkService<Xml>().withAdmissionLimit(1, AdmissionMode.TIMED, 50);
+        workService.pushWorkUnit(() -> {
+        });
+        long start = System.nanoTime();
+        assertThrows(RejectedExecutionException.class, () -> workService.pushWorkUnit(() -> {
+        }));
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= 45);
+    }
+
+    @Test
+    void givenRateLimit_whenBurstIsUsed_thenDispatchIsSpread() throws InterruptedException {
+        WorkService<Xml> workService = new WorkService<Xml>().withRateLimit(100, 5);
+        workService.startWork();
+        int units = 15;
+        CountDownLatch done = new CountDownLatch(units);
+        long start = System.nanoTime();
+        for (int i = 0; i < units; i++) {
+            workService.pushWorkUnit(done::countDown);
+        }
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        // 5 units of burst, the other 10 at 100 per second
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= 90);
+        workService.shutdown();
+    }
+
+    @Test
+    void givenAdaptiveConcurrency_whenUnitsSlowDown_thenLimitShrinks() throws InterruptedException {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(10, 2, 20);
+        for (int i = 0; i < 50; i++) {
+            limit.acquire();
+            limit.release(TimeUnit.MILLISECONDS.toNanos(1), true);
+        }
+        // fast completions while saturated grow the limit
+        for (int i = 0; i < limit.getLimit(); i++) {
+            limit.acquire();
+        }
+        int saturated = limit.getLimit();
+        limit.release(TimeUnit.MILLISECONDS.toNanos(1), true);
+        assertEquals(saturated + 1, limit.getLimit());
+        Thread.sleep(2);
+        limit.release(TimeUnit.MILLISECONDS.toNanos(10), true);
+        assertTrue(limit.getLimit() < saturated + 1);
+        WorkService<Xml> workService = new WorkService<Xml>().withAdaptiveConcurrency(2, 20);
+        workService.startWork();
+        CountDownLatch done = new CountDownLatch(100);
+        for (int i = 0; i < 100; i++) {
+            workService.pushWorkUnit(done::countDown);
+        }
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertTrue(workService.getConcurrencyLimit().getLimit() >= 2);
+        workService.shutdown();
+    }
+}
@@ -0,0 +1,193 @@
+package org.basetools.util.tree;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ChildIndexTest {
+
+    private static TreeNode<String, Object> createWide(int size) {
+        TreeNode<String, Object> root = new TreeNode<>("root", null);
+        root.setChildIndexEnabled(true);
+        for (int i = 0; i < size; i++) {
+            root.addChild(new TreeNode<>("c" + i, null));
+        }
+        return root;
+    }
+
+    private static void assertConsistent(TreeNode<String, Object> parent) {
+        List<TreeNode<String, Object>> children = parent.getChildren();
+        for (int i = 0; i < children.size(); i++) {
+            TreeNode<String, Object> child = children.get(i);
+            assertEquals(i, child.getPos());
+            assertEquals(i, parent.indexOf(child));
+            assertSame(first(children, child.getName(), false), parent.getChildByName(child.getName()));
+            assertSame(first(children, child.getID(), true), parent.getChildByID(child.getID()));
+        }
+    }
+
+    private static TreeNode<String, Object> first(List<TreeNode<String, Object>> children, Object key, boolean id) {
+        for (TreeNode<String, Object> child : children) {
+            if (Objects.equals(id ? child.getID() : child.getName(), key)) {
+                return child;
+            }
+        }
+        return null;
+    }
+
+    @Test
+    void givenWideNode_whenLookingUpChildren_thenIndexFindsThem() {
+        TreeNode<String, Object> root = createWide(50_000);
+        assertSame(root.get(49_999), root.getChildByName("c49999"));
+        assertSame(root.get(12_345), root.getChildByID("c12345"));
+        assertNull(root.getChildByName("missing"));
+        assertEquals(25_000, root.get(25_000).getPos());
+        assertEquals(25_000, root.indexOf(root.get(25_000)));
+        assertEquals("/root/c4", root.get(4).getPath());
+        assertTrue(root.isChildIndexEnabled());
+        assertTrue(root.get(0).isChildIndexEnabled());
+    }
+
+    @Test
+    void givenIndexedNode_whenInsertingRemovingAndMoving_thenPositionsFollow() {
+        TreeNode<String, Object> root = createWide(100);
+        TreeNode<String, Object> other = new TreeNode<>("other", null);
+        root.addChild(other);
+        TreeNode<String, Object> inserted = root.add(10, new TreeNode<>("inserted", null));
+        assertEquals(10, inserted.getPos());
+        assertEquals(11, root.getChildByID("c10").getPos());
+        root.remove(5);
+        assertEquals(9, inserted.getPos());
+        assertNull(root.getChildByID("c5"));
+        root.getChildByID("c50").moveTo(other);
+        assertNull(root.getChildByID("c50"));
+        assertSame(root, root.getChildByName("c51").getParent());
+        assertEquals(0, other.getChildByID("c50").getPos());
+        assertConsistent(root);
+    }
+
+    @Test
+    void givenIndexedNode_whenRenamingChildren_thenLookupsFollow() {
+        TreeNode<String, Object> root = createWide(40);
+        TreeNode<String, Object> child = root.get(30);
+        child.withName("renamed");
+        assertSame(child, root.getChildByName("renamed"));
+        assertNull(root.getChildByName("c30"));
+        assertSame(child, root.getChildByID("c30"));
+        child.setId("id30");
+        assertSame(child, root.getChildByID("id30"));
+        assertNull(root.getChildByID("c30"));
+        // duplicates resolve to the first child
+        root.get(35).setName("renamed");
+        assertSame(child, root.getChildByName("renamed"));
+        root.get(3).setName("renamed");
+        assertSame(root.get(3), root.getChildByName("renamed"));
+        root.remove(3);
+        assertSame(child, root.getChildByName("renamed"));
+        assertConsistent(root);
+    }
+
+    @Test
+    void givenIndexedNode_whenChildrenListIsChangedDirectly_thenIndexIsRebuilt() {
+        TreeNode<String, Object> root = createWide(20);
+        assertEquals(19, root.getChildByID("c19").getPos());
+        TreeNode<String, Object> direct = new TreeNode<>("direct", null);
+        direct.setParent(root);
+        root.getChildren().add(0, direct);
+        assertSame(direct, root.getChildByID("direct"));
+        assertEquals(20, root.getChildByID("c19").getPos());
+        assertConsistent(root);
+    }
+
+    @Test
+    void givenAnonymousChildren_whenLookingUpByStructureId_thenFallsBackToScan() {
+        TreeNode<String, Object> root = createWide(20);
+        TreeNode<String, Object> anonymous = root.addChild(new TreeNode<>((String) null));
+        assertSame(anonymous, root.getChildByID(anonymous.getID()));
+    }
+
+    @Test
+    void givenRandomOperations_whenComparedToUnindexedNode_thenResultsAreEqual() {
+        Random random = new Random(7);
+        TreeNode<String, Object> indexed = createWide(0);
+        TreeNode<String, Object> plain = new TreeNode<>("root", null);
+        for (int i = 0; i < 2_000; i++) {
+            int op = random.nextInt(4);
+            String id = "n" + random.nextInt(300);
+            if (op < 2 || indexed.size() == 0) {
+                int pos = random.nextInt(indexed.size() + 1);
+                indexed.add(pos, new TreeNode<>(id, null));
+                plain.add(pos, new TreeNode<>(id, null));
+            } else if (op == 2) {
+                int pos = random.nextInt(indexed.size());
+                indexed.remove(pos);
+                plain.remove(pos);
+            } else {
+                int pos = random.nextInt(indexed.size());
+                indexed.get(pos).setName(id);
+                plain.get(pos).setName(id);
+            }
+            String key = "n" + random.nextInt(300);
+            assertEquals(indexOf(plain, plain.getChildByID(key)), indexOf(indexed, indexed.getChildByID(key)));
+            assertEquals(indexOf(plain, plain.getChildByName(key)), indexOf(indexed, indexed.getChildByName(key)));
+        }
+        assertFalse(plain.isChildIndexEnabled());
+        assertConsistent(indexed);
+    }
+
+    private static int indexOf(TreeNode<String, Object> parent, TreeNode<String, Object> child) {
+        return child == null ? -1 : parent.getChildren().indexOf(child);
+    }
+
+    @Test
+    void givenTreeWithChildIndex_whenAddingPaths_thenNodesInheritIt() {
+        Tree<String, Object> tree = new Tree<String, Object>().withChildIndex(true);
+        for (int i = 0; i < 100; i++) {
+            tree.addPath("a/b" + i + "/c", "v" + i);
+        }
+        TreeNode<String, Object> a = tree.getRoot().getChildByID("a");
+        assertTrue(a.isChildIndexEnabled());
+        assertEquals("v42", a.getChildByID("b42").getChildByID("c").getData());
+        assertEquals(42, a.getChildByID("b42").getPos());
+    }
+
+    @Test
+    void givenIndexedNode_whenAddingAndSettingChildrenInBulk_thenIndexIsBuiltOnce() {
+        TreeNode<String, Object> root = createWide(20);
+        // the lookup builds the index, the bulk add must not update it child by child
+        assertSame(root.get(3), root.getChildByName("c3"));
+        List<TreeNode<String, Object>> added = new ArrayList<>();
+        for (int i = 20; i < 20_020; i++) {
+            added.add(new TreeNode<>("c" + i, null));
+        }
+        long start = System.nanoTime();
+        root.addChildren(added);
+        assertSame(root.get(20_019), root.getChildByName("c20019"));
+        assertTrue(System.nanoTime() - start < 3_000_000_000L);
+        assertSame(root.get(3), root.getChildByID("c3"));
+        assertEquals(15_000, root.get(15_000).getPos());
+        assertTrue(root.get(15_000).isChildIndexEnabled());
+
+        List<TreeNode<String, Object>> replaced = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            replaced.add(new TreeNode<>("r" + (i % 30), null));
+        }
+        root.setChildren(replaced);
+        assertSame(replaced.get(5), root.getChildByName("r5"));
+        assertEquals(35, root.indexOf(replaced.get(35)));
+        assertConsistent(root);
+        root.addChildren(new ArrayList<>(List.of(new TreeNode<>("r1", null), new TreeNode<>("x", null))));
+        assertSame(replaced.get(1), root.getChildByName("r1"));
+        assertEquals(41, root.getChildByID("x").getPos());
+        assertConsistent(root);
+    }
+}
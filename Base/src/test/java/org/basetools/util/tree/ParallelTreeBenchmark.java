@@ -0,0 +1,75 @@
+package org.basetools.util.tree;
+
+import org.basetools.util.concurrent.worker.WorkService;
+
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+/**
+ * Compares the sequential traversals of {@link TreeNode} and {@link Tree} with {@link ParallelTreeExecutor} on a
+ * ForkJoinPool and on a {@link WorkService}, for a wide tree (1000 x 1000 nodes) and a deep binary tree (2^20 nodes).
+ * The mapper hashes the node data a few times to simulate per node work. Not part of the test run, start it with the
+ * main method.
+ */
+public class ParallelTreeBenchmark {
+    private static final int ROUNDS = 5;
+    private static final int WORK = 50;
+
+    public static void main(String[] args) {
+        final WorkService<Object> workService = new WorkService<>()
+                .withCorePoolSize(Runtime.getRuntime().availableProcessors())
+                .withMaximumPoolSize(Runtime.getRuntime().availableProcessors()).startWork();
+        try {
+            run("wide", ParallelTreeExecutorTest.createTree(1000, 1000), workService);
+            run("deep", ParallelTreeExecutorTest.createTree(2, 2, 2, 2, 2, 2, 2, 2, 2, 2, 2, 2, 2, 2, 2, 2, 2, 2, 2, 2),
+                    workService);
+        } finally {
+            workService.shutdown();
+        }
+    }
+
+    private static void run(String name, TreeNode<Integer, Object> root, WorkService<Object> workService) {
+        final Function<TreeNode<Integer, Object>, Long> mapper = ParallelTreeBenchmark::work;
+        final ParallelTreeExecutor forkJoin = new ParallelTreeExecutor();
+        final ParallelTreeExecutor worker = new ParallelTreeExecutor(workService);
+        final Tree<Integer, Object> tree = new Tree<>();
+        for (int round = 0; round < ROUNDS; round++) {
+            measure(name, "TreeNode.accept", () -> {
+                final long[] sum = {0};
+                root.accept((data, usr) -> {
+                    sum[0] += work(data);
+                    return null;
+                });
+                return sum[0];
+            });
+            measure(name, "Tree.build", () -> {
+                long sum = 0;
+                for (TreeNode<Integer, Object> node : tree.build(root, GenericTreeTraversalOrderEnum.PRE_ORDER)) {
+                    sum += work(node);
+                }
+                return sum;
+            });
+            measure(name, "ForkJoinPool", () -> forkJoin.mapReduce(root, mapper, 0L, Long::sum));
+            measure(name, "WorkService", () -> worker.mapReduce(root, mapper, 0L, Long::sum));
+            measure(name, "collect ForkJoinPool", () -> (long) forkJoin.collect(root, node -> true).size());
+        }
+    }
+
+    private static long work(TreeNode<Integer, Object> node) {
+        return work(node.getData());
+    }
+
+    private static long work(int data) {
+        long hash = data;
+        for (int i = 0; i < WORK; i++) {
+            hash = hash * 31 + (hash >>> 7);
+        }
+        return hash & 0xff;
+    }
+
+    private static void measure(String tree, String name, LongSupplier run) {
+        final long start = System.nanoTime();
+        final long result = run.getAsLong();
+        System.out.printf("%-5s %-22s %8.1f ms (%d)%n", tree, name, (System.nanoTime() - start) / 1e6, result);
+    }
+}
@@ -0,0 +1,101 @@
+package org.basetools.util.tree;
+
+import org.basetools.util.concurrent.worker.WorkService;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ParallelTreeExecutorTest {
+
+    /**
+     * Builds a tree with the given fan-out per level, numbering the nodes in pre-order.
+     */
+    static TreeNode<Integer, Object> createTree(int... fanOut) {
+        AtomicInteger counter = new AtomicInteger();
+        TreeNode<Integer, Object> root = new TreeNode<>(counter.getAndIncrement());
+        addChildren(root, fanOut, 0, counter);
+        return root;
+    }
+
+    private static void addChildren(TreeNode<Integer, Object> node, int[] fanOut, int level, AtomicInteger counter) {
+        if (level < fanOut.length) {
+            for (int i = 0; i < fanOut[level]; i++) {
+                TreeNode<Integer, Object> child = new TreeNode<>(node, counter.getAndIncrement());
+                addChildren(child, fanOut, level + 1, counter);
+            }
+        }
+    }
+
+    @Test
+    void givenTree_whenCollectedInParallel_thenNodesAreInPreOrder() {
+        TreeNode<Integer, Object> root = createTree(3, 7, 2, 5);
+        List<TreeNode<Integer, Object>> expected = new Tree<Integer, Object>().build(root,
+                GenericTreeTraversalOrderEnum.PRE_ORDER);
+        ParallelTreeExecutor executor = new ParallelTreeExecutor(new ForkJoinPool(4)).withSplitDepth(3)
+                .withSiblingBatch(2);
+        assertEquals(expected, executor.collect(root, node -> true));
+        // string concatenation is associative but not commutative
+        String sequential = expected.stream().map(node -> node.getData() + ",").reduce("", String::concat);
+        assertEquals(sequential, executor.mapReduce(root, node -> node.getData() + ",", "", String::concat));
+        assertEquals(sequential, new ParallelTreeExecutor().withSplitDepth(0)
+                .mapReduce(root, node -> node.getData() + ",", "", String::concat));
+    }
+
+    @Test
+    void givenWorkService_whenReduced_thenSkippedSubtreesAreLeftOut() {
+        WorkService<Object> workService = new WorkService<>().withCorePoolSize(3).withMaximumPoolSize(3).startWork();
+        try {
+            TreeNode<Integer, Object> root = createTree(4, 3, 3);
+            TreeNode<Integer, Object> skipped = root.get(1);
+            int skippedSize = skipped.getAllChildren().size() + 1;
+            TreeReduceVisitor<Integer, Object, int[]> visitor = new TreeReduceVisitor<Integer, Object, int[]>() {
+                @Override
+                public int[] identity() {
+                    return new int[2];
+                }
+
+                @Override
+                public int[] accumulate(int[] result, TreeNode<Integer, Object> node) {
+                    result[0]++;
+                    result[1] += node.getData();
+                    return result;
+                }
+
+                @Override
+                public int[] combine(int[] left, int[] right) {
+                    return new int[]{left[0] + right[0], left[1] + right[1]};
+                }
+
+                @Override
+                public boolean doBreak(TreeNode<Integer, Object> node) {
+                    return node == skipped;
+                }
+            };
+            ParallelTreeExecutor executor = new ParallelTreeExecutor(workService).withSplitDepth(2);
+            int[] result = executor.reduce(root, visitor);
+            int all = root.getAllChildren().size() + 1;
+            assertEquals(all - skippedSize, result[0]);
+            int skippedSum = executor.mapReduce(skipped, TreeNode::getData, 0, Integer::sum);
+            assertEquals(all * (all - 1) / 2 - skippedSum, result[1]);
+            AtomicInteger visited = new AtomicInteger();
+            executor.forEach(root, node -> visited.incrementAndGet());
+            assertEquals(all, visited.get());
+        } finally {
+            workService.shutdown();
+        }
+    }
+
+    @Test
+    void givenDeepChain_whenReduced_thenNoStackOverflow() {
+        TreeNode<Integer, Object> root = new TreeNode<>(0);
+        TreeNode<Integer, Object> node = root;
+        for (int i = 1; i < 100_000; i++) {
+            node = new TreeNode<>(node, 1);
+        }
+        assertEquals(99_999, new ParallelTreeExecutor().mapReduce(root, TreeNode::getData, 0, Integer::sum));
+    }
+}
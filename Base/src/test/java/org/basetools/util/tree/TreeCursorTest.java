@@ -0,0 +1,231 @@
+package org.basetools.util.tree;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class TreeCursorTest {
+
+    private static TreeNode<Integer, Object> createRandomTree(Random random, int size) {
+        List<TreeNode<Integer, Object>> nodes = new ArrayList<>();
+        nodes.add(new TreeNode<>(0));
+        for (int i = 1; i < size; i++) {
+            // prefer recent nodes as parents, so the tree gets deep as well as wide
+            int parent = Math.max(0, nodes.size() - 1 - random.nextInt(Math.min(nodes.size(), 8)));
+            if (random.nextInt(4) == 0) {
+                parent = random.nextInt(nodes.size());
+            }
+            nodes.add(new TreeNode<>(nodes.get(parent), i));
+        }
+        return nodes.get(0);
+    }
+
+    private static void preOrder(TreeNode<Integer, Object> node, Predicate<TreeNode<Integer, Object>> skip,
+                                 List<Integer> result) {
+        if (!skip.test(node)) {
+            result.add(node.getData());
+            for (int c = 0; c < node.size(); c++) {
+                preOrder(node.get(c), skip, result);
+            }
+        }
+    }
+
+    private static void postOrder(TreeNode<Integer, Object> node, Predicate<TreeNode<Integer, Object>> skip,
+                                  List<Integer> result) {
+        if (!skip.test(node)) {
+            for (int c = 0; c < node.size(); c++) {
+                postOrder(node.get(c), skip, result);
+            }
+            result.add(node.getData());
+        }
+    }
+
+    private static List<Integer> breadthFirst(TreeNode<Integer, Object> root, Predicate<TreeNode<Integer, Object>> skip) {
+        List<Integer> result = new ArrayList<>();
+        Deque<TreeNode<Integer, Object>> queue = new ArrayDeque<>();
+        if (!skip.test(root)) {
+            queue.add(root);
+        }
+        while (!queue.isEmpty()) {
+            TreeNode<Integer, Object> node = queue.poll();
+            result.add(node.getData());
+            for (int c = 0; c < node.size(); c++) {
+                if (!skip.test(node.get(c))) {
+                    queue.add(node.get(c));
+                }
+            }
+        }
+        return result;
+    }
+
+    private static List<Integer> collect(TreeCursor<Integer, Object> cursor) {
+        List<Integer> result = new ArrayList<>();
+        cursor.forEachRemaining(node -> result.add(node.getData()));
+        return result;
+    }
+
+    @Test
+    void givenRandomTrees_whenIterated_thenOrdersMatchRecursiveTraversals() {
+        Random random = new Random(5);
+        Predicate<TreeNode<Integer, Object>> skip = node -> node.getData() % 7 == 3;
+        TreeCursor<Integer, Object> pre = new TreeCursor<>(GenericTreeTraversalOrderEnum.PRE_ORDER);
+        TreeCursor<Integer, Object> post = new TreeCursor<>(GenericTreeTraversalOrderEnum.POST_ORDER);
+        TreeCursor<Integer, Object> breadth = new TreeCursor<>(GenericTreeTraversalOrderEnum.BREADTH_FIRST);
+        TreeCursor<Integer, Object> level = new TreeCursor<>(GenericTreeTraversalOrderEnum.LEVEL_ORDER);
+        for (int round = 0; round < 50; round++) {
+            TreeNode<Integer, Object> root = createRandomTree(random, 1 + random.nextInt(300));
+            List<Integer> expected = new ArrayList<>();
+            preOrder(root, node -> false, expected);
+            // the cursors are reused for every tree
+            assertEquals(expected, collect(pre.withBreak(null).reset(root)));
+            expected.clear();
+            preOrder(root, skip, expected);
+            assertEquals(expected, collect(pre.withBreak(skip).reset(root)));
+            expected.clear();
+            postOrder(root, skip, expected);
+            assertEquals(expected, collect(post.withBreak(skip).reset(root)));
+            assertEquals(breadthFirst(root, skip), collect(breadth.withBreak(skip).reset(root)));
+            assertEquals(breadthFirst(root, skip), collect(level.withBreak(skip).reset(root)));
+        }
+    }
+
+    @Test
+    void givenTree_whenIterated_thenDepthsAreRelativeToStartNode() {
+        TreeNode<Integer, Object> root = ParallelTreeExecutorTest.createTree(2, 3, 2);
+        for (GenericTreeTraversalOrderEnum order : GenericTreeTraversalOrderEnum.values()) {
+            TreeCursor<Integer, Object> cursor = root.get(1).cursor(order);
+            while (cursor.hasNext()) {
+                TreeNode<Integer, Object> node = cursor.next();
+                assertEquals(node.getLevel() - 1, cursor.getDepth(), order.name());
+            }
+        }
+        TreeCursor<Integer, Object> breadth = root.cursor(GenericTreeTraversalOrderEnum.BREADTH_FIRST);
+        int previous = 0;
+        while (breadth.hasNext()) {
+            breadth.next();
+            assertFalse(breadth.getDepth() < previous);
+            previous = breadth.getDepth();
+        }
+        assertEquals(3, previous);
+    }
+
+    @Test
+    void givenLevel_whenIteratingLevelOrder_thenOnlyThatLevelIsReturned() {
+        TreeNode<Integer, Object> root = ParallelTreeExecutorTest.createTree(2, 3, 2);
+        List<TreeNode<Integer, Object>> expected = new ArrayList<>();
+        for (TreeNode<Integer, Object> child : root.getChildren()) {
+            expected.addAll(child.getChildren());
+        }
+        TreeCursor<Integer, Object> cursor = new TreeCursor<Integer, Object>(GenericTreeTraversalOrderEnum.LEVEL_ORDER)
+                .withLevel(2).reset(root);
+        List<TreeNode<Integer, Object>> level = new ArrayList<>();
+        cursor.forEachRemaining(level::add);
+        assertEquals(expected, level);
+        List<TreeNode<Integer, Object>> nodesAtLevel = new ArrayList<>();
+        root.getNodesAtLevel(1, nodesAtLevel);
+        assertEquals(expected, nodesAtLevel);
+        assertFalse(cursor.withLevel(4).reset(root).hasNext());
+    }
+
+    @Test
+    void givenPreOrderAndBreadthFirst_whenSkippingChildren_thenSubtreesAreLeftOut() {
+        TreeNode<Integer, Object> root = ParallelTreeExecutorTest.createTree(2, 2, 2);
+        for (GenericTreeTraversalOrderEnum order : new GenericTreeTraversalOrderEnum[]{
+                GenericTreeTraversalOrderEnum.PRE_ORDER, GenericTreeTraversalOrderEnum.BREADTH_FIRST}) {
+            TreeCursor<Integer, Object> cursor = root.cursor(order);
+            List<Integer> visited = new ArrayList<>();
+            while (cursor.hasNext()) {
+                TreeNode<Integer, Object> node = cursor.next();
+                visited.add(node.getData());
+                if (cursor.getDepth() == 1) {
+                    cursor.skipChildren();
+                }
+            }
+            assertEquals(3, visited.size(), order.name());
+        }
+        assertThrows(UnsupportedOperationException.class,
+                () -> root.cursor(GenericTreeTraversalOrderEnum.POST_ORDER).skipChildren());
+    }
+
+    @Test
+    void givenStream_whenShortCircuited_thenTheTreeIsNotFullyTraversed() {
+        TreeNode<Integer, Object> root = ParallelTreeExecutorTest.createTree(10, 10, 10, 10);
+        AtomicInteger visited = new AtomicInteger();
+        TreeNode<Integer, Object> found = root.stream().peek(node -> visited.incrementAndGet())
+                .filter(node -> node.getData() == 5).findFirst().orElse(null);
+        assertEquals(5, found.getData());
+        assertEquals(6, visited.get());
+        assertEquals(root.getAllChildren().size() + 1, root.stream(GenericTreeTraversalOrderEnum.BREADTH_FIRST)
+                .collect(Collectors.toSet()).size());
+    }
+
+    @Test
+    void givenDeepTree_whenTraversed_thenNoStackOverflow() {
+        TreeNode<Integer, Object> root = new TreeNode<>(0);
+        TreeNode<Integer, Object> node = root;
+        for (int i = 1; i < 100_000; i++) {
+            node = node.addChild(new TreeNode<>(i));
+        }
+        TreeNode<Integer, Object> last = node;
+        assertEquals(99_999, root.getDepth());
+        assertEquals(99_999, root.getAllChildren().size());
+        assertSame(last, root.find(last.getData()));
+        assertSame(last, root.getLastChild());
+        assertSame(last, root.getFirstLeaf());
+        assertEquals(99_999, root.findNodesByData(99_999).get(0).getData());
+        List<TreeNode<Integer, Object>> postOrder = new Tree<Integer, Object>().build(root,
+                GenericTreeTraversalOrderEnum.POST_ORDER);
+        assertSame(last, postOrder.get(0));
+        Tree<Integer, Object> tree = new Tree<>();
+        tree.setRoot(root);
+        assertEquals(100_000, tree.getNumberOfNodes());
+        assertSame(last, tree.find(last));
+        AtomicInteger ends = new AtomicInteger();
+        root.accept(new TreeVisitor<Integer, Object>() {
+            @Override
+            public void visitStart(TreeNode<Integer, Object> aNode) {
+            }
+
+            @Override
+            public void visitEnd(TreeNode<Integer, Object> aNode) {
+                ends.incrementAndGet();
+            }
+
+            @Override
+            public boolean doBreak(TreeNode<Integer, Object> aNode) {
+                return aNode.getData() == 50_000;
+            }
+        });
+        assertEquals(50_000, ends.get());
+        StringBuilder xml = new StringBuilder();
+        root.toXML(xml, null, null);
+        assertEquals("<NUM0><NUM1>", xml.substring(0, 12));
+        assertEquals("</NUM1></NUM0>", xml.substring(xml.length() - 14));
+    }
+
+    @Test
+    void givenTree_whenRenderedAsXml_thenLeavesContainTheirUserObjects() {
+        TreeNode<String, String> root = new TreeNode<>("root");
+        root.addChild(new TreeNode<String, String>("a b").setUserObject("1 < 2"));
+        TreeNode<String, String> list = root.addChild(new TreeNode<>("list"));
+        list.addChild(new TreeNode<String, String>("").setUserObject("unnamed"));
+        list.addChild(new TreeNode<String, String>("42").setUserObject("number"));
+        StringBuilder xml = new StringBuilder();
+        root.toXML(xml, null, null);
+        assertEquals("<root><ab>1 &lt; 2</ab><list>unnamed<NUM42>number</NUM42></list></root>", xml.toString());
+        assertNull(new TreeNode<>("leaf").getFirstLeaf());
+    }
+}
@@ -0,0 +1,122 @@
+package org.basetools.util.tree;
+
+import java.util.List;
+import java.util.Random;
+import java.util.function.LongSupplier;
+
+/**
+ * Compares the lookups of {@link TreeNode} with and without the tree index on a tree of 10^6 nodes (100 x 100 x 100
+ * below the root): finding nodes by data identity, by equal data and by ID, finding ancestors by ID and building the
+ * paths, as well as rebuilding the index after a change and alternating changes and lookups. Not part of the test
+ * run, start it with the main method.
+ */
+public class TreeIndexBenchmark {
+    private static final int ROUNDS = 3;
+    private static final int LOOKUPS = 200;
+
+    public static void main(String[] args) {
+        final TreeNode<Integer, Object> plain = createTree();
+        final TreeNode<Integer, Object> indexed = createTree();
+        indexed.setTreeIndexEnabled(true);
+        final List<TreeNode<Integer, Object>> nodes = new Tree<Integer, Object>().build(indexed,
+                GenericTreeTraversalOrderEnum.PRE_ORDER);
+        final List<TreeNode<Integer, Object>> plainNodes = new Tree<Integer, Object>().build(plain,
+                GenericTreeTraversalOrderEnum.PRE_ORDER);
+        System.out.println(nodes.size() + " nodes");
+        for (int round = 0; round < ROUNDS; round++) {
+            run("plain", plain, plainNodes);
+            run("indexed", indexed, nodes);
+            measure("indexed", "change and rebuild", () -> {
+                nodes.get(nodes.size() / 2).setData(-1);
+                long found = 0;
+                for (int i = 0; i <= TreeIndex.SCANS_BEFORE_REBUILD; i++) {
+                    found += indexed.find(-1) != null ? 1 : 0;
+                }
+                return found;
+            });
+            interleave("plain", plain, plainNodes);
+            interleave("indexed", indexed, nodes);
+        }
+    }
+
+    /**
+     * Alternates changing the data of a node and looking up another node, so the index never stays up to date.
+     */
+    private static void interleave(String name, TreeNode<Integer, Object> root,
+                                   List<TreeNode<Integer, Object>> nodes) {
+        measure(name, "change and find", () -> {
+            final Random random = new Random(5);
+            long found = 0;
+            for (int i = 0; i < LOOKUPS; i++) {
+                final TreeNode<Integer, Object> changed = nodes.get(random.nextInt(nodes.size()));
+                changed.setData(changed.getData());
+                found += root.findNodeByData(random.nextInt(nodes.size())) != null ? 1 : 0;
+            }
+            return found;
+        });
+    }
+
+    private static TreeNode<Integer, Object> createTree() {
+        final TreeNode<Integer, Object> root = ParallelTreeExecutorTest.createTree(100, 100, 100);
+        for (TreeNode<Integer, Object> node : new Tree<Integer, Object>().build(root,
+                GenericTreeTraversalOrderEnum.PRE_ORDER)) {
+            node.setId("n" + node.getData());
+        }
+        return root;
+    }
+
+    private static void run(String name, TreeNode<Integer, Object> root, List<TreeNode<Integer, Object>> nodes) {
+        measure(name, "find(data)", () -> {
+            final Random random = new Random(1);
+            long found = 0;
+            for (int i = 0; i < LOOKUPS; i++) {
+                found += root.find(nodes.get(random.nextInt(nodes.size())).getData()) != null ? 1 : 0;
+            }
+            return found;
+        });
+        measure(name, "findNodeByData", () -> {
+            final Random random = new Random(2);
+            long found = 0;
+            for (int i = 0; i < LOOKUPS; i++) {
+                found += root.findNodeByData(random.nextInt(nodes.size())) != null ? 1 : 0;
+            }
+            return found;
+        });
+        measure(name, "findNodeByID", () -> {
+            final Random random = new Random(3);
+            long found = 0;
+            for (int i = 0; i < LOOKUPS; i++) {
+                found += root.findNodeByID("n" + random.nextInt(nodes.size())) != null ? 1 : 0;
+            }
+            return found;
+        });
+        measure(name, "findParentByID x1000", () -> {
+            final Random random = new Random(4);
+            long found = 0;
+            for (int i = 0; i < LOOKUPS * 1000; i++) {
+                found += nodes.get(random.nextInt(nodes.size())).findParentByID("n1") != null ? 1 : 0;
+            }
+            return found;
+        });
+        measure(name, "getPath all nodes", () -> {
+            long length = 0;
+            for (TreeNode<Integer, Object> node : nodes) {
+                length += node.getPath().length();
+            }
+            return length;
+        });
+        measure(name, "getPath all again", () -> {
+            long length = 0;
+            for (TreeNode<Integer, Object> node : nodes) {
+                length += node.getPath().length();
+            }
+            return length;
+        });
+    }
+
+    private static void measure(String tree, String name, LongSupplier run) {
+        final long start = System.nanoTime();
+        final long result = run.getAsLong();
+        System.out.printf("%-8s %-22s %8.1f ms (%d)%n", tree, name, (System.nanoTime() - start) / 1e6, result);
+    }
+}
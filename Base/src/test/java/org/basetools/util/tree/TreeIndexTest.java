@@ -0,0 +1,192 @@
+package org.basetools.util.tree;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TreeIndexTest {
+    private static final String[] DATA = {"a", "b", "c", new String("a"), "d", "e"};
+
+    private static List<TreeNode<String, Integer>> preOrder(TreeNode<String, Integer> root) {
+        return new Tree<String, Integer>().build(root, GenericTreeTraversalOrderEnum.PRE_ORDER);
+    }
+
+    private static Integer label(TreeNode<String, Integer> node) {
+        return node == null ? null : node.getUserObject();
+    }
+
+    private static List<Integer> labels(List<TreeNode<String, Integer>> nodes) {
+        if (nodes == null) {
+            return null;
+        }
+        List<Integer> labels = new ArrayList<>();
+        nodes.forEach(node -> labels.add(label(node)));
+        return labels;
+    }
+
+    /**
+     * Applies the same random change to both trees, the nodes are identified by their user objects.
+     */
+    private static void mutate(Random random, TreeNode<String, Integer> first, TreeNode<String, Integer> second,
+                               Integer label) {
+        List<TreeNode<String, Integer>> firstNodes = preOrder(first);
+        List<TreeNode<String, Integer>> secondNodes = preOrder(second);
+        int pos = random.nextInt(firstNodes.size());
+        TreeNode<String, Integer> a = firstNodes.get(pos);
+        TreeNode<String, Integer> b = secondNodes.get(pos);
+        String data = DATA[random.nextInt(DATA.length)];
+        switch (random.nextInt(6)) {
+            case 0:
+            case 1:
+                // structure IDs are cached by the nodes when first used, so both trees get explicit IDs
+                String id = "n" + random.nextInt(20);
+                a.addChild(new TreeNode<>(id, data, label));
+                b.addChild(new TreeNode<>(id, data, label));
+                break;
+            case 2:
+                if (a.getParent() != null) {
+                    a.removeFromParent();
+                    b.removeFromParent();
+                }
+                break;
+            case 3:
+                a.setData(data);
+                b.setData(data);
+                break;
+            case 4:
+                a.setId("n" + random.nextInt(20));
+                b.setId(a.getID());
+                break;
+            default:
+                int target = random.nextInt(firstNodes.size());
+                if (a.getParent() != null && !a.isChild(firstNodes.get(target), true) && target != pos) {
+                    a.moveTo(firstNodes.get(target));
+                    b.moveTo(secondNodes.get(target));
+                }
+        }
+    }
+
+    @Test
+    void givenRandomChanges_whenComparedToUnindexedTree_thenLookupsAreEqual() {
+        Random random = new Random(11);
+        TreeNode<String, Integer> indexed = new TreeNode<>("root", "a", 0);
+        TreeNode<String, Integer> plain = new TreeNode<>("root", "a", 0);
+        indexed.setTreeIndexEnabled(true);
+        for (int i = 1; i < 600; i++) {
+            mutate(random, indexed, plain, i);
+            List<TreeNode<String, Integer>> indexedNodes = preOrder(indexed);
+            List<TreeNode<String, Integer>> plainNodes = preOrder(plain);
+            assertEquals(labels(plainNodes), labels(indexedNodes));
+            for (int k = 0; k < 5; k++) {
+                int pos = random.nextInt(indexedNodes.size());
+                TreeNode<String, Integer> from = indexedNodes.get(pos);
+                TreeNode<String, Integer> plainFrom = plainNodes.get(pos);
+                String data = DATA[random.nextInt(DATA.length)];
+                String id = "n" + random.nextInt(20);
+                TreeNode<String, Integer> other = plainNodes.get(random.nextInt(plainNodes.size()));
+                assertTrue(from.isTreeIndexEnabled());
+                assertEquals(label(plainFrom.find(data)), label(from.find(data)));
+                assertEquals(label(plainFrom.find(data, other.getUserObject())),
+                        label(from.find(data, other.getUserObject())));
+                assertEquals(label(plainFrom.find(other)), label(from.find(other)));
+                assertEquals(label(plainFrom.findNodeByData(data)), label(from.findNodeByData(data)));
+                assertEquals(labels(plainFrom.findNodesByData(data)), labels(from.findNodesByData(data)));
+                assertEquals(label(plainFrom.findParentByID(id)), label(from.findParentByID(id)));
+                assertEquals(label(plainFrom.findNodeByID(id)), label(from.findNodeByID(id)));
+                assertEquals(plainFrom.getPath(), from.getPath());
+            }
+        }
+    }
+
+    @Test
+    void givenIndexedTree_whenChangingIdsAndLists_thenPathsAreUpdated() {
+        Tree<String, Integer> tree = new Tree<String, Integer>().withIndex(true);
+        tree.addPath("a/b/c", "x");
+        TreeNode<String, Integer> c = tree.getRoot().findNodeByData("x");
+        assertEquals("/root/a/b/c", c.getPath());
+        assertSame(c.getPath(), c.getPath());
+        c.getParent().setId("renamed");
+        assertEquals("/root/a/renamed/c", c.getPath());
+        TreeNode<String, Integer> list = c.getParent().getParent();
+        list.setIsList(true);
+        assertEquals("/root/renamed[1]/c", c.getPath());
+        list.addChild(new TreeNode<>("d", null));
+        assertEquals("/root/d[2]", tree.getRoot().findNodeByID("d").getPath());
+    }
+
+    @Test
+    void givenIndexedTree_whenFindingNodes_thenCacheAndIndexAreUsed() {
+        Tree<String, Integer> tree = new Tree<String, Integer>().withIndex(true);
+        tree.addPath("a/b", "x");
+        TreeNode<String, Integer> cached = new TreeNode<>("cached", "y");
+        tree.addNode(tree.getRoot().getID(), cached);
+        assertSame(cached, tree.find("cached"));
+        assertEquals("x", tree.find("b").getData());
+        assertTrue(tree.exists(tree.find("b")));
+        TreeNode<String, Integer> detached = tree.find("a");
+        detached.removeFromParent();
+        assertNull(tree.find("b"));
+        assertFalse(tree.exists(detached.findNodeByID("b")));
+        // lookups in the detached subtree still work
+        assertEquals("x", detached.findNodeByID("b").getData());
+        assertSame(detached, detached.findNodeByID("b").findParentByID("a"));
+    }
+
+    @Test
+    void givenDeepTree_whenLookingUpAncestors_thenNoRecursionIsNeeded() {
+        TreeNode<String, Integer> root = new TreeNode<>("root", "root", 0);
+        root.setTreeIndexEnabled(true);
+        TreeNode<String, Integer> node = root;
+        for (int i = 1; i < 50_000; i++) {
+            node = node.addChild(new TreeNode<>("n" + i, "d" + i, i));
+        }
+        assertSame(root, node.findParentByID("root"));
+        assertSame(node, root.findNodeByData("d49999"));
+        assertSame(node, root.find(node.getData(), node.getUserObject()));
+        assertTrue(node.getPath().endsWith("/n49998/n49999"));
+    }
+
+    @Test
+    void givenIndexedTree_whenChangingDataIdsAndUserObjects_thenOnlyTheAffectedPartIsRebuilt() {
+        TreeNode<String, Integer> root = new TreeNode<>("root", "root", 0);
+        root.setTreeIndexEnabled(true);
+        for (int i = 1; i <= 100; i++) {
+            root.addChild(new TreeNode<>("n" + i, "d" + i, i));
+        }
+        TreeNode<String, Integer> node = root.get(49);
+        for (int i = 0; i <= TreeIndex.SCANS_BEFORE_REBUILD; i++) {
+            assertSame(node, root.findNodeByData("d50"));
+        }
+        long numbered = node._indexVersion;
+        assertTrue(numbered != 0);
+        // alternating changes and lookups scan, the numbering is kept
+        for (int i = 0; i < 10; i++) {
+            String data = "x" + i;
+            node.setData(data);
+            assertSame(node, root.findNodeByData("x" + i));
+            node.setId("id" + i);
+            assertSame(node, root.findNodeByID("id" + i));
+            node.setUserObject(-i);
+            assertSame(node, root.find(data, -i));
+        }
+        for (int i = 0; i <= TreeIndex.SCANS_BEFORE_REBUILD; i++) {
+            assertSame(node, root.findNodeByData("x9"));
+            assertSame(node, root.findNodeByID("id9"));
+        }
+        assertEquals(numbered, node._indexVersion);
+        assertEquals("/root/id9", node.getPath());
+        root.addChild(new TreeNode<>("n101", "x9", 101));
+        for (int i = 0; i <= TreeIndex.SCANS_BEFORE_REBUILD; i++) {
+            assertEquals(2, root.findNodesByData("x9").size());
+        }
+        assertTrue(numbered != node._indexVersion);
+    }
+}
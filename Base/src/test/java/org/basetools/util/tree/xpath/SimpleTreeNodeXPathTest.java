@@ -0,0 +1,57 @@
+package org.basetools.util.tree.xpath;
+
+import org.basetools.util.tree.TreeNode;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SimpleTreeNodeXPathTest {
+    private static final String[] NAMES = {"a", "b", "c"};
+
+    private static TreeNode<Object, Object> createTree(long seed, int size) {
+        Random random = new Random(seed);
+        TreeNode<Object, Object> root = new TreeNode<>();
+        List<TreeNode<Object, Object>> nodes = new ArrayList<>(List.of(root));
+        for (int i = 0; i < size; i++) {
+            TreeNode<Object, Object> parent = nodes.get(random.nextInt(nodes.size()));
+            nodes.add(new TreeNode<>(parent, i).withName(NAMES[random.nextInt(NAMES.length)]));
+        }
+        return root;
+    }
+
+    @Test
+    void givenSimplePaths_whenEvaluated_thenResultsEqualJaxen() {
+        String[] expressions = {"/", "a", "/a", "/a/b", "//c", "//*/c", "//a//c", "//a/c", "/a/*", "/*[1]", "//c[1]",
+                "//*[2]", "//a[1]//c", "//a//b//c", "/a/@x", "/a[@x]", "//b[3]/node()", "a/b[2]/c", "//a[@*]"};
+        TreeNodeXPathExecuterImpl jaxen = new TreeNodeXPathExecuterImpl().withFastPath(false);
+        TreeNodeXPathExecuterImpl fast = new TreeNodeXPathExecuterImpl();
+        for (long seed = 0; seed < 20; seed++) {
+            TreeNode<Object, Object> root = createTree(seed, 200);
+            for (String expression : expressions) {
+                assertNotNull(SimpleTreeNodeXPath.parse(expression), expression);
+                assertEquals(jaxen.processXPathJaxen(expression, root), fast.processXPathJaxen(expression, root),
+                        expression);
+            }
+        }
+        assertEquals(20 * expressions.length, fast.getFastPathCount());
+        assertEquals(0, jaxen.getFastPathCount());
+    }
+
+    @Test
+    void givenOtherExpressions_whenParsed_thenTheyAreLeftToJaxen() {
+        String[] expressions = {"", "//", "a/", "a/..", ".", "(//c)[2]", "count(//c)", "//c[last()]", "a[1][2]",
+                "a[ 1 ]", "a[0]", "p:a", "a|b", "text()", "child::a", "a[@p:x]"};
+        for (String expression : expressions) {
+            assertNull(SimpleTreeNodeXPath.parse(expression), expression);
+        }
+        TreeNode<Object, Object> root = createTree(1, 50);
+        TreeNodeXPathExecuterImpl executer = new TreeNodeXPathExecuterImpl();
+        assertEquals(executer.withFastPath(false).processXPathJaxen("//a", root).size(),
+                executer.withFastPath(true).processXPathJaxen("//c/..|//a", root).size());
+        assertEquals(0, executer.getFastPathCount());
+    }
+}
@@ -0,0 +1,47 @@
+package org.basetools.util.tree.xpath;
+
+import org.basetools.util.tree.TreeNode;
+
+import java.util.List;
+
+/**
+ * Measures the evaluation of a few simple expressions over a small tree with and without the compiled expression
+ * cache of {@link TreeNodeXPathExecuterImpl}, and with Jaxen against the {@link SimpleTreeNodeXPath} fast path. Not part of the test run, start it with the main method.
+ */
+public class TreeNodeXPathBenchmark {
+    private static final List<String> EXPRESSIONS = List.of("/a/b[2]/c", "//c", "/*/b/c[1]", "/a/b[@x]/c",
+            "//b/c[2]");
+    private static final int ITERATIONS = 100_000;
+    private static final int ROUNDS = 5;
+
+    public static void main(String[] args) {
+        final TreeNode<Object, Object> root = new TreeNode<>();
+        final TreeNode<Object, Object> a = new TreeNode<>(root, null).withName("a");
+        for (int b = 0; b < 5; b++) {
+            final TreeNode<Object, Object> bNode = new TreeNode<>(a, null).withName("b");
+            for (int c = 0; c < 5; c++) {
+                new TreeNode<>(bNode, null).withName("c");
+            }
+        }
+        for (int round = 0; round < ROUNDS; round++) {
+            measure("parse per call", new TreeNodeXPathExecuterImpl(0).withTimings(false).withFastPath(false), root);
+            measure("cached", new TreeNodeXPathExecuterImpl().withTimings(false).withFastPath(false), root);
+            measure("cached, timed", new TreeNodeXPathExecuterImpl().withFastPath(false), root);
+            measure("fast path", new TreeNodeXPathExecuterImpl().withTimings(false), root);
+            measure("fast path, timed", new TreeNodeXPathExecuterImpl(), root);
+        }
+    }
+
+    private static void measure(String name, TreeNodeXPathExecuterImpl executer, TreeNode<Object, Object> root) {
+        long results = 0;
+        final long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            final List<? extends TreeNode> selected = executer.processXPathJaxen(EXPRESSIONS.get(i % EXPRESSIONS.size()),
+                    root);
+            results += selected == null ? 0 : selected.size();
+        }
+        final long elapsed = System.nanoTime() - start;
+        System.out.printf("%-16s %7.2f us/evaluation, %d compilations (%d)%n", name, elapsed / 1e3 / ITERATIONS,
+                executer.getCompilationCount(), results);
+    }
+}
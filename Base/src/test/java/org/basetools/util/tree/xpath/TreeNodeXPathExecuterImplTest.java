@@ -1,11 +1,13 @@
 package org.basetools.util.tree.xpath;
 
+import net.minidev.json.JSONObject;
 import org.basetools.util.tree.Tree;
+import org.jaxen.JaxenException;
 import org.junit.jupiter.api.Test;
 
 import javax.xml.transform.TransformerException;
 
-import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.*;
 
 class TreeNodeXPathExecuterImplTest {
 
@@ -22,4 +24,49 @@ class TreeNodeXPathExecuterImplTest {
         assertEquals(1, TreeNodeXPathExecuterImpl.getInstance().processXPathJaxen("/*/name", tree.getRoot()).size());
         assertEquals(1, TreeNodeXPathExecuterImpl.getInstance().processXPathJaxen("/mein/name", tree.getRoot()).size());
     }
+
+    @Test
+    void givenRepeatedExpression_whenEvaluated_thenItIsParsedOnceAndTimed() {
+        Tree tree = new Tree<>();
+        tree.addPath("/mein/name/ist/hase", null);
+        tree.addPath("/mein/name/war/hase", null);
+        TreeNodeXPathExecuterImpl executer = new TreeNodeXPathExecuterImpl(16);
+        for (int i = 0; i < 10; i++) {
+            assertEquals(2, executer.processXPathJaxen("//hase", tree.getRoot()).size());
+        }
+        assertEquals(10, executer.getEvaluationCount());
+        assertEquals(1, executer.getCompilationCount());
+        assertEquals(10, executer.getTiming("//hase").getCount());
+        assertEquals(10L, ((JSONObject) executer.getTimings().get("//hase")).get("count"));
+        // the same expression with another naming is compiled separately
+        TreeDocumentNavigator byId = new TreeDocumentNavigator(new XPathTreeNodeHandler()).withUseIdAsName(true);
+        assertEquals(2, executer.processXPathJaxen(byId, "//hase", tree.getRoot()).size());
+        assertEquals(2, executer.getCompilationCount());
+        assertEquals(1, executer.getTiming(byId, "//hase").getCount());
+        assertEquals(2, executer.getTimings().size());
+        // invalid expressions are not cached
+        assertThrows(JaxenException.class, () -> executer.compile(byId, "//["));
+        assertThrows(JaxenException.class, () -> executer.compile(byId, "//["));
+        assertEquals(4, executer.getCompilationCount());
+        assertEquals(11L, executer.getInfo().get("Evaluations"));
+    }
+
+    @Test
+    void givenNavigatorsSharingAHandler_whenOneSwitchesToIdNaming_thenTheOtherKeepsNames() {
+        Tree tree = new Tree<>();
+        tree.addPath("/mein/name", null);
+        tree.getRoot().getFirstChild().getFirstChild().setName("name");
+        tree.getRoot().getFirstChild().getFirstChild().setId("id");
+        XPathTreeNodeHandler handler = new XPathTreeNodeHandler();
+        TreeDocumentNavigator first = new TreeDocumentNavigator(handler);
+        TreeDocumentNavigator second = new TreeDocumentNavigator(handler);
+        TreeNodeXPathExecuterImpl executer = new TreeNodeXPathExecuterImpl(16).withFastPath(false);
+        assertEquals(1, executer.processXPathJaxen(first, "//name", tree.getRoot()).size());
+        first.withUseIdAsName(true);
+        assertEquals(0, executer.processXPathJaxen(first, "//name", tree.getRoot()).size());
+        assertEquals(1, executer.processXPathJaxen(second, "//name", tree.getRoot()).size());
+        assertEquals(2, executer.getCompilationCount());
+        assertEquals(2, executer.getTiming(first, "//name").getCount());
+        assertEquals(1, executer.getTiming(second, "//name").getCount());
+    }
 }